@@ -0,0 +1,389 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Classification results backed by primitive arrays.
+ *
+ * The results keep a reference to the classified
+ * trajectory instead of copying its transitions, and
+ * the class distributions are stored in a single
+ * matrix (transitions x classes). The distributions
+ * can be set also as class log likelihoods: in this
+ * case they are normalized (log-sum-exp) only when
+ * they are read. If the results are generated to keep
+ * only the final distribution, the distributions of
+ * the other transitions are dropped.
+ *
+ * The transitions returned by getTransition are
+ * generated on demand. The distributions are not
+ * validated when they are set.
+ */
+public class ArrayClassificationResults implements IClassificationResult<Double> {
+
+	private final ITrajectory<Double> trajectory;
+	private final NodeIndexing nodeIndexing;
+	private String name;
+	private String className;
+	private final double[] times;				// times of the result transitions (null if they are the trajectory transitions)
+	private final int[] trjIndex;				// trajectory transition of each result transition (-i-2 for a time stream transition after the trajectory transition i)
+	private final int nClasses;
+	private final boolean finalOnly;
+	private double[] pDistr;					// class distributions (NaN if not set)
+	private double[] logPDistr;					// class log likelihoods, normalized when read (NaN if not set)
+	private Map<String,Integer> stateToIndex;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param trajectory the trajectory over which generate the results
+	 * @param nClasses number of class states
+	 * @param finalOnly true to keep only the distribution of the last transition
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public ArrayClassificationResults(ITrajectory<Double> trajectory, int nClasses, boolean finalOnly) throws IllegalArgumentException {
+
+		this(trajectory, null, nClasses, finalOnly);
+	}
+
+	/**
+	 * Constructor to generate the results with a finer
+	 * granularity (see ClassificationResults).
+	 *
+	 * @param trajectory the trajectory over which generate the results
+	 * @param timeStream a time stream to add the results at particular times (null or empty for no additional times)
+	 * @param nClasses number of class states
+	 * @param finalOnly true to keep only the distribution of the last transition
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public ArrayClassificationResults(ITrajectory<Double> trajectory, List<Double> timeStream, int nClasses, boolean finalOnly) throws IllegalArgumentException {
+
+		if( trajectory == null)
+			throw new IllegalArgumentException("Error: null trajectory argument");
+		if( nClasses < 1)
+			throw new IllegalArgumentException("Error: the number of classes must be positive");
+
+		this.trajectory = trajectory;
+		this.nodeIndexing = trajectory.getNodeIndexing();
+		this.name = trajectory.getName();
+		this.nClasses = nClasses;
+		this.finalOnly = finalOnly;
+		if( timeStream == null || timeStream.isEmpty()) {
+			this.times = null;
+			this.trjIndex = null;
+			return;
+		}
+
+		int nTrj = trajectory.getTransitionsNumber();
+		double[] times = new double[nTrj + timeStream.size()];
+		int[] trjIndex = new int[times.length];
+		int n = 0;
+		int iTrj = 0;									// index over trajectory
+		int iTS = 0;									// index over time stream
+		while(iTrj < nTrj || iTS < timeStream.size()) {
+			if( iTrj < nTrj && (iTS == timeStream.size() || trajectory.getTransitionTime(iTrj).compareTo( timeStream.get(iTS)) <= 0)) {
+				times[n] = trajectory.getTransitionTime(iTrj);
+				trjIndex[n++] = iTrj;
+
+				// Update the indexes
+				if( iTS != timeStream.size() && trajectory.getTransitionTime(iTrj).compareTo( timeStream.get(iTS)) == 0)
+					++iTS;
+				++iTrj;
+			} else {
+				times[n] = timeStream.get(iTS);
+				trjIndex[n++] = -iTrj - 1;
+				++iTS;
+			}
+		}
+		this.times = Arrays.copyOf(times, n);
+		this.trjIndex = Arrays.copyOf(trjIndex, n);
+	}
+
+	/**
+	 * True if only the distribution of the last
+	 * transition is kept.
+	 *
+	 * @return true if only the final distribution is kept
+	 */
+	public boolean isFinalOnly() {
+
+		return this.finalOnly;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#setClassification(java.lang.String)
+	 */
+	@Override
+	public void setClassification(String className) {
+
+		this.className = className;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#getClassification()
+	 */
+	@Override
+	public String getClassification() {
+
+		return this.className;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#setProbability(int, double[], java.util.Map)
+	 */
+	@Override
+	public void setProbability(int iTransition, double[] p, Map<String, Integer> stateToIndex) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		if( p == null || p.length != this.nClasses)
+			throw new IllegalArgumentException("Error: the probability distribution must have " + this.nClasses + " values");
+
+		int offset = this.offset(iTransition);
+		if( offset == -1)
+			return;													// dropped distribution
+		if( this.pDistr == null)
+			this.pDistr = this.newMatrix();
+		System.arraycopy(p, 0, this.pDistr, offset, this.nClasses);
+		if( this.logPDistr != null)
+			this.logPDistr[offset] = Double.NaN;
+		this.stateToIndex = stateToIndex;
+	}
+
+	/**
+	 * Set the class distribution of a transition as
+	 * class log likelihoods (or log probabilities up
+	 * to a constant). The distribution is normalized
+	 * only when it is read.
+	 *
+	 * @param iTransition index of the transition
+	 * @param logP log likelihood of each class
+	 * @param stateToIndex the mapping between the state name and the index for the probability
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public void setLogProbability(int iTransition, double[] logP, Map<String, Integer> stateToIndex) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		if( logP == null || logP.length != this.nClasses)
+			throw new IllegalArgumentException("Error: the probability distribution must have " + this.nClasses + " values");
+
+		int offset = this.offset(iTransition);
+		if( offset == -1)
+			return;													// dropped distribution
+		if( this.logPDistr == null)
+			this.logPDistr = this.newMatrix();
+		System.arraycopy(logP, 0, this.logPDistr, offset, this.nClasses);
+		if( this.pDistr != null)
+			this.pDistr[offset] = Double.NaN;
+		this.stateToIndex = stateToIndex;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#getPDistribution(int)
+	 */
+	@Override
+	public double[] getPDistribution(int iTransition) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		int offset = this.offset(iTransition);
+		if( offset == -1 || this.stateToIndex == null)
+			return null;
+		if( this.pDistr != null && !Double.isNaN(this.pDistr[offset]))
+			return Arrays.copyOfRange(this.pDistr, offset, offset + this.nClasses);
+		if( this.logPDistr != null && !Double.isNaN(this.logPDistr[offset]))
+			return CompiledCTBNClassifier.posterior(Arrays.copyOfRange(this.logPDistr, offset, offset + this.nClasses));
+
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#getPDistribution()
+	 */
+	@Override
+	public double[] getPDistribution() {
+
+		return this.getPDistribution(this.getTransitionsNumber() - 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#getProbability(int, java.lang.String)
+	 */
+	@Override
+	public Double getProbability(int iTransition, String classStateName) throws IllegalArgumentException {
+
+		double[] p = this.getPDistribution(iTransition);
+		if( p == null)
+			return null;
+
+		Integer cIndex = this.stateToIndex.get(classStateName);
+		if( cIndex == null)
+			throw new IllegalArgumentException("Error: class state " + classStateName + " not found");
+
+		return p[cIndex];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IClassificationResult#getProbability(java.lang.String)
+	 */
+	@Override
+	public Double getProbability(String classStateName) throws IllegalArgumentException {
+
+		return this.getProbability(this.getTransitionsNumber() - 1, classStateName);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.IClassificationResult#resultToString()
+	 */
+	@Override
+	public String resultToString() {
+
+		Double p = this.getProbability(this.className);
+		if( p != null)
+			return this.getName() + ": True Class: " + this.getNodeValue(0, this.nodeIndexing.getClassIndex()) + ", Predicted: " + this.getClassification() + ", Probability: " + p;
+		else
+			return this.getName() + ": True Class: " + this.getNodeValue(0, this.nodeIndexing.getClassIndex()) + ", Predicted: " + this.getClassification();
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#setName(java.lang.String)
+	 */
+	@Override
+	public void setName(String name) {
+
+		this.name = name;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getName()
+	 */
+	@Override
+	public String getName() {
+
+		return this.name;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransitionsNumber()
+	 */
+	@Override
+	public int getTransitionsNumber() {
+
+		if( this.times == null)
+			return this.trajectory.getTransitionsNumber();
+
+		return this.times.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransitionTime(int)
+	 */
+	@Override
+	public Double getTransitionTime(int iTransition) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		if( this.times == null)
+			return this.trajectory.getTransitionTime(iTransition);
+
+		return this.times[iTransition];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getNodeValue(int, int)
+	 */
+	@Override
+	public String getNodeValue(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		int iTrj = this.times == null ? iTransition : this.trjIndex[iTransition];
+		if( iTrj < 0)
+			iTrj = -iTrj - 2;										// last trajectory transition before the time stream transition
+		if( iTrj < 0)
+			throw new IllegalArgumentException("Error: node " + this.nodeIndexing.getName( nodeIndex) + " didn't find");
+
+		return this.trajectory.getNodeValue(iTrj, nodeIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransition(int)
+	 */
+	@Override
+	public ITransition<Double> getTransition(int iTransition) throws IllegalArgumentException {
+
+		this.checkTransition(iTransition);
+		int iTrj = this.times == null ? iTransition : this.trjIndex[iTransition];
+		ClassificationTransition<Double> transition;
+		if( iTrj >= 0)
+			transition = new ClassificationTransition<Double>( this.trajectory.getTransition(iTrj));
+		else
+			transition = new ClassificationTransition<Double>( new CTTransition<Double>( this.nodeIndexing, this.times[iTransition]));
+		double[] p = this.getPDistribution(iTransition);
+		if( p != null)
+			transition.setProbability(p, this.stateToIndex);
+
+		return transition;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getNodeIndexing()
+	 */
+	@Override
+	public NodeIndexing getNodeIndexing() {
+
+		return this.nodeIndexing;
+	}
+
+	/**
+	 * Check the transition index.
+	 *
+	 * @param iTransition index of the transition
+	 * @throws IllegalArgumentException if the index is out of bound
+	 */
+	private void checkTransition(int iTransition) throws IllegalArgumentException {
+
+		if( iTransition < 0 || iTransition >= this.getTransitionsNumber())
+			throw new IllegalArgumentException("Error: transition index out of bound");
+	}
+
+	/**
+	 * Generate a distributions matrix filled
+	 * with NaN (i.e. not set).
+	 *
+	 * @return new distributions matrix
+	 */
+	private double[] newMatrix() {
+
+		double[] matrix = new double[this.finalOnly ? this.nClasses : this.getTransitionsNumber() * this.nClasses];
+		Arrays.fill(matrix, Double.NaN);
+
+		return matrix;
+	}
+
+	/**
+	 * Return the position of the distribution of
+	 * a transition in the probability matrix.
+	 *
+	 * @param iTransition index of the transition
+	 * @return position of the distribution, -1 if it is not kept
+	 */
+	private int offset(int iTransition) {
+
+		if( !this.finalOnly)
+			return iTransition * this.nClasses;
+		if( iTransition == this.getTransitionsNumber() - 1)
+			return 0;
+
+		return -1;
+	}
+}
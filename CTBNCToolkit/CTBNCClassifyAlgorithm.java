@@ -11,6 +11,10 @@
 package CTBNCToolkit;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author Daniele Codecasa <codecasa.job@gmail.com>
@@ -22,8 +26,19 @@ import java.util.*;
  */
 public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscreteNode> {
 
+	private static final int BATCH_SIZE = 64;				// trajectories classified by each task of classifyAll
+
 	private boolean probabilities;
+	private boolean pruning;
+	private boolean lightResults;
+	private boolean finalOnly;
+	private boolean classMajor;
 	private IClassifyDecider classDecider = null;
+	private double earlyPosterior;
+	private double earlyLogOdds;
+	private double earlyMinTime;
+	private int earlyStability;
+	private EarlyDecisionRule earlyRule = null;
 	
 	/**
 	 * Base constructor.
@@ -43,9 +58,65 @@ public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscrete
 		tmpBoolean = (Boolean)params.get("probabilities");
 		if( tmpBoolean != null)
 			this.probabilities = tmpBoolean;
+		// pruning
+		tmpBoolean = (Boolean)params.get("pruning");
+		if( tmpBoolean != null)
+			this.pruning = tmpBoolean;
+		// light results
+		tmpBoolean = (Boolean)params.get("lightResults");
+		if( tmpBoolean != null)
+			this.lightResults = tmpBoolean;
+		// final probability only
+		tmpBoolean = (Boolean)params.get("finalProbabilityOnly");
+		if( tmpBoolean != null)
+			this.finalOnly = tmpBoolean;
+		// class-major kernel
+		tmpBoolean = (Boolean)params.get("classMajor");
+		if( tmpBoolean != null)
+			this.classMajor = tmpBoolean;
 		// class decider
 		this.classDecider = (IClassifyDecider)params.get("classifyDecider");
 		
+		Double tmpDouble;
+		// early decision posterior threshold
+		tmpDouble = (Double)params.get("earlyPosterior");
+		if( tmpDouble != null)
+			this.earlyPosterior = tmpDouble;
+		// early decision log-odds threshold
+		tmpDouble = (Double)params.get("earlyLogOdds");
+		if( tmpDouble != null)
+			this.earlyLogOdds = tmpDouble;
+		// early decision minimum time
+		tmpDouble = (Double)params.get("earlyMinTime");
+		if( tmpDouble != null)
+			this.earlyMinTime = tmpDouble;
+		// early decision stability
+		Integer tmpInt = (Integer)params.get("earlyStability");
+		if( tmpInt != null)
+			this.earlyStability = tmpInt;
+		
+		this.earlyRule = this.generateEarlyRule();
+		if( this.earlyRule != null && this.classDecider != null)
+			throw new IllegalArgumentException("Error: the early decision can not be used with a class decider");
+	}
+	
+	/**
+	 * Generate the early decision rule from the
+	 * parameters.
+	 * 
+	 * @return early decision rule, null if no threshold is defined
+	 * @throws IllegalArgumentException in case of illegal parameters
+	 */
+	private EarlyDecisionRule generateEarlyRule() throws IllegalArgumentException {
+		
+		boolean posterior = !Double.isNaN(this.earlyPosterior);
+		boolean logOdds = !Double.isNaN(this.earlyLogOdds);
+		if( posterior && logOdds)
+			throw new IllegalArgumentException("Error: only one between the posterior and the log-odds early decision thresholds can be defined");
+		if( !posterior && !logOdds)
+			return null;
+		
+		return new EarlyDecisionRule(logOdds, logOdds ? this.earlyLogOdds : this.earlyPosterior, this.earlyMinTime, this.earlyStability);
 	}
 	
 	@Override
@@ -54,7 +125,15 @@ public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscrete
 		String helpStr = "";
 		helpStr += "Parameters class CTBNCClassifyAlgorithm:\n";
 		helpStr += "probabilities: true if we want to know the probability distribution of the class for each transition, false if we want to know the probability only at the end of the trajector. [Default value = false].\n";
+		helpStr += "pruning: true to evaluate only the class node and its children (the contributions of the other nodes are the same for all the classes). The probabilities are equal up to the rounding errors. [Default value = false].\n";
+		helpStr += "lightResults: true to generate results backed by primitive arrays that refer to the classified trajectory instead of copying its transitions. [Default value = false].\n";
+		helpStr += "finalProbabilityOnly: true to calculate and store only the class probability of the last transition (calculated from the class log-likelihoods). [Default value = false].\n";
+		helpStr += "classMajor: true to update the log-likelihoods of all the classes with a loop over contiguous CIM values (class-major layout). The results are the same. [Default value = false].\n";
 		helpStr += "classifyDecider: the decider that can be used to choose the class from the probability distribution. If not defined the most likely class is chose. If defined the probability calculation is forced. [Default value = null].\n";
+		helpStr += "earlyPosterior: posterior threshold of the early decision (see classifyEarly and classifyAll): the trajectory evaluation stops when the probability of the most likely class reaches the threshold. It can not be used with earlyLogOdds or with a class decider. [Default value = NaN (not used)].\n";
+		helpStr += "earlyLogOdds: log-odds threshold of the early decision: the trajectory evaluation stops when the log-odds of the most likely class against the second one reach the threshold. [Default value = NaN (not used)].\n";
+		helpStr += "earlyMinTime: minimum time from the trajectory start before the early decision. [Default value = 0].\n";
+		helpStr += "earlyStability: number of consecutive transitions in which the class must satisfy the early decision threshold. [Default value = 1].\n";
 		return helpStr;  
 	}
 	
@@ -62,10 +141,27 @@ public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscrete
 	public void setDefaultParameters() {
 
 		this.probabilities = false;
+		this.pruning = false;
+		this.lightResults = false;
+		this.finalOnly = false;
+		this.classMajor = false;
 		this.classDecider = null;
+		this.earlyPosterior = Double.NaN;
+		this.earlyLogOdds = Double.NaN;
+		this.earlyMinTime = 0.0;
+		this.earlyStability = 1;
+		this.earlyRule = null;
 		
 		Map<String, Object> params = new TreeMap<String,Object>();
 		params.put("probabilities", this.probabilities);
+		params.put("pruning", this.pruning);
+		params.put("lightResults", this.lightResults);
+		params.put("finalProbabilityOnly", this.finalOnly);
+		params.put("classMajor", this.classMajor);
+		params.put("earlyPosterior", this.earlyPosterior);
+		params.put("earlyLogOdds", this.earlyLogOdds);
+		params.put("earlyMinTime", this.earlyMinTime);
+		params.put("earlyStability", this.earlyStability);
 		super.setParameters(params);
 		
 	}
@@ -96,153 +192,256 @@ public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscrete
 		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
 			throw new IllegalArgumentException("Error: empty trajectory to classify");
 		
-		// Data initialization
-		NodeIndexing nodeIndexing = model.getNodeIndexing();
-		CTDiscreteNode classNode = (CTDiscreteNode) model.getClassNode();		// class node
-		int classNodeIndex = nodeIndexing.getClassIndex();						// class node index
-		ClassificationResults<Double> results = new ClassificationResults<Double>(trajectory, timeStream); 	// the result trajectory
-		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();		// to load the probability
-		for(int iClass = 0; iClass < classNode.getStatesNumber(); ++iClass)
-			stateToIndex.put(classNode.getStateName(iClass), iClass);
-		 
-		// Initialization at time 0
-		double lastTime;
-		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-			CTDiscreteNode cNode = model.getNode(iNode);
-			int check = cNode.checkCIMs();
-			if( check != -1)
-				throw new RuntimeException("Error: in CIM validation for node " + cNode.getName() + " and parent entry " + check);
-			if( iNode == classNodeIndex)
-				continue;
-			cNode.setEvidence(results.getNodeValue(0, iNode)); 					// set the evidence
-		}
-		lastTime = results.getTransitionTime(0);								// set the last changing time
+		CompiledCTBNClassifier compiled = compile(model);
+		return this.classify(compiled, trajectory, timeStream, compiled.newContext(this.classMajor));
+	}
 	
-		// Initialize log likelihood
-		double[] ll = new double[classNode.getStatesNumber()];
-		double[] llContribution = new double[classNode.getStatesNumber()];		// contribution of the last jump (calculated as ll(t) - ll(t-1))
-		for(int iClass = 0; iClass < ll.length; ++iClass) {						// for each possible class value
-			classNode.setEvidence(iClass); 										// set the class
-			// Calculate the log likelihood from the class prior
-			// and from the probability of all the static nodes
-			llContribution[iClass] = 0.0;
-			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {		// calculate the log likelihood over all the static nodes (note that no static nodes can have continuous time parents)
-				CTDiscreteNode node = model.getNode(iNode);
-				if( node.isStaticNode())
-					llContribution[iClass] += Math.log( node.getCIMValue(node.getCurrentParentsEntry(), 0, node.getCurrentStateIndex()));
-			}
-			ll[iClass] = llContribution[iClass];
+	/**
+	 * Generate the sampling grid of a trajectory (the
+	 * same times added by classify with the sampling
+	 * interval).
+	 * 
+	 * @param trajectory trajectory to sample
+	 * @param samplingInterval sampling interval
+	 * @return sorted grid times
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static double[] samplingGrid( ITrajectory<Double> trajectory, double samplingInterval) throws IllegalArgumentException {
+		
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory");
+		if( !(samplingInterval > 0.0))
+			throw new IllegalArgumentException("Error: the sampling interval must be positive");
+		
+		double tStart = trajectory.getTransitionTime(0);
+		double tEnd = trajectory.getTransitionTime(trajectory.getTransitionsNumber() - 1);
+		int n = 0;
+		for( double t = tStart + samplingInterval; t < tEnd; t += samplingInterval)
+			++n;
+		double[] grid = new double[n];
+		double t = tStart + samplingInterval;
+		for( int i = 0; i < n; ++i) {
+			grid[i] = t;
+			t += samplingInterval;
 		}
-		if( this.probabilities || this.classDecider != null)
-			results.setProbability(0, logPToP(llContribution, null), stateToIndex);
 		
-		// Classification algorithm
-		for(int iJmp = 1; iJmp < results.getTransitionsNumber(); ++iJmp) {					// for each transition in the trajectory
-			
-			double deltaT = results.getTransitionTime( iJmp) - lastTime;					// delta time between two jumps
-			
-			for(int iClass = 0; iClass < classNode.getStatesNumber(); ++iClass) {  			// for each possible class
-				llContribution[iClass] = 0.0;
-				classNode.setEvidence(iClass); 												// set the class
-
-				for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {		// for each node
-					if(iNode == classNodeIndex)
-						continue;
-					
-					CTDiscreteNode node = model.getNode(iNode);
-					int previousStateIndex = node.getCurrentStateIndex();
-					int nextStateIndex = node.getStateIndex( results.getNodeValue(iJmp, iNode));
-					if( node.isStaticNode()) {												// ignore the static nodes
-						if( previousStateIndex != nextStateIndex)							// if the node is static and it is changed value there is an error in the arguments
-							throw new IllegalArgumentException("Error: static nodes can not change their value in the trajectory");
-						else
-							continue;
-					}
-					int pE = node.getCurrentParentsEntry();
-					
-					// Update log-likelihood with the "remain in the state" contribute
-					// ll update (ll = ll - q*dT)
-					llContribution[iClass] += node.getCIMValue(pE, previousStateIndex, previousStateIndex) * deltaT;
-					
-					// Update log-likelihood with the jump contribute
-					if(previousStateIndex == nextStateIndex)								// if the node is not really changed (the class node must be ignored because the actual value can be different from the right one in the trajectory)
-						continue;															// ignore the node					
-					// ll update v3(ll = ll + log(q_xx'))
-					llContribution[iClass] += Math.log( node.getCIMValue(pE, previousStateIndex, nextStateIndex));
-				}
-				ll[iClass] += llContribution[iClass];
-			}
-			
-			// Set the new values for the changed nodes
-			for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {		// for each node
-				CTDiscreteNode node = model.getNode(iNode);
-				if( node.isStaticNode())
-					continue;
-				
-				int previousStateIndex = node.getCurrentStateIndex();
-				int nextStateIndex = node.getStateIndex( results.getNodeValue(iJmp, iNode));
-				if( previousStateIndex == nextStateIndex)
-					continue;
+		return grid;
+	}
+	
+	/**
+	 * Classify a trajectory calculating the class
+	 * distribution at the times of a sampling grid
+	 * without generating the result trajectory (see
+	 * CompiledCTBNClassifier.classifyGrid). The class
+	 * is always the most likely one.
+	 * 
+	 * @param model the model
+	 * @param trajectory trajectory to classify
+	 * @param grid sorted times in which calculate the class probability (see samplingGrid)
+	 * @param listener listener of the class distributions
+	 * @return compact classification result (with the final class distribution)
+	 * @throws RuntimeException in case of errors
+	 */
+	public CompactClassificationResult classifyGrid( ICTClassifier<Double, CTDiscreteNode> model, ITrajectory<Double> trajectory, double[] grid, IClassificationListener listener) throws RuntimeException {
+		
+		CompiledCTBNClassifier compiled = compile(model);
+		return compiled.classifyGrid(trajectory, grid, listener, this.pruning, compiled.newContext(this.classMajor));
+	}
+	
+	/**
+	 * Classify a trajectory storing the class
+	 * distributions of the grid times in a buffer
+	 * (see CompiledCTBNClassifier.classifyGrid). The
+	 * class is always the most likely one.
+	 * 
+	 * @param model the model
+	 * @param trajectory trajectory to classify
+	 * @param grid sorted times in which calculate the class probability (see samplingGrid)
+	 * @param buffer buffer where to store the distributions (at least grid.length * classes values)
+	 * @return compact classification result (with the final class distribution)
+	 * @throws RuntimeException in case of errors
+	 */
+	public CompactClassificationResult classifyGrid( ICTClassifier<Double, CTDiscreteNode> model, ITrajectory<Double> trajectory, double[] grid, double[] buffer) throws RuntimeException {
+		
+		CompiledCTBNClassifier compiled = compile(model);
+		return compiled.classifyGrid(trajectory, grid, buffer, this.pruning, compiled.newContext(this.classMajor));
+	}
+	
+	/**
+	 * Classify a trajectory stopping the evaluation
+	 * as soon as the early decision rule defined by
+	 * the parameters (earlyPosterior or earlyLogOdds,
+	 * earlyMinTime and earlyStability) is satisfied
+	 * (see CompiledCTBNClassifier.classifyEarly).
+	 * 
+	 * @param model the model
+	 * @param trajectory trajectory to classify
+	 * @return early classification result (with the transition and the time of the decision)
+	 * @throws RuntimeException in case of errors
+	 */
+	public EarlyClassificationResult classifyEarly( ICTClassifier<Double, CTDiscreteNode> model, ITrajectory<Double> trajectory) throws RuntimeException {
+		
+		if( this.earlyRule == null)
+			throw new IllegalArgumentException("Error: early decision threshold not defined (see earlyPosterior and earlyLogOdds parameters)");
+		
+		CompiledCTBNClassifier compiled = compile(model);
+		return compiled.classifyEarly(trajectory, this.earlyRule, this.pruning, compiled.newContext(this.classMajor));
+	}
+	
+	/**
+	 * Classify a set of trajectories with the
+	 * same model (see classifyAll with the
+	 * executor) in the current thread.
+	 * 
+	 * @param model the model
+	 * @param trajectories trajectories to classify
+	 * @return compact classification results (in the same order of the trajectories)
+	 * @throws RuntimeException in case of errors
+	 */
+	public List<CompactClassificationResult> classifyAll( ICTClassifier<Double, CTDiscreteNode> model, List<ITrajectory<Double>> trajectories) throws RuntimeException {
+		
+		return this.classifyAll(model, trajectories, null);
+	}
+	
+	/**
+	 * Classify a set of trajectories with the
+	 * same model. The model is compiled and
+	 * validated once and the trajectories are
+	 * divided in batches classified by the
+	 * executor; the batches classified by the
+	 * same thread reuse the same working context.
+	 * 
+	 * Only the class and, if the probabilities
+	 * are enabled, the final class distribution
+	 * are returned. If a class decider is set the
+	 * class distribution is calculated for each
+	 * transition, because the decider needs it.
+	 * If an early decision threshold is set the
+	 * results are EarlyClassificationResult and
+	 * each trajectory is evaluated only up to the
+	 * decision (see classifyEarly).
+	 * 
+	 * @param model the model
+	 * @param trajectories trajectories to classify
+	 * @param executor executor of the batches (null to classify in the current thread)
+	 * @return compact classification results (in the same order of the trajectories)
+	 * @throws RuntimeException in case of errors
+	 */
+	public List<CompactClassificationResult> classifyAll( ICTClassifier<Double, CTDiscreteNode> model, List<ITrajectory<Double>> trajectories, ExecutorService executor) throws RuntimeException {
+		
+		if( trajectories == null)
+			throw new IllegalArgumentException("Error: null trajectories list");
+		
+		final CompiledCTBNClassifier compiled = compile(model);
+		final boolean classMajor = this.classMajor;
+		ThreadLocal<CompiledCTBNClassifier.Context> contexts = new ThreadLocal<CompiledCTBNClassifier.Context>() {
+			@Override
+			protected CompiledCTBNClassifier.Context initialValue() {
 				
-				node.setEvidence( nextStateIndex);  									// set the evidence
+				return compiled.newContext(classMajor);
+			}
+		};
+		CompactClassificationResult[] results = new CompactClassificationResult[trajectories.size()];
+		if( executor == null) {
+			new BatchTask(this, compiled, contexts, trajectories, results, 0, results.length).call();
+		} else {
+			List<Future<Void>> futures = new Vector<Future<Void>>();
+			try {
+				for( int start = 0; start < results.length; start += BATCH_SIZE)
+					futures.add( executor.submit(new BatchTask(this, compiled, contexts, trajectories, results, start, Math.min(start + BATCH_SIZE, results.length))));
+				for( int i = 0; i < futures.size(); ++i)
+					futures.get(i).get();
+			} catch( ExecutionException e) {
+				if( e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if( e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new RuntimeException("Error: classification error (" + e.getCause() + ")");
+			} catch( InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Error: interrupted classification");
+			} finally {
+				for( int i = 0; i < futures.size(); ++i)
+					futures.get(i).cancel(true);
 			}
-			// Time update
-			lastTime = results.getTransitionTime(iJmp);
-			
-			// Update the ll in the results	
-			if( this.probabilities || this.classDecider != null)
-				results.setProbability(iJmp, logPToP(llContribution, results.getPDistribution(iJmp - 1)), stateToIndex);
 		}
 		
-		// Find the best class
-		if( this.classDecider == null) {
-			int iBest = 0;
-			for( int iClass = 1; iClass < ll.length; ++iClass)
-				if( ll[iClass] > ll[iBest])
-					iBest = iClass;
-			results.setClassification(classNode.getStateName(iBest));
-		}else{
-			results.setClassification( classNode.getStateName( this.classDecider.decide(results)));
-		}
+		return new Vector<CompactClassificationResult>(Arrays.asList(results));
+	}
+	
+	/**
+	 * Classify a trajectory using a compiled model.
+	 * The compiled model can be shared between
+	 * threads, while each thread has to use its
+	 * own context.
+	 * 
+	 * @param compiled compiled model
+	 * @param trajectory trajectory to classify
+	 * @param timeStream times in which calculate the class probability (beyond the trajectory transitions)
+	 * @param context working context generated by the compiled model
+	 * @return classification results
+	 * @throws RuntimeException in case of errors
+	 */
+	public IClassificationResult<Double> classify( CompiledCTBNClassifier compiled, ITrajectory<Double> trajectory, Vector<Double> timeStream, CompiledCTBNClassifier.Context context) throws RuntimeException {
+		
+		if( compiled == null)
+			throw new IllegalArgumentException("Error: null model argument");
+		
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		
+		IClassificationResult<Double> results;
+		if( this.lightResults)
+			results = new ArrayClassificationResults(trajectory, timeStream, compiled.getClassStatesNumber(), this.finalOnly);
+		else
+			results = new ClassificationResults<Double>(trajectory, timeStream);
 		
-		return results;
+		return compiled.classify(trajectory, results, this.probabilities, this.finalOnly, this.pruning, this.classDecider, context);
 	}
 
 	/**
-	 * Transform the vector of log probabilities contribution
-	 * in a distribution.
+	 * Classify a trajectory using a compiled model
+	 * and return the compact result (the early
+	 * classification result if an early decision
+	 * threshold is set).
 	 * 
-	 * @param llContribution vector of log probability contribution in the last time slice
-	 * @param pPrevious probability distribution in the previous jump
-	 * @return the corresponding probability distribution
+	 * @param compiled compiled model
+	 * @param trajectory trajectory to classify
+	 * @param context working context generated by the compiled model
+	 * @return compact classification result
+	 * @throws RuntimeException in case of errors
 	 */
-	private double[] logPToP(double[] llContribution, double[] pPrevious) {
+	public CompactClassificationResult classifyCompact( CompiledCTBNClassifier compiled, ITrajectory<Double> trajectory, CompiledCTBNClassifier.Context context) throws RuntimeException {
+		
+		if( compiled == null)
+			throw new IllegalArgumentException("Error: null model argument");
+		if( this.earlyRule != null)
+			return compiled.classifyEarly(trajectory, this.earlyRule, this.pruning, context);
+		if( this.classDecider == null)
+			return compiled.classifyCompact(trajectory, this.probabilities, this.pruning, context);
+		
+		IClassificationResult<Double> res = compiled.classify(trajectory, new Vector<Double>(0), true, this.pruning, this.classDecider, context);
+		int iClass = 0;
+		while( !compiled.getClassStateName(iClass).equals(res.getClassification()))
+			++iClass;
+		double[] p = this.probabilities ? res.getPDistribution(res.getTransitionsNumber() - 1) : null;
+		return new CompactClassificationResult(trajectory.getName(), iClass, res.getClassification(), p);
+	}
 	
-		double[] p = new double[llContribution.length];
+	/**
+	 * Return the compiled form of a model (cached
+	 * in the model for the CTBNClassifier instances).
+	 * 
+	 * @param model model to compile
+	 * @return compiled model
+	 * @throws RuntimeException in case of not valid model
+	 */
+	private static CompiledCTBNClassifier compile( ICTClassifier<Double, CTDiscreteNode> model) throws RuntimeException {
 		
-		double sum = 0.0;
-		for( int i = 0; i < llContribution.length; ++i) {
-			p[i] = Math.exp(llContribution[i]);
-			sum += p[i];
-		}
-		// Normalization
-		if( pPrevious != null)
-			if( sum != 0.0) {
-				double sum2 = 0.0;
-				for( int i = 0; i < llContribution.length; ++i) {
-					p[i] = (p[i] / sum) * pPrevious[i];
-					sum2 += p[i];
-				}
-				for( int i = 0; i < llContribution.length; ++i)
-					p[i] = (p[i] / sum2);
-			} else
-				for( int i = 0; i < llContribution.length; ++i)
-					p[i] = pPrevious[i];
-		else
-			for( int i = 0; i < llContribution.length; ++i)
-				p[i] = (p[i] / sum);							// the sum can not be zero because at the first time slice there is the class prior
+		if( model instanceof CTBNClassifier)
+			return ((CTBNClassifier) model).compile();						// compiled form cached in the model
 		
-		return p;
+		return new CompiledCTBNClassifier(model);
 	}
 
 	/* (non-Javadoc)
@@ -254,4 +453,55 @@ public class CTBNCClassifyAlgorithm extends ClassifyAlgorithm<Double, CTDiscrete
 		return this.probabilities;
 	}
 	
+	
+	/**
+	 * Task that classifies a range of trajectories
+	 * of the classifyAll input with the working
+	 * context of the executing thread.
+	 */
+	private static class BatchTask implements Callable<Void> {
+		
+		private final CTBNCClassifyAlgorithm algorithm;
+		private final CompiledCTBNClassifier compiled;
+		private final ThreadLocal<CompiledCTBNClassifier.Context> contexts;
+		private final List<ITrajectory<Double>> trajectories;
+		private final CompactClassificationResult[] results;
+		private final int start;
+		private final int end;
+		
+		/**
+		 * Base constructor.
+		 * 
+		 * @param algorithm classification algorithm (only read)
+		 * @param compiled compiled model
+		 * @param contexts working contexts of the compiled model for each thread
+		 * @param trajectories trajectories to classify
+		 * @param results array where to store the results
+		 * @param start first trajectory to classify
+		 * @param end end of the range (excluded)
+		 */
+		BatchTask(CTBNCClassifyAlgorithm algorithm, CompiledCTBNClassifier compiled, ThreadLocal<CompiledCTBNClassifier.Context> contexts, List<ITrajectory<Double>> trajectories, CompactClassificationResult[] results, int start, int end) {
+			
+			this.algorithm = algorithm;
+			this.compiled = compiled;
+			this.contexts = contexts;
+			this.trajectories = trajectories;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() {
+			
+			CompiledCTBNClassifier.Context context = this.contexts.get();
+			for( int i = this.start; i < this.end; ++i)
+				this.results[i] = this.algorithm.classifyCompact(this.compiled, this.trajectories.get(i), context);
+			
+			return null;
+		}
+	}
 }
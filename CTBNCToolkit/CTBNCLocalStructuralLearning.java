@@ -11,8 +11,12 @@
 package CTBNCToolkit;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import CTBNCToolkit.optimization.ICache;
 import CTBNCToolkit.optimization.IElementFactory;
@@ -27,6 +31,15 @@ import CTBNCToolkit.optimization.LRUCache;
  * for CTBNCs by Codecasa and Stella (2013).
  * The suggested structure is used as starting point.
  * 
+ * The parent set of each node is optimized independently
+ * (there is no acyclicity constraint in the CTBNs), so with
+ * parallelism greater than 1 the local search of each node
+ * runs as a task of a fork-join pool (generated for each
+ * learning and then shut down) over its own copy of
+ * the model and its own cache. The elements factory must
+ * evaluate the individuals without changing its state
+ * (as the hill climbing factories do).
+ * 
  * @param <K> type of the keys used for the caching of the visited elements
  * @param <T> type of optimization element used
  */
@@ -35,6 +48,7 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 	private IElementFactory<T> elementsFactory;
 	private boolean[][] adjMStructure;
 	private int maxCacheEntries;
+	private int parallelism;
 
 	/**
 	 * Base constructor.
@@ -54,9 +68,11 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 	public void setDefaultParameters() { 
 
 		this.maxCacheEntries = 150;
+		this.parallelism = 1;
 		
 		Map<String, Object> params = new TreeMap<String,Object>();
 		params.put("maxCacheEntries", 150);
+		params.put("parallelism", this.parallelism);
 		
 		super.setParameters(params);
 	}
@@ -71,6 +87,13 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 		tmp = (Integer)params.get("maxCacheEntries");
 		if( tmp != null)
 			this.maxCacheEntries = tmp;
+		// parallelism
+		tmp = (Integer)params.get("parallelism");
+		if( tmp != null) {
+			if( tmp < 1)
+				throw new IllegalArgumentException("Error: the parallelism must be at least 1");
+			this.parallelism = tmp;
+		}
 	}
 
 	@Override
@@ -85,6 +108,7 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 		String helpStr = "";
 		helpStr += "Parameters class CTBNCLocalStructuralLearning:\n";
 		helpStr += "maxCacheEntries: Maximum number of entries in the LRU cache. [Default value = 150].\n";
+		helpStr += "parallelism: number of threads used to learn the parents of the nodes; with more than 1 thread the local search of each node is a task that works on its own copy of the model. [Default value = 1].\n";
 		
 		return helpStr;
 	}
@@ -96,56 +120,47 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 		
 		// Initialize the structures
 		boolean[][] learnedAdjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];	// used to save the learned structure
-		boolean[][] localAdjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];	// used to learn a local structure (local = for a node)
 		for( int i = 0; i < learnedAdjMatrix.length; ++i)
-			for( int j = 0; j < learnedAdjMatrix.length; ++j) {
+			for( int j = 0; j < learnedAdjMatrix.length; ++j)
 				learnedAdjMatrix[i][j] = false;
-				localAdjMatrix[i][j] = false;
-			}
 		
 		this.elementsFactory.setDataset(trainingSet);					// set the dataset to use in the evaluation
 		
 		// Hill climbing algorithm
-		for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {	// for each node
-			CTDiscreteNode node = model.getNode(iNode);
-			if( node.isStaticNode())									// Ignore static nodes
-				continue;
-			
-			// Create the cache
-			ICache<K, T> cache = new LRUCache<K,T>( this.maxCacheEntries);
+		if( this.parallelism <= 1) {
+			for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {	// for each node
+				if( model.getNode(iNode).isStaticNode())					// Ignore static nodes
+					continue;
 				
-			// Initialize the new local structure:
-			// use a disconnected structure except for the column
-			// related to the node which we are going to learn
-			// the parents. For this node we copy the suggested
-			// structure. In this way we optimize the velocity
-			// of the calculation of the sufficient statistics
-			// in the learning algorithm.
-			if(this.adjMStructure != null)
-				for( int iNodeParent = 0; iNodeParent < localAdjMatrix.length; ++iNodeParent)
-					localAdjMatrix[iNodeParent][iNode] = this.adjMStructure[iNodeParent][iNode];
-			model.setStructure(localAdjMatrix);
+				boolean[] parents = this.learnLocalStructure(model, iNode);
+				for(int iNodeParent = 0; iNodeParent < learnedAdjMatrix.length; ++iNodeParent)
+					learnedAdjMatrix[iNodeParent][iNode] = parents[iNodeParent];	// Save the learned local structure
+			}
+		} else {
+			// A task for each node
+			List<LocalSearchTask> tasks = new Vector<LocalSearchTask>();
+			for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+				if( !model.getNode(iNode).isStaticNode())
+					tasks.add(new LocalSearchTask(this, model, iNode));
 			
-			// Local Hill climbing algorithm
-			// learn the node local structure
-			T newInd;
-			T currentInd = this.elementsFactory.newInstance(model, iNode);
-			if( cache != null)
-				cache.put(currentInd.getId(), currentInd);
-			do {
-				newInd = currentInd.getBestNeighbor(cache);
-				if( newInd != null && newInd.evaluate() > currentInd.evaluate())
-					currentInd = newInd;
-			}while(currentInd == newInd);
+			ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+			try {
+				pool.invoke(new LocalSearchBatch(tasks));
+			} catch( RuntimeException e) {
+				// the exceptions thrown by the workers can be wrapped in a copy of the same type
+				if( e.getCause() != null && e.getCause().getClass() == e.getClass())
+					throw (RuntimeException) e.getCause();
+				throw e;
+			} finally {
+				pool.shutdown();
+			}
 			
-			// Update structures
-			IModel<Double, CTDiscreteNode> bestIndModel = currentInd.getModel();
-			boolean[][] bestIndAdjMatrix = bestIndModel.getAdjMatrix();
-			for(int iNodeParent = 0; iNodeParent < learnedAdjMatrix.length; ++iNodeParent) {
-				// Save the learned local structure
-				learnedAdjMatrix[iNodeParent][iNode] =  bestIndAdjMatrix[iNodeParent][iNode];
-				// Disconnected the local matrix for the next node
-				localAdjMatrix[iNodeParent][iNode] = false;					
+			// Merge the local structures
+			for( int i = 0; i < tasks.size(); ++i) {
+				LocalSearchTask task = tasks.get(i);
+				boolean[] parents = task.getRawResult();
+				for(int iNodeParent = 0; iNodeParent < learnedAdjMatrix.length; ++iNodeParent)
+					learnedAdjMatrix[iNodeParent][task.nodeIndex] = parents[iNodeParent];
 			}
 		}
 		
@@ -154,9 +169,129 @@ public class CTBNCLocalStructuralLearning<K, T extends ILocalSearchIndividual<K,
 		return this.elementsFactory.getParamsLearningAlg().learn(model, trainingSet);	// learn the complete model
 	}
 	
+	/**
+	 * Learn the parents of a node with the local
+	 * hill climbing. The structure of the model in
+	 * input is changed.
+	 * 
+	 * @param model model used to learn the local structure
+	 * @param iNode index of the node
+	 * @return learned parents of the node (column of the adjacency matrix)
+	 * @throws RuntimeException in case of errors
+	 */
+	private boolean[] learnLocalStructure(ICTClassifier<Double, CTDiscreteNode> model, int iNode) throws RuntimeException {
+		
+		// Create the cache
+		ICache<K, T> cache = new LRUCache<K,T>( this.maxCacheEntries);
+		
+		// Initialize the new local structure:
+		// use a disconnected structure except for the column
+		// related to the node which we are going to learn
+		// the parents. For this node we copy the suggested
+		// structure. In this way we optimize the velocity
+		// of the calculation of the sufficient statistics
+		// in the learning algorithm.
+		boolean[][] localAdjMatrix = new boolean[model.getNodeIndexing().getNodesNumber()][model.getNodeIndexing().getNodesNumber()];	// used to learn a local structure (local = for a node)
+		if(this.adjMStructure != null)
+			for( int iNodeParent = 0; iNodeParent < localAdjMatrix.length; ++iNodeParent)
+				localAdjMatrix[iNodeParent][iNode] = this.adjMStructure[iNodeParent][iNode];
+		model.setStructure(localAdjMatrix);
+		
+		// Local Hill climbing algorithm
+		// learn the node local structure
+		T newInd;
+		T currentInd = this.elementsFactory.newInstance(model, iNode);
+		if( cache != null)
+			cache.put(currentInd.getId(), currentInd);
+		do {
+			newInd = currentInd.getBestNeighbor(cache);
+			if( newInd != null && newInd.evaluate() > currentInd.evaluate())
+				currentInd = newInd;
+		}while(currentInd == newInd);
+		
+		// Learned local structure
+		boolean[][] bestIndAdjMatrix = currentInd.getModel().getAdjMatrix();
+		boolean[] parents = new boolean[localAdjMatrix.length];
+		for(int iNodeParent = 0; iNodeParent < localAdjMatrix.length; ++iNodeParent)
+			parents[iNodeParent] = bestIndAdjMatrix[iNodeParent][iNode];
+		
+		return parents;
+	}
+	
 	@Override
 	public boolean[][] getStructure() {
 		return this.adjMStructure;
 	}
+	
+	
+	/**
+	 * Fork-join task that learns the parents of a
+	 * node. The model is copied when the task is
+	 * executed, so the local search never changes
+	 * the model shared by the tasks.
+	 */
+	private static class LocalSearchTask extends RecursiveTask<boolean[]> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final CTBNCLocalStructuralLearning<?,?> algorithm;
+		private final ICTClassifier<Double, CTDiscreteNode> model;
+		private final int nodeIndex;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param algorithm structural learning algorithm
+		 * @param model model to learn (only read)
+		 * @param nodeIndex index of the node
+		 */
+		LocalSearchTask(CTBNCLocalStructuralLearning<?,?> algorithm, ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex) {
+			
+			this.algorithm = algorithm;
+			this.model = model;
+			this.nodeIndex = nodeIndex;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected boolean[] compute() {
+			
+			ICTClassifier<Double, CTDiscreteNode> view = (ICTClassifier<Double, CTDiscreteNode>) this.model.clone();
+			return this.algorithm.learnLocalStructure(view, this.nodeIndex);
+		}
+	}
+	
+	/**
+	 * Fork-join task that forks the local search
+	 * tasks of all the nodes and waits for them.
+	 */
+	private static class LocalSearchBatch extends RecursiveTask<Void> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final List<LocalSearchTask> tasks;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param tasks local search tasks
+		 */
+		LocalSearchBatch(List<LocalSearchTask> tasks) {
+			
+			this.tasks = tasks;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected Void compute() {
+			
+			invokeAll(this.tasks);
+			return null;
+		}
+	}
 
 }
@@ -11,6 +11,8 @@
 package CTBNCToolkit;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * 
@@ -27,13 +29,22 @@ import java.util.*;
  * they seem not correct, please add the priors because
  * the problem is usually related to the zeros due to
  * the not enough big data set.
+ * 
+ * The sufficient statistics are calculated in a
+ * single pass over the training set, so the
+ * algorithm can learn from a stream of trajectories
+ * (see IStreamingLearningAlgorithm).
  */
-public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscreteNode> {
+public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscreteNode> implements IStreamingLearningAlgorithm<Double, CTDiscreteNode> {
 
 	private boolean[][] adjMStructure;
 	private double Mxx_prior;
 	private double Tx_prior;
 	private double Px_prior;
+	private int parallelism;
+	
+	// Number of trajectories read for each thread before the parallel processing
+	private static final int BATCH_SIZE_PER_THREAD = 256;
 
 	/**
 	 * Base constructor.
@@ -52,11 +63,13 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 		this.Mxx_prior = 0.0;
 		this.Tx_prior = 0.0;
 		this.Px_prior = 0.0;
+		this.parallelism = 1;
 		
 		Map<String, Object> params = new TreeMap<String,Object>();
 		params.put("Mxx_prior", this.Mxx_prior);
 		params.put("Tx_prior", this.Tx_prior);
 		params.put("Px_prior", this.Px_prior);
+		params.put("parallelism", this.parallelism);
 		super.setParameters(params);
 		
 	}
@@ -81,6 +94,14 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 		tmp = (Double)params.get("Px_prior");
 		if( tmp != null)
 			this.Px_prior = tmp;
+		
+		// parallelism
+		Integer tmpInt = (Integer)params.get("parallelism");
+		if( tmpInt != null) {
+			if( tmpInt < 1)
+				throw new IllegalArgumentException("Error: the parallelism must be at least 1");
+			this.parallelism = tmpInt;
+		}
 	}
 
 	@Override
@@ -97,6 +118,7 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 		helpStr += "Mxx_prior: prior for the value M[x,x'|u] (equal value for each x, x' and u). The sum over x' is the prior for M[x|u]. [Default value = 0].\n";
 		helpStr += "Tx_prior: prior for the value T[x|u] (equal value for each x and u). [Default value = 0]. \n";
 		helpStr += "Px_prior: prior for the value P[x|u] of the distribution of static nodes (equal value for each x and u). [Default value = 0]. \n";
+		helpStr += "parallelism: number of threads used to calculate the sufficient statistics; with more than 1 thread the training set is split in shards whose statistics are merged. [Default value = 1]. \n";
 		
 		return helpStr;
 	}
@@ -126,90 +148,337 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 	 * Calculate the sufficient statistics for the
 	 * parameters learning.
 	 * 
+	 * If the parallelism is greater than 1, the
+	 * trajectories are read in batches and each
+	 * batch is split in shards processed by a
+	 * fork-join pool generated for the call and
+	 * shut down at the end. Each shard is accumulated
+	 * in private sufficient statistics without
+	 * priors and then merged in the final ones.
+	 * 
 	 * @param model the model to learn
-	 * @param trainingSet the training set used to learn
+	 * @param itTrj iterator over the training set used to learn
 	 * @return return the sufficient statistics learned
 	 * @throws RuntimeException in case of some errors
 	 */
-	private SufficientStatistics[] calculateSufficientStatistics(IModel<Double, CTDiscreteNode> model, Collection<ITrajectory<Double>> trainingSet) throws RuntimeException {
+	private SufficientStatistics[] calculateSufficientStatistics(IModel<Double, CTDiscreteNode> model, Iterator<ITrajectory<Double>> itTrj) throws RuntimeException {
 		
 		// Data initialization
 		SufficientStatistics lData[] = learningInitialization(model);
+		StatisticsAccumulator accumulator = new StatisticsAccumulator(model, lData);
 		
 		// Sufficient statistics calculation
-		NodeIndexing nodeIndexing = model.getNodeIndexing();
-		Iterator<ITrajectory<Double>> itTrj = trainingSet.iterator(); 
-		while( itTrj.hasNext()) { 													// for each trajectory in the training set
-			ITrajectory<Double> trj = itTrj.next();
+		if( this.parallelism <= 1) {
+			while( itTrj.hasNext())													// for each trajectory in the training set
+				accumulator.add(itTrj.next());
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+			try {
+				List<ITrajectory<Double>> batch = new ArrayList<ITrajectory<Double>>(this.parallelism * BATCH_SIZE_PER_THREAD);
+				while( itTrj.hasNext()) {
+					batch.clear();
+					while( itTrj.hasNext() && batch.size() < this.parallelism * BATCH_SIZE_PER_THREAD)
+						batch.add(itTrj.next());
+				
+					int shardSize = Math.max(1, (batch.size() + 4 * this.parallelism - 1) / (4 * this.parallelism));
+					SufficientStatistics[] batchData;
+					try {
+						batchData = pool.invoke(new ShardTask(accumulator, batch, 0, batch.size(), shardSize));
+					} catch( RuntimeException e) {
+						// the exceptions thrown by the workers can be wrapped in a copy of the same type
+						if( e.getCause() != null && e.getCause().getClass() == e.getClass())
+							throw (RuntimeException) e.getCause();
+						throw e;
+					}
+					for( int iNode = 0; iNode < lData.length; ++iNode)
+						lData[iNode].merge(batchData[iNode]);
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		// Retract all the evidences
+		for( int iNode = 0; iNode < model.getNodeIndexing().getNodesNumber(); ++iNode)
+			model.getNode(iNode).retractEvidence();
+
+		return lData;
+	}
+	
+	/**
+	 * Class that accumulates the sufficient statistics
+	 * of a set of trajectories. The states and the parent
+	 * entries are kept in a private ParentEntrySweep, so
+	 * that the nodes of the model are never modified and
+	 * more accumulators can work in parallel on the same
+	 * model.
+	 * 
+	 * The structure of the model is shared between the
+	 * accumulators generated with newShard(), while the
+	 * working vectors and the statistics are private.
+	 */
+	private static class StatisticsAccumulator {
+		
+		// Model structure (shared)
+		private final NodeIndexing nodeIndexing;
+		private final StateDictionary dictionary;
+		private final String[] names;
+		private final boolean[] isStatic;
+		private final int[] statesNumber;
+		private final ParentStrideTable strides;
+		
+		// Working data (private)
+		private final SufficientStatistics[] lData;
+		private final ParentEntrySweep sweep;			// current state and parent entry of each node
+		private final int[] initialState;				// state of each node at the beginning of a trajectory
+		private final double[] lastChangeTime;			// time from which each node has the current state and parent entry
+		private final int[] updateStamp;				// last jump in which the node time is updated
+		private int jmpStamp;
+		
+		/**
+		 * Generate the accumulator for the model
+		 * in input.
+		 * 
+		 * @param model model to learn
+		 * @param lData sufficient statistics where accumulate the counts
+		 */
+		StatisticsAccumulator(IModel<Double, CTDiscreteNode> model, SufficientStatistics[] lData) {
+			
+			this.nodeIndexing = model.getNodeIndexing();
+			this.dictionary = new StateDictionary(model);
+			this.strides = new ParentStrideTable(model);
+			
+			int nNodes = this.nodeIndexing.getNodesNumber();
+			this.names = new String[nNodes];
+			this.isStatic = new boolean[nNodes];
+			this.statesNumber = new int[nNodes];
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				CTDiscreteNode node = model.getNode(iNode);
+				this.names[iNode] = node.getName();
+				this.isStatic[iNode] = node.isStaticNode();
+				this.statesNumber[iNode] = node.getStatesNumber();
+			}
 			
-			if( trj.getTransitionsNumber() == 0)
-				continue;
+			this.lData = lData;
+			this.sweep = new ParentEntrySweep(this.strides);
+			this.initialState = new int[nNodes];
+			this.lastChangeTime = new double[nNodes];
+			this.updateStamp = new int[nNodes];
+			this.jmpStamp = 0;
+		}
+		
+		/**
+		 * Generate a new accumulator which shares the
+		 * model structure with the given one and
+		 * accumulates the counts in new sufficient
+		 * statistics without priors.
+		 * 
+		 * @param template accumulator to share the structure with
+		 */
+		private StatisticsAccumulator(StatisticsAccumulator template) {
+			
+			this.nodeIndexing = template.nodeIndexing;
+			this.dictionary = template.dictionary;
+			this.names = template.names;
+			this.isStatic = template.isStatic;
+			this.statesNumber = template.statesNumber;
+			this.strides = template.strides;
+			
+			int nNodes = this.names.length;
+			this.lData = new SufficientStatistics[nNodes];
+			for( int iNode = 0; iNode < nNodes; ++iNode)
+				this.lData[iNode] = new SufficientStatistics(this.strides.getParentEntriesNumber(iNode), this.statesNumber[iNode], this.isStatic[iNode], 0.0, 0.0, 0.0);
+			this.sweep = new ParentEntrySweep(this.strides);
+			this.initialState = new int[nNodes];
+			this.lastChangeTime = new double[nNodes];
+			this.updateStamp = new int[nNodes];
+			this.jmpStamp = 0;
+		}
+		
+		/**
+		 * Generate a new accumulator for a shard
+		 * of the training set.
+		 * 
+		 * @return accumulator with private sufficient statistics without priors
+		 */
+		StatisticsAccumulator newShard() {
+			
+			return new StatisticsAccumulator(this);
+		}
+		
+		/**
+		 * Return the accumulated sufficient statistics.
+		 * 
+		 * @return the sufficient statistics
+		 */
+		SufficientStatistics[] getStatistics() {
+			
+			return this.lData;
+		}
+		
+		/**
+		 * Add the counts of a trajectory to the
+		 * sufficient statistics.
+		 * 
+		 * @param sourceTrj trajectory to add
+		 * @throws IllegalArgumentException if the trajectory is not consistent with the model
+		 */
+		void add(ITrajectory<Double> sourceTrj) throws IllegalArgumentException {
+			
+			if( sourceTrj.getTransitionsNumber() == 0)
+				return;
+			IEncodedTrajectory trj = CTEncodedTrajectory.encode(sourceTrj, this.dictionary);	// state indexes of the model
+			int nNodes = this.names.length;
 
 			// Initialization at time 0
-			double lastTime = trj.getTransitionTime(0);								// set the last changing time
-			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-				CTDiscreteNode cNode = model.getNode(iNode);
-				cNode.setEvidence(trj.getNodeValue(0, iNode)); 						// set the evidence
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				int stIndex = trj.getStateIndex(0, iNode);
+				if( stIndex == -1)
+					throw new IllegalArgumentException("Error: State " + sourceTrj.getNodeValue(0, iNode) + " didn't find!");
+				this.initialState[iNode] = stIndex; 								// set the initial state
+				this.lastChangeTime[iNode] = trj.getTime(0);						// set the last changing time
 			}
+			this.sweep.initialize(this.initialState);								// calculate the parent entries
 
 			// Sufficient statistics for static nodes
-			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-				CTDiscreteNode cNode = model.getNode(iNode);
-				if( cNode.isStaticNode()) {
-					int pE = cNode.getCurrentParentsEntry();						// because we need the parent entry we can not join together the two loops
-					++lData[iNode].Px[pE][0][cNode.getCurrentStateIndex()];
-					++lData[iNode].counts[pE];
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				if( this.isStatic[iNode]) {
+					int pE = this.sweep.getParentsEntry(iNode);
+					++this.lData[iNode].Px[pE][0][this.sweep.getState(iNode)];
+					++this.lData[iNode].counts[pE];
 				}
 			}
 
 			// Sufficient statistics for the continuous nodes
-			// For each jump
+			// For each jump (only the changed nodes and their children are updated)
 			for( int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp) {
 				
-				double deltaT = trj.getTransitionTime(iJmp) - lastTime;
+				int nChanges = trj.getChangesNumber(iJmp);
+				if( nChanges == 0)
+					continue;
+				double time = trj.getTime(iJmp);
+				++this.jmpStamp;
 				
-				// For each node (update the sufficient statistics)
-				for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-					// Get the node information
-					CTDiscreteNode node = model.getNode( iNode);
-					int prevStIndex = node.getCurrentStateIndex();
-					int nextStIndex = node.getStateIndex( trj.getNodeValue( iJmp, iNode));
-					int pE = node.getCurrentParentsEntry();
+				// For each changed node (update the time spent in the current state by the node and by its children)
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					if( trj.getStateIndex( iJmp, iNode) == -1)
+						throw new IllegalArgumentException("Error: State " + sourceTrj.getNodeValue(iJmp, iNode) + " didn't find!");
+					if( this.isStatic[iNode])
+						throw new IllegalArgumentException("Error: static nodes (" + this.names[iNode] + ") can not change their state during a trajectory (trj = " + trj.getName() + ")");
 					
-					// Update the jump values
-					if( !node.isStaticNode()) {
-						lData[iNode].Tx[pE][prevStIndex] += deltaT;
-						if(prevStIndex != nextStIndex) {								// if the node really jumped
-							++lData[iNode].Mxx[pE][prevStIndex][nextStIndex];
-							++lData[iNode].Mx[pE][prevStIndex];
-						} 
-					}else if(prevStIndex != nextStIndex) 
-						throw new IllegalArgumentException("Error: static nodes (" + node.getName() + ") can not change their state during a trajectory (trj = " + trj.getName() + ")");
+					this.updateTime(iNode, time);
+					for(int iChild = 0; iChild < this.sweep.getChildrenNumber(iNode); ++iChild)
+						this.updateTime(this.sweep.getChild(iNode, iChild), time);
+				}
+				
+				// For each changed node (update the jump values)
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					int prevStIndex = this.sweep.getState(iNode);
+					int nextStIndex = trj.getStateIndex( iJmp, iNode);
+					int pE = this.sweep.getParentsEntry(iNode);
+					
+					++this.lData[iNode].Mxx[pE][prevStIndex][nextStIndex];
+					++this.lData[iNode].Mx[pE][prevStIndex];
 				}
 	
 				// For each changed node (set the new state)
-				for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-					// Get the node information
-					CTDiscreteNode node = model.getNode( iNode);
-					int prevStIndex = node.getCurrentStateIndex();
-					int nextStIndex = node.getStateIndex( trj.getNodeValue( iJmp, iNode));
-					if( prevStIndex == nextStIndex)
-						continue;
-					
-					node.setEvidence(nextStIndex);
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					this.sweep.setState(iNode, trj.getStateIndex( iJmp, iNode));
 				}
-
-				// Update the last transition time 
-				lastTime = trj.getTransitionTime(iJmp);
 				
 			} // end of the for over the jumps in a trajectory
-		} // end while over trajectories
-
-		// Retract all the evidences
-		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
-			model.getNode(iNode).retractEvidence();
-
-		return lData;
+			
+			// Time spent in the last states
+			++this.jmpStamp;
+			double endTime = trj.getTime(trj.getTransitionsNumber() - 1);
+			for( int iNode = 0; iNode < nNodes; ++iNode)
+				this.updateTime(iNode, endTime);
+		}
+		
+		/**
+		 * Add to the sufficient statistic T[x|u] of a
+		 * node the time spent in the current state and
+		 * parent entry from its last change. The node
+		 * is updated only once for each jump.
+		 * 
+		 * @param iNode index of the node to update
+		 * @param time time of the current jump
+		 */
+		private void updateTime(int iNode, double time) {
+			
+			if( this.updateStamp[iNode] == this.jmpStamp)
+				return;
+			this.updateStamp[iNode] = this.jmpStamp;
+			
+			if( !this.isStatic[iNode])
+				this.lData[iNode].Tx[this.sweep.getParentsEntry(iNode)][this.sweep.getState(iNode)] += time - this.lastChangeTime[iNode];
+			this.lastChangeTime[iNode] = time;
+		}
+	}
+	
+	
+	/**
+	 * Fork-join task that calculates the sufficient
+	 * statistics of a range of trajectories. The range
+	 * is split in halves up to the shard size, and the
+	 * results are merged always in the same order, so
+	 * the result does not depend on the scheduling.
+	 */
+	private static class ShardTask extends RecursiveTask<SufficientStatistics[]> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final StatisticsAccumulator template;
+		private final List<ITrajectory<Double>> trajectories;
+		private final int from;
+		private final int to;
+		private final int shardSize;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param template accumulator with the model structure
+		 * @param trajectories trajectories to process
+		 * @param from first trajectory of the range (included)
+		 * @param to last trajectory of the range (excluded)
+		 * @param shardSize maximum number of trajectories processed by a single task
+		 */
+		ShardTask(StatisticsAccumulator template, List<ITrajectory<Double>> trajectories, int from, int to, int shardSize) {
+			
+			this.template = template;
+			this.trajectories = trajectories;
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected SufficientStatistics[] compute() {
+			
+			if( this.to - this.from <= this.shardSize) {
+				StatisticsAccumulator accumulator = this.template.newShard();
+				for( int i = this.from; i < this.to; ++i)
+					accumulator.add(this.trajectories.get(i));
+				return accumulator.getStatistics();
+			}
+			
+			int middle = (this.from + this.to) >>> 1;
+			ShardTask left = new ShardTask(this.template, this.trajectories, this.from, middle, this.shardSize);
+			ShardTask right = new ShardTask(this.template, this.trajectories, middle, this.to, this.shardSize);
+			left.fork();
+			SufficientStatistics[] rightData = right.compute();
+			SufficientStatistics[] leftData = left.join();
+			for( int iNode = 0; iNode < leftData.length; ++iNode)
+				leftData[iNode].merge(rightData[iNode]);
+			
+			return leftData;
+		}
 	}
 	
 	/**
@@ -257,8 +526,22 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 	@Override
 	public GenericLearningResults learn(ICTClassifier<Double, CTDiscreteNode> model,  Collection<ITrajectory<Double>> trainingSet) throws RuntimeException {
 		
+		if( trainingSet == null)
+			throw new IllegalArgumentException("Error: null training set argument");
+		
+		return this.learn(model, trainingSet.iterator());
+	}
+	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IStreamingLearningAlgorithm#learn(CTBNCToolkit.ICTClassifier, java.util.Iterator)
+	 */
+	@Override
+	public GenericLearningResults learn(ICTClassifier<Double, CTDiscreteNode> model,  Iterator<ITrajectory<Double>> trainingSet) throws RuntimeException {
+		
 		if( model == null)
 			throw new IllegalArgumentException("Error: null model argument");
+		if( trainingSet == null)
+			throw new IllegalArgumentException("Error: null training set argument");
 		
 		// Set the structure
 		if( this.adjMStructure != null)
@@ -305,6 +588,16 @@ public class CTBNCParameterLLAlgorithm extends LearningAlgorithm<Double, CTDiscr
 		return this.Px_prior;
 	}
 	
+	/**
+	 * Return the number of threads used
+	 * to calculate the sufficient statistics.
+	 * 
+	 * @return the parallelism
+	 */
+	protected int getParallelism() {
+		return this.parallelism;
+	}
+	
 	@Override
 	public boolean[][] getStructure() {
 		return this.adjMStructure;
@@ -30,6 +30,9 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 	
 	private int nGeneratedTrajectories = 0;
 	private String ext = ".csv";
+	private CompiledCTBNClassifier compiled = null;	// last compiled form of the model
+	private CTDiscreteNode[] compiledNodes = null;		// nodes compiled in the last compiled form
+	private int[] compiledVersions = null;				// CIMs versions compiled in the last compiled form
 
 	/**
 	 * Base constructor
@@ -65,9 +68,11 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 		List<Double> times = new Vector<Double>();
 		List<String[]> values = new Vector<String[]>();
 		// Initial state sampling
-		generateInitialState(times, values);
+		ParentStrideTable strides = new ParentStrideTable(this);		// the sampling does not use the model evidences
+		int[] state = new int[this.getNodeIndexing().getNodesNumber()];
+		generateInitialState(times, values, strides, state);
 		// Trajectory sampling
-		generateTrajectory(times, values, T);
+		generateTrajectory(times, values, T, strides, state);
 		
 		CTTrajectory<Double> trj = new CTTrajectory<Double>(this.getNodeIndexing(), times, values);
 		++nGeneratedTrajectories;
@@ -84,8 +89,10 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 	 * 
 	 * @param times time stamp for the trajectory
 	 * @param values list of values for the trajectory
+	 * @param strides parent stride table of the model
+	 * @param state vector where the sampled state of each node is set
 	 */
-	private void generateInitialState(List<Double> times, List<String[]> values) {
+	private void generateInitialState(List<Double> times, List<String[]> values, ParentStrideTable strides, int[] state) {
 		
 		NodeIndexing nodeIndexing = this.getNodeIndexing(); 
 		String[] s0 = new String[nodeIndexing.getNodesNumber()];
@@ -94,8 +101,8 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 		// Class sampling
 		int classIndex = nodeIndexing.getClassIndex();
 		CTDiscreteNode clNode = this.getClassNode();
-		clNode.setEvidence(clNode.sampleState());						// sample the class
-		s0[classIndex] = clNode.getCurrentState();						// add the state to the trajectory
+		state[classIndex] = clNode.sampleState(strides.parentsEntry(classIndex, state), 0);	// sample the class
+		s0[classIndex] = clNode.getStateName(state[classIndex]);		// add the state to the trajectory
 		
 		// Uniform sampling for the not class nodes
 		for( int i = 0; i < nodeIndexing.getNodesNumber(); ++i)
@@ -108,8 +115,8 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 				for(int j = 0; j < pDistr.length; ++j)
 					pDistr[j] = 1.0 / pDistr.length;
 				
-				node.setEvidence(DiscreteModel.sample(pDistr));			// set the initial state
-				s0[i] = node.getCurrentState();							// add the state to the trajectory
+				state[i] = DiscreteModel.sample(pDistr);				// set the initial state
+				s0[i] = node.getStateName(state[i]);					// add the state to the trajectory
 			}
 			
 		values.add(s0);													// add the first set of values
@@ -122,8 +129,10 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 	 * @param times list of time jumps for the generated trajectory
 	 * @param values list of value map for the generated trajectory
 	 * @param T the maximum length of the trajectory
+	 * @param strides parent stride table of the model
+	 * @param state initial state of each node (updated during the sampling)
 	 */
-	private void generateTrajectory(List<Double> times, List<String[]> values, double T) {
+	private void generateTrajectory(List<Double> times, List<String[]> values, double T, ParentStrideTable strides, int[] state) {
 		
 		NodeIndexing nodeIndexing = this.getNodeIndexing();
 		int classIndex = nodeIndexing.getClassIndex();
@@ -145,7 +154,7 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 				// Calculate transition time
 				int tmpNodeIndex = noTimeNodes.getFirst();
 				tmpNode = this.getNode( tmpNodeIndex);
-				double newTime = tmpNode.sampleTransitionTime() + currentTime;
+				double newTime = tmpNode.sampleTransitionTime(strides.parentsEntry(tmpNodeIndex, state), state[tmpNodeIndex]) + currentTime;
 				// Sort the node using the transition time
 				int index;									// find the index
 				for( index = sortedTimes.size() - 1; index >= 0 && newTime < sortedTimes.get(index); --index); ++index;
@@ -163,14 +172,13 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 			// Sample the new transition
 			int tmpNodeIndex = sortedNodes.getFirst();
 			tmpNode = this.getNode(tmpNodeIndex);
-			int nextState = tmpNode.sampleState();
-			tmpNode.setEvidence(nextState);
+			state[tmpNodeIndex] = tmpNode.sampleState(strides.parentsEntry(tmpNodeIndex, state), state[tmpNodeIndex]);
 			
 			// Update the trajectory
 			times.add(currentTime);
 			String[] newValues = new String[nodeIndexing.getNodesNumber()];
 			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
-				newValues[iNode] = this.getNode(iNode).getCurrentState();
+				newValues[iNode] = this.getNode(iNode).getStateName(state[iNode]);
 			values.add(newValues);
 			
 			// Update the lists
@@ -188,11 +196,8 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 		
 		// Add the ending time
 		String[] newValues = new String[nodeIndexing.getNodesNumber()];
-		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
-			newValues[iNode] = this.getNode(iNode).getCurrentState();
-			tmpNode = this.getNode( iNode);
-			tmpNode.retractEvidence();
-		}
+		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+			newValues[iNode] = this.getNode(iNode).getStateName(state[iNode]);
 		times.add(T);
 		values.add(newValues);
 		
@@ -222,6 +227,39 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 		return algorithm.classify(this, trajectory, timeStream);
 	}
 	
+	/**
+	 * Return the compiled form of the model used
+	 * for the classification. The compiled form is
+	 * generated again only if some node or CIM is
+	 * changed from the last compilation.
+	 * 
+	 * @return the compiled model
+	 * @throws RuntimeException if some CIM is not valid
+	 */
+	public synchronized CompiledCTBNClassifier compile() throws RuntimeException {
+		
+		int nNodes = this.getNodeIndexing().getNodesNumber();
+		boolean upToDate = this.compiled != null && this.compiledNodes.length == nNodes;
+		for( int iNode = 0; upToDate && iNode < nNodes; ++iNode) {
+			CTDiscreteNode node = this.getNode(iNode);
+			upToDate = node == this.compiledNodes[iNode] && node.getCIMsVersion() == this.compiledVersions[iNode];
+		}
+		if( upToDate)
+			return this.compiled;
+		
+		CTDiscreteNode[] nodes = new CTDiscreteNode[nNodes];
+		int[] versions = new int[nNodes];
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			nodes[iNode] = this.getNode(iNode);
+			versions[iNode] = nodes[iNode].getCIMsVersion();
+		}
+		this.compiled = new CompiledCTBNClassifier(this);
+		this.compiledNodes = nodes;
+		this.compiledVersions = versions;
+		
+		return this.compiled;
+	}
+	
 	@Override
 	public IModel<Double, CTDiscreteNode> clone() {
 		
@@ -238,7 +276,7 @@ public class CTBNClassifier extends DiscreteModel<Double,CTDiscreteNode> impleme
 			CTDiscreteNode clonedNode = clonedModel.getNode(i);
 			// CIM update
 			for(int pE = 0; pE < clonedNode.getNumberParentsEntries(); ++pE)
-				clonedNode.setCIM(pE, node.getCIM(pE).clone());
+				clonedNode.setCIM(pE, node.getCIMReference(pE));
 			if( node.validatedCIMs())
 				clonedNode.checkCIMs();
 		}
@@ -25,6 +25,7 @@ public class CTDiscreteNode extends DiscreteNode {
 	private boolean staticNode;
 	private int nParentsEntries = 1;
 	private boolean validatedCIMs = false;
+	private int cimsVersion = 0;				// incremented at each change of the CIMs
 	private List<double[][]> CIMs = null;
 	
 	/**
@@ -135,13 +136,30 @@ public class CTDiscreteNode extends DiscreteNode {
 	
 	/**
 	 * Return the CIM given the parent entry.
+	 * The returned CIM is a copy, so the CIMs
+	 * can be changed only with setCIM and
+	 * setCIMValue (that update the CIMs version).
 	 * 
 	 * @param parentEntry parent entry that identify the parents values
-	 * @return the CIM given the parents value
+	 * @return a copy of the CIM given the parents value
 	 * @throws RuntimeException can return exceptions if the indexes are out of bound or there aren't states
 	 */
 	public double[][] getCIM(int parentEntry) throws RuntimeException {
 		
+		return CTDiscreteNode.copyCIM(this.CIMs.get(parentEntry));
+	}
+	
+	/**
+	 * Return the CIM given the parent entry
+	 * without copying it. The returned CIM
+	 * must be only read.
+	 * 
+	 * @param parentEntry parent entry that identify the parents values
+	 * @return the CIM given the parents value
+	 * @throws RuntimeException can return exceptions if the indexes are out of bound or there aren't states
+	 */
+	double[][] getCIMReference(int parentEntry) throws RuntimeException {
+		
 		return this.CIMs.get(parentEntry);
 	}
 	
@@ -159,11 +177,12 @@ public class CTDiscreteNode extends DiscreteNode {
 		
 		this.CIMs.get(parentEntry)[s0][s1] = value;
 		this.validatedCIMs = false;
+		++this.cimsVersion;
 	}
 	
 	/**
 	 * Insert a complete CIM for a particular parent
-	 * entry.
+	 * entry. The node stores a copy of the CIM.
 	 * 
 	 * @param parentEntry parent entry that identify the parents values
 	 * @param CIM CIM to insert
@@ -181,8 +200,9 @@ public class CTDiscreteNode extends DiscreteNode {
 				throw new IllegalArgumentException("The CIM dimensions must correspond with number of states of the node");
 		}
 		
-		this.CIMs.set(parentEntry, CIM);
+		this.CIMs.set(parentEntry, CTDiscreteNode.copyCIM(CIM));
 		this.validatedCIMs = false;
+		++this.cimsVersion;
 	}
 	
 	/**
@@ -207,6 +227,19 @@ public class CTDiscreteNode extends DiscreteNode {
 		return this.validatedCIMs;
 	}
 	
+	/**
+	 * Return the version of the CIMs. The version
+	 * changes each time a CIM is set or the parents
+	 * of the node change, so it can be used to know
+	 * if a copy of the CIMs is still up to date.
+	 *
+	 * @return the CIMs version
+	 */
+	public int getCIMsVersion() {
+		
+		return this.cimsVersion;
+	}
+	
 	/**
 	 * Check the validity of all the CIMs
 	 * and return the validation result.
@@ -262,7 +295,27 @@ public class CTDiscreteNode extends DiscreteNode {
 		if( !this.isInstanced())
 			throw new IllegalStateException("Error: transition time can be calculated only for instanced nodes");
 		
-		double lambda = -this.getCIMValue(this.getCurrentParentsEntry(), this.getCurrentStateIndex(), this.getCurrentStateIndex());
+		return this.sampleTransitionTime(this.getCurrentParentsEntry(), this.getCurrentStateIndex());
+	}
+	
+	/**
+	 * Sample the next transition time given
+	 * the state and the parent entry in input.
+	 * The evidences of the nodes are not used.
+	 * 
+	 * @param pE parent entry
+	 * @param stateIndex index of the current state of the node
+	 * @return the sampled time
+	 * @throws RuntimeException if the node doesn't allow to generate a transition time
+	 */
+	public double sampleTransitionTime(int pE, int stateIndex) throws RuntimeException {
+		
+		if( this.isStaticNode())
+			throw new IllegalStateException("Error: static nodes can not change state in time");
+		if( !this.validatedCIMs())
+			throw new IllegalStateException("Error: CIMs are not validated");
+		
+		double lambda = -this.getCIMValue(pE, stateIndex, stateIndex);
 		if( lambda == 0)						// if lambda is equal to zero the state is an absorbing state and can not change
 			return Double.POSITIVE_INFINITY;
 		
@@ -285,13 +338,36 @@ public class CTDiscreteNode extends DiscreteNode {
 			throw new IllegalStateException("Error: CIMs are not validated");
 		
 		if( this.isStaticNode())						// if the node is static
-			return DiscreteModel.sample(this.getCIM(this.getCurrentParentsEntry())[0]);
+			return this.sampleState(this.getCurrentParentsEntry(), 0);
 		else if( !this.isInstanced())					// if the node is continuous but not instanced
 			throw new IllegalStateException("Error: the next state can be calculated only for instanced continuous nodes");
 		
 		// If the node is continuous and it is instanced
-		int stateIndex = this.getCurrentStateIndex();
-		double[] pDistr = (this.getCIM(this.getCurrentParentsEntry())[stateIndex]).clone();
+		return this.sampleState(this.getCurrentParentsEntry(), this.getCurrentStateIndex());
+	}
+	
+	/**
+	 * Sample a state given the parent entry and
+	 * the current state in input. If the node is
+	 * static, sample a state using the prior (the
+	 * current state is ignored). If the node is
+	 * continuous sample the next jumping state.
+	 * The evidences of the nodes are not used.
+	 * 
+	 * @param pE parent entry
+	 * @param stateIndex index of the current state of the node
+	 * @return index of the sampled state
+	 * @throws RuntimeException if the node doesn't allow to generate a new state
+	 */
+	public int sampleState(int pE, int stateIndex) throws RuntimeException {
+		
+		if( !this.validatedCIMs())
+			throw new IllegalStateException("Error: CIMs are not validated");
+		
+		if( this.isStaticNode())						// if the node is static
+			return DiscreteModel.sample(this.CIMs.get(pE)[0]);
+		
+		double[] pDistr = (this.CIMs.get(pE)[stateIndex]).clone();
 		if( pDistr.length < 2)
 			throw new IllegalStateException("Error: in continuous node to jump to the next state you need at least 2 states");
 		if( pDistr[stateIndex] == 0)
@@ -316,6 +392,7 @@ public class CTDiscreteNode extends DiscreteNode {
 			this.nParentsEntries *= ctParent.getStatesNumber();
 			this.CIMs = CTDiscreteNode.generateCIMsorCPTs( this.nParentsEntries, this.getStatesNumber(), this.staticNode);
 			this.validatedCIMs = false;
+			++this.cimsVersion;
 			return true;
 		}
 		
@@ -330,6 +407,7 @@ public class CTDiscreteNode extends DiscreteNode {
 			this.nParentsEntries /= ctParent.getStatesNumber();
 			this.CIMs = CTDiscreteNode.generateCIMsorCPTs( this.nParentsEntries, this.getStatesNumber(), this.staticNode);
 			this.validatedCIMs = false;
+			++this.cimsVersion;
 			return true;
 		}
 		
@@ -415,6 +493,24 @@ public class CTDiscreteNode extends DiscreteNode {
 		return newCIMs;
 	}
 	
+	/**
+	 * Return a copy of a CIM.
+	 * 
+	 * @param CIM CIM to copy
+	 * @return the copied CIM (null if the CIM is null)
+	 */
+	static private double[][] copyCIM(double[][] CIM) {
+		
+		if( CIM == null)
+			return null;
+		
+		double[][] copy = new double[CIM.length][];
+		for( int i = 0; i < CIM.length; ++i)
+			copy[i] = CIM[i].clone();
+		
+		return copy;
+	}
+	
 	/**
 	 * Sample a value with exponential distribution
 	 * with parameter lambda.
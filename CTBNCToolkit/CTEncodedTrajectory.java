@@ -0,0 +1,473 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.*;
+
+/**
+ *
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Continuous time trajectory stored by columns.
+ * The times are stored in a primitive array and
+ * the values of each node are stored as state
+ * indexes (byte or short depending on the number
+ * of states) of a state dictionary.
+ * Each column contains the value of the node
+ * for every transition, so the access to a value
+ * does not require to search the last change.
+ * The indexes of the nodes that change their
+ * state in each transition are stored in a
+ * sparse structure (changesStart, changedNodes).
+ */
+public class CTEncodedTrajectory implements IEncodedTrajectory {
+
+	private NodeIndexing nodeIndexing;
+	private StateDictionary dictionary;
+	private String name;
+	private double[] times;
+	private byte[][] byteColumns;
+	private short[][] shortColumns;
+	private int[] changesStart;
+	private int[] changedNodes;
+
+	/**
+	 * Constructor that allocates the columns
+	 * without filling them.
+	 *
+	 * @param nodeIndexing global node indexing to use
+	 * @param dictionary state dictionary used for the encoding
+	 * @param transitionsNumber number of transitions
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	protected CTEncodedTrajectory(NodeIndexing nodeIndexing, StateDictionary dictionary, int transitionsNumber) throws IllegalArgumentException {
+
+		if( nodeIndexing == null)
+			throw new IllegalArgumentException("Error: null nodeIndexing argument");
+		if( dictionary == null)
+			throw new IllegalArgumentException("Error: null dictionary argument");
+		if( dictionary.getNodesNumber() != nodeIndexing.getNodesNumber())
+			throw new IllegalArgumentException("Error: the dictionary doesn't corresponds with the general node indexing");
+
+		this.nodeIndexing = nodeIndexing;
+		this.dictionary = dictionary;
+		this.times = new double[transitionsNumber];
+		this.byteColumns = new byte[nodeIndexing.getNodesNumber()][];
+		this.shortColumns = new short[nodeIndexing.getNodesNumber()][];
+		for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
+			if( dictionary.getStatesNumber(iNode) <= Byte.MAX_VALUE)
+				this.byteColumns[iNode] = new byte[transitionsNumber];
+			else if( dictionary.getStatesNumber(iNode) <= Short.MAX_VALUE)
+				this.shortColumns[iNode] = new short[transitionsNumber];
+			else
+				throw new IllegalArgumentException("Error: too many states for node " + nodeIndexing.getName(iNode));
+		}
+	}
+
+	/**
+	 * Base constructor.
+	 * Note: as in CTTrajectory a null value means
+	 * that the node didn't change its state.
+	 *
+	 * @param nodeIndexing global node indexing to use
+	 * @param dictionary state dictionary used for the encoding
+	 * @param times list of time value
+	 * @param values list of nodes values in the related time
+	 * @throws IllegalArgumentException in case of wrong arguments or values not in the dictionary
+	 */
+	public CTEncodedTrajectory(NodeIndexing nodeIndexing, StateDictionary dictionary, List<Double> times, List<String[]> values) throws IllegalArgumentException {
+
+		this(nodeIndexing, dictionary, times == null ? 0 : times.size());
+
+		if( times == null)
+			throw new IllegalArgumentException("Error: null value for the time list");
+		if( values == null)
+			throw new IllegalArgumentException("Error: null value for the values list");
+		if( times.size() != values.size())
+			throw new IllegalArgumentException("Error: lists of the constructor argument with different dimension");
+
+		int nNodes = nodeIndexing.getNodesNumber();
+		for(int i = 0; i < this.times.length; ++i) {
+			String[] v = values.get(i);
+			if( v == null || v.length != nNodes)
+				throw new IllegalArgumentException("Error: the array dimension doesn't corresponds with the general node indexing");
+
+			this.times[i] = times.get(i);
+			for(int iNode = 0; iNode < nNodes; ++iNode) {
+				int iState;
+				if( v[iNode] != null) {
+					iState = dictionary.getStateIndex(iNode, v[iNode]);
+					if( iState == -1)
+						throw new IllegalArgumentException("Error: State " + v[iNode] + " didn't find!");
+				} else if( i > 0)
+					iState = this.getStateIndex(i - 1, iNode);
+				else
+					iState = -1;
+				this.setStateIndex(i, iNode, iState);
+			}
+		}
+		this.generateChangesIndex();
+	}
+
+	/**
+	 * Constructor from already encoded values.
+	 * The state indexes are copied in the
+	 * trajectory columns.
+	 *
+	 * @param nodeIndexing global node indexing to use
+	 * @param dictionary state dictionary used for the encoding
+	 * @param times time of each transition
+	 * @param stateIndexes state indexes for each node (stateIndexes[iNode][iTransition], -1 if not available); only the first times.length values are used
+	 * @throws IllegalArgumentException in case of wrong arguments
+	 */
+	public CTEncodedTrajectory(NodeIndexing nodeIndexing, StateDictionary dictionary, double[] times, int[][] stateIndexes) throws IllegalArgumentException {
+
+		this(nodeIndexing, dictionary, times == null ? 0 : times.length);
+
+		if( times == null)
+			throw new IllegalArgumentException("Error: null value for the times array");
+		if( stateIndexes == null || stateIndexes.length != nodeIndexing.getNodesNumber())
+			throw new IllegalArgumentException("Error: the array dimension doesn't corresponds with the general node indexing");
+
+		System.arraycopy(times, 0, this.times, 0, times.length);
+		for(int iNode = 0; iNode < stateIndexes.length; ++iNode) {
+			if( stateIndexes[iNode].length < times.length)
+				throw new IllegalArgumentException("Error: missing values for node " + nodeIndexing.getName(iNode));
+			int nStates = dictionary.getStatesNumber(iNode);
+			for(int i = 0; i < times.length; ++i) {
+				if( stateIndexes[iNode][i] < -1 || stateIndexes[iNode][i] >= nStates)
+					throw new IllegalArgumentException("Error: state index out of bound");
+				this.setStateIndex(i, iNode, stateIndexes[iNode][i]);
+			}
+		}
+		this.generateChangesIndex();
+	}
+
+	/**
+	 * Encode a trajectory with the given
+	 * state dictionary. If the trajectory is
+	 * already encoded with an equal dictionary
+	 * the trajectory itself is returned.
+	 * The values that are not present in the
+	 * dictionary are encoded with -1.
+	 *
+	 * @param trajectory trajectory to encode
+	 * @param dictionary state dictionary to use
+	 * @return the encoded trajectory
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static IEncodedTrajectory encode(ITrajectory<Double> trajectory, StateDictionary dictionary) throws IllegalArgumentException {
+
+		if( trajectory == null)
+			throw new IllegalArgumentException("Error: null trajectory argument");
+		if( dictionary == null)
+			throw new IllegalArgumentException("Error: null dictionary argument");
+
+		int nTrans = trajectory.getTransitionsNumber();
+		int nNodes = trajectory.getNodeIndexing().getNodesNumber();
+		CTEncodedTrajectory eTrj;
+		if( trajectory instanceof IEncodedTrajectory) {
+			IEncodedTrajectory sourceTrj = (IEncodedTrajectory) trajectory;
+			int[][] map = sourceTrj.getStateDictionary().getMapping(dictionary);
+			if( map == null)
+				return sourceTrj;
+
+			// Translation of the state indexes
+			eTrj = new CTEncodedTrajectory(trajectory.getNodeIndexing(), dictionary, nTrans);
+			for(int i = 0; i < nTrans; ++i) {
+				eTrj.times[i] = sourceTrj.getTime(i);
+				for(int iNode = 0; iNode < nNodes; ++iNode) {
+					int iState = sourceTrj.getStateIndex(i, iNode);
+					eTrj.setStateIndex(i, iNode, iState == -1 ? -1 : map[iNode][iState]);
+				}
+			}
+		} else {
+			// Encoding of the string values
+			eTrj = new CTEncodedTrajectory(trajectory.getNodeIndexing(), dictionary, nTrans);
+			for(int i = 0; i < nTrans; ++i) {
+				ITransition<Double> trans = trajectory.getTransition(i);
+				eTrj.times[i] = trans.getTime();
+				for(int iNode = 0; iNode < nNodes; ++iNode) {
+					String value = trans.getNodeValue(iNode);
+					if( value != null)
+						eTrj.setStateIndex(i, iNode, dictionary.getStateIndex(iNode, value));
+					else if( i > 0)
+						eTrj.setStateIndex(i, iNode, eTrj.getStateIndex(i - 1, iNode));
+					else
+						eTrj.setStateIndex(i, iNode, -1);
+				}
+			}
+		}
+		eTrj.generateChangesIndex();
+		eTrj.setName(trajectory.getName());
+
+		return eTrj;
+	}
+
+	/**
+	 * Generate the index of the changed
+	 * nodes for each transition. It must
+	 * be called after the columns filling.
+	 */
+	private void generateChangesIndex() {
+
+		int nNodes = this.nodeIndexing.getNodesNumber();
+
+		// Count the changes
+		int nChanges = 0;
+		for(int iNode = 0; iNode < nNodes; ++iNode)
+			for(int i = 1; i < this.times.length; ++i)
+				if( this.getStateIndex(i, iNode) != this.getStateIndex(i - 1, iNode))
+					++nChanges;
+
+		// Fill the index
+		this.changesStart = new int[this.times.length + 1];
+		this.changedNodes = new int[nChanges];
+		int iChange = 0;
+		for(int i = 0; i < this.times.length; ++i) {
+			this.changesStart[i] = iChange;
+			if( i == 0)
+				continue;
+			for(int iNode = 0; iNode < nNodes; ++iNode)
+				if( this.getStateIndex(i, iNode) != this.getStateIndex(i - 1, iNode))
+					this.changedNodes[iChange++] = iNode;
+		}
+		this.changesStart[this.times.length] = iChange;
+	}
+
+	/**
+	 * Set the state index of a node
+	 * in a transition.
+	 *
+	 * @param iTransition index of the transition
+	 * @param nodeIndex node index
+	 * @param iState state index to set
+	 */
+	private void setStateIndex(int iTransition, int nodeIndex, int iState) {
+
+		byte[] bColumn = this.byteColumns[nodeIndex];
+		if( bColumn != null)
+			bColumn[iTransition] = (byte) iState;
+		else
+			this.shortColumns[nodeIndex][iTransition] = (short) iState;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getStateIndex(int, int)
+	 */
+	@Override
+	public int getStateIndex(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+		if( iTransition < 0 || iTransition >= this.times.length)
+			throw new IllegalArgumentException("Error: transition index out of bound");
+
+		byte[] bColumn = this.byteColumns[nodeIndex];
+		if( bColumn != null)
+			return bColumn[iTransition];
+		return this.shortColumns[nodeIndex][iTransition];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getTime(int)
+	 */
+	@Override
+	public double getTime(int iTransition) throws IllegalArgumentException {
+
+		if( iTransition < 0 || iTransition >= this.times.length)
+			throw new IllegalArgumentException("Error: transition index out of bound");
+
+		return this.times[iTransition];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getChangesNumber(int)
+	 */
+	@Override
+	public int getChangesNumber(int iTransition) throws IllegalArgumentException {
+
+		if( iTransition < 0 || iTransition >= this.times.length)
+			throw new IllegalArgumentException("Error: transition index out of bound");
+
+		return this.changesStart[iTransition + 1] - this.changesStart[iTransition];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getChangedNode(int, int)
+	 */
+	@Override
+	public int getChangedNode(int iTransition, int iChange) throws IllegalArgumentException {
+
+		if( iChange < 0 || iChange >= this.getChangesNumber(iTransition))
+			throw new IllegalArgumentException("Error: change index out of bound");
+
+		return this.changedNodes[this.changesStart[iTransition] + iChange];
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getStateDictionary()
+	 */
+	@Override
+	public StateDictionary getStateDictionary() {
+
+		return this.dictionary;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransitionsNumber()
+	 */
+	@Override
+	public int getTransitionsNumber() {
+
+		return this.times.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransitionTime(int)
+	 */
+	@Override
+	public Double getTransitionTime(int iTransition) throws IllegalArgumentException {
+
+		return this.getTime(iTransition);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getNodeValue(int, int)
+	 */
+	@Override
+	public String getNodeValue(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+		int iState = this.getStateIndex(iTransition, nodeIndex);
+		if( iState == -1)
+			throw new IllegalArgumentException("Error: node " + this.nodeIndexing.getName( nodeIndex) + " didn't find");
+
+		return this.dictionary.getStateName(nodeIndex, iState);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getTransition(int)
+	 */
+	@Override
+	public CTTransition<Double> getTransition(int iTransition) throws IllegalArgumentException {
+
+		String[] values = new String[this.nodeIndexing.getNodesNumber()];
+		for(int iNode = 0; iNode < values.length; ++iNode) {
+			int iState = this.getStateIndex(iTransition, iNode);
+			values[iNode] = iState == -1 ? null : this.dictionary.getStateName(iNode, iState);
+		}
+
+		return new CTTransition<Double>(this.nodeIndexing, this.times[iTransition], values);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#setName(java.lang.String)
+	 */
+	@Override
+	public void setName(String name) {
+
+		this.name = name;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getName()
+	 */
+	@Override
+	public String getName() {
+
+		return this.name;
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNToolkit.ITrajectory#getNodeIndexing()
+	 */
+	@Override
+	public NodeIndexing getNodeIndexing() {
+
+		return this.nodeIndexing;
+	}
+
+	/**
+	 * Print the trajectory.
+	 */
+	public String toString() {
+
+		StringBuilder strBuilder = new StringBuilder();
+
+		// Handing
+		strBuilder.append( "t");
+		for(int iNode = 0; iNode < this.nodeIndexing.getNodesNumber(); ++iNode)
+			strBuilder.append( "," + this.nodeIndexing.getName(iNode));
+		strBuilder.append( "\n");
+
+		// Transitions
+		for( int iJmp = 0; iJmp < this.getTransitionsNumber(); ++iJmp) {
+			strBuilder.append( this.times[iJmp]);
+			for(int iNode = 0; iNode < this.nodeIndexing.getNodesNumber(); ++iNode)
+				strBuilder.append( "," + this.getNodeValue(iJmp, iNode));
+			strBuilder.append( "\n");
+		}
+
+		return strBuilder.toString();
+	}
+
+	/**
+	 * Cut the trajectory length to a
+	 * percentage of the original length.
+	 *
+	 * @param trj trajectory to cut
+	 * @param cutPercentage percentage of cutting in (0,1]
+	 * @return new shorter trajectory
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	static public CTEncodedTrajectory cutTrajectory(IEncodedTrajectory trj, double cutPercentage) throws IllegalArgumentException {
+
+		if( trj == null)
+			throw new IllegalArgumentException("Error: null trajectory");
+		if( trj.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory (name = " + trj.getName() + ")");
+		if( cutPercentage <= 0 || cutPercentage > 1)
+			throw new IllegalArgumentException("Error: the cutting percentage must be in (0,1]");
+
+		// Searching of the last transition to keep
+		double tMax = trj.getTime( trj.getTransitionsNumber() - 1) * cutPercentage;
+		int iMin = 0;
+		int iMax = trj.getTransitionsNumber() - 1;
+		while( iMin <= iMax) {
+			int i = iMin + (iMax - iMin)/2;
+
+			if( trj.getTime(i) < tMax)
+				iMin = i + 1;
+			else if( trj.getTime(i) > tMax)
+				iMax = i - 1;
+			else {
+				iMax = i;
+				iMin = i+1;
+			}
+		}
+
+		// New trajectory generation (the termination point is added if necessary)
+		int nTrans = iMax + 1;
+		if( trj.getTime(iMax) != tMax)
+			++nTrans;
+		int nNodes = trj.getNodeIndexing().getNodesNumber();
+		CTEncodedTrajectory newTrj = new CTEncodedTrajectory(trj.getNodeIndexing(), trj.getStateDictionary(), nTrans);
+		for(int i = 0; i < nTrans; ++i) {
+			int iSource = Math.min(i, iMax);
+			newTrj.times[i] = i <= iMax ? trj.getTime(i) : tMax;
+			for(int iNode = 0; iNode < nNodes; ++iNode)
+				newTrj.setStateIndex(i, iNode, trj.getStateIndex(iSource, iNode));
+		}
+		newTrj.generateChangesIndex();
+		newTrj.setName( trj.getName());
+
+		return newTrj;
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.Map;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * View of an encoded trajectory where the states of
+ * the class node are renamed using a remapping table
+ * (see ClassRemappedTrajectory).
+ *
+ * The view is encoded with the target dictionary: the
+ * class state indexes are translated with a table
+ * calculated once, while the other state indexes are
+ * read from the original trajectory. So the nodes
+ * different from the class must have the same states
+ * in the dictionary of the original trajectory and
+ * in the target dictionary (e.g. the dictionaries of
+ * a model and of its MultipleCTBNC experts).
+ */
+public class ClassRemappedEncodedTrajectory extends ClassRemappedTrajectory<Double> implements IEncodedTrajectory {
+
+	private final IEncodedTrajectory trajectory;
+	private final StateDictionary dictionary;
+	private final int classIndex;
+	private final int[] classStates;			// class state index in the target dictionary of each original class state index
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param trajectory original encoded trajectory
+	 * @param classMapping remapping table of the class states (original state name -> new state name)
+	 * @param dictionary target dictionary
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public ClassRemappedEncodedTrajectory(IEncodedTrajectory trajectory, Map<String,String> classMapping, StateDictionary dictionary) throws IllegalArgumentException {
+
+		super(trajectory, classMapping);
+		if( dictionary == null)
+			throw new IllegalArgumentException("Error: null dictionary argument");
+		if( dictionary.getNodesNumber() != trajectory.getStateDictionary().getNodesNumber())
+			throw new IllegalArgumentException("Error: the dictionaries have a different number of nodes");
+
+		this.trajectory = trajectory;
+		this.dictionary = dictionary;
+		this.classIndex = trajectory.getNodeIndexing().getClassIndex();
+
+		StateDictionary source = trajectory.getStateDictionary();
+		this.classStates = new int[source.getStatesNumber(this.classIndex)];
+		for( int iState = 0; iState < this.classStates.length; ++iState) {
+			String name = source.getStateName(this.classIndex, iState);
+			String newName = classMapping.get(name);
+			this.classStates[iState] = dictionary.getStateIndex(this.classIndex, newName == null ? name : newName);
+		}
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getTime(int)
+	 */
+	@Override
+	public double getTime(int iTransition) throws IllegalArgumentException {
+
+		return this.trajectory.getTime(iTransition);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getStateIndex(int, int)
+	 */
+	@Override
+	public int getStateIndex(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+		int iState = this.trajectory.getStateIndex(iTransition, nodeIndex);
+		if( nodeIndex != this.classIndex || iState == -1)
+			return iState;
+
+		return this.classStates[iState];
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getChangesNumber(int)
+	 */
+	@Override
+	public int getChangesNumber(int iTransition) throws IllegalArgumentException {
+
+		return this.trajectory.getChangesNumber(iTransition);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getChangedNode(int, int)
+	 */
+	@Override
+	public int getChangedNode(int iTransition, int iChange) throws IllegalArgumentException {
+
+		return this.trajectory.getChangedNode(iTransition, iChange);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.IEncodedTrajectory#getStateDictionary()
+	 */
+	@Override
+	public StateDictionary getStateDictionary() {
+
+		return this.dictionary;
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.Map;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * View of a trajectory where the states of the
+ * class node are renamed using a remapping table
+ * (e.g. the binary class trajectories used by the
+ * MultipleCTBNC experts).
+ *
+ * The transitions of the original trajectory are
+ * not copied: the values are read from the original
+ * trajectory and only the class values are translated.
+ * The class values that are not in the table are
+ * returned unchanged.
+ *
+ * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
+ */
+public class ClassRemappedTrajectory<TimeType extends Number> implements ITrajectory<TimeType> {
+
+	private final ITrajectory<TimeType> trajectory;
+	private final Map<String,String> classMapping;
+	private final int classIndex;
+	private String name;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param trajectory original trajectory
+	 * @param classMapping remapping table of the class states (original state name -> new state name)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public ClassRemappedTrajectory(ITrajectory<TimeType> trajectory, Map<String,String> classMapping) throws IllegalArgumentException {
+
+		if( trajectory == null)
+			throw new IllegalArgumentException("Error: null trajectory argument");
+		if( classMapping == null)
+			throw new IllegalArgumentException("Error: null class mapping argument");
+		if( trajectory.getNodeIndexing().getClassIndex() < 0)
+			throw new IllegalArgumentException("Error: the trajectory has not a class node");
+
+		this.trajectory = trajectory;
+		this.classMapping = classMapping;
+		this.classIndex = trajectory.getNodeIndexing().getClassIndex();
+		this.name = trajectory.getName();
+	}
+
+
+	/**
+	 * Return the original trajectory.
+	 *
+	 * @return original trajectory
+	 */
+	public ITrajectory<TimeType> getOriginalTrajectory() {
+
+		return this.trajectory;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#setName(java.lang.String)
+	 */
+	@Override
+	public void setName(String name) {
+
+		this.name = name;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getName()
+	 */
+	@Override
+	public String getName() {
+
+		return this.name;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getTransitionsNumber()
+	 */
+	@Override
+	public int getTransitionsNumber() {
+
+		return this.trajectory.getTransitionsNumber();
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getTransitionTime(int)
+	 */
+	@Override
+	public TimeType getTransitionTime(int iTransition) throws IllegalArgumentException {
+
+		return this.trajectory.getTransitionTime(iTransition);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getNodeValue(int, int)
+	 */
+	@Override
+	public String getNodeValue(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+		String value = this.trajectory.getNodeValue(iTransition, nodeIndex);
+		if( nodeIndex != this.classIndex)
+			return value;
+
+		return this.remap(value);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getTransition(int)
+	 */
+	@Override
+	public ITransition<TimeType> getTransition(int iTransition) throws IllegalArgumentException {
+
+		return new RemappedTransition<TimeType>(this, this.trajectory.getTransition(iTransition));
+	}
+
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.ITrajectory#getNodeIndexing()
+	 */
+	@Override
+	public NodeIndexing getNodeIndexing() {
+
+		return this.trajectory.getNodeIndexing();
+	}
+
+
+	/**
+	 * Translate a class value.
+	 *
+	 * @param value original class value
+	 * @return new class value
+	 */
+	private String remap(String value) {
+
+		if( value == null)
+			return null;
+		String newValue = this.classMapping.get(value);
+
+		return newValue == null ? value : newValue;
+	}
+
+
+	/**
+	 * Transition of the view: the values are
+	 * read from the original transition.
+	 *
+	 * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
+	 */
+	private static class RemappedTransition<TimeType extends Number> implements ITransition<TimeType> {
+
+		private final ClassRemappedTrajectory<TimeType> trajectory;
+		private final ITransition<TimeType> transition;
+
+		/**
+		 * Base constructor.
+		 *
+		 * @param trajectory trajectory view
+		 * @param transition original transition
+		 */
+		RemappedTransition(ClassRemappedTrajectory<TimeType> trajectory, ITransition<TimeType> transition) {
+
+			this.trajectory = trajectory;
+			this.transition = transition;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.ITransition#getTime()
+		 */
+		@Override
+		public TimeType getTime() {
+
+			return this.transition.getTime();
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.ITransition#getNodeValue(int)
+		 */
+		@Override
+		public String getNodeValue(int nodeIndex) throws IllegalArgumentException {
+
+			String value = this.transition.getNodeValue(nodeIndex);
+			if( nodeIndex != this.trajectory.classIndex)
+				return value;
+
+			return this.trajectory.remap(value);
+		}
+	}
+}
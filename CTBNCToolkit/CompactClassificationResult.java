@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Compact result of the classification of a
+ * trajectory: the class and, optionally, the
+ * final class distribution. The transitions of
+ * the trajectory are not stored.
+ */
+public class CompactClassificationResult {
+
+	private final String name;
+	private final int classIndex;
+	private final String className;
+	private final double[] pDistribution;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param name name of the classified trajectory
+	 * @param classIndex index of the class state
+	 * @param className name of the class state
+	 * @param pDistribution final class distribution (null if not calculated)
+	 */
+	public CompactClassificationResult(String name, int classIndex, String className, double[] pDistribution) {
+
+		this.name = name;
+		this.classIndex = classIndex;
+		this.className = className;
+		this.pDistribution = pDistribution;
+	}
+
+	/**
+	 * Return the name of the classified trajectory.
+	 *
+	 * @return trajectory name
+	 */
+	public String getName() {
+
+		return this.name;
+	}
+
+	/**
+	 * Return the index of the class state.
+	 *
+	 * @return class state index
+	 */
+	public int getClassIndex() {
+
+		return this.classIndex;
+	}
+
+	/**
+	 * Return the class of the trajectory.
+	 *
+	 * @return class state name
+	 */
+	public String getClassification() {
+
+		return this.className;
+	}
+
+	/**
+	 * True if the final class distribution
+	 * was calculated.
+	 *
+	 * @return true if the distribution is available
+	 */
+	public boolean hasProbability() {
+
+		return this.pDistribution != null;
+	}
+
+	/**
+	 * Return the final class distribution
+	 * (indexed as the class states).
+	 *
+	 * @return class distribution, null if it was not calculated
+	 */
+	public double[] getPDistribution() {
+
+		return this.pDistribution == null ? null : this.pDistribution.clone();
+	}
+}
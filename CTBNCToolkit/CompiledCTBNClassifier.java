@@ -0,0 +1,1094 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Immutable compiled form of a continuous time Bayesian
+ * network classifier used for the classification.
+ *
+ * The CIMs of each node are copied in a flat array
+ * (index ((pE * nStates) + s0) * nStates + s1 for the
+ * continuous time nodes, pE * nStates + s for the static
+ * nodes) together with the logarithms of the values used
+ * by the classification. The diagonal rates q_xx|u and the
+ * logarithms of the exit rates log(-q_xx|u) are stored in
+ * separate flat arrays (index pE * nStates + s), so that
+ * the classification is reduced to additions and
+ * multiplications. The parent entries are calculated
+ * through a ParentStrideTable.
+ *
+ * The nodes that have the class as parent (and the class
+ * node) are the only ones whose contribution depends on
+ * the class. The other nodes give the same contribution to
+ * all the classes, so it cancels out in the normalization:
+ * the classification with pruning evaluates only the class
+ * relevant nodes, calculated once in the compilation.
+ *
+ * The contexts can use a class-major kernel: the
+ * diagonal rates and the logarithms of the off-diagonal
+ * CIM values are stored also with layout
+ * [node][parent entry without class][state(s)][class],
+ * so that the update of the log likelihoods of all the
+ * classes is a loop over contiguous values. The class-
+ * major tables are generated the first time they are
+ * required and the results are the same of the standard
+ * kernel.
+ *
+ * A compiled classifier does not have mutable state, so
+ * it can be shared between threads. The working data of
+ * a classification are stored in a Context that each
+ * thread can generate once and reuse.
+ *
+ * The compiled classifier is a snapshot: the changes in
+ * the source model are not reflected.
+ */
+public class CompiledCTBNClassifier {
+
+	private final NodeIndexing nodeIndexing;
+	private final StateDictionary dictionary;
+	private final ParentStrideTable strides;
+	private final int classIndex;
+	private final String[] nodeNames;
+	private final boolean[] isStatic;
+	private final int[] statesNumber;
+	private final double[][] cims;				// flat CIMs of each node
+	private final double[][] logCims;			// logarithms of the CIMs values (0 in the diagonal of the continuous time nodes)
+	private final double[][] qDiag;				// diagonal rates q_xx of the continuous time nodes
+	private final double[][] logExitRates;		// logarithms of the exit rates -q_xx of the continuous time nodes
+	private final int[] entrySize;				// size of the CIM of a parent entry in the flat arrays
+	private final int[] classStride;			// contribution of the class to the parent entry of each node
+	private final int[] allNodes;				// indexes of all the nodes
+	private final int[] relevantNodes;			// indexes of the class node and of its children
+	private final boolean[] relevant;			// true for the class node and its children
+	private final String[] classStates;
+	private final Map<String,Integer> stateToIndex;
+	private volatile ClassMajorTables classMajorTables;	// generated on demand
+
+
+	/**
+	 * Compile the model in input.
+	 *
+	 * @param model model to compile
+	 * @throws IllegalArgumentException if the model is null or it has not a class node
+	 * @throws RuntimeException if some CIM is not valid
+	 */
+	public CompiledCTBNClassifier(ICTClassifier<Double, CTDiscreteNode> model) throws IllegalArgumentException, RuntimeException {
+
+		if( model == null)
+			throw new IllegalArgumentException("Error: null model argument");
+
+		this.nodeIndexing = model.getNodeIndexing();
+		this.classIndex = this.nodeIndexing.getClassIndex();
+		if( this.classIndex == -1)
+			throw new IllegalArgumentException("Error: class node doesn't set");
+
+		int nNodes = this.nodeIndexing.getNodesNumber();
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			CTDiscreteNode node = model.getNode(iNode);
+			int check = node.checkCIMs();
+			if( check != -1)
+				throw new RuntimeException("Error: in CIM validation for node " + node.getName() + " and parent entry " + check);
+		}
+
+		this.dictionary = new StateDictionary(model);
+		this.strides = new ParentStrideTable(model);
+		this.nodeNames = new String[nNodes];
+		this.isStatic = new boolean[nNodes];
+		this.statesNumber = new int[nNodes];
+		this.cims = new double[nNodes][];
+		this.logCims = new double[nNodes][];
+		this.qDiag = new double[nNodes][];
+		this.logExitRates = new double[nNodes][];
+		this.entrySize = new int[nNodes];
+		this.classStride = new int[nNodes];
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			CTDiscreteNode node = model.getNode(iNode);
+			int nS = node.getStatesNumber();
+			int nPE = node.getNumberParentsEntries();
+			this.nodeNames[iNode] = node.getName();
+			this.isStatic[iNode] = node.isStaticNode();
+			this.statesNumber[iNode] = nS;
+
+			int rows = this.isStatic[iNode] ? 1 : nS;
+			this.entrySize[iNode] = rows * nS;
+			this.cims[iNode] = new double[nPE * rows * nS];
+			this.logCims[iNode] = new double[nPE * rows * nS];
+			this.qDiag[iNode] = new double[this.isStatic[iNode] ? 0 : nPE * nS];
+			this.logExitRates[iNode] = new double[this.isStatic[iNode] ? 0 : nPE * nS];
+			for( int pE = 0; pE < nPE; ++pE) {
+				double[][] cim = node.getCIMReference(pE);
+				for( int s0 = 0; s0 < rows; ++s0)
+					for( int s1 = 0; s1 < nS; ++s1) {
+						int index = (pE * rows + s0) * nS + s1;
+						this.cims[iNode][index] = cim[s0][s1];
+						if( this.isStatic[iNode] || s0 != s1)
+							this.logCims[iNode][index] = Math.log(cim[s0][s1]);
+						else {
+							this.qDiag[iNode][pE * nS + s0] = cim[s0][s0];
+							this.logExitRates[iNode][pE * nS + s0] = Math.log(-cim[s0][s0]);
+						}
+					}
+			}
+
+			for( int i = 0; i < this.strides.getParentsNumber(iNode); ++i)
+				if( this.strides.getParentIndex(iNode, i) == this.classIndex)
+					this.classStride[iNode] = this.strides.getMultiplier(iNode, i);
+		}
+
+		this.allNodes = new int[nNodes];
+		this.relevant = new boolean[nNodes];
+		int nRelevant = 0;
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			this.allNodes[iNode] = iNode;
+			this.relevant[iNode] = iNode == this.classIndex || this.classStride[iNode] != 0;
+			if( this.relevant[iNode])
+				++nRelevant;
+		}
+		this.relevantNodes = new int[nRelevant];
+		nRelevant = 0;
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			if( this.relevant[iNode])
+				this.relevantNodes[nRelevant++] = iNode;
+
+		CTDiscreteNode classNode = model.getNode(this.classIndex);
+		this.classStates = new String[classNode.getStatesNumber()];
+		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();
+		for( int iClass = 0; iClass < this.classStates.length; ++iClass) {
+			this.classStates[iClass] = classNode.getStateName(iClass);
+			stateToIndex.put(this.classStates[iClass], iClass);
+		}
+		this.stateToIndex = Collections.unmodifiableMap(stateToIndex);
+	}
+
+	/**
+	 * Return the node indexing of the model.
+	 *
+	 * @return node indexing
+	 */
+	public NodeIndexing getNodeIndexing() {
+
+		return this.nodeIndexing;
+	}
+
+	/**
+	 * Return the state dictionary of the model.
+	 *
+	 * @return state dictionary
+	 */
+	public StateDictionary getStateDictionary() {
+
+		return this.dictionary;
+	}
+
+	/**
+	 * Return the parent stride table of the model.
+	 *
+	 * @return parent stride table
+	 */
+	public ParentStrideTable getStrideTable() {
+
+		return this.strides;
+	}
+
+	/**
+	 * Return the index of the class node.
+	 *
+	 * @return class node index
+	 */
+	public int getClassIndex() {
+
+		return this.classIndex;
+	}
+
+	/**
+	 * True if the node is static.
+	 *
+	 * @param iNode index of the node
+	 * @return true if the node is static
+	 */
+	public boolean isStaticNode(int iNode) {
+
+		return this.isStatic[iNode];
+	}
+
+	/**
+	 * Return the number of states of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return number of states
+	 */
+	public int getStatesNumber(int iNode) {
+
+		return this.statesNumber[iNode];
+	}
+
+	/**
+	 * Return the contribution of the class state
+	 * to the parent entry of a node (0 if the
+	 * class is not a parent of the node).
+	 *
+	 * @param iNode index of the node
+	 * @return multiplier of the class in the parent entry
+	 */
+	public int getClassStride(int iNode) {
+
+		return this.classStride[iNode];
+	}
+
+	/**
+	 * Return the number of states of the class.
+	 *
+	 * @return number of class states
+	 */
+	public int getClassStatesNumber() {
+
+		return this.classStates.length;
+	}
+
+	/**
+	 * Return the name of a class state.
+	 *
+	 * @param iClass index of the class state
+	 * @return state name
+	 */
+	public String getClassStateName(int iClass) {
+
+		return this.classStates[iClass];
+	}
+
+	/**
+	 * True if the contribution of the node depends
+	 * on the class (i.e. the node is the class node
+	 * or one of its children).
+	 *
+	 * @param iNode index of the node
+	 * @return true if the node is class relevant
+	 */
+	public boolean isClassRelevant(int iNode) {
+
+		return this.relevant[iNode];
+	}
+
+	/**
+	 * Return the number of class relevant nodes.
+	 *
+	 * @return number of class relevant nodes
+	 */
+	public int getClassRelevantNodesNumber() {
+
+		return this.relevantNodes.length;
+	}
+
+	/**
+	 * Return a value of the CIM of a node
+	 * (for static nodes s0 is always 0).
+	 *
+	 * @param iNode index of the node
+	 * @param pE parent entry
+	 * @param s0 state 0
+	 * @param s1 state 1
+	 * @return CIM value
+	 */
+	public double getCIMValue(int iNode, int pE, int s0, int s1) {
+
+		return this.cims[iNode][pE * this.entrySize[iNode] + s0 * this.statesNumber[iNode] + s1];
+	}
+
+	/**
+	 * Return the logarithm of a value of the
+	 * CIM of a node. For the continuous time
+	 * nodes it is defined only for s0 != s1.
+	 *
+	 * @param iNode index of the node
+	 * @param pE parent entry
+	 * @param s0 state 0 (0 for static nodes)
+	 * @param s1 state 1
+	 * @return logarithm of the CIM value
+	 */
+	public double getLogCIMValue(int iNode, int pE, int s0, int s1) {
+
+		return this.logCims[iNode][pE * this.entrySize[iNode] + s0 * this.statesNumber[iNode] + s1];
+	}
+
+	/**
+	 * Return the diagonal rate q_xx of a
+	 * continuous time node.
+	 *
+	 * @param iNode index of the node
+	 * @param pE parent entry
+	 * @param s state
+	 * @return diagonal CIM value
+	 */
+	public double getDiagonalRate(int iNode, int pE, int s) {
+
+		return this.qDiag[iNode][pE * this.statesNumber[iNode] + s];
+	}
+
+	/**
+	 * Return the logarithm of the exit rate
+	 * log(-q_xx) of a continuous time node.
+	 *
+	 * @param iNode index of the node
+	 * @param pE parent entry
+	 * @param s state
+	 * @return logarithm of the exit rate
+	 */
+	public double getLogExitRate(int iNode, int pE, int s) {
+
+		return this.logExitRates[iNode][pE * this.statesNumber[iNode] + s];
+	}
+
+	/**
+	 * Generate a new working context for the
+	 * classification with this model. A context
+	 * can be reused for more classifications but
+	 * it can not be used by more threads at the
+	 * same time.
+	 *
+	 * @return new context
+	 */
+	public Context newContext() {
+
+		return new Context(this, false);
+	}
+
+	/**
+	 * Generate a new working context for the
+	 * classification with this model.
+	 *
+	 * @param classMajor true to use the class-major kernel
+	 * @return new context
+	 */
+	public Context newContext(boolean classMajor) {
+
+		return new Context(this, classMajor);
+	}
+
+	/**
+	 * Return the class-major tables generating
+	 * them if necessary.
+	 *
+	 * @return class-major tables
+	 */
+	private ClassMajorTables getClassMajorTables() {
+
+		ClassMajorTables tables = this.classMajorTables;
+		if( tables == null)
+			synchronized( this) {
+				tables = this.classMajorTables;
+				if( tables == null) {
+					tables = new ClassMajorTables(this);
+					this.classMajorTables = tables;
+				}
+			}
+
+		return tables;
+	}
+
+	/**
+	 * Classify a trajectory (see CTBNCClassifyAlgorithm).
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param timeStream times in which calculate the class probability (beyond the trajectory transitions)
+	 * @param probabilities true to calculate the class probability in each transition
+	 * @param pruning true to evaluate only the class relevant nodes (the probabilities are the same up to the rounding errors)
+	 * @param classDecider decider used to choose the class (null to choose the most likely class)
+	 * @param context working context generated by this model
+	 * @return classification results
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public ClassificationResults<Double> classify(ITrajectory<Double> trajectory, Vector<Double> timeStream, boolean probabilities, boolean pruning, IClassifyDecider classDecider, Context context) throws IllegalArgumentException {
+
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		if( context == null || context.model != this)
+			throw new IllegalArgumentException("Error: the context was not generated by this compiled model");
+
+		return this.classify(trajectory, new ClassificationResults<Double>(trajectory, timeStream), probabilities, false, pruning, classDecider, context);
+	}
+
+	/**
+	 * Classify a trajectory storing the results in
+	 * the result trajectory in input (generated
+	 * from the trajectory to classify).
+	 *
+	 * If only the final distribution is required,
+	 * it is calculated from the class log likelihoods
+	 * (i.e. it is the same of the last distribution
+	 * calculated transition by transition up to the
+	 * rounding errors).
+	 *
+	 * @param <R> type of the results
+	 * @param trajectory trajectory to classify
+	 * @param results result trajectory where to store the class and the probabilities
+	 * @param probabilities true to calculate the class probability
+	 * @param finalOnly true to calculate only the probability of the last transition
+	 * @param pruning true to evaluate only the class relevant nodes (the probabilities are the same up to the rounding errors)
+	 * @param classDecider decider used to choose the class (null to choose the most likely class)
+	 * @param context working context generated by this model
+	 * @return the result trajectory in input
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public <R extends IClassificationResult<Double>> R classify(ITrajectory<Double> trajectory, R results, boolean probabilities, boolean finalOnly, boolean pruning, IClassifyDecider classDecider, Context context) throws IllegalArgumentException {
+
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		if( results == null)
+			throw new IllegalArgumentException("Error: null results argument");
+		if( context == null || context.model != this)
+			throw new IllegalArgumentException("Error: the context was not generated by this compiled model");
+
+		boolean computeP = probabilities || classDecider != null;
+		double[] ll = this.logLikelihoods(trajectory, results, computeP && !finalOnly, null, null, null, pruning, context);
+		if( computeP && finalOnly)
+			results.setProbability(results.getTransitionsNumber() - 1, posterior(ll), this.stateToIndex);
+
+		// Find the best class
+		if( classDecider == null)
+			results.setClassification(this.classStates[bestClass(ll)]);
+		else
+			results.setClassification( this.classStates[ classDecider.decide(results)]);
+
+		return results;
+	}
+
+	/**
+	 * Classify a trajectory without generating the
+	 * result trajectory. Only the class and, if
+	 * required, the final class distribution are
+	 * returned. The final distribution is calculated
+	 * from the class log likelihoods, so it is the
+	 * same of the last distribution calculated by
+	 * classify up to the rounding errors.
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param posterior true to calculate the final class distribution
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @param context working context generated by this model
+	 * @return compact classification result
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public CompactClassificationResult classifyCompact(ITrajectory<Double> trajectory, boolean posterior, boolean pruning, Context context) throws IllegalArgumentException {
+
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		if( context == null || context.model != this)
+			throw new IllegalArgumentException("Error: the context was not generated by this compiled model");
+
+		double[] ll = this.logLikelihoods(trajectory, null, false, null, null, null, pruning, context);
+		int iBest = bestClass(ll);
+
+		return new CompactClassificationResult(trajectory.getName(), iBest, this.classStates[iBest], posterior ? posterior(ll) : null);
+	}
+
+	/**
+	 * Classify a trajectory calculating the class
+	 * distribution at the times of a sampling grid
+	 * without generating the result trajectory.
+	 *
+	 * The distributions are notified to the listener
+	 * for each trajectory transition and for each
+	 * grid time (the grid times equal to a transition
+	 * time are merged with the transition). The
+	 * dwell-time contribution of the trajectory
+	 * transitions is split at the grid times, so the
+	 * distributions are the same calculated by
+	 * classify with the grid as time stream.
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param grid sorted times in which calculate the class probability (beyond the trajectory transitions)
+	 * @param listener listener of the class distributions
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @param context working context generated by this model
+	 * @return compact classification result (with the final class distribution)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public CompactClassificationResult classifyGrid(ITrajectory<Double> trajectory, double[] grid, IClassificationListener listener, boolean pruning, Context context) throws IllegalArgumentException {
+
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		if( context == null || context.model != this)
+			throw new IllegalArgumentException("Error: the context was not generated by this compiled model");
+		if( grid == null)
+			throw new IllegalArgumentException("Error: null grid argument");
+		if( listener == null)
+			throw new IllegalArgumentException("Error: null listener argument");
+		for( int i = 0; i < grid.length; ++i)
+			if( Double.isNaN(grid[i]) || (i > 0 && grid[i] < grid[i - 1]))
+				throw new IllegalArgumentException("Error: the grid times must be sorted");
+
+		double[] ll = this.logLikelihoods(trajectory, null, false, grid, listener, null, pruning, context);
+		int iBest = bestClass(ll);
+
+		return new CompactClassificationResult(trajectory.getName(), iBest, this.classStates[iBest], posterior(ll));
+	}
+
+	/**
+	 * Classify a trajectory calculating the class
+	 * distribution at the times of a sampling grid
+	 * (see classifyGrid with the listener). The
+	 * distributions of the grid times are stored
+	 * in the buffer: the probability of the class
+	 * iClass at the time grid[i] is stored in
+	 * buffer[i * classes + iClass].
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param grid sorted times in which calculate the class probability
+	 * @param buffer buffer where to store the distributions (at least grid.length * classes values)
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @param context working context generated by this model
+	 * @return compact classification result (with the final class distribution)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public CompactClassificationResult classifyGrid(ITrajectory<Double> trajectory, double[] grid, double[] buffer, boolean pruning, Context context) throws IllegalArgumentException {
+
+		if( grid == null)
+			throw new IllegalArgumentException("Error: null grid argument");
+		if( buffer == null || buffer.length < grid.length * this.classStates.length)
+			throw new IllegalArgumentException("Error: the buffer must have at least " + grid.length * this.classStates.length + " values");
+
+		return this.classifyGrid(trajectory, grid, new GridBuffer(buffer), pruning, context);
+	}
+
+	/**
+	 * Classify a trajectory stopping as soon as the
+	 * decision rule is satisfied, without evaluating
+	 * the rest of the trajectory. The decided class
+	 * is the most likely one at the decision time and
+	 * the returned distribution is the one of that
+	 * time. If the rule is never satisfied the whole
+	 * trajectory is evaluated (as classifyCompact).
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param rule early decision rule
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @param context working context generated by this model
+	 * @return early classification result
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public EarlyClassificationResult classifyEarly(ITrajectory<Double> trajectory, EarlyDecisionRule rule, boolean pruning, Context context) throws IllegalArgumentException {
+
+		if( trajectory == null || trajectory.getTransitionsNumber() == 0)
+			throw new IllegalArgumentException("Error: empty trajectory to classify");
+		if( context == null || context.model != this)
+			throw new IllegalArgumentException("Error: the context was not generated by this compiled model");
+		if( rule == null)
+			throw new IllegalArgumentException("Error: null decision rule argument");
+
+		double[] ll = this.logLikelihoods(trajectory, null, false, null, null, rule, pruning, context);
+		int iBest = bestClass(ll);
+		boolean early = context.decisionTransition != -1;
+		int iTransition = early ? context.decisionTransition : trajectory.getTransitionsNumber() - 1;
+		double time = early ? context.decisionTime : trajectory.getTransitionTime(iTransition);
+
+		return new EarlyClassificationResult(trajectory.getName(), iBest, this.classStates[iBest], posterior(ll), early, iTransition, time);
+	}
+
+	/**
+	 * Calculate the log likelihood of each class
+	 * given the trajectory. If the result trajectory
+	 * is null only the trajectory transitions and
+	 * the grid times (if any) are evaluated.
+	 *
+	 * @param trajectory trajectory to classify
+	 * @param results result trajectory (null to not store the probabilities)
+	 * @param computeP true to calculate the class probability in each result transition
+	 * @param grid sorted times to evaluate beyond the trajectory transitions (null if the result trajectory is used)
+	 * @param listener listener of the class distributions of the trajectory transitions and of the grid times (null if not used)
+	 * @param rule rule to stop the evaluation when the class is decided (null to evaluate the whole trajectory)
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @param context working context generated by this model
+	 * @return log likelihood of each class (at the decision time if the rule is satisfied)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	private double[] logLikelihoods(ITrajectory<Double> trajectory, IClassificationResult<Double> results, boolean computeP, double[] grid, IClassificationListener listener, EarlyDecisionRule rule, boolean pruning, Context context) throws IllegalArgumentException {
+
+		// Data initialization
+		int nNodes = this.nodeNames.length;
+		int nClasses = this.classStates.length;
+		IEncodedTrajectory trj = CTEncodedTrajectory.encode(trajectory, this.dictionary);	// state indexes of the model
+		int iTrj = 0;															// trajectory transition related to the current result transition
+		ParentEntrySweep sweep = context.sweep;									// states and parent entries (the class is kept to 0)
+		int[] state = context.state;
+		int nJumps = results != null ? results.getTransitionsNumber() : trj.getTransitionsNumber();
+		int nTrj = trj.getTransitionsNumber();
+		int iNextTrj = 1;														// next trajectory transition in the grid stream
+		int iGrid = 0;															// next grid time
+		int iGridPoint = -1;													// grid index of the current time (-1 if it is not a grid time)
+		computeP = computeP && results != null;
+		int[] evaluatedNodes = pruning ? this.relevantNodes : this.allNodes;	// nodes evaluated for each class
+		boolean[] evaluated = pruning ? this.relevant : null;
+
+		// Initialization at time 0
+		double lastTime;
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			if( iNode == this.classIndex) {
+				state[iNode] = 0;
+				continue;
+			}
+			int stIndex = trj.getStateIndex(0, iNode);
+			if( stIndex == -1)
+				throw new IllegalArgumentException("Error: State " + trajectory.getNodeValue(0, iNode) + " didn't find!");
+			state[iNode] = stIndex; 											// set the state
+		}
+		sweep.initialize(state);
+		lastTime = results != null ? results.getTransitionTime(0) : trj.getTime(0);	// set the last changing time
+		if( grid != null) {
+			// Merge the grid with the trajectory transitions
+			nJumps = nTrj;
+			for( int i = 0, j = 0; i < grid.length; ++i) {
+				while( j < nTrj && trj.getTime(j) < grid[i])
+					++j;
+				if( j == nTrj || trj.getTime(j) != grid[i] || (i > 0 && grid[i - 1] == grid[i]))
+					++nJumps;
+			}
+
+			if( grid.length > 0 && grid[0] <= lastTime) {
+				iGridPoint = 0;
+				iGrid = 1;
+				if( grid[0] < lastTime) {
+					lastTime = grid[0];
+					iNextTrj = 0;												// the first trajectory transition follows the grid time
+				}
+			}
+		}
+
+		// Initialize log likelihood
+		double[] ll = new double[nClasses];
+		double[] llContribution = context.llContribution;						// contribution of the last jump (calculated as ll(t) - ll(t-1))
+		double[][] qStay = context.qStay;										// q_xx of each continuous time node given each class
+		double[] qStaySum = context.qStaySum;									// sum of q_xx over all the continuous time nodes given each class
+		ClassMajorTables tables = context.tables;								// null for the standard kernel
+		int[] qBase = context.qBase;											// position of the current q_xx of each node in the class-major tables
+		for(int iClass = 0; iClass < nClasses; ++iClass) {						// for each possible class value
+			// Calculate the log likelihood from the class prior
+			// and from the probability of all the static nodes
+			llContribution[iClass] = 0.0;
+			qStaySum[iClass] = 0.0;
+			for( int i = 0; i < evaluatedNodes.length; ++i) {					// note that no static nodes can have continuous time parents
+				int iNode = evaluatedNodes[i];
+				int pE = sweep.getParentsEntry(iNode) + iClass * this.classStride[iNode];
+				if( this.isStatic[iNode])
+					llContribution[iClass] += this.logCims[iNode][pE * this.entrySize[iNode] + (iNode == this.classIndex ? iClass : sweep.getState(iNode))];
+				else if( iNode != this.classIndex) {
+					qStay[iClass][iNode] = this.qDiag[iNode][pE * this.statesNumber[iNode] + sweep.getState(iNode)];
+					qStaySum[iClass] += qStay[iClass][iNode];
+				}
+			}
+			ll[iClass] = llContribution[iClass];
+		}
+		if( tables != null)
+			for( int i = 0; i < evaluatedNodes.length; ++i) {
+				int iNode = evaluatedNodes[i];
+				if( !this.isStatic[iNode] && iNode != this.classIndex)
+					qBase[iNode] = (tables.rows[iNode][sweep.getParentsEntry(iNode)] * this.statesNumber[iNode] + sweep.getState(iNode)) * nClasses;
+			}
+		if( computeP)
+			this.setPosterior(results, 0, ll);
+		if( listener != null)
+			listener.posterior(iGridPoint, lastTime, posterior(ll, context.p));
+		double startTime = lastTime;
+		context.decisionTransition = -1;
+		context.decisionClass = -1;
+		context.stableCount = 0;
+		boolean decided = rule != null && decide(rule, ll, 0, 0.0, lastTime, context);
+
+		// Classification algorithm
+		int[] affectedNodes = context.affectedNodes;							// changed nodes and their children
+		boolean[] affected = context.affected;
+		for(int iJmp = 1; iJmp < nJumps && !decided; ++iJmp) {											// for each transition in the trajectory
+
+			double time;
+			int nChanges = 0;
+			if( grid == null) {
+				time = results != null ? results.getTransitionTime( iJmp) : trj.getTime(iJmp);
+				if( iTrj + 1 < nTrj && trj.getTime(iTrj + 1) <= time) {
+					++iTrj;																	// the result transition is a trajectory transition
+					nChanges = trj.getChangesNumber(iTrj);
+				}
+			} else {
+				// Next time between the grid and the trajectory transitions
+				double trjTime = iNextTrj < nTrj ? trj.getTime(iNextTrj) : Double.POSITIVE_INFINITY;
+				iGridPoint = -1;
+				if( iGrid < grid.length && grid[iGrid] <= trjTime) {
+					iGridPoint = iGrid++;
+					time = grid[iGridPoint];
+				} else
+					time = trjTime;
+				if( time == trjTime) {
+					iTrj = iNextTrj++;														// the time is a trajectory transition
+					if( iTrj > 0)
+						nChanges = trj.getChangesNumber(iTrj);
+				}
+			}
+			double deltaT = time - lastTime;												// delta time between two jumps
+
+			// Check the changed nodes (the class node must be ignored because the actual value can be different from the right one in the trajectory)
+			for(int iChange = 0; iChange < nChanges; ++iChange) {
+				int iNode = trj.getChangedNode(iTrj, iChange);
+				if( iNode == this.classIndex)
+					continue;
+				if( trj.getStateIndex(iTrj, iNode) == -1)
+					throw new IllegalArgumentException("Error: State " + trajectory.getNodeValue(iTrj, iNode) + " didn't find!");
+				if( this.isStatic[iNode])													// if the node is static and it is changed value there is an error in the arguments
+					throw new IllegalArgumentException("Error: static nodes can not change their value in the trajectory");
+			}
+
+			if( tables != null) {
+				// Class-major kernel: the same updates with the class as inner loop
+				for(int iClass = 0; iClass < nClasses; ++iClass)
+					llContribution[iClass] = qStaySum[iClass] * deltaT;
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iTrj, iChange);
+					if(iNode == this.classIndex || (evaluated != null && !evaluated[iNode]))
+						continue;
+
+					int nS = this.statesNumber[iNode];
+					int base = ((tables.rows[iNode][sweep.getParentsEntry(iNode)] * nS + sweep.getState(iNode)) * nS + trj.getStateIndex(iTrj, iNode)) * nClasses;
+					double[] logQ = tables.logQ[iNode];
+					for(int iClass = 0; iClass < nClasses; ++iClass)
+						llContribution[iClass] += logQ[base + iClass];
+				}
+				for(int iClass = 0; iClass < nClasses; ++iClass)
+					ll[iClass] += llContribution[iClass];
+			} else for(int iClass = 0; iClass < nClasses; ++iClass) {  					// for each possible class
+				// Update log-likelihood with the "remain in the state" contribute
+				// ll update (ll = ll - q*dT)
+				llContribution[iClass] = qStaySum[iClass] * deltaT;
+				if( nChanges == 0) {
+					ll[iClass] += llContribution[iClass];
+					continue;
+				}
+
+				for(int iChange = 0; iChange < nChanges; ++iChange) {						// for each changed node
+					int iNode = trj.getChangedNode(iTrj, iChange);
+					if(iNode == this.classIndex || (evaluated != null && !evaluated[iNode]))
+						continue;
+
+					// Update log-likelihood with the jump contribute
+					// ll update v3(ll = ll + log(q_xx'))
+					int pE = sweep.getParentsEntry(iNode) + iClass * this.classStride[iNode];
+					llContribution[iClass] += this.logCims[iNode][pE * this.entrySize[iNode] + sweep.getState(iNode) * this.statesNumber[iNode] + trj.getStateIndex(iTrj, iNode)];
+				}
+				ll[iClass] += llContribution[iClass];
+			}
+
+			if( nChanges > 0) {
+				// Set the new values for the changed nodes
+				int nAffected = 0;
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iTrj, iChange);
+					if(iNode == this.classIndex)
+						continue;
+
+					sweep.setState(iNode, trj.getStateIndex(iTrj, iNode));  				// set the new state
+					if( !affected[iNode] && (evaluated == null || evaluated[iNode])) {
+						affected[iNode] = true;
+						affectedNodes[nAffected++] = iNode;
+					}
+					for(int iChild = 0; iChild < sweep.getChildrenNumber(iNode); ++iChild) {
+						int iChildNode = sweep.getChild(iNode, iChild);
+						if( !affected[iChildNode] && iChildNode != this.classIndex && !this.isStatic[iChildNode] && (evaluated == null || evaluated[iChildNode])) {
+							affected[iChildNode] = true;
+							affectedNodes[nAffected++] = iChildNode;
+						}
+					}
+				}
+
+				// Update q_xx of the changed nodes and of their children
+				if( tables != null)
+					for(int iAffected = 0; iAffected < nAffected; ++iAffected) {
+						int iNode = affectedNodes[iAffected];
+						int base = (tables.rows[iNode][sweep.getParentsEntry(iNode)] * this.statesNumber[iNode] + sweep.getState(iNode)) * nClasses;
+						int oldBase = qBase[iNode];
+						double[] q = tables.q[iNode];
+						for(int iClass = 0; iClass < nClasses; ++iClass)
+							qStaySum[iClass] += q[base + iClass] - q[oldBase + iClass];
+						qBase[iNode] = base;
+					}
+				else for(int iClass = 0; iClass < nClasses; ++iClass) {
+					for(int iAffected = 0; iAffected < nAffected; ++iAffected) {
+						int iNode = affectedNodes[iAffected];
+						double q = this.qDiag[iNode][(sweep.getParentsEntry(iNode) + iClass * this.classStride[iNode]) * this.statesNumber[iNode] + sweep.getState(iNode)];
+						qStaySum[iClass] += q - qStay[iClass][iNode];
+						qStay[iClass][iNode] = q;
+					}
+				}
+				for(int iAffected = 0; iAffected < nAffected; ++iAffected)
+					affected[affectedNodes[iAffected]] = false;
+			}
+			// Time update
+			lastTime = time;
+
+			// Update the ll in the results
+			if( computeP)
+				this.setPosterior(results, iJmp, ll);
+			if( listener != null)
+				listener.posterior(iGridPoint, time, posterior(ll, context.p));
+			if( rule != null)
+				decided = decide(rule, ll, iJmp, time - startTime, time, context);
+		}
+
+		return ll;
+	}
+
+	/**
+	 * Update the state of the early decision with the
+	 * class log likelihoods of a transition and check
+	 * if the class is decided (in that case the decision
+	 * transition and time are stored in the context).
+	 *
+	 * @param rule early decision rule
+	 * @param ll log likelihood of each class
+	 * @param iTransition index of the evaluated transition
+	 * @param elapsed time elapsed from the trajectory start
+	 * @param time time of the transition
+	 * @param context working context
+	 * @return true if the class is decided
+	 */
+	private static boolean decide(EarlyDecisionRule rule, double[] ll, int iTransition, double elapsed, double time, Context context) {
+
+		int iBest = bestClass(ll);
+		if( elapsed >= rule.getMinTime() && rule.isConfident(ll, iBest)) {
+			context.stableCount = iBest == context.decisionClass ? context.stableCount + 1 : 1;
+			context.decisionClass = iBest;
+		} else {
+			context.stableCount = 0;
+			context.decisionClass = -1;
+		}
+		if( context.stableCount < rule.getStability())
+			return false;
+
+		context.decisionTransition = iTransition;
+		context.decisionTime = time;
+		return true;
+	}
+
+	/**
+	 * Return the index of the most likely class.
+	 *
+	 * @param ll log likelihood of each class
+	 * @return index of the best class
+	 */
+	private static int bestClass(double[] ll) {
+
+		int iBest = 0;
+		for( int iClass = 1; iClass < ll.length; ++iClass)
+			if( ll[iClass] > ll[iBest])
+				iBest = iClass;
+
+		return iBest;
+	}
+
+	/**
+	 * Calculate the class distribution from the class
+	 * log likelihoods: p = exp(ll - max) / sum(exp(ll - max)).
+	 *
+	 * @param ll log likelihood of each class
+	 * @return class distribution
+	 */
+	static double[] posterior(double[] ll) {
+
+		return posterior(ll, new double[ll.length]);
+	}
+
+	/**
+	 * Calculate the class distribution from the class
+	 * log likelihoods in the array in input.
+	 *
+	 * @param ll log likelihood of each class
+	 * @param p array where to store the class distribution
+	 * @return the array in input
+	 */
+	private static double[] posterior(double[] ll, double[] p) {
+
+		double max = ll[bestClass(ll)];
+		double sum = 0.0;
+		for( int iClass = 0; iClass < ll.length; ++iClass) {
+			p[iClass] = Math.exp(ll[iClass] - max);
+			sum += p[iClass];
+		}
+		for( int iClass = 0; iClass < ll.length; ++iClass)
+			p[iClass] /= sum;
+
+		return p;
+	}
+
+	/**
+	 * Set the class distribution of a result transition
+	 * from the running class log likelihoods. The results
+	 * backed by arrays store the log likelihoods and
+	 * normalize them only when they are read.
+	 *
+	 * @param results result trajectory
+	 * @param iTransition index of the result transition
+	 * @param ll log likelihood of each class
+	 */
+	private void setPosterior(IClassificationResult<Double> results, int iTransition, double[] ll) {
+
+		if( results instanceof ArrayClassificationResults)
+			((ArrayClassificationResults) results).setLogProbability(iTransition, ll, this.stateToIndex);
+		else
+			results.setProbability(iTransition, posterior(ll), this.stateToIndex);
+	}
+
+
+	/**
+	 * Working data of the classification with a
+	 * compiled model. A context can be reused for
+	 * more classifications, but only by one thread
+	 * at a time.
+	 */
+	public static class Context {
+
+		private final CompiledCTBNClassifier model;
+		private final ParentEntrySweep sweep;
+		private final int[] state;
+		private final double[] llContribution;
+		private final double[][] qStay;
+		private final double[] qStaySum;
+		private final int[] affectedNodes;
+		private final boolean[] affected;
+		private final ClassMajorTables tables;
+		private final int[] qBase;
+		private final double[] p;
+		private int decisionTransition;			// transition of the early decision (-1 if not decided)
+		private double decisionTime;
+		private int decisionClass;				// confident class of the last evaluated transitions (-1 if none)
+		private int stableCount;				// consecutive transitions in which the class was confident
+
+		/**
+		 * Generate the context for the model
+		 * in input.
+		 *
+		 * @param model compiled model
+		 * @param classMajor true to use the class-major kernel
+		 */
+		private Context(CompiledCTBNClassifier model, boolean classMajor) {
+
+			int nNodes = model.nodeNames.length;
+			int nClasses = model.classStates.length;
+			this.model = model;
+			this.sweep = new ParentEntrySweep(model.strides);
+			this.state = new int[nNodes];
+			this.llContribution = new double[nClasses];
+			this.qStay = new double[nClasses][nNodes];
+			this.qStaySum = new double[nClasses];
+			this.affectedNodes = new int[nNodes];
+			this.affected = new boolean[nNodes];
+			this.tables = classMajor ? model.getClassMajorTables() : null;
+			this.qBase = classMajor ? new int[nNodes] : null;
+			this.p = new double[nClasses];
+		}
+
+		/**
+		 * True if the context uses the class-major
+		 * kernel.
+		 *
+		 * @return true for the class-major kernel
+		 */
+		public boolean isClassMajor() {
+
+			return this.tables != null;
+		}
+	}
+
+
+	/**
+	 * Listener that stores the class distributions
+	 * of the grid times in a buffer.
+	 */
+	private static final class GridBuffer implements IClassificationListener {
+
+		private final double[] buffer;
+
+		/**
+		 * Base constructor.
+		 *
+		 * @param buffer buffer where to store the distributions
+		 */
+		private GridBuffer(double[] buffer) {
+
+			this.buffer = buffer;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IClassificationListener#posterior(int, double, double[])
+		 */
+		@Override
+		public void posterior(int iGrid, double time, double[] p) {
+
+			if( iGrid != -1)
+				System.arraycopy(p, 0, this.buffer, iGrid * p.length, p.length);
+		}
+	}
+
+
+	/**
+	 * CIM values of the continuous time nodes with
+	 * the class as the inner dimension. The parent
+	 * entries with the class state equal to 0 (the
+	 * ones of the sweep) are mapped to consecutive
+	 * rows.
+	 */
+	private static final class ClassMajorTables {
+
+		private final int[][] rows;				// row of each parent entry with class state 0 (-1 for the other entries)
+		private final double[][] q;				// q_xx, index (row * nStates + s) * nClasses + c
+		private final double[][] logQ;			// log(q_xx'), index ((row * nStates + s0) * nStates + s1) * nClasses + c
+
+		/**
+		 * Generate the tables of the model in input.
+		 *
+		 * @param model compiled model
+		 */
+		private ClassMajorTables(CompiledCTBNClassifier model) {
+
+			int nNodes = model.nodeNames.length;
+			int nClasses = model.classStates.length;
+			this.rows = new int[nNodes][];
+			this.q = new double[nNodes][];
+			this.logQ = new double[nNodes][];
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				if( model.isStatic[iNode] || iNode == model.classIndex)
+					continue;
+
+				int nS = model.statesNumber[iNode];
+				int nPE = model.strides.getParentEntriesNumber(iNode);
+				int stride = model.classStride[iNode];
+				this.rows[iNode] = new int[nPE];
+				int nRows = 0;
+				for( int pE = 0; pE < nPE; ++pE)
+					this.rows[iNode][pE] = (stride == 0 || (pE / stride) % nClasses == 0) ? nRows++ : -1;
+
+				this.q[iNode] = new double[nRows * nS * nClasses];
+				this.logQ[iNode] = new double[nRows * nS * nS * nClasses];
+				for( int pE = 0; pE < nPE; ++pE) {
+					int row = this.rows[iNode][pE];
+					if( row == -1)
+						continue;
+					for( int iClass = 0; iClass < nClasses; ++iClass) {
+						int classPE = pE + iClass * stride;
+						for( int s0 = 0; s0 < nS; ++s0) {
+							this.q[iNode][(row * nS + s0) * nClasses + iClass] = model.qDiag[iNode][classPE * nS + s0];
+							for( int s1 = 0; s1 < nS; ++s1)
+								this.logQ[iNode][((row * nS + s0) * nS + s1) * nClasses + iClass] = model.logCims[iNode][classPE * model.entrySize[iNode] + s0 * nS + s1];
+						}
+					}
+				}
+			}
+		}
+	}
+}
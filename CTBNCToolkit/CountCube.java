@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Sparse count cube of a dataset: for each joint
+ * configuration of all the nodes visited by the
+ * trajectories it stores the time spent in it and
+ * the number of trajectories that start in it, and
+ * for each node the number of jumps to each state
+ * from each configuration.
+ *
+ * The sufficient statistics of any family (a node
+ * and a parent set) are sums over the visited
+ * configurations, so they are calculated without
+ * reading the trajectories. The cost of a family
+ * depends on the number of visited configurations,
+ * that is usually much smaller than the number of
+ * transitions of the dataset.
+ *
+ * The cube is built only if its estimated memory
+ * is in the memory budget (see build). The counts
+ * are the same calculated reading the dataset, while
+ * the times can differ for the rounding of the sums.
+ */
+public class CountCube {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;	// 64MB
+
+	private static final long ENTRY_BYTES = 64;			// estimated memory of a hash map entry (boxed key and value included)
+
+	private final int[][] configStates;					// state of each node in each configuration
+	private final double[] dwellTime;					// time spent in each configuration
+	private final double[] initialCounts;				// number of trajectories that start in each configuration
+	private final int[][] jumpConfig;					// for each node, configuration before each jump
+	private final int[][] jumpState;					// for each node, state after each jump
+	private final double[][] jumpCount;					// for each node, number of jumps
+	private final long memory;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param configStates state of each node in each configuration
+	 * @param dwellTime time spent in each configuration
+	 * @param initialCounts number of trajectories that start in each configuration
+	 * @param jumpConfig for each node, configuration before each jump
+	 * @param jumpState for each node, state after each jump
+	 * @param jumpCount for each node, number of jumps
+	 * @param memory estimated memory of the cube
+	 */
+	private CountCube(int[][] configStates, double[] dwellTime, double[] initialCounts, int[][] jumpConfig, int[][] jumpState, double[][] jumpCount, long memory) {
+
+		this.configStates = configStates;
+		this.dwellTime = dwellTime;
+		this.initialCounts = initialCounts;
+		this.jumpConfig = jumpConfig;
+		this.jumpState = jumpState;
+		this.jumpCount = jumpCount;
+		this.memory = memory;
+	}
+
+
+	/**
+	 * Build the count cube of an encoded dataset.
+	 * The building stops when the estimated memory
+	 * of the cube exceeds the budget. The cube is not
+	 * built even if the trajectories have states that
+	 * are not in the dictionary or static nodes that
+	 * change their state (the data scans report these
+	 * errors on the families that contain the nodes).
+	 *
+	 * @param dataset encoded dataset
+	 * @param dictionary dictionary used to encode the dataset
+	 * @param isStatic static flag of each node
+	 * @param memoryBudget maximum memory of the cube in bytes
+	 * @return the count cube, null if it can not be built in the memory budget
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static CountCube build(IEncodedTrajectory[] dataset, StateDictionary dictionary, boolean[] isStatic, long memoryBudget) throws IllegalArgumentException {
+
+		if( dataset == null || dictionary == null || isStatic == null)
+			throw new IllegalArgumentException("Error: null argument");
+		if( isStatic.length != dictionary.getNodesNumber())
+			throw new IllegalArgumentException("Error: a static flag is required for each node");
+		if( memoryBudget < 0)
+			throw new IllegalArgumentException("Error: the memory budget can not be negative");
+
+		// Configuration keys (mixed radix)
+		int nNodes = dictionary.getNodesNumber();
+		long[] radix = new long[nNodes];
+		long configsNumber = 1;
+		int maxStates = 1;
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			int nStates = dictionary.getStatesNumber(iNode);
+			if( configsNumber > Long.MAX_VALUE / nStates)
+				return null;
+			radix[iNode] = configsNumber;
+			configsNumber *= nStates;
+			maxStates = Math.max(maxStates, nStates);
+		}
+		long configBytes = 4L * nNodes + 16 + ENTRY_BYTES;
+		long jumpBytes = 4 + 4 + 8 + 4 + ENTRY_BYTES;
+		long memory = 0;
+
+		Map<Long,Integer> configIndex = new HashMap<Long,Integer>();
+		Map<Long,Integer> jumpIndex = new HashMap<Long,Integer>();
+		List<int[]> configs = new Vector<int[]>();
+		double[] dwellTime = new double[16];
+		double[] initialCounts = new double[16];
+		int[] jConfig = new int[16];
+		int[] jNode = new int[16];
+		int[] jState = new int[16];
+		double[] jCount = new double[16];
+		int nJumps = 0;
+
+		int[] state = new int[nNodes];
+		for( int iTrj = 0; iTrj < dataset.length; ++iTrj) {
+			IEncodedTrajectory trj = dataset[iTrj];
+			if( trj.getTransitionsNumber() == 0)
+				continue;
+
+			// Initial configuration
+			long key = 0;
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				state[iNode] = trj.getStateIndex(0, iNode);
+				if( state[iNode] == -1)
+					return null;
+				key += state[iNode] * radix[iNode];
+			}
+			Integer config = configIndex.get(key);
+			if( config == null) {
+				memory += configBytes;
+				if( memory > memoryBudget)
+					return null;
+				config = configs.size();
+				configIndex.put(key, config);
+				configs.add(state.clone());
+				if( config == dwellTime.length) {
+					dwellTime = Arrays.copyOf(dwellTime, 2 * config);
+					initialCounts = Arrays.copyOf(initialCounts, 2 * config);
+				}
+			}
+			++initialCounts[config];
+			double lastTime = trj.getTime(0);
+
+			// Jumps
+			for( int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp) {
+				int nChanges = trj.getChangesNumber(iJmp);
+				if( nChanges == 0)
+					continue;
+
+				double time = trj.getTime(iJmp);
+				dwellTime[config] += time - lastTime;
+				lastTime = time;
+				for( int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					int newState = trj.getStateIndex(iJmp, iNode);
+					if( newState == -1 || (isStatic[iNode] && newState != state[iNode]))
+						return null;
+					if( newState == state[iNode])
+						continue;
+
+					long jKey = ((long) config * nNodes + iNode) * maxStates + newState;
+					Integer jump = jumpIndex.get(jKey);
+					if( jump == null) {
+						memory += jumpBytes;
+						if( memory > memoryBudget)
+							return null;
+						jump = nJumps++;
+						jumpIndex.put(jKey, jump);
+						if( jump == jConfig.length) {
+							jConfig = Arrays.copyOf(jConfig, 2 * jump);
+							jNode = Arrays.copyOf(jNode, 2 * jump);
+							jState = Arrays.copyOf(jState, 2 * jump);
+							jCount = Arrays.copyOf(jCount, 2 * jump);
+						}
+						jConfig[jump] = config;
+						jNode[jump] = iNode;
+						jState[jump] = newState;
+					}
+					++jCount[jump];
+					key += (newState - state[iNode]) * radix[iNode];
+					state[iNode] = newState;
+				}
+
+				config = configIndex.get(key);
+				if( config == null) {
+					memory += configBytes;
+					if( memory > memoryBudget)
+						return null;
+					config = configs.size();
+					configIndex.put(key, config);
+					configs.add(state.clone());
+					if( config == dwellTime.length) {
+						dwellTime = Arrays.copyOf(dwellTime, 2 * config);
+						initialCounts = Arrays.copyOf(initialCounts, 2 * config);
+					}
+				}
+			}
+
+			// Time spent in the last configuration
+			dwellTime[config] += trj.getTime(trj.getTransitionsNumber() - 1) - lastTime;
+		}
+
+		// Jumps grouped by node
+		int[] nodeJumps = new int[nNodes];
+		for( int jump = 0; jump < nJumps; ++jump)
+			++nodeJumps[jNode[jump]];
+		int[][] jumpConfig = new int[nNodes][];
+		int[][] jumpState = new int[nNodes][];
+		double[][] jumpCount = new double[nNodes][];
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			jumpConfig[iNode] = new int[nodeJumps[iNode]];
+			jumpState[iNode] = new int[nodeJumps[iNode]];
+			jumpCount[iNode] = new double[nodeJumps[iNode]];
+			nodeJumps[iNode] = 0;
+		}
+		for( int jump = 0; jump < nJumps; ++jump) {
+			int iNode = jNode[jump];
+			int i = nodeJumps[iNode]++;
+			jumpConfig[iNode][i] = jConfig[jump];
+			jumpState[iNode][i] = jState[jump];
+			jumpCount[iNode][i] = jCount[jump];
+		}
+
+		int nConfigs = configs.size();
+		return new CountCube(configs.toArray(new int[nConfigs][]), Arrays.copyOf(dwellTime, nConfigs), Arrays.copyOf(initialCounts, nConfigs), jumpConfig, jumpState, jumpCount, memory);
+	}
+
+
+	/**
+	 * Return the number of configurations visited
+	 * by the trajectories of the dataset.
+	 *
+	 * @return number of visited configurations
+	 */
+	public int getConfigurationsNumber() {
+
+		return this.configStates.length;
+	}
+
+
+	/**
+	 * Return the estimated memory of the cube.
+	 *
+	 * @return estimated memory in bytes
+	 */
+	public long getMemory() {
+
+		return this.memory;
+	}
+
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * given its parents summing the counts of the
+	 * visited configurations.
+	 *
+	 * @param nodeIndex index of the node
+	 * @param parentIdx indexes of the parents
+	 * @param multiplier multiplier of each parent in the parent entries (indexed by node)
+	 * @param nPE number of parent entries
+	 * @param nStates number of states of the node
+	 * @param isStatic true if the node is static
+	 * @param pPrior prior for static nodes
+	 * @param mPrior transition prior for continuous time nodes
+	 * @param tPrior time prior for continuous time nodes
+	 * @return sufficient statistics of the node
+	 */
+	SufficientStatistics calculate(int nodeIndex, int[] parentIdx, int[] multiplier, int nPE, int nStates, boolean isStatic, double pPrior, double mPrior, double tPrior) {
+
+		// Parent entry of each configuration
+		int[] configPE = new int[this.configStates.length];
+		for( int config = 0; config < configPE.length; ++config)
+			for( int i = 0; i < parentIdx.length; ++i)
+				configPE[config] += this.configStates[config][parentIdx[i]] * multiplier[parentIdx[i]];
+
+		SufficientStatistics ss = new SufficientStatistics(nPE, nStates, isStatic, pPrior, mPrior, tPrior);
+		if( isStatic) {
+			for( int config = 0; config < configPE.length; ++config)
+				if( this.initialCounts[config] > 0) {
+					ss.Px[configPE[config]][0][this.configStates[config][nodeIndex]] += this.initialCounts[config];
+					ss.counts[configPE[config]] += this.initialCounts[config];
+				}
+		} else {
+			for( int config = 0; config < configPE.length; ++config)
+				ss.Tx[configPE[config]][this.configStates[config][nodeIndex]] += this.dwellTime[config];
+			int[] jConfig = this.jumpConfig[nodeIndex];
+			for( int jump = 0; jump < jConfig.length; ++jump) {
+				int pE = configPE[jConfig[jump]];
+				int state = this.configStates[jConfig[jump]][nodeIndex];
+				ss.Mxx[pE][state][this.jumpState[nodeIndex][jump]] += this.jumpCount[nodeIndex][jump];
+				ss.Mx[pE][state] += this.jumpCount[nodeIndex][jump];
+			}
+		}
+
+		return ss;
+	}
+}
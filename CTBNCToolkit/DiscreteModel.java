@@ -158,6 +158,32 @@ public abstract class DiscreteModel<TimeType extends Number & Comparable<TimeTyp
 		}
 	}
 	
+	/**
+	 * Return the indexes of the children
+	 * of each node of a model.
+	 *
+	 * @param model model from which read the structure
+	 * @return children indexes for each node (in the global node indexing)
+	 */
+	public static int[][] getChildrenIndexes(IModel<?,?> model) {
+
+		boolean[][] adjM = model.getAdjMatrix();
+		int[][] children = new int[adjM.length][];
+		for( int i = 0; i < adjM.length; ++i) {
+			int nChildren = 0;
+			for( int j = 0; j < adjM.length; ++j)
+				if( adjM[i][j])
+					++nChildren;
+			children[i] = new int[nChildren];
+			nChildren = 0;
+			for( int j = 0; j < adjM.length; ++j)
+				if( adjM[i][j])
+					children[i][nChildren++] = j;
+		}
+
+		return children;
+	}
+
 	/**
 	 * Sample a value given a probability distribution.
 	 * 
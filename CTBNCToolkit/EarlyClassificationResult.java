@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Result of the early-decision classification of a
+ * trajectory: beyond the class and the class
+ * distribution it reports the trajectory transition
+ * and the time at which the decision was taken.
+ * If the stopping rule was never satisfied the
+ * whole trajectory was evaluated and the decision
+ * is the one of the last transition.
+ */
+public class EarlyClassificationResult extends CompactClassificationResult {
+
+	private final boolean early;
+	private final int decisionTransition;
+	private final double decisionTime;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param name name of the classified trajectory
+	 * @param classIndex index of the class state
+	 * @param className name of the class state
+	 * @param pDistribution class distribution at the decision time (null if not calculated)
+	 * @param early true if the decision was taken before the end of the trajectory
+	 * @param decisionTransition index of the trajectory transition of the decision
+	 * @param decisionTime time of the decision
+	 */
+	public EarlyClassificationResult(String name, int classIndex, String className, double[] pDistribution, boolean early, int decisionTransition, double decisionTime) {
+
+		super(name, classIndex, className, pDistribution);
+		this.early = early;
+		this.decisionTransition = decisionTransition;
+		this.decisionTime = decisionTime;
+	}
+
+	/**
+	 * True if the stopping rule was satisfied
+	 * (otherwise the decision is the one at the
+	 * end of the trajectory).
+	 *
+	 * @return true for an early decision
+	 */
+	public boolean isEarlyDecision() {
+
+		return this.early;
+	}
+
+	/**
+	 * Return the index of the trajectory transition
+	 * in which the decision was taken (the last
+	 * transition if the decision is not early).
+	 *
+	 * @return transition index
+	 */
+	public int getDecisionTransition() {
+
+		return this.decisionTransition;
+	}
+
+	/**
+	 * Return the time at which the decision was
+	 * taken.
+	 *
+	 * @return decision time
+	 */
+	public double getDecisionTime() {
+
+		return this.decisionTime;
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Stopping rule of the early-decision classification
+ * (see CompiledCTBNClassifier.classifyEarly).
+ *
+ * The most likely class is confident when its
+ * probability reaches the posterior threshold or
+ * when its log-odds against the second most likely
+ * class reach the log-odds threshold. The decision
+ * is taken when the same class is confident for a
+ * number of consecutive evaluated transitions and
+ * at least the minimum time is elapsed from the
+ * trajectory start.
+ */
+public class EarlyDecisionRule {
+
+	private final boolean logOdds;
+	private final double threshold;
+	private final double minTime;
+	private final int stability;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param logOdds true if the threshold is a log-odds threshold, false if it is a posterior threshold
+	 * @param threshold posterior threshold in (0,1] or positive log-odds threshold
+	 * @param minTime minimum time from the trajectory start before deciding
+	 * @param stability number of consecutive evaluated transitions in which the class must be confident
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public EarlyDecisionRule(boolean logOdds, double threshold, double minTime, int stability) throws IllegalArgumentException {
+
+		if( logOdds && !(threshold > 0.0))
+			throw new IllegalArgumentException("Error: the log-odds threshold must be positive");
+		if( !logOdds && !(threshold > 0.0 && threshold <= 1.0))
+			throw new IllegalArgumentException("Error: the posterior threshold must be in (0,1]");
+		if( !(minTime >= 0.0))
+			throw new IllegalArgumentException("Error: the minimum time must be a not negative number");
+		if( stability < 1)
+			throw new IllegalArgumentException("Error: the stability must be at least 1");
+
+		this.logOdds = logOdds;
+		this.threshold = threshold;
+		this.minTime = minTime;
+		this.stability = stability;
+	}
+
+	/**
+	 * True if the threshold is a log-odds threshold.
+	 *
+	 * @return true for the log-odds threshold, false for the posterior threshold
+	 */
+	public boolean isLogOdds() {
+
+		return this.logOdds;
+	}
+
+	/**
+	 * Return the threshold.
+	 *
+	 * @return posterior or log-odds threshold
+	 */
+	public double getThreshold() {
+
+		return this.threshold;
+	}
+
+	/**
+	 * Return the minimum time from the trajectory
+	 * start before deciding.
+	 *
+	 * @return minimum time
+	 */
+	public double getMinTime() {
+
+		return this.minTime;
+	}
+
+	/**
+	 * Return the number of consecutive evaluated
+	 * transitions in which the class must be
+	 * confident.
+	 *
+	 * @return stability
+	 */
+	public int getStability() {
+
+		return this.stability;
+	}
+
+	/**
+	 * True if the most likely class is confident
+	 * given the class log likelihoods. The posterior
+	 * threshold is checked without normalizing the
+	 * distribution: p_best >= t if and only if
+	 * sum(exp(ll - ll_best)) <= 1/t.
+	 *
+	 * @param ll log likelihood of each class
+	 * @param iBest index of the most likely class
+	 * @return true if the class is confident
+	 */
+	boolean isConfident(double[] ll, int iBest) {
+
+		if( this.logOdds) {
+			double second = Double.NEGATIVE_INFINITY;
+			for( int iClass = 0; iClass < ll.length; ++iClass)
+				if( iClass != iBest && ll[iClass] > second)
+					second = ll[iClass];
+
+			return ll[iBest] - second >= this.threshold;
+		}
+
+		double sum = 0.0;
+		for( int iClass = 0; iClass < ll.length; ++iClass)
+			sum += Math.exp(ll[iClass] - ll[iBest]);
+
+		return sum * this.threshold <= 1.0;
+	}
+}
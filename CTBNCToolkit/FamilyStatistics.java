@@ -0,0 +1,550 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Calculator of the sufficient statistics of a single
+ * family (a node and a candidate parent set) used to
+ * score the structures during the structural learning.
+ *
+ * The dataset is encoded once with the states of the
+ * model, then the statistics of a family are calculated
+ * with a single pass over the dataset that follows only
+ * the changes of the node and of its parents, without
+ * changing the structure of the model and without
+ * calculating the CIMs. The statistics are the same
+ * calculated by CTBNCParameterLLAlgorithm for the node
+ * in a model with the same parents (with the parents
+ * ordered as in the node indexing).
+ *
+ * If the count cube of the dataset fits in the memory
+ * budget, the statistics are calculated from the cube
+ * (see CountCube) without reading the trajectories,
+ * otherwise they are calculated with the data pass.
+ *
+ * The object is immutable, so it can be shared by
+ * more threads.
+ */
+public class FamilyStatistics {
+
+	private final NodeIndexing nodeIndexing;
+	private final StateDictionary dictionary;
+	private final boolean[] isStatic;
+	private final IEncodedTrajectory[] dataset;
+	private final CountCube cube;						// null if over the memory budget
+
+
+	/**
+	 * Base constructor. The count cube is built with
+	 * the default memory budget.
+	 *
+	 * @param model model that defines the nodes and their states (the structure is ignored)
+	 * @param dataset dataset used to calculate the statistics
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public FamilyStatistics(IModel<Double, CTDiscreteNode> model, Collection<ITrajectory<Double>> dataset) throws IllegalArgumentException {
+
+		this(model, dataset, CountCube.DEFAULT_MEMORY_BUDGET);
+	}
+
+
+	/**
+	 * Constructor with the memory budget of the count
+	 * cube (0 to always read the dataset).
+	 *
+	 * @param model model that defines the nodes and their states (the structure is ignored)
+	 * @param dataset dataset used to calculate the statistics
+	 * @param cubeBudget maximum memory of the count cube in bytes
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public FamilyStatistics(IModel<Double, CTDiscreteNode> model, Collection<ITrajectory<Double>> dataset, long cubeBudget) throws IllegalArgumentException {
+
+		if( model == null)
+			throw new IllegalArgumentException("Error: null model argument");
+		if( dataset == null)
+			throw new IllegalArgumentException("Error: null dataset argument");
+
+		this.nodeIndexing = model.getNodeIndexing();
+		this.dictionary = new StateDictionary(model);
+		this.isStatic = new boolean[this.nodeIndexing.getNodesNumber()];
+		for( int iNode = 0; iNode < this.isStatic.length; ++iNode)
+			this.isStatic[iNode] = model.getNode(iNode).isStaticNode();
+
+		// Encode the dataset once
+		this.dataset = new IEncodedTrajectory[dataset.size()];
+		Iterator<ITrajectory<Double>> iter = dataset.iterator();
+		for( int i = 0; i < this.dataset.length; ++i)
+			this.dataset[i] = CTEncodedTrajectory.encode(iter.next(), this.dictionary);
+
+		// Count cube (if it fits in the budget)
+		this.cube = cubeBudget > 0 ? CountCube.build(this.dataset, this.dictionary, this.isStatic, cubeBudget) : null;
+	}
+
+
+	/**
+	 * True if the statistics can be used for the
+	 * model in input (i.e. the model has the same
+	 * node indexing and the same node states).
+	 *
+	 * @param model model to check
+	 * @return true if the model is compatible
+	 */
+	public boolean isCompatible(IModel<Double, CTDiscreteNode> model) {
+
+		if( model == null || model.getNodeIndexing() != this.nodeIndexing)
+			return false;
+		for( int iNode = 0; iNode < this.isStatic.length; ++iNode) {
+			CTDiscreteNode node = model.getNode(iNode);
+			if( node.isStaticNode() != this.isStatic[iNode] || node.getStatesNumber() != this.dictionary.getStatesNumber(iNode))
+				return false;
+			for( int iState = 0; iState < node.getStatesNumber(); ++iState)
+				if( !node.getStateName(iState).equals(this.dictionary.getStateName(iNode, iState)))
+					return false;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Return the node indexing of the model used
+	 * to generate the statistics.
+	 *
+	 * @return node indexing
+	 */
+	public NodeIndexing getNodeIndexing() {
+
+		return this.nodeIndexing;
+	}
+
+
+	/**
+	 * Return the count cube used to calculate the
+	 * statistics.
+	 *
+	 * @return the count cube, null if the statistics are calculated reading the dataset
+	 */
+	public CountCube getCountCube() {
+
+		return this.cube;
+	}
+
+
+	/**
+	 * Return the number of trajectories in the
+	 * dataset.
+	 *
+	 * @return number of trajectories
+	 */
+	public int getTrajectoriesNumber() {
+
+		return this.dataset.length;
+	}
+
+
+	/**
+	 * Return the number of states of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return number of states
+	 */
+	public int getStatesNumber(int iNode) {
+
+		return this.dictionary.getStatesNumber(iNode);
+	}
+
+
+	/**
+	 * Return the number of parent entries of a
+	 * parent set.
+	 *
+	 * @param parents parent set (parents[i] true if the node i is a parent)
+	 * @return number of parent entries
+	 */
+	public int getParentEntriesNumber(boolean[] parents) {
+
+		int nPE = 1;
+		for( int iParent = 0; iParent < parents.length; ++iParent)
+			if( parents[iParent])
+				nPE *= this.dictionary.getStatesNumber(iParent);
+
+		return nPE;
+	}
+
+
+	/**
+	 * Return the state of a parent in a parent entry
+	 * of a parent set (the parents are ordered as in
+	 * the node indexing, the first one has multiplier 1).
+	 *
+	 * @param parents parent set
+	 * @param parentIndex index of the parent node
+	 * @param pE parent entry
+	 * @return state index of the parent
+	 * @throws IllegalArgumentException if the node is not a parent
+	 */
+	public int getParentState(boolean[] parents, int parentIndex, int pE) throws IllegalArgumentException {
+
+		if( !parents[parentIndex])
+			throw new IllegalArgumentException("Error: the node " + parentIndex + " is not a parent");
+
+		int multiplier = 1;
+		for( int iParent = 0; iParent < parentIndex; ++iParent)
+			if( parents[iParent])
+				multiplier *= this.dictionary.getStatesNumber(iParent);
+
+		return (pE / multiplier) % this.dictionary.getStatesNumber(parentIndex);
+	}
+
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * given a parent set.
+	 *
+	 * @param nodeIndex index of the node
+	 * @param parents parent set (parents[i] true if the node i is a parent)
+	 * @param pPrior prior for static nodes
+	 * @param mPrior transition prior for continuous time nodes
+	 * @param tPrior time prior for continuous time nodes
+	 * @return sufficient statistics of the node
+	 * @throws IllegalArgumentException in case of illegal arguments or of trajectories not consistent with the model
+	 */
+	public SufficientStatistics calculate(int nodeIndex, boolean[] parents, double pPrior, double mPrior, double tPrior) throws IllegalArgumentException {
+
+		int nNodes = this.isStatic.length;
+		if( nodeIndex < 0 || nodeIndex >= nNodes)
+			throw new IllegalArgumentException("Error: node index out of bound");
+		if( parents == null || parents.length != nNodes)
+			throw new IllegalArgumentException("Error: the parent set must have an entry for each node");
+		if( parents[nodeIndex])
+			throw new IllegalArgumentException("Error: a node can not be parent of itself");
+
+		// Parents and their multipliers
+		int nParents = 0;
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			if( parents[iNode])
+				++nParents;
+		int[] parentIdx = new int[nParents];
+		int[] multiplier = new int[nNodes];						// multiplier of each parent (0 for the other nodes)
+		int nPE = 1;
+		for( int iNode = 0, i = 0; iNode < nNodes; ++iNode)
+			if( parents[iNode]) {
+				parentIdx[i++] = iNode;
+				multiplier[iNode] = nPE;
+				nPE *= this.dictionary.getStatesNumber(iNode);
+			}
+
+		if( this.cube != null)
+			return this.cube.calculate(nodeIndex, parentIdx, multiplier, nPE, this.dictionary.getStatesNumber(nodeIndex), this.isStatic[nodeIndex], pPrior, mPrior, tPrior);
+
+		SufficientStatistics ss = new SufficientStatistics(nPE, this.dictionary.getStatesNumber(nodeIndex), this.isStatic[nodeIndex], pPrior, mPrior, tPrior);
+		for( int iTrj = 0; iTrj < this.dataset.length; ++iTrj) {
+			IEncodedTrajectory trj = this.dataset[iTrj];
+			if( trj.getTransitionsNumber() == 0)
+				continue;
+
+			// Initialization at time 0
+			int state = this.checkState(trj, 0, nodeIndex);
+			int pE = 0;
+			for( int i = 0; i < nParents; ++i)
+				pE += this.checkState(trj, 0, parentIdx[i]) * multiplier[parentIdx[i]];
+			if( this.isStatic[nodeIndex]) {
+				++ss.Px[pE][0][state];
+				++ss.counts[pE];
+				continue;
+			}
+			double lastChangeTime = trj.getTime(0);
+
+			// For each jump (only the changes of the family are considered)
+			for( int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp) {
+				int nChanges = trj.getChangesNumber(iJmp);
+				int newState = state;
+				int newPE = pE;
+				boolean changed = false;
+				for( int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					if( iNode == nodeIndex) {
+						newState = this.checkState(trj, iJmp, iNode);
+						changed = true;
+					} else if( parents[iNode]) {
+						if( this.isStatic[iNode])
+							throw new IllegalArgumentException("Error: static nodes (" + this.nodeIndexing.getName(iNode) + ") can not change their state during a trajectory (trj = " + trj.getName() + ")");
+						newPE += (this.checkState(trj, iJmp, iNode) - trj.getStateIndex(iJmp - 1, iNode)) * multiplier[iNode];
+						changed = true;
+					}
+				}
+				if( !changed)
+					continue;
+
+				// Time spent in the current state and parent entry, and the jump
+				double time = trj.getTime(iJmp);
+				ss.Tx[pE][state] += time - lastChangeTime;
+				lastChangeTime = time;
+				if( newState != state) {
+					++ss.Mxx[pE][state][newState];
+					++ss.Mx[pE][state];
+				}
+				state = newState;
+				pE = newPE;
+			}
+
+			// Time spent in the last state
+			ss.Tx[pE][state] += trj.getTime(trj.getTransitionsNumber() - 1) - lastChangeTime;
+		}
+
+		return ss;
+	}
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * for each parent set obtained adding one of the
+	 * candidate parents to a parent set. The statistics
+	 * of all the candidates are accumulated in the same
+	 * pass over the dataset; each statistic is the same
+	 * returned by the calculate method for its parent set.
+	 *
+	 * @param nodeIndex index of the node
+	 * @param parents parent set (parents[i] true if the node i is a parent)
+	 * @param candidates indexes of the candidate parents (not in the parent set)
+	 * @param pPrior prior for static nodes
+	 * @param mPrior transition prior for continuous time nodes
+	 * @param tPrior time prior for continuous time nodes
+	 * @return sufficient statistics of the node for each candidate (in the candidates order)
+	 * @throws IllegalArgumentException in case of illegal arguments or of trajectories not consistent with the model
+	 */
+	public SufficientStatistics[] calculate(int nodeIndex, boolean[] parents, int[] candidates, double pPrior, double mPrior, double tPrior) throws IllegalArgumentException {
+
+		int nNodes = this.isStatic.length;
+		if( nodeIndex < 0 || nodeIndex >= nNodes)
+			throw new IllegalArgumentException("Error: node index out of bound");
+		if( parents == null || parents.length != nNodes)
+			throw new IllegalArgumentException("Error: the parent set must have an entry for each node");
+		if( parents[nodeIndex])
+			throw new IllegalArgumentException("Error: a node can not be parent of itself");
+		if( candidates == null)
+			throw new IllegalArgumentException("Error: null candidates argument");
+
+		// Candidate of each node (-1 for the other nodes)
+		int nCandidates = candidates.length;
+		int[] candidateIdx = new int[nNodes];
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			candidateIdx[iNode] = -1;
+		for( int c = 0; c < nCandidates; ++c) {
+			int iCandidate = candidates[c];
+			if( iCandidate < 0 || iCandidate >= nNodes)
+				throw new IllegalArgumentException("Error: candidate index out of bound");
+			if( iCandidate == nodeIndex || parents[iCandidate])
+				throw new IllegalArgumentException("Error: the candidate " + iCandidate + " is the node or one of its parents");
+			if( candidateIdx[iCandidate] != -1)
+				throw new IllegalArgumentException("Error: duplicated candidate " + iCandidate);
+			candidateIdx[iCandidate] = c;
+		}
+
+		// With the count cube each family is calculated without reading the dataset
+		if( this.cube != null) {
+			SufficientStatistics[] ss = new SufficientStatistics[nCandidates];
+			boolean[] familyParents = parents.clone();
+			for( int c = 0; c < nCandidates; ++c) {
+				familyParents[candidates[c]] = true;
+				ss[c] = this.calculate(nodeIndex, familyParents, pPrior, mPrior, tPrior);
+				familyParents[candidates[c]] = false;
+			}
+			return ss;
+		}
+
+		// Parents and multipliers of each candidate family
+		int nParents = 0;
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			if( parents[iNode])
+				++nParents;
+		int[] parentIdx = new int[nParents];
+		for( int iNode = 0, i = 0; iNode < nNodes; ++iNode)
+			if( parents[iNode])
+				parentIdx[i++] = iNode;
+		int[][] multiplier = new int[nCandidates][nNodes];		// multiplier of each parent in each family (0 for the other nodes)
+		SufficientStatistics[] ss = new SufficientStatistics[nCandidates];
+		for( int c = 0; c < nCandidates; ++c) {
+			int nPE = 1;
+			for( int iNode = 0; iNode < nNodes; ++iNode)
+				if( parents[iNode] || iNode == candidates[c]) {
+					multiplier[c][iNode] = nPE;
+					nPE *= this.dictionary.getStatesNumber(iNode);
+				}
+			ss[c] = new SufficientStatistics(nPE, this.dictionary.getStatesNumber(nodeIndex), this.isStatic[nodeIndex], pPrior, mPrior, tPrior);
+		}
+
+		int[] pE = new int[nCandidates];
+		int[] newPE = new int[nCandidates];
+		boolean[] changed = new boolean[nCandidates];
+		double[] lastChangeTime = new double[nCandidates];
+		for( int iTrj = 0; iTrj < this.dataset.length; ++iTrj) {
+			IEncodedTrajectory trj = this.dataset[iTrj];
+			if( trj.getTransitionsNumber() == 0)
+				continue;
+
+			// Initialization at time 0
+			int state = this.checkState(trj, 0, nodeIndex);
+			for( int c = 0; c < nCandidates; ++c) {
+				pE[c] = this.checkState(trj, 0, candidates[c]) * multiplier[c][candidates[c]];
+				for( int i = 0; i < nParents; ++i)
+					pE[c] += this.checkState(trj, 0, parentIdx[i]) * multiplier[c][parentIdx[i]];
+				if( this.isStatic[nodeIndex]) {
+					++ss[c].Px[pE[c]][0][state];
+					++ss[c].counts[pE[c]];
+				} else
+					lastChangeTime[c] = trj.getTime(0);
+			}
+			if( this.isStatic[nodeIndex])
+				continue;
+
+			// For each jump (only the changes of the families are considered)
+			for( int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp) {
+				int nChanges = trj.getChangesNumber(iJmp);
+				int newState = state;
+				boolean familyChanged = false;						// the node or a common parent changed
+				boolean candidateChanged = false;
+				for( int c = 0; c < nCandidates; ++c) {
+					newPE[c] = pE[c];
+					changed[c] = false;
+				}
+				for( int iChange = 0; iChange < nChanges; ++iChange) {
+					int iNode = trj.getChangedNode(iJmp, iChange);
+					if( iNode == nodeIndex) {
+						newState = this.checkState(trj, iJmp, iNode);
+						familyChanged = true;
+					} else if( parents[iNode] || candidateIdx[iNode] != -1) {
+						if( this.isStatic[iNode])
+							throw new IllegalArgumentException("Error: static nodes (" + this.nodeIndexing.getName(iNode) + ") can not change their state during a trajectory (trj = " + trj.getName() + ")");
+						int delta = this.checkState(trj, iJmp, iNode) - trj.getStateIndex(iJmp - 1, iNode);
+						if( parents[iNode]) {
+							for( int c = 0; c < nCandidates; ++c)
+								newPE[c] += delta * multiplier[c][iNode];
+							familyChanged = true;
+						} else {
+							int c = candidateIdx[iNode];
+							newPE[c] += delta * multiplier[c][iNode];
+							changed[c] = true;
+							candidateChanged = true;
+						}
+					}
+				}
+				if( !familyChanged && !candidateChanged)
+					continue;
+
+				// Time spent in the current state and parent entry, and the jump
+				double time = trj.getTime(iJmp);
+				for( int c = 0; c < nCandidates; ++c) {
+					if( !familyChanged && !changed[c])
+						continue;
+					ss[c].Tx[pE[c]][state] += time - lastChangeTime[c];
+					lastChangeTime[c] = time;
+					if( newState != state) {
+						++ss[c].Mxx[pE[c]][state][newState];
+						++ss[c].Mx[pE[c]][state];
+					}
+					pE[c] = newPE[c];
+				}
+				state = newState;
+			}
+
+			// Time spent in the last state
+			double endTime = trj.getTime(trj.getTransitionsNumber() - 1);
+			for( int c = 0; c < nCandidates; ++c)
+				ss[c].Tx[pE[c]][state] += endTime - lastChangeTime[c];
+		}
+
+		return ss;
+	}
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * given a parent set without one parent, summing
+	 * the statistics of the parent set over the states
+	 * of the removed parent (no data access is required).
+	 * The priors are counted once for each parent entry
+	 * as in the calculate method.
+	 *
+	 * @param ss sufficient statistics of the node given the parent set (calculated with the same priors)
+	 * @param parents parent set (parents[i] true if the node i is a parent)
+	 * @param parentIndex index of the parent to remove
+	 * @param pPrior prior for static nodes
+	 * @param mPrior transition prior for continuous time nodes
+	 * @param tPrior time prior for continuous time nodes
+	 * @return sufficient statistics of the node given the parent set without the removed parent
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public SufficientStatistics removeParent(SufficientStatistics ss, boolean[] parents, int parentIndex, double pPrior, double mPrior, double tPrior) throws IllegalArgumentException {
+
+		if( ss == null || !ss.isSet())
+			throw new IllegalArgumentException("Error: null or not set sufficient statistics");
+		if( parents == null || parents.length != this.isStatic.length)
+			throw new IllegalArgumentException("Error: the parent set must have an entry for each node");
+		if( !parents[parentIndex])
+			throw new IllegalArgumentException("Error: the node " + parentIndex + " is not a parent");
+		if( ss.parentEntriesNumber() != this.getParentEntriesNumber(parents))
+			throw new IllegalArgumentException("Error: the sufficient statistics don't correspond to the parent set");
+
+		// Parent entry of the new parent set: the
+		// states of the removed parent are collapsed
+		int multiplier = 1;
+		for( int iParent = 0; iParent < parentIndex; ++iParent)
+			if( parents[iParent])
+				multiplier *= this.dictionary.getStatesNumber(iParent);
+		int nParentStates = this.dictionary.getStatesNumber(parentIndex);
+		int nPE = ss.parentEntriesNumber() / nParentStates;
+		int nS = ss.statesNumber();
+
+		SufficientStatistics prior = new SufficientStatistics(1, nS, ss.isStatic(), pPrior, mPrior, tPrior);
+		SufficientStatistics newSS = new SufficientStatistics(nPE, nS, ss.isStatic(), pPrior, mPrior, tPrior);
+		for( int pE = 0; pE < ss.parentEntriesNumber(); ++pE) {
+			int newPE = pE % multiplier + (pE / (multiplier * nParentStates)) * multiplier;
+			if( ss.isStatic()) {
+				for( int sE = 0; sE < nS; ++sE)
+					newSS.Px[newPE][0][sE] += ss.Px[pE][0][sE] - prior.Px[0][0][sE];
+				newSS.counts[newPE] += ss.counts[pE] - prior.counts[0];
+			} else {
+				for( int fsE = 0; fsE < nS; ++fsE) {
+					newSS.Tx[newPE][fsE] += ss.Tx[pE][fsE] - prior.Tx[0][fsE];
+					newSS.Mx[newPE][fsE] += ss.Mx[pE][fsE] - prior.Mx[0][fsE];
+					for( int ssE = 0; ssE < nS; ++ssE)
+						if( fsE != ssE)
+							newSS.Mxx[newPE][fsE][ssE] += ss.Mxx[pE][fsE][ssE] - prior.Mxx[0][fsE][ssE];
+				}
+			}
+		}
+
+		return newSS;
+	}
+
+	/**
+	 * Return the state index of a node in a transition
+	 * checking that the state is in the dictionary.
+	 *
+	 * @param trj encoded trajectory
+	 * @param iTransition index of the transition
+	 * @param iNode index of the node
+	 * @return state index
+	 * @throws IllegalArgumentException if the state is not in the dictionary
+	 */
+	private int checkState(IEncodedTrajectory trj, int iTransition, int iNode) throws IllegalArgumentException {
+
+		int iState = trj.getStateIndex(iTransition, iNode);
+		if( iState == -1)
+			throw new IllegalArgumentException("Error: State " + trj.getNodeValue(iTransition, iNode) + " didn't find!");
+
+		return iState;
+	}
+}
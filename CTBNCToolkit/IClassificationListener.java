@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Interface that define a listener that receives
+ * the class distributions calculated during the
+ * classification of a trajectory on a sampling
+ * grid (see CompiledCTBNClassifier.classifyGrid).
+ */
+public interface IClassificationListener {
+
+	/**
+	 * Receive the class distribution at a time of
+	 * the classification. The times are notified
+	 * in increasing order and they are the union
+	 * of the trajectory transition times and of
+	 * the grid times.
+	 * 
+	 * @param iGrid index of the time in the sampling grid (-1 if it is only a trajectory transition time)
+	 * @param time time of the distribution
+	 * @param p class distribution (indexed as the class states); the array is reused, so it is valid only during the call
+	 * @throws RuntimeException in case of errors
+	 */
+	public void posterior(int iGrid, double time, double[] p) throws RuntimeException;
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ *
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Interface that defines continuous time trajectories
+ * where the node values are encoded as state indexes
+ * of a state dictionary. It allows the learning and
+ * the inference algorithms to access the trajectory
+ * without string parsing or memory allocation.
+ */
+public interface IEncodedTrajectory extends ITrajectory<Double> {
+
+	/**
+	 * Return the time of the selected
+	 * transition as primitive value.
+	 *
+	 * @param iTransition index of the transition
+	 * @return the time of the selected transition
+	 * @throws IllegalArgumentException in case of illegal argument
+	 */
+	public double getTime(int iTransition) throws IllegalArgumentException;
+
+	/**
+	 * Return the state index of the specific
+	 * node at the specific transition.
+	 *
+	 * @param iTransition index of the transition
+	 * @param nodeIndex node index
+	 * @return state index in the state dictionary, -1 if the value is not in the dictionary
+	 * @throws IllegalArgumentException in case of illegal argument
+	 */
+	public int getStateIndex(int iTransition, int nodeIndex) throws IllegalArgumentException;
+
+	/**
+	 * Return the number of nodes that change
+	 * their state in the selected transition
+	 * with respect to the previous one. The
+	 * first transition has no changes.
+	 *
+	 * @param iTransition index of the transition
+	 * @return number of changed nodes
+	 * @throws IllegalArgumentException in case of illegal argument
+	 */
+	public int getChangesNumber(int iTransition) throws IllegalArgumentException;
+
+	/**
+	 * Return the index of a node that changes
+	 * its state in the selected transition.
+	 * The changed nodes are sorted by index.
+	 *
+	 * @param iTransition index of the transition
+	 * @param iChange index of the change in [0, getChangesNumber(iTransition))
+	 * @return index of the changed node
+	 * @throws IllegalArgumentException in case of illegal argument
+	 */
+	public int getChangedNode(int iTransition, int iChange) throws IllegalArgumentException;
+
+	/**
+	 * Return the state dictionary used
+	 * to encode the trajectory.
+	 *
+	 * @return the state dictionary
+	 */
+	public StateDictionary getStateDictionary();
+}
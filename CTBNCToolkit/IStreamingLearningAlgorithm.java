@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * This interface define the learning algorithms
+ * that are able to learn a model in a single pass
+ * over the training set. The trajectories are not
+ * retained by the algorithm, so the training set
+ * can be bigger than the available memory (e.g.
+ * trajectories read from a memory mapped file).
+ * 
+ * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
+ * @param <NodeType> type of node in the model
+ */
+public interface IStreamingLearningAlgorithm<TimeType extends Number & Comparable<TimeType>, NodeType extends INode> extends ILearningAlgorithm<TimeType,NodeType> {
+
+	/**
+	 * Learn the model in input reading the
+	 * training set only once.
+	 * 
+	 * @param model model to learn
+	 * @param trainingSet iterator over the training set from which learn the model
+	 * @return the learning result (a container for the learned sufficient statistics)
+	 * @throws RuntimeException if there is some problem with the learning
+	 */
+	public ILearningResults learn(ICTClassifier<TimeType,NodeType> model, Iterator<ITrajectory<TimeType>> trainingSet) throws RuntimeException;
+	
+}
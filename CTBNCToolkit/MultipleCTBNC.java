@@ -10,10 +10,15 @@
  */
 package CTBNCToolkit;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author Daniele Codecasa <codecasa.job@gmail.com>
@@ -28,6 +33,12 @@ import java.util.Vector;
  * others.
  * The classification relies on the model voting for their
  * specialization class.
+ * The experts classify the original trajectory through a
+ * view that remaps the class states (no copy is made) and,
+ * if an executor is set, they are evaluated concurrently.
+ * In continuous time the trajectory is encoded once with
+ * the state dictionary of the base model and the views
+ * read the encoded trajectory.
  *
  * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
  * @param <NodeType> node type
@@ -43,6 +54,11 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 	
 	private boolean[][] adjMatrix;
 	
+	private List<Map<String,String>> classMappings;		// class remapping table of each expert
+	private ExecutorService executor = null;			// executor of the experts (null to evaluate them in the current thread)
+	private StateDictionary baseDictionary;				// state dictionary of the base model (null if not in continuous time)
+	private StateDictionary[] expertDictionaries;		// state dictionary of each expert (null if not in continuous time)
+	
 	
 	/**
 	 * Base constructor.
@@ -65,6 +81,8 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			
 			this.models.add( newModel);
 		}
+		this.classMappings = this.generateClassMappings();
+		this.generateDictionaries();
 	}
 	
 	
@@ -89,6 +107,107 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 		this.name = name;
 		this.baseModel = baseModel;
 		this.models = models;
+		this.classMappings = this.generateClassMappings();
+		this.generateDictionaries();
+	}
+	
+	
+	/**
+	 * Generate the class remapping table of each
+	 * expert: the specialization class is kept and
+	 * the other classes are mapped to otherStateName.
+	 * 
+	 * @return list of remapping tables (in the class order)
+	 */
+	private List<Map<String,String>> generateClassMappings() {
+		
+		DiscreteNode classNode = this.baseModel.getClassNode();
+		List<Map<String,String>> mappings = new Vector<Map<String,String>>(this.models.size());
+		for( int i = 0; i < this.models.size(); ++i) {
+			Map<String,String> mapping = new TreeMap<String,String>();
+			for( int iState = 0; iState < classNode.getStatesNumber(); ++iState)
+				mapping.put( classNode.getStateName(iState), iState == i ? classNode.getStateName(iState) : MultipleCTBNC.otherStateName);
+			mappings.add( mapping);
+		}
+		
+		return mappings;
+	}
+	
+	
+	/**
+	 * Generate the state dictionaries of the base
+	 * model and of the experts used to encode the
+	 * trajectories in continuous time.
+	 */
+	private void generateDictionaries() {
+		
+		if( !(this.baseModel instanceof CTBNClassifier)) {
+			this.baseDictionary = null;
+			this.expertDictionaries = null;
+			return;
+		}
+		
+		this.baseDictionary = new StateDictionary( (CTBNClassifier) this.baseModel);
+		this.expertDictionaries = new StateDictionary[this.models.size()];
+		for( int i = 0; i < this.models.size(); ++i)
+			this.expertDictionaries[i] = new StateDictionary( (CTBNClassifier) this.models.get(i));
+	}
+	
+	
+	/**
+	 * Return the original model used to generate
+	 * the models experts.
+	 * 
+	 * @return base model
+	 */
+	public ICTClassifier<TimeType,NodeType> getBaseModel() {
+		
+		return this.baseModel;
+	}
+	
+	
+	/**
+	 * Return the class remapping table of an
+	 * expert (original class state name -> class
+	 * state name of the expert).
+	 * 
+	 * @param classIndex class index for which the model is an expert
+	 * @return remapping table (not modifiable)
+	 * @throws IllegalArgumentException in case of illegal argument
+	 */
+	public Map<String,String> getClassMapping(int classIndex) throws IllegalArgumentException {
+		
+		if( classIndex < 0 || classIndex >= models.size())
+			throw new IllegalArgumentException("Error: class index out of range");
+		
+		return Collections.unmodifiableMap( this.classMappings.get( classIndex));
+	}
+	
+	
+	/**
+	 * Set the executor used to evaluate the experts
+	 * concurrently in the classification. The
+	 * classification algorithm must support
+	 * concurrent classifications (as the
+	 * CTBNCClassifyAlgorithm does).
+	 * 
+	 * @param executor executor of the experts (null to evaluate them in the current thread)
+	 */
+	public void setExecutor(ExecutorService executor) {
+		
+		this.executor = executor;
+	}
+	
+	
+	/**
+	 * Return the executor used to evaluate the
+	 * experts.
+	 * 
+	 * @return executor of the experts (null if they are evaluated in the current thread)
+	 */
+	public ExecutorService getExecutor() {
+		
+		return this.executor;
 	}
 	
 	
@@ -217,49 +336,10 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			ITrajectory<TimeType> trajectory) throws Exception {
 		
 		// Classify with all the models
-		List<IClassificationResult<TimeType>> results = new Vector<IClassificationResult<TimeType>>(this.models.size());
-		for( int i = 0; i < this.models.size(); ++i) {
-			// Transform the trajectory
-			ITrajectory<TimeType> trj = generateClassTrajectory(trajectory, i);
-			
-			// Classify the trajectory
-			results.add( algorithm.classify( this.getModel(i), trj));
-		}
-		
+		List<IClassificationResult<TimeType>> results = this.classifyExperts(algorithm, trajectory, null, null);
 		
 		// Generate the result
-		// Initialization
-		DiscreteNode classNode = this.baseModel.getClassNode();
-		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();
-		for(int i = 0; i < classNode.getStatesNumber(); ++i)
-			stateToIndex.put(classNode.getStateName(i), i);
-		
-		// Result initialization
-		ClassificationResults<TimeType> finalResult = new ClassificationResults<TimeType>( trajectory);
-		int iJmp;
-		if( algorithm.probabilityFlag())
-			iJmp = 0;
-		else
-			iJmp = finalResult.getTransitionsNumber() - 1;
-		
-		// Calculate the probabilities
-		for(; iJmp < finalResult.getTransitionsNumber(); ++iJmp) {
-			double[] p = new double[results.size()];
-			
-			// Get the probability for each class
-			for(int iC = 0; iC < p.length; ++iC)
-				p[iC] = results.get( iC).getProbability( classNode.getStateName( iC));
-			
-			// Normalize
-			p = MultipleCTBNC.normalizeDistribution(p);
-			
-			// Set result
-			finalResult.setProbability(iJmp, p, stateToIndex);
-			if( iJmp == finalResult.getTransitionsNumber() - 1)
-				finalResult.setClassification( classNode.getStateName( MultipleCTBNC.indexMax(p)));
-		}
-		
-		return finalResult;
+		return this.combineResults(algorithm, new ClassificationResults<TimeType>( trajectory), results);
 	}
 
 
@@ -270,52 +350,14 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			throws Exception {
 		
 		// Classify with all the models
-		List<IClassificationResult<TimeType>> results = new Vector<IClassificationResult<TimeType>>(this.models.size());
-		for( int i = 0; i < this.models.size(); ++i) {
-			// Transform the trajectory
-			ITrajectory<TimeType> trj = generateClassTrajectory(trajectory, i);
-			
-			// Classify the trajectory
-			results.add( algorithm.classify( this.getModel(i), trj, samplingInterval));
-		}
-		
+		List<IClassificationResult<TimeType>> results = this.classifyExperts(algorithm, trajectory, samplingInterval, null);
 		
 		// Generate the result
-		// Initialization
-		DiscreteNode classNode = this.baseModel.getClassNode();
-		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();
-		for(int i = 0; i < classNode.getStatesNumber(); ++i)
-			stateToIndex.put(classNode.getStateName(i), i);
 		Vector<TimeType> timeStream = new Vector<TimeType>( results.get(0).getTransitionsNumber());
 		for(int i = 0; i < results.get(0).getTransitionsNumber(); ++i)
 			timeStream.add( results.get(0).getTransitionTime(i));
 		
-		// Result initialization
-		ClassificationResults<TimeType> finalResult = new ClassificationResults<TimeType>( trajectory, timeStream);
-		int iJmp;
-		if( algorithm.probabilityFlag())
-			iJmp = 0;
-		else
-			iJmp = finalResult.getTransitionsNumber() - 1;
-		
-		// Calculate the probabilities
-		for(; iJmp < finalResult.getTransitionsNumber(); ++iJmp) {
-			double[] p = new double[results.size()];
-			
-			// Get the probability for each class
-			for(int iC = 0; iC < p.length; ++iC)
-				p[iC] = results.get( iC).getProbability( classNode.getStateName( iC));
-			
-			// Normalize
-			p = MultipleCTBNC.normalizeDistribution(p);
-			
-			// Set result
-			finalResult.setProbability(iJmp, p, stateToIndex);
-			if( iJmp == finalResult.getTransitionsNumber() - 1)
-				finalResult.setClassification( classNode.getStateName( MultipleCTBNC.indexMax(p)));
-		}
-		
-		return finalResult;
+		return this.combineResults(algorithm, new ClassificationResults<TimeType>( trajectory, timeStream), results);
 	}
 
 
@@ -329,17 +371,123 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			throws Exception {
 		
 		// Classify with all the models
-		List<IClassificationResult<TimeType>> results = new Vector<IClassificationResult<TimeType>>(this.models.size());
+		List<IClassificationResult<TimeType>> results = this.classifyExperts(algorithm, trajectory, null, timeStream);
+		
+		// Generate the result
+		return this.combineResults(algorithm, new ClassificationResults<TimeType>( trajectory, timeStream), results);
+	}
+	
+	
+	/**
+	 * Classify the trajectory with all the experts.
+	 * Each expert reads the original trajectory
+	 * through a view that remaps the class states
+	 * (see ClassRemappedTrajectory). In continuous
+	 * time the trajectory is encoded only once and
+	 * the views remap the class state indexes (see
+	 * ClassRemappedEncodedTrajectory). If an executor
+	 * is set, the experts are evaluated concurrently.
+	 * 
+	 * @param algorithm classification algorithm
+	 * @param trajectory trajectory to classify
+	 * @param samplingInterval sampling interval (null if not used)
+	 * @param timeStream time stream (null if not used)
+	 * @return results of the experts (in the class order)
+	 * @throws Exception in case of classification errors
+	 */
+	private List<IClassificationResult<TimeType>> classifyExperts(IClassifyAlgorithm<TimeType, NodeType> algorithm, ITrajectory<TimeType> trajectory, TimeType samplingInterval, Vector<TimeType> timeStream) throws Exception {
+		
+		IEncodedTrajectory encodedTrj = null;
+		if( this.baseDictionary != null)
+			encodedTrj = CTEncodedTrajectory.encode( MultipleCTBNC.toContinuousTime(trajectory), this.baseDictionary);
+		
+		List<ExpertTask<TimeType,NodeType>> tasks = new Vector<ExpertTask<TimeType,NodeType>>(this.models.size());
 		for( int i = 0; i < this.models.size(); ++i) {
-			// Transform the trajectory
-			ITrajectory<TimeType> trj = generateClassTrajectory(trajectory, i);
+			// Class view of the trajectory
+			ITrajectory<TimeType> trj;
+			if( encodedTrj != null)
+				trj = MultipleCTBNC.fromContinuousTime( new ClassRemappedEncodedTrajectory(encodedTrj, this.classMappings.get(i), this.expertDictionaries[i]), trajectory);
+			else
+				trj = new ClassRemappedTrajectory<TimeType>(trajectory, this.classMappings.get(i));
+			tasks.add( new ExpertTask<TimeType,NodeType>(algorithm, this.getModel(i), trj, samplingInterval, timeStream));
+		}
+		
+		List<IClassificationResult<TimeType>> results = new Vector<IClassificationResult<TimeType>>(this.models.size());
+		ExecutorService executor = this.executor;
+		if( executor == null || tasks.size() < 2) {
+			for( int i = 0; i < tasks.size(); ++i)
+				results.add( tasks.get(i).call());
 			
-			// Classify the trajectory
-			results.add( algorithm.classify( this.getModel(i), trj, timeStream));
+			return results;
 		}
 		
+		List<Future<IClassificationResult<TimeType>>> futures = new Vector<Future<IClassificationResult<TimeType>>>(tasks.size());
+		try {
+			for( int i = 1; i < tasks.size(); ++i)
+				futures.add( executor.submit(tasks.get(i)));
+			results.add( tasks.get(0).call());					// the first expert is evaluated in the current thread
+			for( int i = 0; i < futures.size(); ++i)
+				results.add( futures.get(i).get());
+		} catch( ExecutionException e) {
+			if( e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			if( e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new RuntimeException("Error: classification error (" + e.getCause() + ")");
+		} catch( InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Error: interrupted classification");
+		} finally {
+			for( int i = 0; i < futures.size(); ++i)
+				futures.get(i).cancel(true);
+		}
+		
+		return results;
+	}
+	
+	
+	/**
+	 * Return a trajectory of a continuous time model
+	 * as continuous time trajectory.
+	 * 
+	 * @param trajectory trajectory of a continuous time model (TimeType = Double)
+	 * @return the same trajectory
+	 */
+	@SuppressWarnings("unchecked")			// the models with state dictionary are in continuous time
+	static <TimeType extends Number> ITrajectory<Double> toContinuousTime(ITrajectory<TimeType> trajectory) {
+		
+		return (ITrajectory<Double>) (ITrajectory<?>) trajectory;
+	}
+	
+	
+	/**
+	 * Return a continuous time trajectory with the
+	 * time type of the trajectory in input.
+	 * 
+	 * @param trajectory continuous time trajectory
+	 * @param typeTrajectory trajectory of the model (TimeType = Double)
+	 * @return the same trajectory
+	 */
+	@SuppressWarnings("unchecked")			// the models with state dictionary are in continuous time
+	static <TimeType extends Number> ITrajectory<TimeType> fromContinuousTime(ITrajectory<Double> trajectory, ITrajectory<TimeType> typeTrajectory) {
+		
+		return (ITrajectory<TimeType>) (ITrajectory<?>) trajectory;
+	}
+	
+	
+	/**
+	 * Combine the results of the experts: the
+	 * probabilities of the specialization classes
+	 * are normalized and the most likely class is
+	 * chosen.
+	 * 
+	 * @param algorithm classification algorithm
+	 * @param finalResult result trajectory to fill
+	 * @param results results of the experts
+	 * @return the result trajectory in input
+	 */
+	private IClassificationResult<TimeType> combineResults(IClassifyAlgorithm<TimeType, NodeType> algorithm, ClassificationResults<TimeType> finalResult, List<IClassificationResult<TimeType>> results) {
 		
-		// Generate the result
 		// Initialization
 		DiscreteNode classNode = this.baseModel.getClassNode();
 		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();
@@ -347,7 +495,6 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			stateToIndex.put(classNode.getStateName(i), i);
 		
 		// Result initialization
-		ClassificationResults<TimeType> finalResult = new ClassificationResults<TimeType>( trajectory, timeStream);
 		int iJmp;
 		if( algorithm.probabilityFlag())
 			iJmp = 0;
@@ -382,6 +529,7 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 			newModels.add(( ICTClassifier<TimeType,NodeType>) this.models.get( i).clone());
 		
 		MultipleCTBNC<TimeType,NodeType> clonedModel = new MultipleCTBNC<TimeType, NodeType>(this.name, this.baseModel, newModels);
+		clonedModel.executor = this.executor;
 		
 		return clonedModel;
 	}
@@ -486,4 +634,53 @@ public class MultipleCTBNC<TimeType extends Number & Comparable<TimeType>, NodeT
 		
 		return iMax;
 	}
+	
+	
+	/**
+	 * Classification of a trajectory with
+	 * one expert.
+	 *
+	 * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
+	 * @param <NodeType> node type
+	 */
+	private static class ExpertTask<TimeType extends Number & Comparable<TimeType>, NodeType extends INode> implements Callable<IClassificationResult<TimeType>> {
+		
+		private final IClassifyAlgorithm<TimeType, NodeType> algorithm;
+		private final ICTClassifier<TimeType,NodeType> model;
+		private final ITrajectory<TimeType> trajectory;
+		private final TimeType samplingInterval;
+		private final Vector<TimeType> timeStream;
+		
+		/**
+		 * Base constructor.
+		 * 
+		 * @param algorithm classification algorithm
+		 * @param model expert model
+		 * @param trajectory trajectory to classify
+		 * @param samplingInterval sampling interval (null if not used)
+		 * @param timeStream time stream (null if not used)
+		 */
+		ExpertTask(IClassifyAlgorithm<TimeType, NodeType> algorithm, ICTClassifier<TimeType,NodeType> model, ITrajectory<TimeType> trajectory, TimeType samplingInterval, Vector<TimeType> timeStream) {
+			
+			this.algorithm = algorithm;
+			this.model = model;
+			this.trajectory = trajectory;
+			this.samplingInterval = samplingInterval;
+			this.timeStream = timeStream;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public IClassificationResult<TimeType> call() throws Exception {
+			
+			if( this.samplingInterval != null)
+				return this.algorithm.classify(this.model, this.trajectory, this.samplingInterval);
+			if( this.timeStream != null)
+				return this.algorithm.classify(this.model, this.trajectory, this.timeStream);
+			
+			return this.algorithm.classify(this.model, this.trajectory);
+		}
+	}
 }
@@ -13,13 +13,33 @@ package CTBNCToolkit;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Daniele Codecasa <codecasa.job@gmail.com>
  *
  * Learning algorithm for MultipleCTBNC models.
  *
+ * The experts learn from views of the training set
+ * that remap the class states (see ClassRemappedTrajectory),
+ * so the training set is not copied for each class. In
+ * continuous time the training set is encoded once with
+ * the state dictionary of the base model and shared by
+ * all the experts.
+ *
+ * If a learning algorithm is defined for each expert,
+ * the experts can be learned concurrently: the
+ * parallelism parameter bounds the number of experts
+ * learned at the same time, and then the memory used
+ * by the learning data.
+ *
  * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
  * @param <NodeType> node type
  */
@@ -29,6 +49,8 @@ public class MultipleCTBNCLearningAlgorithm<TimeType extends Number & Comparable
 	
 	private boolean[][] adjMStructure;
 	private ILearningAlgorithm<TimeType, NodeType> learningAlgorithm;
+	private List<ILearningAlgorithm<TimeType, NodeType>> learningAlgorithms;
+	private int parallelism;
 	
 	
 	/**
@@ -42,6 +64,33 @@ public class MultipleCTBNCLearningAlgorithm<TimeType extends Number & Comparable
 			throw new IllegalArgumentException("Error: null argument. A learning algorithm is required to learn the CTBNC models");
 		
 		this.learningAlgorithm = learningAlgorithm;
+		this.learningAlgorithms = null;
+		this.setDefaultParameters();
+	}
+
+
+	/**
+	 * Constructor with a learning algorithm for each
+	 * expert (the experts can be learned concurrently).
+	 * The algorithms must be different instances.
+	 *
+	 * @param learningAlgorithms algorithms to use to learn the models of the MultipleCTBNC (in the class order)
+	 */
+	public MultipleCTBNCLearningAlgorithm(List<ILearningAlgorithm<TimeType, NodeType>> learningAlgorithms) {
+
+		if( learningAlgorithms == null || learningAlgorithms.isEmpty())
+			throw new IllegalArgumentException("Error: null or empty argument. A learning algorithm for each expert is required to learn the CTBNC models");
+		for( int i = 0; i < learningAlgorithms.size(); ++i) {
+			if( learningAlgorithms.get(i) == null)
+				throw new IllegalArgumentException("Error: null learning algorithm for the expert " + i);
+			for( int j = 0; j < i; ++j)
+				if( learningAlgorithms.get(i) == learningAlgorithms.get(j))
+					throw new IllegalArgumentException("Error: the learning algorithms of the experts must be different instances");
+		}
+
+		this.learningAlgorithm = learningAlgorithms.get(0);
+		this.learningAlgorithms = new Vector<ILearningAlgorithm<TimeType, NodeType>>(learningAlgorithms);
+		this.setDefaultParameters();
 	}
 	
 
@@ -49,7 +98,31 @@ public class MultipleCTBNCLearningAlgorithm<TimeType extends Number & Comparable
 	 * @see CTBNToolkit.ILearningAlgorithm#setDefaultParameters()
 	 */
 	@Override
-	public void setDefaultParameters() { }
+	public void setDefaultParameters() {
+
+		this.parallelism = 1;
+
+		Map<String, Object> params = new TreeMap<String,Object>();
+		params.put("parallelism", this.parallelism);
+		super.setParameters(params);
+	}
+
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.LearningAlgorithm#setParameters(java.util.Map)
+	 */
+	@Override
+	public void setParameters(Map<String, Object> params) throws IllegalArgumentException {
+
+		super.setParameters(params);
+
+		// parallelism
+		Integer tmpInt = (Integer)params.get("parallelism");
+		if( tmpInt != null) {
+			if( tmpInt < 1)
+				throw new IllegalArgumentException("Error: the parallelism must be at least 1");
+			this.parallelism = tmpInt;
+		}
+	}
 
 	/* (non-Javadoc)
 	 * @see CTBNToolkit.ILearningAlgorithm#setStructure(boolean[][])
@@ -77,7 +150,8 @@ public class MultipleCTBNCLearningAlgorithm<TimeType extends Number & Comparable
 	public String helpParameters() {
 		
 		String helpStr = "";
-		helpStr += "Class MultipleCTBNCLearningAlgorithm does not require parameters\n";
+		helpStr += "Parameters class MultipleCTBNCLearningAlgorithm:\n";
+		helpStr += "parallelism: maximum number of experts learned at the same time (it bounds the memory used by the learning). It is used only if a learning algorithm is defined for each expert. [Default value = 1].\n";
 		
 		return helpStr;
 	}
@@ -94,22 +168,119 @@ public class MultipleCTBNCLearningAlgorithm<TimeType extends Number & Comparable
 			throw new RuntimeException("Error: MultipleCTBNCLearningAlgorithm can be used only over MultipleCTBNC models");
 		
 		MultipleCTBNC<TimeType, NodeType> mCTBNC = (MultipleCTBNC<TimeType, NodeType>) model; 
-		List<ILearningResults> learningResults = new Vector<ILearningResults>( mCTBNC.getNumberOfModel());
+		if( this.learningAlgorithms != null && this.learningAlgorithms.size() != mCTBNC.getNumberOfModel())
+			throw new IllegalArgumentException("Error: " + this.learningAlgorithms.size() + " learning algorithms for " + mCTBNC.getNumberOfModel() + " experts");
+
+		// Shared training set (encoded once in continuous time)
+		List<ITrajectory<TimeType>> sharedSet = new Vector<ITrajectory<TimeType>>(trainingSet.size());
+		StateDictionary dictionary = null;
+		if( mCTBNC.getBaseModel() instanceof CTBNClassifier)
+			dictionary = new StateDictionary( (CTBNClassifier) mCTBNC.getBaseModel());
+		Iterator<ITrajectory<TimeType>> trjIter = trainingSet.iterator();
+		while( trjIter.hasNext()) {
+			ITrajectory<TimeType> trj = trjIter.next();
+			if( dictionary != null)
+				trj = MultipleCTBNC.fromContinuousTime( CTEncodedTrajectory.encode( MultipleCTBNC.toContinuousTime(trj), dictionary), trj);
+			sharedSet.add( trj);
+		}
 		
 		// Learn each model expert
+		List<ExpertLearningTask<TimeType, NodeType>> tasks = new Vector<ExpertLearningTask<TimeType, NodeType>>( mCTBNC.getNumberOfModel());
 		for(int i = 0; i < mCTBNC.getNumberOfModel(); ++i) {
+			ILearningAlgorithm<TimeType, NodeType> algorithm = this.learningAlgorithms != null ? this.learningAlgorithms.get(i) : this.learningAlgorithm;
+			tasks.add( new ExpertLearningTask<TimeType, NodeType>(algorithm, mCTBNC, i, sharedSet, dictionary != null));
+		}
 			
-			// Generate the transformed training set
-			Collection<ITrajectory<TimeType>> newTrainingSet = new Vector<ITrajectory<TimeType>>(trainingSet.size());
-			Iterator<ITrajectory<TimeType>> trjIter = trainingSet.iterator();
-			while( trjIter.hasNext())
-				newTrainingSet.add( mCTBNC.generateClassTrajectory( trjIter.next(), i));
-			
-			// Learn the model expert
-			learningResults.add( this.learningAlgorithm.learn( mCTBNC.getModel(i), newTrainingSet));
+		List<ILearningResults> learningResults = new Vector<ILearningResults>( mCTBNC.getNumberOfModel());
+		int nThreads = this.learningAlgorithms != null ? Math.min(this.parallelism, tasks.size()) : 1;
+		if( nThreads <= 1) {
+			for( int i = 0; i < tasks.size(); ++i)
+				learningResults.add( tasks.get(i).call());
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+			List<Future<ILearningResults>> futures = new Vector<Future<ILearningResults>>(tasks.size());
+			try {
+				for( int i = 0; i < tasks.size(); ++i)
+					futures.add( executor.submit( tasks.get(i)));
+				for( int i = 0; i < futures.size(); ++i)
+					learningResults.add( futures.get(i).get());
+			} catch( ExecutionException e) {
+				if( e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if( e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new RuntimeException("Error: learning error (" + e.getCause() + ")");
+			} catch( InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Error: interrupted learning");
+			} finally {
+				for( int i = 0; i < futures.size(); ++i)
+					futures.get(i).cancel(true);
+				executor.shutdown();
+			}
 		}		
 		
 		return new MultipleCTBNCLearningResults( learningResults);
 	}
 
+
+	/**
+	 * Learning of one model expert. The views of
+	 * the training set are generated when the task
+	 * is executed.
+	 *
+	 * @param <TimeType> type of the time interval (Integer = discrete time, Double = continuous time)
+	 * @param <NodeType> node type
+	 */
+	private static class ExpertLearningTask<TimeType extends Number & Comparable<TimeType>, NodeType extends INode> implements Callable<ILearningResults> {
+
+		private final ILearningAlgorithm<TimeType, NodeType> algorithm;
+		private final MultipleCTBNC<TimeType, NodeType> model;
+		private final int classIndex;
+		private final List<ITrajectory<TimeType>> trainingSet;
+		private final boolean encoded;
+
+		/**
+		 * Base constructor.
+		 *
+		 * @param algorithm learning algorithm of the expert
+		 * @param model MultipleCTBNC model
+		 * @param classIndex class index of the expert
+		 * @param trainingSet shared training set
+		 * @param encoded true if the training set is encoded with the dictionary of the base model
+		 */
+		ExpertLearningTask(ILearningAlgorithm<TimeType, NodeType> algorithm, MultipleCTBNC<TimeType, NodeType> model, int classIndex, List<ITrajectory<TimeType>> trainingSet, boolean encoded) {
+
+			this.algorithm = algorithm;
+			this.model = model;
+			this.classIndex = classIndex;
+			this.trainingSet = trainingSet;
+			this.encoded = encoded;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public ILearningResults call() throws RuntimeException {
+
+			ICTClassifier<TimeType, NodeType> expert = this.model.getModel( this.classIndex);
+			Map<String,String> mapping = this.model.getClassMapping( this.classIndex);
+			StateDictionary dictionary = this.encoded ? new StateDictionary( (CTBNClassifier) expert) : null;
+
+			// Class views of the training set
+			Collection<ITrajectory<TimeType>> newTrainingSet = new Vector<ITrajectory<TimeType>>( this.trainingSet.size());
+			for( int i = 0; i < this.trainingSet.size(); ++i) {
+				ITrajectory<TimeType> trj = this.trainingSet.get(i);
+				if( this.encoded)
+					newTrainingSet.add( MultipleCTBNC.fromContinuousTime( new ClassRemappedEncodedTrajectory((IEncodedTrajectory) trj, mapping, dictionary), trj));
+				else
+					newTrainingSet.add( new ClassRemappedTrajectory<TimeType>(trj, mapping));
+			}
+
+			// Learn the model expert
+			return this.algorithm.learn( expert, newTrainingSet);
+		}
+	}
+
 }
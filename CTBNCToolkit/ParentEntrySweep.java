@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Class that keeps the current state and the current
+ * parent entry of each node during a sweep over a
+ * trajectory.
+ *
+ * The parent entries are calculated only when the
+ * sweep is initialized. When a node j changes from
+ * state a to state b only the parent entries of its
+ * children are updated adding (b-a)*stride, where
+ * stride is the multiplier of j in the parent list
+ * of the child (see ParentStrideTable).
+ *
+ * The sweep is a working object: it is not thread
+ * safe, but more sweeps can share the same stride
+ * table.
+ */
+public class ParentEntrySweep {
+
+	private final ParentStrideTable strides;
+	private final int[][] children;				// children of each node
+	private final int[][] childStrides;			// multiplier of each node in the parent list of its children
+	private final int[] state;					// current state of each node
+	private final int[] parentsEntry;			// current parent entry of each node
+
+
+	/**
+	 * Generate the sweep for the structure
+	 * described by the stride table in input.
+	 *
+	 * @param strides parent stride table of the model
+	 * @throws IllegalArgumentException if the stride table is null
+	 */
+	public ParentEntrySweep(ParentStrideTable strides) throws IllegalArgumentException {
+
+		if( strides == null)
+			throw new IllegalArgumentException("Error: null stride table argument");
+
+		this.strides = strides;
+		int nNodes = strides.getNodesNumber();
+
+		// Children and strides from the parent lists
+		int[] nChildren = new int[nNodes];
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			for( int i = 0; i < strides.getParentsNumber(iNode); ++i)
+				++nChildren[strides.getParentIndex(iNode, i)];
+		this.children = new int[nNodes][];
+		this.childStrides = new int[nNodes][];
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			this.children[iNode] = new int[nChildren[iNode]];
+			this.childStrides[iNode] = new int[nChildren[iNode]];
+			nChildren[iNode] = 0;
+		}
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			for( int i = 0; i < strides.getParentsNumber(iNode); ++i) {
+				int iParent = strides.getParentIndex(iNode, i);
+				this.children[iParent][nChildren[iParent]] = iNode;
+				this.childStrides[iParent][nChildren[iParent]] = strides.getMultiplier(iNode, i);
+				++nChildren[iParent];
+			}
+
+		this.state = new int[nNodes];
+		this.parentsEntry = new int[nNodes];
+	}
+
+	/**
+	 * Initialize the sweep with the states in input
+	 * and calculate all the parent entries.
+	 *
+	 * @param initialState state index of each node
+	 */
+	public void initialize(int[] initialState) {
+
+		System.arraycopy(initialState, 0, this.state, 0, this.state.length);
+		for( int iNode = 0; iNode < this.state.length; ++iNode)
+			this.parentsEntry[iNode] = this.strides.parentsEntry(iNode, this.state);
+	}
+
+	/**
+	 * Change the state of a node and update
+	 * the parent entries of its children.
+	 *
+	 * @param iNode index of the node
+	 * @param newState new state index of the node
+	 */
+	public void setState(int iNode, int newState) {
+
+		int delta = newState - this.state[iNode];
+		if( delta == 0)
+			return;
+
+		int[] ch = this.children[iNode];
+		int[] chStrides = this.childStrides[iNode];
+		for( int i = 0; i < ch.length; ++i)
+			this.parentsEntry[ch[i]] += delta * chStrides[i];
+		this.state[iNode] = newState;
+	}
+
+	/**
+	 * Return the current state of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return current state index
+	 */
+	public int getState(int iNode) {
+
+		return this.state[iNode];
+	}
+
+	/**
+	 * Return the current parent entry of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return current parent entry
+	 */
+	public int getParentsEntry(int iNode) {
+
+		return this.parentsEntry[iNode];
+	}
+
+	/**
+	 * Return the number of children of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return number of children
+	 */
+	public int getChildrenNumber(int iNode) {
+
+		return this.children[iNode].length;
+	}
+
+	/**
+	 * Return the index of a child of a node.
+	 *
+	 * @param iNode index of the node
+	 * @param iChild position of the child in the children list of the node
+	 * @return index of the child
+	 */
+	public int getChild(int iNode, int iChild) {
+
+		return this.children[iNode][iChild];
+	}
+
+	/**
+	 * Return the multiplier of a node in the
+	 * parent list of another node, or 0 if
+	 * it is not one of its parents.
+	 *
+	 * It allows to keep the state of a node
+	 * (e.g. the class) fixed to 0 in the sweep
+	 * and to add its contribution to the parent
+	 * entries only when they are read.
+	 *
+	 * @param iNode index of the node
+	 * @param iParent index of the possible parent
+	 * @return multiplier of the parent in the parent entry of the node
+	 */
+	public int getStride(int iNode, int iParent) {
+
+		for( int i = 0; i < this.strides.getParentsNumber(iNode); ++i)
+			if( this.strides.getParentIndex(iNode, i) == iParent)
+				return this.strides.getMultiplier(iNode, i);
+
+		return 0;
+	}
+
+	/**
+	 * Return the stride table used by the sweep.
+	 *
+	 * @return parent stride table
+	 */
+	public ParentStrideTable getStrideTable() {
+
+		return this.strides;
+	}
+}
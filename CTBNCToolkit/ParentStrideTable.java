@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Immutable table that calculates the parent entries
+ * of the nodes of a discrete model from a vector of
+ * state indexes, without using the evidences stored
+ * in the nodes.
+ *
+ * For each node the table stores the indexes of its
+ * parents and their multipliers (strides):
+ * pE = sum_i state[parentIdx[i]] * multiplier[i]
+ * where the multiplier of a parent is the product
+ * of the states numbers of the previous parents
+ * (the same ordering of getCurrentParentsEntry in
+ * CTDiscreteNode).
+ *
+ * The table is a snapshot of the model structure,
+ * so it has to be generated again if the structure
+ * changes. It can be shared between threads.
+ */
+public class ParentStrideTable {
+
+	private final int[][] parentIdx;			// indexes of the parents of each node
+	private final int[][] multiplier;			// multipliers of the parents of each node
+	private final int[][] parentStates;			// states number of the parents of each node
+	private final int[] entriesNumber;			// parent entries number of each node
+
+
+	/**
+	 * Generate the stride table of the model
+	 * in input.
+	 *
+	 * @param model model from which read the structure
+	 * @throws IllegalArgumentException if the model is not complete
+	 */
+	public ParentStrideTable(IModel<?, ? extends IDiscreteNode> model) throws IllegalArgumentException {
+
+		if( model == null)
+			throw new IllegalArgumentException("Error: null model argument");
+
+		NodeIndexing nodeIndexing = model.getNodeIndexing();
+		int nNodes = nodeIndexing.getNodesNumber();
+		this.parentIdx = new int[nNodes][];
+		this.multiplier = new int[nNodes][];
+		this.parentStates = new int[nNodes][];
+		this.entriesNumber = new int[nNodes];
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			IDiscreteNode node = model.getNode(iNode);
+			if( node == null)
+				throw new IllegalArgumentException("Error: not all the nodes defined in the general indexing are set");
+
+			int nParents = node.getParentsNumber();
+			this.parentIdx[iNode] = new int[nParents];
+			this.multiplier[iNode] = new int[nParents];
+			this.parentStates[iNode] = new int[nParents];
+			int parentMultiplier = 1;
+			for( int i = 0; i < nParents; ++i) {
+				IDiscreteNode parent = (IDiscreteNode) node.getParent(i);
+				this.parentIdx[iNode][i] = nodeIndexing.getIndex(parent.getName());
+				this.multiplier[iNode][i] = parentMultiplier;
+				this.parentStates[iNode][i] = parent.getStatesNumber();
+				parentMultiplier *= parent.getStatesNumber();
+			}
+			this.entriesNumber[iNode] = parentMultiplier;
+		}
+	}
+
+	/**
+	 * Return the number of nodes.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNodesNumber() {
+
+		return this.entriesNumber.length;
+	}
+
+	/**
+	 * Return the number of parents of a node.
+	 *
+	 * @param iNode index of the node
+	 * @return number of parents
+	 */
+	public int getParentsNumber(int iNode) {
+
+		return this.parentIdx[iNode].length;
+	}
+
+	/**
+	 * Return the index of a parent of a node.
+	 *
+	 * @param iNode index of the node
+	 * @param iParent position of the parent in the parent list of the node
+	 * @return index of the parent in the node indexing
+	 */
+	public int getParentIndex(int iNode, int iParent) {
+
+		return this.parentIdx[iNode][iParent];
+	}
+
+	/**
+	 * Return the multiplier (stride) of a parent
+	 * of a node.
+	 *
+	 * @param iNode index of the node
+	 * @param iParent position of the parent in the parent list of the node
+	 * @return multiplier of the parent
+	 */
+	public int getMultiplier(int iNode, int iParent) {
+
+		return this.multiplier[iNode][iParent];
+	}
+
+	/**
+	 * Return the number of parent entries of
+	 * a node.
+	 *
+	 * @param iNode index of the node
+	 * @return number of parent entries
+	 */
+	public int getParentEntriesNumber(int iNode) {
+
+		return this.entriesNumber[iNode];
+	}
+
+	/**
+	 * Calculate the parent entry of a node given
+	 * the states of all the nodes.
+	 *
+	 * @param iNode index of the node
+	 * @param state state index of each node (only the parents are read)
+	 * @return parent entry
+	 */
+	public int parentsEntry(int iNode, int[] state) {
+
+		int[] pa = this.parentIdx[iNode];
+		int[] mul = this.multiplier[iNode];
+		int entry = 0;
+		for( int i = 0; i < pa.length; ++i)
+			entry += state[pa[i]] * mul[i];
+
+		return entry;
+	}
+
+	/**
+	 * Return the state of a parent of a node
+	 * given a parent entry.
+	 *
+	 * @param iNode index of the node
+	 * @param iParent position of the parent in the parent list of the node
+	 * @param pE parent entry
+	 * @return state index of the parent
+	 */
+	public int getParentState(int iNode, int iParent, int pE) {
+
+		return (pE / this.multiplier[iNode][iParent]) % this.parentStates[iNode][iParent];
+	}
+
+	/**
+	 * Set in the state vector the states of the
+	 * parents of a node given a parent entry.
+	 *
+	 * @param iNode index of the node
+	 * @param pE parent entry
+	 * @param state state index of each node (only the parents are written)
+	 * @throws IllegalArgumentException if the parent entry is out of range
+	 */
+	public void setParentsState(int iNode, int pE, int[] state) throws IllegalArgumentException {
+
+		if( pE < 0 || pE >= this.entriesNumber[iNode])
+			throw new IllegalArgumentException("Error: parent entry " + pE + " out of range");
+
+		int[] pa = this.parentIdx[iNode];
+		for( int i = 0; i < pa.length; ++i)
+			state[pa[i]] = this.getParentState(iNode, i, pE);
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import java.util.*;
+
+/**
+ *
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Immutable dictionary that associates to each
+ * node (in the global node indexing order) the
+ * list of its states. It is used to encode the
+ * node values of the trajectories as state
+ * indexes.
+ */
+public class StateDictionary {
+
+	private String[][] states;
+	private List<Map<String,Integer>> stateToIndex;
+
+	/**
+	 * Constructor that generate the dictionary
+	 * from the states of the nodes of a model.
+	 *
+	 * @param model model from which take the states
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public StateDictionary(IModel<?, ? extends IDiscreteNode> model) throws IllegalArgumentException {
+
+		if( model == null)
+			throw new IllegalArgumentException("Error: null model argument");
+
+		int nNodes = model.getNodeIndexing().getNodesNumber();
+		this.states = new String[nNodes][];
+		for(int iNode = 0; iNode < nNodes; ++iNode) {
+			IDiscreteNode node = model.getNode(iNode);
+			this.states[iNode] = new String[node.getStatesNumber()];
+			for(int iState = 0; iState < this.states[iNode].length; ++iState)
+				this.states[iNode][iState] = node.getStateName(iState);
+		}
+		this.generateIndexes();
+	}
+
+	/**
+	 * Constructor that generate the dictionary
+	 * from the states found in a dataset. The
+	 * order of the states is the iteration order
+	 * of the sets.
+	 *
+	 * @param nodeIndexing global node indexing
+	 * @param statesForNode states of each node (indexed by node name)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public StateDictionary(NodeIndexing nodeIndexing, Map<String,Set<String>> statesForNode) throws IllegalArgumentException {
+
+		if( nodeIndexing == null)
+			throw new IllegalArgumentException("Error: null nodeIndexing argument");
+		if( statesForNode == null)
+			throw new IllegalArgumentException("Error: null statesForNode argument");
+
+		int nNodes = nodeIndexing.getNodesNumber();
+		this.states = new String[nNodes][];
+		for(int iNode = 0; iNode < nNodes; ++iNode) {
+			Set<String> nodeStates = statesForNode.get( nodeIndexing.getName(iNode));
+			if( nodeStates == null)
+				this.states[iNode] = new String[0];
+			else
+				this.states[iNode] = nodeStates.toArray( new String[nodeStates.size()]);
+		}
+		this.generateIndexes();
+	}
+
+	/**
+	 * Generate the maps used to find the
+	 * state indexes.
+	 */
+	private void generateIndexes() {
+
+		this.stateToIndex = new Vector<Map<String,Integer>>(this.states.length);
+		for(int iNode = 0; iNode < this.states.length; ++iNode) {
+			Map<String,Integer> indexes = new HashMap<String,Integer>();
+			for(int iState = 0; iState < this.states[iNode].length; ++iState)
+				if( indexes.put(this.states[iNode][iState], iState) != null)
+					throw new IllegalArgumentException("Error: duplicated state " + this.states[iNode][iState] + " for the node " + iNode);
+			this.stateToIndex.add(indexes);
+		}
+	}
+
+	/**
+	 * Return the number of nodes.
+	 *
+	 * @return number of nodes in the dictionary
+	 */
+	public int getNodesNumber() {
+
+		return this.states.length;
+	}
+
+	/**
+	 * Return the number of states of a node.
+	 *
+	 * @param iNode node index
+	 * @return number of states of the node
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public int getStatesNumber(int iNode) throws IllegalArgumentException {
+
+		if( iNode < 0 || iNode >= this.states.length)
+			throw new IllegalArgumentException("Error: node index out of bound");
+
+		return this.states[iNode].length;
+	}
+
+	/**
+	 * Return the name of a state.
+	 *
+	 * @param iNode node index
+	 * @param iState state index
+	 * @return name of the state
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public String getStateName(int iNode, int iState) throws IllegalArgumentException {
+
+		if( iNode < 0 || iNode >= this.states.length)
+			throw new IllegalArgumentException("Error: node index out of bound");
+		if( iState < 0 || iState >= this.states[iNode].length)
+			throw new IllegalArgumentException("Error: state index out of bound");
+
+		return this.states[iNode][iState];
+	}
+
+	/**
+	 * Return the index of a state.
+	 *
+	 * @param iNode node index
+	 * @param stateName name of the state
+	 * @return index of the state, -1 if the state is not in the dictionary
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public int getStateIndex(int iNode, String stateName) throws IllegalArgumentException {
+
+		if( iNode < 0 || iNode >= this.states.length)
+			throw new IllegalArgumentException("Error: node index out of bound");
+
+		Integer iState = this.stateToIndex.get(iNode).get(stateName);
+		if( iState == null)
+			return -1;
+
+		return iState;
+	}
+
+	/**
+	 * Return the tables to translate the state
+	 * indexes of this dictionary in the state
+	 * indexes of the target dictionary.
+	 * map[iNode][iState] is -1 if the state is
+	 * not present in the target dictionary.
+	 *
+	 * @param target target dictionary
+	 * @return translation tables, null if the two dictionaries are equal
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public int[][] getMapping(StateDictionary target) throws IllegalArgumentException {
+
+		if( target == null)
+			throw new IllegalArgumentException("Error: null target dictionary");
+		if( target.states.length != this.states.length)
+			throw new IllegalArgumentException("Error: the dictionaries have a different number of nodes");
+		if( target == this || Arrays.deepEquals(target.states, this.states))
+			return null;
+
+		int[][] map = new int[this.states.length][];
+		for(int iNode = 0; iNode < this.states.length; ++iNode) {
+			map[iNode] = new int[this.states[iNode].length];
+			for(int iState = 0; iState < this.states[iNode].length; ++iState)
+				map[iNode][iState] = target.getStateIndex(iNode, this.states[iNode][iState]);
+		}
+
+		return map;
+	}
+
+}
@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Online classification session: the transitions
+ * of a trajectory are consumed one by one as they
+ * arrive and the class distribution is available
+ * after each of them.
+ *
+ * The session keeps the log posterior of each class
+ * (up to a constant, shifted so that the maximum is
+ * 0 after each update) and the sum of the q_xx given
+ * each class, so each update costs O(changed node and
+ * its children) per class and it does not allocate
+ * memory. The distribution is calculated only when it
+ * is read, through the log-sum-exp normalization.
+ *
+ * A session is not thread safe, but more sessions can
+ * share the same compiled model.
+ */
+public class StreamingClassificationSession {
+
+	private final CompiledCTBNClassifier model;
+	private final boolean pruning;
+	private final ParentEntrySweep sweep;
+	private final int classIndex;
+	private final int nClasses;
+	private final int[] state;					// initial state buffer
+	private final double[] logP;				// log posterior of each class up to a constant (maximum equal to 0)
+	private final double[][] qStay;				// q_xx of each continuous time node given each class
+	private final double[] qStaySum;			// sum of q_xx over all the evaluated continuous time nodes given each class
+	private double time;
+	private boolean started;
+
+
+	/**
+	 * Generate a session for the model in input
+	 * (using its cached compiled form).
+	 *
+	 * @param model model to use
+	 * @throws IllegalArgumentException if the model is null
+	 * @throws RuntimeException if the model is not valid
+	 */
+	public StreamingClassificationSession(CTBNClassifier model) throws IllegalArgumentException, RuntimeException {
+
+		this(model == null ? null : model.compile(), false);
+	}
+
+	/**
+	 * Generate a session for the compiled model
+	 * in input.
+	 *
+	 * @param model compiled model
+	 * @param pruning true to evaluate only the class relevant nodes
+	 * @throws IllegalArgumentException if the model is null
+	 */
+	public StreamingClassificationSession(CompiledCTBNClassifier model, boolean pruning) throws IllegalArgumentException {
+
+		if( model == null)
+			throw new IllegalArgumentException("Error: null model argument");
+
+		this.model = model;
+		this.pruning = pruning;
+		this.sweep = new ParentEntrySweep(model.getStrideTable());
+		this.classIndex = model.getClassIndex();
+		this.nClasses = model.getClassStatesNumber();
+		int nNodes = model.getNodeIndexing().getNodesNumber();
+		this.state = new int[nNodes];
+		this.logP = new double[this.nClasses];
+		this.qStay = new double[this.nClasses][nNodes];
+		this.qStaySum = new double[this.nClasses];
+		this.started = false;
+	}
+
+	/**
+	 * Start the session with the initial state
+	 * of the nodes (the class state is ignored).
+	 * A session can be restarted to classify
+	 * another trajectory.
+	 *
+	 * @param time initial time
+	 * @param states state index of each node
+	 * @throws IllegalArgumentException in case of illegal states
+	 */
+	public void start(double time, int[] states) throws IllegalArgumentException {
+
+		if( states == null || states.length != this.state.length)
+			throw new IllegalArgumentException("Error: the initial state must have a value for each node");
+		for( int iNode = 0; iNode < this.state.length; ++iNode) {
+			if( iNode == this.classIndex) {
+				this.state[iNode] = 0;
+				continue;
+			}
+			if( states[iNode] < 0 || states[iNode] >= this.model.getStatesNumber(iNode))
+				throw new IllegalArgumentException("Error: state index out of bound for node " + this.model.getNodeIndexing().getName(iNode));
+			this.state[iNode] = states[iNode];
+		}
+		this.sweep.initialize(this.state);
+
+		for( int iClass = 0; iClass < this.nClasses; ++iClass) {
+			this.logP[iClass] = 0.0;
+			this.qStaySum[iClass] = 0.0;
+			for( int iNode = 0; iNode < this.state.length; ++iNode) {
+				if( !this.evaluated(iNode))
+					continue;
+				int pE = this.sweep.getParentsEntry(iNode) + iClass * this.model.getClassStride(iNode);
+				if( this.model.isStaticNode(iNode))
+					this.logP[iClass] += this.model.getLogCIMValue(iNode, pE, 0, iNode == this.classIndex ? iClass : this.sweep.getState(iNode));
+				else if( iNode != this.classIndex) {
+					this.qStay[iClass][iNode] = this.model.getDiagonalRate(iNode, pE, this.sweep.getState(iNode));
+					this.qStaySum[iClass] += this.qStay[iClass][iNode];
+				}
+			}
+		}
+		this.normalize();
+		this.time = time;
+		this.started = true;
+	}
+
+	/**
+	 * Start the session with the initial values
+	 * of the nodes (the class value is ignored).
+	 *
+	 * @param time initial time
+	 * @param values value of each node (indexed as the node indexing)
+	 * @throws IllegalArgumentException in case of illegal values
+	 */
+	public void start(double time, String[] values) throws IllegalArgumentException {
+
+		if( values == null || values.length != this.state.length)
+			throw new IllegalArgumentException("Error: the initial state must have a value for each node");
+
+		int[] states = new int[values.length];
+		for( int iNode = 0; iNode < values.length; ++iNode)
+			if( iNode != this.classIndex)
+				states[iNode] = this.stateIndex(iNode, values[iNode]);
+		this.start(time, states);
+	}
+
+	/**
+	 * Move the session to a new time
+	 * without changes in the nodes.
+	 *
+	 * @param time new time
+	 * @throws IllegalArgumentException if the time is before the current time
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public void advance(double time) throws IllegalArgumentException, IllegalStateException {
+
+		if( !this.started)
+			throw new IllegalStateException("Error: the session is not started");
+		if( time < this.time)
+			throw new IllegalArgumentException("Error: the time " + time + " is before the current time " + this.time);
+
+		double deltaT = time - this.time;
+		if( deltaT > 0) {
+			for( int iClass = 0; iClass < this.nClasses; ++iClass)
+				this.logP[iClass] += this.qStaySum[iClass] * deltaT;
+			this.normalize();
+		}
+		this.time = time;
+	}
+
+	/**
+	 * Update the session with a transition of
+	 * a node.
+	 *
+	 * @param time time of the transition
+	 * @param iNode index of the changed node
+	 * @param newState new state index of the node
+	 * @throws IllegalArgumentException in case of illegal transition
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public void update(double time, int iNode, int newState) throws IllegalArgumentException, IllegalStateException {
+
+		if( !this.started)
+			throw new IllegalStateException("Error: the session is not started");
+		if( iNode < 0 || iNode >= this.state.length)
+			throw new IllegalArgumentException("Error: node index out of bound");
+		if( iNode == this.classIndex)
+			throw new IllegalArgumentException("Error: the class node can not change its value");
+		if( this.model.isStaticNode(iNode))
+			throw new IllegalArgumentException("Error: static nodes can not change their value in the trajectory");
+		if( newState < 0 || newState >= this.model.getStatesNumber(iNode))
+			throw new IllegalArgumentException("Error: state index out of bound for node " + this.model.getNodeIndexing().getName(iNode));
+
+		this.advance(time);
+		int oldState = this.sweep.getState(iNode);
+		if( oldState == newState)
+			return;
+
+		// Jump contribution: log(q_xx')
+		if( this.evaluated(iNode))
+			for( int iClass = 0; iClass < this.nClasses; ++iClass)
+				this.logP[iClass] += this.model.getLogCIMValue(iNode, this.sweep.getParentsEntry(iNode) + iClass * this.model.getClassStride(iNode), oldState, newState);
+
+		// Update q_xx of the node and of its children
+		this.sweep.setState(iNode, newState);
+		this.updateQStay(iNode);
+		for( int iChild = 0; iChild < this.sweep.getChildrenNumber(iNode); ++iChild) {
+			int iChildNode = this.sweep.getChild(iNode, iChild);
+			if( iChildNode != this.classIndex && !this.model.isStaticNode(iChildNode))
+				this.updateQStay(iChildNode);
+		}
+		this.normalize();
+	}
+
+	/**
+	 * Update the session with a transition of
+	 * a node.
+	 *
+	 * @param time time of the transition
+	 * @param nodeName name of the changed node
+	 * @param stateName new state of the node
+	 * @throws IllegalArgumentException in case of illegal transition
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public void update(double time, String nodeName, String stateName) throws IllegalArgumentException, IllegalStateException {
+
+		Integer iNode = this.model.getNodeIndexing().getIndex(nodeName);
+		if( iNode == null)
+			throw new IllegalArgumentException("Error: node " + nodeName + " didn't find");
+		this.update(time, iNode, this.stateIndex(iNode, stateName));
+	}
+
+	/**
+	 * Write the class distribution in the array
+	 * in input (indexed as the class states).
+	 *
+	 * @param p array where to write the distribution
+	 * @throws IllegalArgumentException if the array size is wrong
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public void posterior(double[] p) throws IllegalArgumentException, IllegalStateException {
+
+		if( !this.started)
+			throw new IllegalStateException("Error: the session is not started");
+		if( p == null || p.length != this.nClasses)
+			throw new IllegalArgumentException("Error: the distribution array must have " + this.nClasses + " values");
+
+		double sum = 0.0;
+		for( int iClass = 0; iClass < this.nClasses; ++iClass) {
+			p[iClass] = Math.exp(this.logP[iClass]);				// the maximum is 0
+			sum += p[iClass];
+		}
+		for( int iClass = 0; iClass < this.nClasses; ++iClass)
+			p[iClass] /= sum;
+	}
+
+	/**
+	 * Return the class distribution (indexed
+	 * as the class states).
+	 *
+	 * @return class distribution
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public double[] posterior() throws IllegalStateException {
+
+		double[] p = new double[this.nClasses];
+		this.posterior(p);
+
+		return p;
+	}
+
+	/**
+	 * Write the logarithm of the class distribution
+	 * in the array in input (indexed as the class
+	 * states).
+	 *
+	 * @param logP array where to write the log distribution
+	 * @throws IllegalArgumentException if the array size is wrong
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public void logPosterior(double[] logP) throws IllegalArgumentException, IllegalStateException {
+
+		if( !this.started)
+			throw new IllegalStateException("Error: the session is not started");
+		if( logP == null || logP.length != this.nClasses)
+			throw new IllegalArgumentException("Error: the distribution array must have " + this.nClasses + " values");
+
+		double sum = 0.0;
+		for( int iClass = 0; iClass < this.nClasses; ++iClass)
+			sum += Math.exp(this.logP[iClass]);
+		double logSum = Math.log(sum);
+		for( int iClass = 0; iClass < this.nClasses; ++iClass)
+			logP[iClass] = this.logP[iClass] - logSum;
+	}
+
+	/**
+	 * Return the most likely class.
+	 *
+	 * @return name of the most likely class state
+	 * @throws IllegalStateException if the session is not started
+	 */
+	public String getClassification() throws IllegalStateException {
+
+		if( !this.started)
+			throw new IllegalStateException("Error: the session is not started");
+
+		int iBest = 0;
+		for( int iClass = 1; iClass < this.nClasses; ++iClass)
+			if( this.logP[iClass] > this.logP[iBest])
+				iBest = iClass;
+
+		return this.model.getClassStateName(iBest);
+	}
+
+	/**
+	 * Return the current time of the session.
+	 *
+	 * @return current time
+	 */
+	public double getTime() {
+
+		return this.time;
+	}
+
+	/**
+	 * True if the session is started.
+	 *
+	 * @return true if the session is started
+	 */
+	public boolean isStarted() {
+
+		return this.started;
+	}
+
+	/**
+	 * Return the compiled model of the session.
+	 *
+	 * @return compiled model
+	 */
+	public CompiledCTBNClassifier getModel() {
+
+		return this.model;
+	}
+
+	/**
+	 * True if the contribution of the node
+	 * is evaluated.
+	 *
+	 * @param iNode index of the node
+	 * @return true if the node is evaluated
+	 */
+	private boolean evaluated(int iNode) {
+
+		return !this.pruning || this.model.isClassRelevant(iNode);
+	}
+
+	/**
+	 * Update the q_xx of a continuous time node
+	 * with its current state and parent entry.
+	 *
+	 * @param iNode index of the node
+	 */
+	private void updateQStay(int iNode) {
+
+		if( !this.evaluated(iNode))
+			return;
+
+		for( int iClass = 0; iClass < this.nClasses; ++iClass) {
+			double q = this.model.getDiagonalRate(iNode, this.sweep.getParentsEntry(iNode) + iClass * this.model.getClassStride(iNode), this.sweep.getState(iNode));
+			this.qStaySum[iClass] += q - this.qStay[iClass][iNode];
+			this.qStay[iClass][iNode] = q;
+		}
+	}
+
+	/**
+	 * Shift the log posteriors so that the
+	 * maximum is 0.
+	 */
+	private void normalize() {
+
+		double max = Double.NEGATIVE_INFINITY;
+		for( int iClass = 0; iClass < this.nClasses; ++iClass)
+			max = Math.max(max, this.logP[iClass]);
+		if( Double.isInfinite(max))
+			return;
+
+		for( int iClass = 0; iClass < this.nClasses; ++iClass)
+			this.logP[iClass] -= max;
+	}
+
+	/**
+	 * Return the index of a state of a node.
+	 *
+	 * @param iNode index of the node
+	 * @param stateName name of the state
+	 * @return state index
+	 * @throws IllegalArgumentException if the state is not found
+	 */
+	private int stateIndex(int iNode, String stateName) throws IllegalArgumentException {
+
+		int iState = this.model.getStateDictionary().getStateIndex(iNode, stateName);
+		if( iState == -1)
+			throw new IllegalArgumentException("Error: State " + stateName + " didn't find!");
+
+		return iState;
+	}
+}
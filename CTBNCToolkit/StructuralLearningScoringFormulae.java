@@ -48,31 +48,103 @@ public class StructuralLearningScoringFormulae {
 		if( node.isStaticNode())
 			throw new IllegalArgumentException("Error: this scoring function is not defined for static nodes");
 		
-		double llScore = 0.0;
 		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
 		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
 		
 		SufficientStatistics[] ss = paramsLearningAlg.learn(model, dataset).getSufficientStatistics();
 		
+		return logLikelihoodScore(ss[nodeIndex], mxx, tx, dimensionPenalty, dataset.size());
+	}
+	
+	/**
+	 * Calculate the log-likelihood scoring of a node
+	 * with the family sufficient statistics: only the
+	 * statistics of the node given its parents in the
+	 * structure are calculated (the model is not
+	 * cloned and no CIM is generated). The score is
+	 * the same calculated learning the parameters of
+	 * a model with the structure in input.
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param nodeIndex index of the node that we are evaluating
+	 * @param adjMatrix structure to evaluate
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise 
+	 * @return log likelihood scoring
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static double logLikelihoodScore(FamilyStatistics stats, int nodeIndex, boolean[][] adjMatrix,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg,
+			boolean dimensionPenalty) throws RuntimeException {
+		
+		SufficientStatistics ss = familyStatistics(stats, nodeIndex, adjMatrix, paramsLearningAlg);
+		
+		return logLikelihoodScore(stats, ss, paramsLearningAlg, dimensionPenalty);
+	}
+	
+	/**
+	 * Calculate the log-likelihood scoring of a node
+	 * from its family sufficient statistics (e.g.
+	 * calculated by familyStatistics or removeParent).
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param ss sufficient statistics of the node family
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise 
+	 * @return log likelihood scoring
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static double logLikelihoodScore(FamilyStatistics stats, SufficientStatistics ss,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg,
+			boolean dimensionPenalty) throws RuntimeException {
+		
+		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
+		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
+		
+		return logLikelihoodScore(ss, mxx, tx, dimensionPenalty, stats.getTrajectoriesNumber());
+	}
+	
+	/**
+	 * Calculate the log-likelihood scoring of a node
+	 * directly from its sufficient statistics (e.g.
+	 * calculated by FamilyStatistics).
+	 * 
+	 * @param ss sufficient statistics of the node (with the priors)
+	 * @param mxx prior used for M[x,x'|u]
+	 * @param tx prior used for T[x|u]
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise 
+	 * @param datasetSize number of trajectories in the dataset
+	 * @return log likelihood scoring
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static double logLikelihoodScore(SufficientStatistics ss, double mxx, double tx, boolean dimensionPenalty, int datasetSize) throws IllegalArgumentException {
+		
+		if( ss == null || !ss.isSet() || ss.isStatic())
+			throw new IllegalArgumentException("Error: this scoring function is defined only for the sufficient statistics of continuous time nodes");
+		
+		int nStates = ss.statesNumber();
+		int nPE = ss.parentEntriesNumber();
+		double llScore = 0.0;
+		
 		// Marginal value calculation
-		double mx = mxx*(node.getStatesNumber() - 1);
-		for(int fsE = 0; fsE < node.getStatesNumber(); ++fsE) {
-			for(int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+		double mx = mxx*(nStates - 1);
+		for(int fsE = 0; fsE < nStates; ++fsE) {
+			for(int pE = 0; pE < nPE; ++pE) {
 				
 				// Calculate MargLq (q-value)
-				llScore += Gamma.logGamma( ss[nodeIndex].Mx[pE][fsE] + 1);
+				llScore += Gamma.logGamma( ss.Mx[pE][fsE] + 1);
 				llScore += (mx + 1) * Math.log( tx);
 				llScore -= Gamma.logGamma( mx + 1);
-				llScore -= (ss[nodeIndex].Mx[pE][fsE] + 1) * Math.log( ss[nodeIndex].Tx[pE][fsE]);
+				llScore -= (ss.Mx[pE][fsE] + 1) * Math.log( ss.Tx[pE][fsE]);
 				
 				// Calculate MargLth (theta)
 				llScore += Gamma.logGamma( mx);
-				llScore -= Gamma.logGamma( ss[nodeIndex].Mx[pE][fsE]);
-				for(int ssE = 0; ssE < node.getStatesNumber(); ++ssE) {
+				llScore -= Gamma.logGamma( ss.Mx[pE][fsE]);
+				for(int ssE = 0; ssE < nStates; ++ssE) {
 					if( fsE == ssE)
 						continue;
 					
-					llScore += Gamma.logGamma( ss[nodeIndex].Mxx[pE][fsE][ssE]);
+					llScore += Gamma.logGamma( ss.Mxx[pE][fsE][ssE]);
 					llScore -= Gamma.logGamma( mxx);
 				}
 			}
@@ -80,8 +152,8 @@ public class StructuralLearningScoringFormulae {
 		
 		// llScore = llScore - ln|X|*Dim[X]/2
 		if( dimensionPenalty) {
-			double dimX = (node.getStatesNumber() - 1) * node.getStatesNumber() * node.getNumberParentsEntries();
-			llScore -= Math.log( dataset.size()) * dimX / 2;
+			double dimX = (nStates - 1) * nStates * nPE;
+			llScore -= Math.log( datasetSize) * dimX / 2;
 		}
 		
 		return llScore;
@@ -134,30 +206,160 @@ public class StructuralLearningScoringFormulae {
 		// of the class node is a parent of successor
 		// of the class node.
 		double[] tmpcim = classNode.getCIM(0)[0];					// normalization factor for each class
-		double[] norm = new double[tmpcim.length];
+		ParentStrideTable strides = new ParentStrideTable(model);	// to read the class state from the parent entries
+		int classParent = node.getParentIndex( classNode.getName());
+		int[] classStates = new int[node.getNumberParentsEntries()];
+		double[][][] cims = new double[node.getNumberParentsEntries()][][];
+		for(int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+			classStates[pE] = strides.getParentState(nodeIndex, classParent, pE);	// get the class state index
+			cims[pE] = node.getCIM(pE);								// get the cim
+		}
+		
+		return conditionalLogLikelihoodScore(ss[nodeIndex], cims, tmpcim, classStates, dimensionPenalty, dataset.size());
+	}
+	
+	/**
+	 * Calculate the conditional log-likelihood scoring
+	 * with the family sufficient statistics (see
+	 * logLikelihoodScore with the family statistics).
+	 * The CIMs of the node and the class distribution
+	 * are calculated from the statistics as the
+	 * parameter learning algorithm does.
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param nodeIndex index of the node that we are evaluating
+	 * @param classIndex index of the class node
+	 * @param adjMatrix structure to evaluate
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise
+	 * @return conditional log-likelihood scoring
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static double conditionalLogLikelihoodScore(FamilyStatistics stats, int nodeIndex, int classIndex, boolean[][] adjMatrix,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg,
+			boolean dimensionPenalty) throws RuntimeException {
+		
+		// The statistics are not required if the
+		// node has not the class as parent
+		SufficientStatistics ss = null;
+		if( classIndex >= 0 && adjMatrix[classIndex][nodeIndex])
+			ss = familyStatistics(stats, nodeIndex, adjMatrix, paramsLearningAlg);
+		
+		return conditionalLogLikelihoodScore(stats, ss, nodeIndex, classIndex, adjMatrix, paramsLearningAlg, dimensionPenalty);
+	}
+	
+	/**
+	 * Calculate the conditional log-likelihood scoring
+	 * from the family sufficient statistics of the node
+	 * (e.g. calculated by familyStatistics or removeParent).
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param ss sufficient statistics of the node family (not used if the node has not the class as parent)
+	 * @param nodeIndex index of the node that we are evaluating
+	 * @param classIndex index of the class node
+	 * @param adjMatrix structure to evaluate
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise
+	 * @return conditional log-likelihood scoring
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static double conditionalLogLikelihoodScore(FamilyStatistics stats, SufficientStatistics ss, int nodeIndex, int classIndex, boolean[][] adjMatrix,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg,
+			boolean dimensionPenalty) throws RuntimeException {
+		
+		if( paramsLearningAlg.getStructure() != null)
+			throw new RuntimeException("Error: parameter algorithm used in the scoring function for structural learning can not have structure setted");
+		
+		if( classIndex < 0)
+			throw new RuntimeException("Error: the conditional log-likelihood scoring requires a class node");
+		
+		// If the node has not the class as parent
+		// its contribute (score) is 0
+		if( !adjMatrix[classIndex][nodeIndex])
+			return 0.0;
+		for( int iNode = 0; iNode < adjMatrix.length; ++iNode)
+			if( adjMatrix[iNode][classIndex])
+				throw new RuntimeException("Error: this version of the algorithm doesn't work with classes that have parents");
+		
+		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
+		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
+		double px = (Double) paramsLearningAlg.getParameter("Px_prior");
+		
+		// Class distribution
+		SufficientStatistics classSS = stats.calculate(classIndex, new boolean[adjMatrix.length], px, mxx, tx);
+		if( !(classSS.counts[0] > 0))
+			throw new RuntimeException("Error: unexpected error in CIM validation for the class node (the inserting of the priors imaginary counts can solve this exception)");
+		double[] classDistribution = new double[classSS.statesNumber()];
+		for( int sE = 0; sE < classDistribution.length; ++sE)
+			classDistribution[sE] = classSS.Px[0][0][sE] / classSS.counts[0];
+		
+		// CIMs of the node
+		if( ss == null)
+			throw new IllegalArgumentException("Error: null sufficient statistics argument");
+		int nStates = ss.statesNumber();
+		double[][][] cims = new double[ss.parentEntriesNumber()][nStates][nStates];
+		int[] classStates = new int[ss.parentEntriesNumber()];
+		boolean[] parents = getParents(adjMatrix, nodeIndex);
+		for( int pE = 0; pE < cims.length; ++pE) {
+			classStates[pE] = stats.getParentState(parents, classIndex, pE);
+			for( int fsE = 0; fsE < nStates; ++fsE) {
+				cims[pE][fsE][fsE] = -ss.Mx[pE][fsE] /  ss.Tx[pE][fsE];
+				for( int ssE = 0; ssE < nStates; ++ssE)
+					if( fsE != ssE)
+						cims[pE][fsE][ssE] = ss.Mxx[pE][fsE][ssE] / ss.Tx[pE][fsE];
+			}
+		}
+		
+		return conditionalLogLikelihoodScore(ss, cims, classDistribution, classStates, dimensionPenalty, stats.getTrajectoriesNumber());
+	}
+	
+	/**
+	 * Calculate the conditional log-likelihood scoring
+	 * of a node that has the class as parent directly
+	 * from its sufficient statistics and CIMs (e.g.
+	 * calculated by FamilyStatistics).
+	 * 
+	 * @param ss sufficient statistics of the node (with the priors)
+	 * @param cims CIM of each parent entry of the node
+	 * @param classDistribution probability distribution of the class
+	 * @param classStates class state of each parent entry of the node
+	 * @param dimensionPenalty true if the scoring of the individual has to give a penalty related to the dimension of the structure, false otherwise
+	 * @param datasetSize number of trajectories in the dataset
+	 * @return conditional log-likelihood scoring
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static double conditionalLogLikelihoodScore(SufficientStatistics ss, double[][][] cims, double[] classDistribution, int[] classStates, boolean dimensionPenalty, int datasetSize) throws IllegalArgumentException {
+		
+		if( ss == null || !ss.isSet() || ss.isStatic())
+			throw new IllegalArgumentException("Error: this scoring function is defined only for the sufficient statistics of continuous time nodes");
+		if( cims.length != ss.parentEntriesNumber() || classStates.length != ss.parentEntriesNumber())
+			throw new IllegalArgumentException("Error: a CIM and a class state are required for each parent entry");
+		
+		int nStates = ss.statesNumber();
+		int nPE = ss.parentEntriesNumber();
+		double[] norm = new double[classDistribution.length];
 		for( int i = 0; i < norm.length; ++i)
-			norm[i] = tmpcim[i];
+			norm[i] = classDistribution[i];
 		double score = 0.0;											// scoring
 		double tmp;
 		
 		// Scoring calculation		
-		for(int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+		for(int pE = 0; pE < nPE; ++pE) {
 			
-			node.setParentsEntry( pE);								// set the parents' values
-			double[][] cim = node.getCIM(pE);						// get the cim
-			int clStateIndex = classNode.getCurrentStateIndex();	// get the class state index
+			double[][] cim = cims[pE];
+			int clStateIndex = classStates[pE];
 			
 			tmp = 0.0;			
-			for(int fsE = 0; fsE < node.getStatesNumber(); ++fsE) {
+			for(int fsE = 0; fsE < nStates; ++fsE) {
 				
-				tmp += ss[nodeIndex].Mx[pE][fsE] * Math.log(-cim[fsE][fsE]);
-				tmp += cim[fsE][fsE] * ss[nodeIndex].Tx[pE][fsE];
+				tmp += ss.Mx[pE][fsE] * Math.log(-cim[fsE][fsE]);
+				tmp += cim[fsE][fsE] * ss.Tx[pE][fsE];
 				
-				for(int ssE = 0; ssE < node.getStatesNumber(); ++ssE) {
+				for(int ssE = 0; ssE < nStates; ++ssE) {
 					if( fsE == ssE)
 						continue;
 					
-					tmp += ss[nodeIndex].Mxx[pE][fsE][ssE] * Math.log(cim[fsE][ssE]/(-cim[fsE][fsE]));
+					tmp += ss.Mxx[pE][fsE][ssE] * Math.log(cim[fsE][ssE]/(-cim[fsE][fsE]));
 				}
 			}
 			score += tmp;
@@ -182,10 +384,132 @@ public class StructuralLearningScoringFormulae {
 
 		// score = score - ln|X|*Dim[X]/2
 		if( dimensionPenalty) {
-			double dimX = (node.getStatesNumber() - 1) * node.getStatesNumber() * node.getNumberParentsEntries();
-			score -= Math.log( dataset.size()) * dimX / 2;
+			double dimX = (nStates - 1) * nStates * nPE;
+			score -= Math.log( datasetSize) * dimX / 2;
 		}
 		
 		return score;
 	}
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * a continuous time node given its parents in
+	 * the structure. As in the parameter learning,
+	 * the time spent in each state must be positive
+	 * to define the CIMs.
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @return sufficient statistics of the node
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static SufficientStatistics familyStatistics(FamilyStatistics stats, int nodeIndex, boolean[][] adjMatrix,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg) throws RuntimeException {
+		
+		if( paramsLearningAlg.getStructure() != null)
+			throw new RuntimeException("Error: parameter algorithm used in the scoring function for structural learning can not have structure setted");
+		
+		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
+		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
+		double px = (Double) paramsLearningAlg.getParameter("Px_prior");
+		
+		SufficientStatistics ss = stats.calculate(nodeIndex, getParents(adjMatrix, nodeIndex), px, mxx, tx);
+		checkStatistics(ss, nodeIndex);
+		
+		return ss;
+	}
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * a node for each structure obtained adding one
+	 * of the candidate parents. The statistics are
+	 * calculated in one pass over the dataset.
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents
+	 * @param candidates indexes of the candidate parents
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @return sufficient statistics of the node for each candidate (in the candidates order)
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static SufficientStatistics[] addParents(FamilyStatistics stats, int nodeIndex, boolean[][] adjMatrix, int[] candidates,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg) throws RuntimeException {
+		
+		if( paramsLearningAlg.getStructure() != null)
+			throw new RuntimeException("Error: parameter algorithm used in the scoring function for structural learning can not have structure setted");
+		
+		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
+		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
+		double px = (Double) paramsLearningAlg.getParameter("Px_prior");
+		
+		SufficientStatistics[] ss = stats.calculate(nodeIndex, getParents(adjMatrix, nodeIndex), candidates, px, mxx, tx);
+		for( int c = 0; c < ss.length; ++c)
+			checkStatistics(ss[c], nodeIndex);
+		
+		return ss;
+	}
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * a node when a parent is removed from the
+	 * structure. The statistics are marginalized
+	 * over the removed parent, so the dataset is
+	 * not read.
+	 * 
+	 * @param stats family statistics of the dataset
+	 * @param ss sufficient statistics of the node given the parents in the structure
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents (the removed parent included)
+	 * @param parentIndex index of the parent to remove
+	 * @param paramsLearningAlg algorithm used to learn the parameters (it defines the priors)
+	 * @return sufficient statistics of the node without the parent
+	 * @throws RuntimeException in case of some error during the calculation
+	 */
+	public static SufficientStatistics removeParent(FamilyStatistics stats, SufficientStatistics ss, int nodeIndex, boolean[][] adjMatrix, int parentIndex,
+			ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg) throws RuntimeException {
+		
+		double mxx = (Double) paramsLearningAlg.getParameter("Mxx_prior");
+		double tx = (Double) paramsLearningAlg.getParameter("Tx_prior");
+		double px = (Double) paramsLearningAlg.getParameter("Px_prior");
+		
+		return stats.removeParent(ss, getParents(adjMatrix, nodeIndex), parentIndex, px, mxx, tx);
+	}
+	
+	/**
+	 * Check that the family statistics of a node
+	 * define its CIMs: as in the parameter learning,
+	 * the time spent in each state must be positive.
+	 * 
+	 * @param ss sufficient statistics of the node
+	 * @param nodeIndex index of the node
+	 * @throws RuntimeException if the statistics don't define the CIMs
+	 */
+	private static void checkStatistics(SufficientStatistics ss, int nodeIndex) throws RuntimeException {
+		
+		if( ss.isStatic())
+			throw new IllegalArgumentException("Error: this scoring function is not defined for static nodes");
+		for( int pE = 0; pE < ss.parentEntriesNumber(); ++pE)
+			for( int fsE = 0; fsE < ss.statesNumber(); ++fsE)
+				if( !(ss.Tx[pE][fsE] > 0))
+					throw new RuntimeException("Error: unexpected error in CIM validation for node " + nodeIndex + " and parent entry " + pE + " (the inserting of the priors imaginary counts can solve this exception)");
+	}
+	
+	/**
+	 * Return the parent set of a node in a structure.
+	 * 
+	 * @param adjMatrix adjacency matrix of the structure
+	 * @param nodeIndex index of the node
+	 * @return parent set (parents[i] true if the node i is a parent)
+	 */
+	private static boolean[] getParents(boolean[][] adjMatrix, int nodeIndex) {
+		
+		boolean[] parents = new boolean[adjMatrix.length];
+		for( int iNode = 0; iNode < parents.length; ++iNode)
+			parents[iNode] = adjMatrix[iNode][nodeIndex];
+		
+		return parents;
+	}
 }
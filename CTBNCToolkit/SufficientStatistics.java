@@ -145,6 +145,47 @@ public class SufficientStatistics {
 	}
 	
 	
+	/**
+	 * Add the statistics in input to the current
+	 * ones. The two sufficient statistics must
+	 * refer to the same kind of node (same parent
+	 * entries number, states number and type).
+	 *
+	 * It allows to calculate the statistics over
+	 * disjoint parts of the data set and to join
+	 * them. The priors have to be counted only in
+	 * one of the merged statistics.
+	 *
+	 * @param stats sufficient statistics to add
+	 * @throws IllegalArgumentException if the statistics are not compatible
+	 */
+	public void merge(SufficientStatistics stats) throws IllegalArgumentException {
+
+		if( stats == null)
+			throw new IllegalArgumentException("Error: null sufficient statistics argument");
+		if( !this.isSet() || !stats.isSet())
+			throw new IllegalArgumentException("Error: sufficient statistics didn't set");
+		if( this.isStatic() != stats.isStatic() || this.parentEntriesNumber() != stats.parentEntriesNumber() || this.statesNumber() != stats.statesNumber())
+			throw new IllegalArgumentException("Error: the sufficient statistics to merge refer to different kinds of node");
+
+		if( this.Mxx == null) {
+			for(int pE = 0; pE < this.Px.length; ++pE) {
+				this.counts[pE] += stats.counts[pE];
+				for(int sS = 0; sS < this.Px[0][0].length; ++sS)
+					this.Px[pE][0][sS] += stats.Px[pE][0][sS];
+			}
+		}else {
+			for(int pE = 0; pE < this.Mxx.length; ++pE)
+				for(int fS = 0; fS < this.Mxx[0].length; ++fS) {
+					this.Tx[pE][fS] += stats.Tx[pE][fS];
+					this.Mx[pE][fS] += stats.Mx[pE][fS];
+					for(int sS = 0; sS < this.Mxx[0][0].length; ++sS)
+						this.Mxx[pE][fS][sS] += stats.Mxx[pE][fS][sS];
+				}
+		}
+	}
+
+
 	/**
 	 * Return true if the sufficient statistics
 	 * are defined. False otherwise.
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTArrayClassificationResults {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ArrayClassificationResults#ArrayClassificationResults(ITrajectory, List, int, boolean)}.
+	 */
+	@Test
+	public void testArrayClassificationResults() {
+
+		ITrajectory<Double> trj = generateTrajectory("testArrayResultsConstructor");
+		List<Double> timeStream = Arrays.asList(-1.0, 0.5, 1.0, 2.5, 2.7, 10.0);
+		for( List<Double> ts : Arrays.asList(new Vector<Double>(), timeStream)) {
+			ClassificationResults<Double> expected = new ClassificationResults<Double>(trj, ts);
+			ArrayClassificationResults results = new ArrayClassificationResults(trj, ts, 2, false);
+			assertTrue( results.getName().equals("trj"));
+			assertTrue( results.getNodeIndexing() == trj.getNodeIndexing());
+			assertTrue( results.getTransitionsNumber() == expected.getTransitionsNumber());
+			for(int i = 0; i < expected.getTransitionsNumber(); ++i) {
+				assertTrue( results.getTransitionTime(i).equals(expected.getTransitionTime(i)));
+				assertTrue( results.getTransition(i).getTime().equals(expected.getTransitionTime(i)));
+				for(int iNode = 0; iNode < 3; ++iNode) {
+					String value = null;
+					try {
+						value = expected.getNodeValue(i, iNode);
+					} catch( IllegalArgumentException e) {}
+					try {
+						assertTrue( results.getNodeValue(i, iNode).equals(value));
+					} catch( IllegalArgumentException e) {
+						assertTrue( value == null);
+					}
+				}
+			}
+			try {
+				results.getTransitionTime(results.getTransitionsNumber());
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+		}
+
+		try {
+			new ArrayClassificationResults(null, 2, false);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new ArrayClassificationResults(trj, 0, false);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ArrayClassificationResults#setProbability(int, double[], Map)}.
+	 */
+	@Test
+	public void testSetProbability() {
+
+		ITrajectory<Double> trj = generateTrajectory("testArrayResultsProbability");
+		Map<String,Integer> stateToIndex = new TreeMap<String,Integer>();
+		stateToIndex.put("c1", 0);
+		stateToIndex.put("c2", 1);
+
+		ArrayClassificationResults results = new ArrayClassificationResults(trj, 2, false);
+		assertFalse( results.isFinalOnly());
+		assertTrue( results.getPDistribution(1) == null);
+		assertTrue( results.getProbability("c1") == null);
+		double[] p = {0.3, 0.7};
+		results.setProbability(1, p, stateToIndex);
+		p[0] = 0.0;
+		assertTrue( Arrays.equals(results.getPDistribution(1), new double[] {0.3, 0.7}));
+		assertTrue( results.getProbability(1, "c2") == 0.7);
+		assertTrue( results.getPDistribution(0) == null);
+		assertTrue( results.getPDistribution() == null);
+		assertTrue( Arrays.equals(((IClassificationTransition<Double>) results.getTransition(1)).getPDistribution(), new double[] {0.3, 0.7}));
+		results.setClassification("c2");
+		assertTrue( results.getClassification().equals("c2"));
+		try {
+			results.getProbability(1, "c3");
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			results.setProbability(0, new double[] {1.0}, stateToIndex);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+
+		// Log likelihoods normalized when read
+		results.setLogProbability(2, new double[] {-1000.0, -1000.0 + Math.log(3.0)}, stateToIndex);
+		assertEquals( 0.25, results.getProbability(2, "c1"), 1e-12);
+		assertEquals( 0.75, results.getPDistribution(2)[1], 1e-12);
+		results.setProbability(2, new double[] {0.5, 0.5}, stateToIndex);
+		assertTrue( Arrays.equals(results.getPDistribution(2), new double[] {0.5, 0.5}));
+		results.setLogProbability(2, new double[] {0.0, Double.NEGATIVE_INFINITY}, stateToIndex);
+		assertTrue( Arrays.equals(results.getPDistribution(2), new double[] {1.0, 0.0}));
+
+		// Only the final distribution
+		results = new ArrayClassificationResults(trj, 2, true);
+		assertTrue( results.isFinalOnly());
+		results.setProbability(1, new double[] {0.3, 0.7}, stateToIndex);
+		assertTrue( results.getPDistribution(1) == null);
+		results.setProbability(3, new double[] {0.1, 0.9}, stateToIndex);
+		assertTrue( Arrays.equals(results.getPDistribution(), new double[] {0.1, 0.9}));
+		assertTrue( results.getProbability("c1") == 0.1);
+	}
+
+
+	/**
+	 * Generate a trajectory with four transitions
+	 * at times 0, 1, 2 and 3.
+	 *
+	 * @param nameIndexing name of the node indexing
+	 * @return the trajectory
+	 */
+	private static ITrajectory<Double> generateTrajectory(String nameIndexing) {
+
+		String[] names = {"Class", "A", "B"};
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, names, "Class", null);
+		Vector<Double> times = new Vector<Double>();
+		Vector<String[]> values = new Vector<String[]>();
+		for(int i = 0; i < 4; ++i) {
+			times.add((double) i);
+			values.add(new String[] {"c1", "a" + (i % 2), "b" + (i / 2)});
+		}
+		CTTrajectory<Double> trj = new CTTrajectory<Double>(nodeIndexing, times, values);
+		trj.setName("trj");
+
+		return trj;
+	}
+}
@@ -12,6 +12,7 @@ package CTBNCToolkit;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -370,6 +371,63 @@ public class ZJTESTCTBNCLocalAlgorithm {
 		
 	}
 	
+	/**
+	 * Test method for {@link CTBNCToolkit.CTBNCLocalStructuralLearning#learn(CTBNCToolkit.IModel, java.util.Collection)}
+	 * with the parallel local search.
+	 */
+	@Test
+	public void testLearnParallel() {
+		
+		Collection<ITrajectory<Double>> trainingSet = generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		
+		CTBNCParameterLLAlgorithm  paramsAlg = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.01);
+		params.put("Px_prior", 1.0);
+		paramsAlg.setParameters(params);
+		LLHillClimbingFactory elemFactory = new LLHillClimbingFactory(paramsAlg, 3, false, false);
+		CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual> alg = new CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual>(elemFactory);
+		assertTrue( alg.getParameter("parallelism").equals(1));
+		
+		int idxClass = nodeIndexing.getClassIndex();
+		int idxA = nodeIndexing.getIndex("A");
+		int idxB = nodeIndexing.getIndex("B");
+		int idxC = nodeIndexing.getIndex("C");
+		boolean[][] adjMatrix = new boolean[4][4];
+		adjMatrix[idxClass][idxA] = true;adjMatrix[idxClass][idxB] = true;adjMatrix[idxClass][idxC] = true;
+		adjMatrix[idxB][idxC] = true;adjMatrix[idxC][idxB] = true;adjMatrix[idxC][idxA] = true;
+		alg.setStructure(adjMatrix);
+		
+		ICTClassifier<Double, CTDiscreteNode> serialModel = generateClassifierModel();
+		alg.learn(serialModel, trainingSet);
+		
+		params = new TreeMap<String,Object>();
+		params.put("parallelism", 3);
+		alg.setParameters(params);
+		ICTClassifier<Double, CTDiscreteNode> model = generateClassifierModel();
+		alg.learn(model, trainingSet);
+		boolean[][] learnedStructure = model.getAdjMatrix();
+		compareAdjMatrix(serialModel.getAdjMatrix(), learnedStructure);
+		assertTrue(learnedStructure[idxClass][idxA]);
+		assertTrue(learnedStructure[idxClass][idxB]);
+		assertTrue(learnedStructure[idxClass][idxC]);
+		assertTrue(learnedStructure[idxA][idxC]);
+		assertFalse(learnedStructure[idxB][idxC]);
+		assertFalse(learnedStructure[idxC][idxB]);
+		assertFalse(learnedStructure[idxC][idxA]);
+		for(int iNode = 0; iNode < 4; ++iNode)
+			for(int pE = 0; pE < model.getNode(iNode).getNumberParentsEntries(); ++pE)
+				assertTrue( Arrays.deepEquals(serialModel.getNode(iNode).getCIM(pE), model.getNode(iNode).getCIM(pE)));
+		
+		try {
+			params.put("parallelism", 0);
+			alg.setParameters(params);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+	
 	public static CTBNClassifier generateClassifierModel() {
 		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
 				
@@ -47,17 +47,26 @@ public class ZJTESTCTBNCParameterLLAlgorithm {
 		params.put("Mxx_prior", 1.0);
 		params.put("Tx_prior", 2.0);
 		params.put("Px_prior", 3.0);
+		params.put("parallelism", 4);
 		alg.setParameters(params);
 		assertTrue(alg.getMxxPrior() == 1.0);
 		assertTrue(alg.getTxPrior() == 2.0);
 		assertTrue(alg.getPxPrior() == 3.0);
+		assertTrue(alg.getParallelism() == 4);
 		assertTrue(alg.getStructure() == null);
 		
 		alg.setDefaultParameters();
 		assertTrue(alg.getMxxPrior() == 0.0);
 		assertTrue(alg.getTxPrior() == 0.0);
 		assertTrue(alg.getPxPrior() == 0.0);
+		assertTrue(alg.getParallelism() == 1);
 		assertTrue(alg.getStructure() == null);
+		
+		params.put("parallelism", 0);
+		try {
+			alg.setParameters(params);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
 	}
 
 	/**
@@ -349,6 +358,161 @@ public class ZJTESTCTBNCParameterLLAlgorithm {
 		assertTrue( equalDouble( cim[cNode.getStateIndex("s3")][cNode.getStateIndex("s3")], -(3.0/6.0)));
 	}
 	
+	/**
+	 * Test method for {@link CTBNCToolkit.CTBNCParameterLLAlgorithm#learn(CTBNCToolkit.ICTClassifier, java.util.Iterator)}.
+	 */
+	@Test
+	public void testLearnIterator() {
+		
+		String[] nodesNames = new String[3]; nodesNames[0] = "Class"; nodesNames[1] = "A"; nodesNames[2] = "B";
+		final NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testLearnIterator", nodesNames, nodesNames[0], null);
+		
+		Set<String> states2 = new TreeSet<String>();
+		Set<String> states3 = new TreeSet<String>();
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		states2.add("s1");states2.add("s2");
+		states3.add("s1");states3.add("s2");states3.add("s3");
+		nodes.add(new CTDiscreteNode(nodesNames[0], states2, true));
+		nodes.add(new CTDiscreteNode(nodesNames[1], states2, false));
+		nodes.add(new CTDiscreteNode(nodesNames[2], states3, false));
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true;adjMatrix[0][2] = true;adjMatrix[1][2] = true;
+		CTBNClassifier clModel = new CTBNClassifier(nodeIndexing, "classificatore", nodes);
+		CTBNCParameterLLAlgorithm  alg = new CTBNCParameterLLAlgorithm();
+		alg.setStructure(adjMatrix);
+		
+		// Learning from a collection
+		Random rand = new Random(11);
+		Vector<ITrajectory<Double>> trVect = new Vector<ITrajectory<Double>>();
+		for(int i = 0; i < 50; ++i)
+			trVect.add(generateTrajectory(nodeIndexing, rand));
+		SufficientStatistics[] ssCollection = alg.learn(clModel, trVect).getSufficientStatistics();
+		Vector<double[][]> cims = new Vector<double[][]>();
+		for(int iNode = 0; iNode < 3; ++iNode)
+			for(int pE = 0; pE < clModel.getNode(iNode).getNumberParentsEntries(); ++pE)
+				cims.add(clModel.getNode(iNode).getCIM(pE));
+		
+		// Learning from a stream of trajectories generated on the fly
+		final Random streamRand = new Random(11);
+		Iterator<ITrajectory<Double>> stream = new Iterator<ITrajectory<Double>>() {
+			private int n = 0;
+			public boolean hasNext() { return this.n < 50; }
+			public ITrajectory<Double> next() { ++this.n; return generateTrajectory(nodeIndexing, streamRand); }
+			public void remove() { throw new UnsupportedOperationException(); }
+		};
+		SufficientStatistics[] ssStream = alg.learn(clModel, stream).getSufficientStatistics();
+		assertFalse( stream.hasNext());
+		
+		int iCIM = 0;
+		for(int iNode = 0; iNode < 3; ++iNode) {
+			assertTrue( Arrays.deepEquals(ssCollection[iNode].Mxx, ssStream[iNode].Mxx));
+			assertTrue( Arrays.deepEquals(ssCollection[iNode].Tx, ssStream[iNode].Tx));
+			for(int pE = 0; pE < clModel.getNode(iNode).getNumberParentsEntries(); ++pE)
+				assertTrue( Arrays.deepEquals(cims.get(iCIM++), clModel.getNode(iNode).getCIM(pE)));
+		}
+		
+		try {
+			alg.learn(clModel, (Iterator<ITrajectory<Double>>) null);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+	
+	/**
+	 * Test the equivalence between the serial and
+	 * the parallel calculation of the sufficient
+	 * statistics.
+	 */
+	@Test
+	public void testLearnParallel() {
+		
+		String[] nodesNames = new String[3]; nodesNames[0] = "Class"; nodesNames[1] = "A"; nodesNames[2] = "B";
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testLearnParallel", nodesNames, nodesNames[0], null);
+		
+		Set<String> states2 = new TreeSet<String>();
+		Set<String> states3 = new TreeSet<String>();
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		states2.add("s1");states2.add("s2");
+		states3.add("s1");states3.add("s2");states3.add("s3");
+		nodes.add(new CTDiscreteNode(nodesNames[0], states2, true));
+		nodes.add(new CTDiscreteNode(nodesNames[1], states2, false));
+		nodes.add(new CTDiscreteNode(nodesNames[2], states3, false));
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true;adjMatrix[0][2] = true;adjMatrix[1][2] = true;
+		CTBNClassifier clModel = new CTBNClassifier(nodeIndexing, "classificatore", nodes);
+		
+		Random rand = new Random(5);
+		Vector<ITrajectory<Double>> trVect = new Vector<ITrajectory<Double>>();
+		for(int i = 0; i < 2000; ++i)
+			trVect.add(generateTrajectory(nodeIndexing, rand));
+		
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.5);
+		params.put("Px_prior", 2.0);
+		CTBNCParameterLLAlgorithm  alg = new CTBNCParameterLLAlgorithm();
+		alg.setParameters(params);
+		alg.setStructure(adjMatrix);
+		SufficientStatistics[] ssSerial = alg.learn(clModel, trVect).getSufficientStatistics();
+		
+		params.put("parallelism", 3);
+		alg.setParameters(params);
+		SufficientStatistics[] ssParallel = alg.learn(clModel, trVect).getSufficientStatistics();
+		SufficientStatistics[] ssStream = alg.learn(clModel, trVect.iterator()).getSufficientStatistics();
+		
+		for(int iNode = 0; iNode < 3; ++iNode) {
+			for(int pE = 0; pE < ssSerial[iNode].parentEntriesNumber(); ++pE)
+				for(int s = 0; s < ssSerial[iNode].statesNumber(); ++s) {
+					if( ssSerial[iNode].isStatic()) {
+						assertTrue( ssSerial[iNode].counts[pE] == ssParallel[iNode].counts[pE]);
+						assertTrue( ssSerial[iNode].Px[pE][0][s] == ssParallel[iNode].Px[pE][0][s]);
+					} else {
+						assertTrue( ssSerial[iNode].Mx[pE][s] == ssParallel[iNode].Mx[pE][s]);
+						assertTrue( Arrays.equals(ssSerial[iNode].Mxx[pE][s], ssParallel[iNode].Mxx[pE][s]));
+						assertTrue( equalDouble(ssSerial[iNode].Tx[pE][s], ssParallel[iNode].Tx[pE][s]));
+						assertTrue( ssParallel[iNode].Tx[pE][s] == ssStream[iNode].Tx[pE][s]);
+					}
+				}
+		}
+		assertTrue( ssSerial[1].Mxx[0][0][1] > 1000);
+		
+		// Errors in a parallel shard
+		trVect.add(1500, new CTTrajectory<Double>(nodeIndexing, new Vector<Double>(Arrays.asList(0.0)), new Vector<String[]>(Collections.singletonList(new String[] {"s1", "s9", "s1"}))));
+		try {
+			alg.learn(clModel, trVect);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {
+			assertTrue( e.getMessage().equals("Error: State s9 didn't find!"));
+		}
+	}
+	
+	/**
+	 * Generate a random trajectory for the
+	 * class node and two nodes with 2 and 3
+	 * states.
+	 * 
+	 * @param nodeIndexing node indexing
+	 * @param rand random generator
+	 * @return random trajectory
+	 */
+	private static ITrajectory<Double> generateTrajectory(NodeIndexing nodeIndexing, Random rand) {
+		
+		Vector<Double> times = new Vector<Double>();
+		Vector<String[]> values = new Vector<String[]>();
+		String c = "s" + (1 + rand.nextInt(2));
+		double t = 0.0;
+		for(int i = 0; i < 20; ++i) {
+			String[] v = new String[3];
+			v[0] = c;
+			v[1] = "s" + (1 + rand.nextInt(2));
+			v[2] = "s" + (1 + rand.nextInt(3));
+			times.add(t);
+			values.add(v);
+			t += rand.nextDouble();
+		}
+		
+		return new CTTrajectory<Double>(nodeIndexing, times, values);
+	}
+	
 	private boolean equalDouble(double a, double b) {
 		
 		return Math.abs(a - b) < 0.000001; 
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.*;
+
+public class ZJTESTCTEncodedTrajectory {
+
+	private NodeIndexing nodeIndexing(String name) {
+
+		String[] nodeNames = new String[3]; nodeNames[0] = "aaa"; nodeNames[1] = "bbb"; nodeNames[2] = "ccc";
+		return NodeIndexing.getNodeIndexing(name, nodeNames, nodeNames[0], null);
+	}
+
+	private StateDictionary dictionary(NodeIndexing nodeIndexing) {
+
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		Set<String> states = new TreeSet<String>(); states.add("Va1"); states.add("Va2");
+		statesForNode.put("aaa", states);
+		states = new TreeSet<String>(); states.add("Vb1"); states.add("Vb2"); states.add("Vb3");
+		statesForNode.put("bbb", states);
+		states = new TreeSet<String>(); states.add("Vc1");
+		statesForNode.put("ccc", states);
+
+		return new StateDictionary(nodeIndexing, statesForNode);
+	}
+
+	private CTTrajectory<Double> stringTrajectory(NodeIndexing nodeIndexing) {
+
+		List<Double> times = new Vector<Double>();
+		times.add(0.0); times.add(0.5); times.add(1.2);
+		List<String[]> values = new Vector<String[]>();
+		String[] v = new String[3]; v[0] = "Va1"; v[1] = "Vb1"; v[2] = "Vc1";
+		values.add(v);
+		v = new String[3]; v[0] = null; v[1] = "Vb3"; v[2] = null;
+		values.add(v);
+		v = new String[3]; v[0] = "Va2"; v[1] = null; v[2] = null;
+		values.add(v);
+
+		return new CTTrajectory<Double>(nodeIndexing, times, values);
+	}
+
+	@Test
+	public void testStateDictionary() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedStateDictionary");
+		StateDictionary dict = this.dictionary(nodeIndexing);
+
+		assertTrue( dict.getNodesNumber() == 3);
+		assertTrue( dict.getStatesNumber(1) == 3);
+		assertTrue( dict.getStateIndex(1, "Vb2") == 1);
+		assertTrue( dict.getStateIndex(1, "Vb4") == -1);
+		assertTrue( dict.getStateName(0, 1).equals("Va2"));
+		assertTrue( dict.getMapping(this.dictionary(nodeIndexing)) == null);
+
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		Set<String> states = new TreeSet<String>(); states.add("Va2"); states.add("Va3");
+		statesForNode.put("aaa", states);
+		states = new TreeSet<String>(); states.add("Vb1"); states.add("Vb2"); states.add("Vb3");
+		statesForNode.put("bbb", states);
+		states = new TreeSet<String>(); states.add("Vc1");
+		statesForNode.put("ccc", states);
+		int[][] map = dict.getMapping(new StateDictionary(nodeIndexing, statesForNode));
+		assertTrue( map != null);
+		assertTrue( map[0][0] == -1);
+		assertTrue( map[0][1] == 0);
+		assertTrue( map[1][2] == 2);
+	}
+
+	@Test
+	public void testConstructor() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedConstructor");
+		StateDictionary dict = this.dictionary(nodeIndexing);
+		CTTrajectory<Double> tr = this.stringTrajectory(nodeIndexing);
+
+		List<Double> times = new Vector<Double>();
+		List<String[]> values = new Vector<String[]>();
+		for(int i = 0; i < tr.getTransitionsNumber(); ++i) {
+			times.add(tr.getTransitionTime(i));
+			String[] v = new String[3];
+			for(int j = 0; j < 3; ++j)
+				v[j] = tr.getTransition(i).getNodeValue(j);
+			values.add(v);
+		}
+		CTEncodedTrajectory eTr = new CTEncodedTrajectory(nodeIndexing, dict, times, values);
+
+		assertTrue( eTr.getTransitionsNumber() == 3);
+		assertTrue( eTr.getTime(2) == 1.2);
+		assertTrue( eTr.getStateIndex(1, 0) == 0);
+		assertTrue( eTr.getStateIndex(1, 1) == 2);
+		assertTrue( eTr.getStateIndex(2, 1) == 2);
+		assertTrue( eTr.getStateIndex(2, 0) == 1);
+		for(int i = 0; i < tr.getTransitionsNumber(); ++i)
+			for(int j = 0; j < 3; ++j) {
+				assertTrue( eTr.getNodeValue(i, j).equals( tr.getNodeValue(i, j)));
+				assertTrue( eTr.getTransition(i).getNodeValue(j).equals( tr.getNodeValue(i, j)));
+			}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorException() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedConstructorException");
+		List<Double> times = new Vector<Double>();
+		times.add(0.0);
+		List<String[]> values = new Vector<String[]>();
+		String[] v = new String[3]; v[0] = "Va1"; v[1] = "Vb4"; v[2] = "Vc1";
+		values.add(v);
+
+		new CTEncodedTrajectory(nodeIndexing, this.dictionary(nodeIndexing), times, values);
+	}
+
+	@Test
+	public void testEncode() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedEncode");
+		StateDictionary dict = this.dictionary(nodeIndexing);
+		CTTrajectory<Double> tr = this.stringTrajectory(nodeIndexing);
+		tr.setName("trj");
+
+		IEncodedTrajectory eTr = CTEncodedTrajectory.encode(tr, dict);
+		assertTrue( eTr.getName().equals("trj"));
+		assertTrue( CTEncodedTrajectory.encode(eTr, dict) == eTr);
+		assertTrue( CTEncodedTrajectory.encode(eTr, this.dictionary(nodeIndexing)) == eTr);
+
+		// Encoding with a different dictionary
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		Set<String> states = new TreeSet<String>(); states.add("Va0"); states.add("Va1");
+		statesForNode.put("aaa", states);
+		states = new TreeSet<String>(); states.add("Vb3");
+		statesForNode.put("bbb", states);
+		states = new TreeSet<String>(); states.add("Vc1");
+		statesForNode.put("ccc", states);
+		IEncodedTrajectory rTr = CTEncodedTrajectory.encode(eTr, new StateDictionary(nodeIndexing, statesForNode));
+		assertTrue( rTr != eTr);
+		assertTrue( rTr.getStateIndex(0, 0) == 1);
+		assertTrue( rTr.getStateIndex(2, 0) == -1);
+		assertTrue( rTr.getStateIndex(0, 1) == -1);
+		assertTrue( rTr.getStateIndex(1, 1) == 0);
+		assertTrue( rTr.getNodeValue(1, 0).equals("Va1"));
+		try {
+			rTr.getNodeValue(2, 0);
+			fail("Exception expected");
+		} catch(IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testChangesIndex() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedChangesIndex");
+		IEncodedTrajectory eTr = CTEncodedTrajectory.encode(this.stringTrajectory(nodeIndexing), this.dictionary(nodeIndexing));
+
+		assertTrue( eTr.getChangesNumber(0) == 0);
+		assertTrue( eTr.getChangesNumber(1) == 1);
+		assertTrue( eTr.getChangedNode(1, 0) == 1);
+		assertTrue( eTr.getChangesNumber(2) == 1);
+		assertTrue( eTr.getChangedNode(2, 0) == 0);
+		try {
+			eTr.getChangedNode(2, 1);
+			fail("Exception expected");
+		} catch(IllegalArgumentException e) {}
+
+		CTEncodedTrajectory newTr = CTEncodedTrajectory.cutTrajectory(eTr, 0.5);
+		assertTrue( newTr.getChangesNumber(1) == 1);
+		assertTrue( newTr.getChangesNumber(2) == 0);
+	}
+
+	@Test
+	public void testCutTrajectory() {
+
+		NodeIndexing nodeIndexing = this.nodeIndexing("testEncodedCutTrajectory");
+		IEncodedTrajectory eTr = CTEncodedTrajectory.encode(this.stringTrajectory(nodeIndexing), this.dictionary(nodeIndexing));
+
+		CTEncodedTrajectory newTr = CTEncodedTrajectory.cutTrajectory(eTr, 0.5);
+		assertTrue( newTr.getTransitionsNumber() == 3);
+		assertTrue( newTr.getTime(2) == 0.6);
+		assertTrue( newTr.getNodeValue(2, 0).equals("Va1"));
+		assertTrue( newTr.getNodeValue(2, 1).equals("Vb3"));
+
+		newTr = CTEncodedTrajectory.cutTrajectory(eTr, 1.0);
+		assertTrue( newTr.getTransitionsNumber() == 3);
+		assertTrue( newTr.getNodeValue(2, 0).equals("Va2"));
+	}
+
+	private CTBNClassifier naiveBayes(NodeIndexing nodeIndexing, Map<String,Set<String>> statesForNode) {
+
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+			nodes.add(new CTDiscreteNode(nodeIndexing.getName(iNode), statesForNode.get(nodeIndexing.getName(iNode)), iNode == nodeIndexing.getClassIndex()));
+
+		return new CTBNClassifier(nodeIndexing, "classificatore", nodes);
+	}
+
+	@Test
+	public void testLearningAndClassification() {
+
+		String[] nodesNames = new String[3]; nodesNames[0] = "Class"; nodesNames[1] = "A"; nodesNames[2] = "B";
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testEncodedLearningAndClassification", nodesNames, nodesNames[0], null);
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		Set<String> states = new TreeSet<String>(); states.add("c1"); states.add("c2");
+		statesForNode.put("Class", states);
+		states = new TreeSet<String>(); states.add("a1"); states.add("a2");
+		statesForNode.put("A", states);
+		states = new TreeSet<String>(); states.add("b1"); states.add("b2"); states.add("b3");
+		statesForNode.put("B", states);
+		StateDictionary dict = new StateDictionary(nodeIndexing, statesForNode);
+
+		// Random dataset
+		Random rand = new Random(7);
+		List<ITrajectory<Double>> stringSet = new Vector<ITrajectory<Double>>();
+		List<ITrajectory<Double>> encodedSet = new Vector<ITrajectory<Double>>();
+		for(int iTrj = 0; iTrj < 20; ++iTrj) {
+			List<Double> times = new Vector<Double>();
+			List<String[]> values = new Vector<String[]>();
+			String c = "c" + (1 + rand.nextInt(2));
+			double t = 0.0;
+			for(int i = 0; i < 30; ++i) {
+				String[] v = new String[3];
+				v[0] = c;
+				v[1] = "a" + (1 + rand.nextInt(2));
+				v[2] = "b" + (1 + rand.nextInt(3));
+				values.add(v);
+				times.add(t);
+				t += rand.nextDouble();
+			}
+			stringSet.add(new CTTrajectory<Double>(nodeIndexing, times, values));
+			encodedSet.add(CTEncodedTrajectory.encode(stringSet.get(iTrj), dict));
+		}
+
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true;
+		CTBNClassifier model1 = this.naiveBayes(nodeIndexing, statesForNode);
+		CTBNClassifier model2 = this.naiveBayes(nodeIndexing, statesForNode);
+		CTBNCParameterLLAlgorithm alg = new CTBNCParameterLLAlgorithm();
+		alg.setStructure(adjMatrix);
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.1);
+		params.put("Px_prior", 1.0);
+		alg.setParameters(params);
+		alg.learn(model1, stringSet);
+		alg.learn(model2, encodedSet);
+		for(int iNode = 0; iNode < 3; ++iNode)
+			for(int pE = 0; pE < model1.getNode(iNode).getNumberParentsEntries(); ++pE)
+				assertTrue( Arrays.deepEquals(model1.getNode(iNode).getCIM(pE), model2.getNode(iNode).getCIM(pE)));
+
+		CTBNCClassifyAlgorithm classifier = new CTBNCClassifyAlgorithm();
+		params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		classifier.setParameters(params);
+		for(int iTrj = 0; iTrj < stringSet.size(); ++iTrj) {
+			IClassificationResult<Double> r1 = classifier.classify(model1, stringSet.get(iTrj), 0.3);
+			IClassificationResult<Double> r2 = classifier.classify(model1, encodedSet.get(iTrj), 0.3);
+			assertTrue( r1.getClassification().equals( r2.getClassification()));
+			assertTrue( r1.getTransitionsNumber() == r2.getTransitionsNumber());
+			for(int i = 0; i < r1.getTransitionsNumber(); ++i)
+				assertTrue( Arrays.equals( r1.getPDistribution(i), r2.getPDistribution(i)));
+		}
+	}
+}
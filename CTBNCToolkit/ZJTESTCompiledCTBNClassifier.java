@@ -0,0 +1,578 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTCompiledCTBNClassifier {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.CTBNClassifier#compile()}.
+	 */
+	@Test
+	public void testCompile() {
+
+		CTBNClassifier model = generateModel("testCompiledCompile");
+		CompiledCTBNClassifier compiled = model.compile();
+		assertTrue( model.compile() == compiled);
+		assertTrue( compiled.getClassStatesNumber() == 2);
+		assertTrue( compiled.getClassStateName(1).equals("s2"));
+
+		for(int iNode = 0; iNode < 4; ++iNode) {
+			CTDiscreteNode node = model.getNode(iNode);
+			for(int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+				double[][] cim = node.getCIM(pE);
+				for(int s0 = 0; s0 < cim.length; ++s0)
+					for(int s1 = 0; s1 < cim[s0].length; ++s1) {
+						assertTrue( compiled.getCIMValue(iNode, pE, s0, s1) == cim[s0][s1]);
+						if( node.isStaticNode() || s0 != s1)
+							assertTrue( compiled.getLogCIMValue(iNode, pE, s0, s1) == Math.log(cim[s0][s1]));
+					}
+				if( !node.isStaticNode())
+					for(int s = 0; s < cim.length; ++s) {
+						assertTrue( compiled.getDiagonalRate(iNode, pE, s) == cim[s][s]);
+						assertTrue( compiled.getLogExitRate(iNode, pE, s) == Math.log(-cim[s][s]));
+					}
+			}
+		}
+
+		// A change in the CIMs generates a new compiled form
+		CTDiscreteNode node = model.getNode(1);
+		node.setCIM(0, node.getCIM(0));
+		CompiledCTBNClassifier compiled2 = model.compile();
+		assertTrue( compiled2 != compiled);
+		assertTrue( model.compile() == compiled2);
+
+		// The CIMs can not be changed in place
+		double[][] cim = node.getCIM(0);
+		double value = cim[0][0];
+		cim[0][0] = 1.0;
+		assertTrue( node.getCIMValue(0, 0, 0) == value);
+		assertTrue( model.compile() == compiled2);
+		cim[0][0] = value;
+		node.setCIM(0, cim);
+		cim[0][0] = 1.0;
+		assertTrue( node.getCIMValue(0, 0, 0) == value);
+		CompiledCTBNClassifier compiled3 = model.compile();
+		assertTrue( compiled3 != compiled2);
+
+		node.setCIMValue(0, 0, 0, 1.0);
+		try {
+			model.compile();
+			fail("Exception expected");
+		} catch( RuntimeException e) {}
+	}
+
+	/**
+	 * Test the concurrent classification with
+	 * a shared compiled model.
+	 */
+	@Test
+	public void testConcurrentClassify() throws InterruptedException {
+
+		CTBNClassifier model = generateModel("testCompiledConcurrent");
+		final List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int i = 0; i < 40; ++i)
+			dataset.add(model.generateTrajectory(5.0));
+
+		final CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		final List<IClassificationResult<Double>> expected = new Vector<IClassificationResult<Double>>();
+		for(int i = 0; i < dataset.size(); ++i)
+			expected.add(algorithm.classify(model, dataset.get(i)));
+
+		final CompiledCTBNClassifier compiled = model.compile();
+		final boolean[] errors = new boolean[4];
+		Thread[] threads = new Thread[errors.length];
+		for(int iThread = 0; iThread < threads.length; ++iThread) {
+			final int index = iThread;
+			threads[iThread] = new Thread() {
+				public void run() {
+					CompiledCTBNClassifier.Context context = compiled.newContext();
+					for(int iRep = 0; iRep < 5; ++iRep)
+						for(int i = 0; i < dataset.size(); ++i) {
+							IClassificationResult<Double> res = algorithm.classify(compiled, dataset.get(i), new Vector<Double>(0), context);
+							IClassificationResult<Double> exp = expected.get(i);
+							if( !res.getClassification().equals(exp.getClassification()))
+								errors[index] = true;
+							for(int iJmp = 0; iJmp < res.getTransitionsNumber(); ++iJmp)
+								if( !Arrays.equals(res.getPDistribution(iJmp), exp.getPDistribution(iJmp)))
+									errors[index] = true;
+						}
+				}
+			};
+			threads[iThread].start();
+		}
+		for(int iThread = 0; iThread < threads.length; ++iThread) {
+			threads[iThread].join();
+			assertFalse( errors[iThread]);
+		}
+
+		try {
+			algorithm.classify(compiled, dataset.get(0), new Vector<Double>(0), new CompiledCTBNClassifier(model).newContext());
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+
+	/**
+	 * Test the classification with the pruning
+	 * of the nodes that are not class relevant.
+	 */
+	@Test
+	public void testPruning() {
+
+		CTBNClassifier model = generateModel("testCompiledPruning");
+		CompiledCTBNClassifier compiled = model.compile();
+		assertTrue( compiled.getClassRelevantNodesNumber() == 3);
+		for(int iNode = 0; iNode < 4; ++iNode)
+			assertTrue( compiled.isClassRelevant(iNode) == !model.getNode(iNode).getName().equals("C"));
+
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+		CTBNCClassifyAlgorithm pruningAlgorithm = new CTBNCClassifyAlgorithm();
+		params.put("pruning", true);
+		pruningAlgorithm.setParameters(params);
+
+		for(int i = 0; i < 40; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(5.0);
+			IClassificationResult<Double> exp = algorithm.classify(model, trj);
+			IClassificationResult<Double> res = pruningAlgorithm.classify(model, trj);
+			assertTrue( res.getClassification().equals(exp.getClassification()));
+			for(int iJmp = 0; iJmp < res.getTransitionsNumber(); ++iJmp) {
+				double[] p = res.getPDistribution(iJmp);
+				double[] pExp = exp.getPDistribution(iJmp);
+				for(int iClass = 0; iClass < p.length; ++iClass)
+					assertEquals( pExp[iClass], p[iClass], 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Test the classification with the class-major
+	 * kernel (the results must be the same of the
+	 * standard kernel).
+	 */
+	@Test
+	public void testClassMajor() {
+
+		CTBNClassifier model = generateModel("testCompiledClassMajor");
+		CompiledCTBNClassifier compiled = model.compile();
+		assertFalse( compiled.newContext().isClassMajor());
+		assertTrue( compiled.newContext(true).isClassMajor());
+
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+		CTBNCClassifyAlgorithm classMajorAlgorithm = new CTBNCClassifyAlgorithm();
+		params.put("classMajor", true);
+		classMajorAlgorithm.setParameters(params);
+
+		for(int i = 0; i < 40; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(5.0);
+			IClassificationResult<Double> exp = algorithm.classify(model, trj, 0.3);
+			IClassificationResult<Double> res = classMajorAlgorithm.classify(model, trj, 0.3);
+			assertTrue( res.getClassification().equals(exp.getClassification()));
+			assertTrue( res.getTransitionsNumber() == exp.getTransitionsNumber());
+			for(int iJmp = 0; iJmp < res.getTransitionsNumber(); ++iJmp)
+				assertTrue( Arrays.equals(res.getPDistribution(iJmp), exp.getPDistribution(iJmp)));
+
+			for( boolean pruning : new boolean[] {false, true}) {
+				double[] pExp = compiled.classifyCompact(trj, true, pruning, compiled.newContext()).getPDistribution();
+				double[] p = compiled.classifyCompact(trj, true, pruning, compiled.newContext(true)).getPDistribution();
+				assertTrue( Arrays.equals(pExp, p));
+			}
+		}
+	}
+
+
+	/**
+	 * Test the class distributions on a long
+	 * trajectory (the log likelihoods of the
+	 * classes differ by thousands).
+	 */
+	@Test
+	public void testLongTrajectoryPosterior() {
+
+		CTBNClassifier model = generateModel("testCompiledLongPosterior");
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		ITrajectory<Double> trj = model.generateTrajectory(20000.0);
+		IClassificationResult<Double> res = algorithm.classify(model, trj);
+		for(int iJmp = 0; iJmp < res.getTransitionsNumber(); ++iJmp) {
+			double sum = 0.0;
+			for( double p : res.getPDistribution(iJmp)) {
+				assertFalse( Double.isNaN(p));
+				sum += p;
+			}
+			assertEquals( 1.0, sum, 1e-9);
+		}
+
+		CompiledCTBNClassifier compiled = model.compile();
+		double[] pExp = compiled.classifyCompact(trj, true, false, compiled.newContext()).getPDistribution();
+		assertTrue( Arrays.equals(pExp, res.getPDistribution()));
+		assertTrue( res.getProbability(res.getClassification()) > 0.5);
+	}
+
+	/**
+	 * Test the classification with the results
+	 * backed by primitive arrays.
+	 */
+	@Test
+	public void testLightResults() {
+
+		CTBNClassifier model = generateModel("testCompiledLightResults");
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+		CTBNCClassifyAlgorithm lightAlgorithm = new CTBNCClassifyAlgorithm();
+		params.put("lightResults", true);
+		lightAlgorithm.setParameters(params);
+		CTBNCClassifyAlgorithm finalAlgorithm = new CTBNCClassifyAlgorithm();
+		params.put("finalProbabilityOnly", true);
+		finalAlgorithm.setParameters(params);
+
+		for(int i = 0; i < 40; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(5.0);
+			IClassificationResult<Double> exp = algorithm.classify(model, trj, 0.3);
+			IClassificationResult<Double> light = lightAlgorithm.classify(model, trj, 0.3);
+			IClassificationResult<Double> fin = finalAlgorithm.classify(model, trj, 0.3);
+			assertTrue( light instanceof ArrayClassificationResults);
+			assertTrue( light.getClassification().equals(exp.getClassification()));
+			assertTrue( fin.getClassification().equals(exp.getClassification()));
+			assertTrue( light.getTransitionsNumber() == exp.getTransitionsNumber());
+			for(int iJmp = 0; iJmp < exp.getTransitionsNumber(); ++iJmp) {
+				assertTrue( Arrays.equals(light.getPDistribution(iJmp), exp.getPDistribution(iJmp)));
+				if( iJmp < exp.getTransitionsNumber() - 1)
+					assertTrue( fin.getPDistribution(iJmp) == null);
+			}
+			double[] p = fin.getPDistribution();
+			for(int iClass = 0; iClass < p.length; ++iClass)
+				assertEquals( exp.getPDistribution()[iClass], p[iClass], 1e-9);
+		}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.CompiledCTBNClassifier#classifyGrid(ITrajectory, double[], IClassificationListener, boolean, CompiledCTBNClassifier.Context)}.
+	 */
+	@Test
+	public void testClassifyGrid() {
+
+		CTBNClassifier model = generateModel("testCompiledClassifyGrid");
+		CompiledCTBNClassifier compiled = model.compile();
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		for(int i = 0; i < 20; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(5.0);
+			double t0 = trj.getTransitionTime(0);
+			double t1 = trj.getTransitionTime(Math.min(1, trj.getTransitionsNumber() - 1));
+			double tEnd = trj.getTransitionTime(trj.getTransitionsNumber() - 1);
+			double[][] grids = new double[][] {
+					CTBNCClassifyAlgorithm.samplingGrid(trj, 0.3),
+					new double[0],
+					new double[] {t0 - 1.0, t0 - 0.5, t0, t0, (t0 + t1) / 2, t1, t1, tEnd, tEnd + 1.0}};
+			for( double[] grid : grids) {
+				Vector<Double> timeStream = new Vector<Double>();
+				for( double t : grid)
+					timeStream.add(t);
+				IClassificationResult<Double> exp = algorithm.classify(model, trj, timeStream);
+
+				final List<Double> times = new Vector<Double>();
+				final List<Integer> gridIndexes = new Vector<Integer>();
+				final List<double[]> distributions = new Vector<double[]>();
+				CompactClassificationResult res = compiled.classifyGrid(trj, grid, new IClassificationListener() {
+					@Override
+					public void posterior(int iGrid, double time, double[] p) {
+						times.add(time);
+						gridIndexes.add(iGrid);
+						distributions.add(p.clone());
+					}
+				}, false, compiled.newContext());
+				assertTrue( res.getClassification().equals(exp.getClassification()));
+				assertTrue( times.size() == exp.getTransitionsNumber());
+				double[] buffer = new double[grid.length * 2];
+				compiled.classifyGrid(trj, grid, buffer, false, compiled.newContext(true));
+				for(int iJmp = 0; iJmp < exp.getTransitionsNumber(); ++iJmp) {
+					assertTrue( times.get(iJmp).equals(exp.getTransitionTime(iJmp)));
+					assertTrue( Arrays.equals(distributions.get(iJmp), exp.getPDistribution(iJmp)));
+					int iGrid = gridIndexes.get(iJmp);
+					if( iGrid != -1) {
+						assertTrue( grid[iGrid] == times.get(iJmp));
+						assertTrue( Arrays.equals(Arrays.copyOfRange(buffer, iGrid * 2, iGrid * 2 + 2), distributions.get(iJmp)));
+					}
+				}
+				for(int iGrid = 0; iGrid < grid.length; ++iGrid)
+					assertTrue( gridIndexes.contains(iGrid));
+			}
+		}
+
+		ITrajectory<Double> trj = model.generateTrajectory(5.0);
+		try {
+			compiled.classifyGrid(trj, new double[] {1.0, 0.5}, new double[4], false, compiled.newContext());
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			compiled.classifyGrid(trj, new double[] {0.5, 1.0}, new double[3], false, compiled.newContext());
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.CTBNCClassifyAlgorithm#classifyAll(ICTClassifier, List, ExecutorService)}.
+	 */
+	@Test
+	public void testClassifyAll() {
+
+		CTBNClassifier model = generateModel("testCompiledClassifyAll");
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int i = 0; i < 150; ++i) {
+			dataset.add(model.generateTrajectory(5.0));
+			dataset.get(i).setName("trj" + i);
+		}
+
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+		List<IClassificationResult<Double>> expected = new Vector<IClassificationResult<Double>>();
+		for(int i = 0; i < dataset.size(); ++i)
+			expected.add(algorithm.classify(model, dataset.get(i)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<CompactClassificationResult> serial = algorithm.classifyAll(model, dataset);
+			List<CompactClassificationResult> parallel = algorithm.classifyAll(model, dataset, executor);
+			assertTrue( serial.size() == dataset.size());
+			assertTrue( parallel.size() == dataset.size());
+			for(int i = 0; i < dataset.size(); ++i) {
+				IClassificationResult<Double> exp = expected.get(i);
+				double[] pExp = exp.getPDistribution(exp.getTransitionsNumber() - 1);
+				for( CompactClassificationResult res : Arrays.asList(serial.get(i), parallel.get(i))) {
+					assertTrue( res.getName().equals("trj" + i));
+					assertTrue( res.getClassification().equals(exp.getClassification()));
+					assertTrue( model.compile().getClassStateName(res.getClassIndex()).equals(res.getClassification()));
+					double[] p = res.getPDistribution();
+					for(int iClass = 0; iClass < p.length; ++iClass)
+						assertEquals( pExp[iClass], p[iClass], 1e-9);
+				}
+				assertTrue( Arrays.equals(serial.get(i).getPDistribution(), parallel.get(i).getPDistribution()));
+			}
+
+			// Class decider
+			params.put("probabilities", false);
+			params.put("classifyDecider", new BinaryDecider(0.9));
+			algorithm.setParameters(params);
+			List<CompactClassificationResult> decided = algorithm.classifyAll(model, dataset, executor);
+			for(int i = 0; i < dataset.size(); ++i) {
+				assertFalse( decided.get(i).hasProbability());
+				assertTrue( decided.get(i).getClassification().equals(algorithm.classify(model, dataset.get(i)).getClassification()));
+			}
+
+			// Errors in the tasks
+			List<ITrajectory<Double>> wrong = new Vector<ITrajectory<Double>>(dataset);
+			wrong.set(100, new CTTrajectory<Double>(model.getNodeIndexing(), new Vector<Double>(), new Vector<String[]>()));
+			try {
+				algorithm.classifyAll(model, wrong, executor);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+			try {
+				algorithm.classifyAll(model, null, executor);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.CompiledCTBNClassifier#classifyEarly(ITrajectory, EarlyDecisionRule, boolean, CompiledCTBNClassifier.Context)}.
+	 */
+	@Test
+	public void testClassifyEarly() {
+
+		CTBNClassifier model = generateModel("testCompiledClassifyEarly");
+		CompiledCTBNClassifier compiled = model.compile();
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		EarlyDecisionRule[] rules = new EarlyDecisionRule[] {
+				new EarlyDecisionRule(false, 0.9, 0.0, 1),
+				new EarlyDecisionRule(false, 0.99, 1.0, 3),
+				new EarlyDecisionRule(true, 3.0, 0.5, 2),
+				new EarlyDecisionRule(false, 1.0, 0.0, 1)};
+		CompiledCTBNClassifier.Context context = compiled.newContext(true);
+		int nEarly = 0;
+		for(int i = 0; i < 30; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(10.0);
+			IClassificationResult<Double> exp = algorithm.classify(model, trj);
+			for( EarlyDecisionRule rule : rules) {
+				// Expected decision from the distributions of each transition
+				int iDecision = -1;
+				int stable = 0;
+				String lastClass = null;
+				for(int iJmp = 0; iJmp < exp.getTransitionsNumber() && iDecision == -1; ++iJmp) {
+					double[] p = exp.getPDistribution(iJmp);
+					int iBest = p[0] >= p[1] ? 0 : 1;
+					double margin = rule.isLogOdds() ? Math.log(p[iBest] / p[1 - iBest]) : p[iBest];
+					String c = compiled.getClassStateName(iBest);
+					if( exp.getTransitionTime(iJmp) - exp.getTransitionTime(0) >= rule.getMinTime() && margin >= rule.getThreshold()) {
+						stable = c.equals(lastClass) ? stable + 1 : 1;
+						lastClass = c;
+					} else {
+						stable = 0;
+						lastClass = null;
+					}
+					if( stable >= rule.getStability())
+						iDecision = iJmp;
+				}
+
+				EarlyClassificationResult res = compiled.classifyEarly(trj, rule, false, context);
+				assertTrue( res.isEarlyDecision() == (iDecision != -1));
+				if( iDecision == -1) {
+					assertTrue( res.getDecisionTransition() == trj.getTransitionsNumber() - 1);
+					assertTrue( res.getClassification().equals(exp.getClassification()));
+				} else {
+					++nEarly;
+					assertTrue( res.getDecisionTransition() == iDecision);
+					assertTrue( res.getClassification().equals(lastClass));
+				}
+				assertTrue( res.getDecisionTime() == trj.getTransitionTime(res.getDecisionTransition()));
+				double[] pExp = exp.getPDistribution(res.getDecisionTransition());
+				double[] p = res.getPDistribution();
+				for(int iClass = 0; iClass < p.length; ++iClass)
+					assertEquals( pExp[iClass], p[iClass], 1e-9);
+			}
+		}
+		assertTrue( nEarly > 0);
+
+		// Early decision in the classification algorithm
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int i = 0; i < 10; ++i)
+			dataset.add(model.generateTrajectory(10.0));
+		params.put("earlyLogOdds", 3.0);
+		params.put("earlyStability", 2);
+		algorithm.setParameters(params);
+		List<CompactClassificationResult> results = algorithm.classifyAll(model, dataset);
+		for(int i = 0; i < dataset.size(); ++i) {
+			EarlyClassificationResult exp = compiled.classifyEarly(dataset.get(i), new EarlyDecisionRule(true, 3.0, 0.0, 2), false, compiled.newContext());
+			EarlyClassificationResult res = (EarlyClassificationResult) results.get(i);
+			assertTrue( res.getDecisionTransition() == exp.getDecisionTransition());
+			assertTrue( res.getClassification().equals(exp.getClassification()));
+			assertTrue( algorithm.classifyEarly(model, dataset.get(i)).getDecisionTransition() == exp.getDecisionTransition());
+		}
+
+		// Errors
+		try {
+			params.put("earlyPosterior", 0.9);
+			algorithm.setParameters(params);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			params.put("earlyLogOdds", Double.NaN);
+			params.put("classifyDecider", new BinaryDecider(0.9));
+			algorithm.setParameters(params);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new EarlyDecisionRule(false, 1.5, 0.0, 1);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new EarlyDecisionRule(true, 1.0, 0.0, 0);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new CTBNCClassifyAlgorithm().classifyEarly(model, dataset.get(0));
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+
+	/**
+	 * Generate a model learned from random
+	 * trajectories. The node C is not a child
+	 * of the class, but it is a parent of B.
+	 * The parents of B have different numbers
+	 * of states. The model is shared with the
+	 * tests of the compiled model components.
+	 *
+	 * @param nameIndexing name of the node indexing
+	 * @return learned model
+	 */
+	static CTBNClassifier generateModel(String nameIndexing) {
+
+		String[] names = {"Class", "A", "B", "C"};
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, names, "Class", null);
+		Set<String> states2 = new TreeSet<String>(Arrays.asList("s1", "s2"));
+		Set<String> states3 = new TreeSet<String>(Arrays.asList("s1", "s2", "s3"));
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		nodes.add(new CTDiscreteNode(names[0], states2, true));
+		nodes.add(new CTDiscreteNode(names[1], states2, false));
+		nodes.add(new CTDiscreteNode(names[2], states3, false));
+		nodes.add(new CTDiscreteNode(names[3], states3, false));
+		CTBNClassifier model = new CTBNClassifier(nodeIndexing, "compiled", nodes);
+		boolean[][] adjMatrix = new boolean[4][4];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true; adjMatrix[1][2] = true;
+		adjMatrix[1][3] = true; adjMatrix[3][2] = true;
+
+		Random rand = new Random(9);
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int iTrj = 0; iTrj < 30; ++iTrj) {
+			Vector<Double> times = new Vector<Double>();
+			Vector<String[]> values = new Vector<String[]>();
+			String c = "s" + (1 + rand.nextInt(2));
+			double t = 0.0;
+			for(int i = 0; i < 20; ++i) {
+				String[] v = {c, "s" + (1 + rand.nextInt(2)), "s" + (1 + rand.nextInt(3)), "s" + (1 + rand.nextInt(3))};
+				times.add(t);
+				values.add(v);
+				t += rand.nextDouble();
+			}
+			dataset.add(new CTTrajectory<Double>(nodeIndexing, times, values));
+		}
+
+		CTBNCParameterLLAlgorithm algorithm = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.1);
+		params.put("Px_prior", 1.0);
+		algorithm.setParameters(params);
+		algorithm.setStructure(adjMatrix);
+		algorithm.learn(model, dataset);
+
+		return model;
+	}
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTMultipleCTBNC {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ClassRemappedTrajectory}.
+	 */
+	@Test
+	public void testClassRemappedTrajectory() {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testMultipleRemapped", new String[] {"Class", "A", "B"}, "Class", null);
+		List<ITrajectory<Double>> dataset = generateDataset(nodeIndexing, new Random(3), 5);
+		MultipleCTBNC<Double,CTDiscreteNode> model = new MultipleCTBNC<Double,CTDiscreteNode>("multiple", generateBaseModel(nodeIndexing));
+
+		for( ITrajectory<Double> trj : dataset)
+			for( int iClass = 0; iClass < model.getNumberOfModel(); ++iClass) {
+				ITrajectory<Double> exp = model.generateClassTrajectory(trj, iClass);
+				Map<String,String> mapping = new TreeMap<String,String>();
+				for( int iState = 0; iState < 3; ++iState)
+					mapping.put("c" + iState, iState == iClass ? "c" + iState : MultipleCTBNC.otherStateName);
+				ClassRemappedTrajectory<Double> view = new ClassRemappedTrajectory<Double>(trj, mapping);
+				assertTrue( view.getOriginalTrajectory() == trj);
+				assertTrue( view.getTransitionsNumber() == exp.getTransitionsNumber());
+				for( int i = 0; i < exp.getTransitionsNumber(); ++i) {
+					assertTrue( view.getTransitionTime(i).equals(exp.getTransitionTime(i)));
+					assertTrue( view.getTransition(i).getTime().equals(exp.getTransitionTime(i)));
+					for( int iNode = 0; iNode < 3; ++iNode) {
+						assertTrue( view.getNodeValue(i, iNode).equals(exp.getNodeValue(i, iNode)));
+						assertTrue( view.getTransition(i).getNodeValue(iNode).equals(exp.getNodeValue(i, iNode)));
+					}
+				}
+			}
+
+		try {
+			new ClassRemappedTrajectory<Double>(dataset.get(0), null);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ClassRemappedEncodedTrajectory}.
+	 */
+	@Test
+	public void testClassRemappedEncodedTrajectory() {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testMultipleRemappedEncoded", new String[] {"Class", "A", "B"}, "Class", null);
+		List<ITrajectory<Double>> dataset = generateDataset(nodeIndexing, new Random(4), 5);
+		MultipleCTBNC<Double,CTDiscreteNode> model = new MultipleCTBNC<Double,CTDiscreteNode>("multiple", generateBaseModel(nodeIndexing));
+		StateDictionary baseDictionary = new StateDictionary((CTBNClassifier) model.getBaseModel());
+
+		for( ITrajectory<Double> trj : dataset)
+			for( int iClass = 0; iClass < model.getNumberOfModel(); ++iClass) {
+				StateDictionary dictionary = new StateDictionary((CTBNClassifier) model.getModel(iClass));
+				IEncodedTrajectory exp = CTEncodedTrajectory.encode(model.generateClassTrajectory(trj, iClass), dictionary);
+				ClassRemappedEncodedTrajectory view = new ClassRemappedEncodedTrajectory(CTEncodedTrajectory.encode(trj, baseDictionary), model.getClassMapping(iClass), dictionary);
+				assertTrue( view.getStateDictionary() == dictionary);
+				assertTrue( CTEncodedTrajectory.encode(view, dictionary) == view);
+				for( int i = 0; i < exp.getTransitionsNumber(); ++i) {
+					assertTrue( view.getTime(i) == exp.getTime(i));
+					assertTrue( view.getChangesNumber(i) == exp.getChangesNumber(i));
+					for( int iChange = 0; iChange < exp.getChangesNumber(i); ++iChange)
+						assertTrue( view.getChangedNode(i, iChange) == exp.getChangedNode(i, iChange));
+					for( int iNode = 0; iNode < 3; ++iNode) {
+						assertTrue( view.getStateIndex(i, iNode) == exp.getStateIndex(i, iNode));
+						assertTrue( view.getNodeValue(i, iNode).equals(exp.getNodeValue(i, iNode)));
+					}
+				}
+			}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.MultipleCTBNCLearningAlgorithm#learn(ICTClassifier, java.util.Collection)}.
+	 */
+	@Test
+	public void testLearn() {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testMultipleLearn", new String[] {"Class", "A", "B"}, "Class", null);
+		List<ITrajectory<Double>> dataset = generateDataset(nodeIndexing, new Random(6), 40);
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true; adjMatrix[1][2] = true;
+
+		// Experts learned on the copied class trajectories
+		MultipleCTBNC<Double,CTDiscreteNode> expected = new MultipleCTBNC<Double,CTDiscreteNode>("expected", generateBaseModel(nodeIndexing));
+		for( int iClass = 0; iClass < expected.getNumberOfModel(); ++iClass) {
+			List<ITrajectory<Double>> classDataset = new Vector<ITrajectory<Double>>();
+			for( ITrajectory<Double> trj : dataset)
+				classDataset.add(expected.generateClassTrajectory(trj, iClass));
+			generateParameterAlgorithm(adjMatrix).learn(expected.getModel(iClass), classDataset);
+		}
+
+		// Shared algorithm
+		MultipleCTBNC<Double,CTDiscreteNode> model = new MultipleCTBNC<Double,CTDiscreteNode>("shared", generateBaseModel(nodeIndexing));
+		new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(generateParameterAlgorithm(adjMatrix)).learn(model, dataset);
+		assertTrue( equalCIMs(expected, model));
+
+		// An algorithm for each expert (concurrent learning)
+		List<ILearningAlgorithm<Double,CTDiscreteNode>> algorithms = new Vector<ILearningAlgorithm<Double,CTDiscreteNode>>();
+		for( int iClass = 0; iClass < 3; ++iClass)
+			algorithms.add(generateParameterAlgorithm(adjMatrix));
+		MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode> algorithm = new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(algorithms);
+		assertTrue( algorithm.getParameter("parallelism").equals(1));
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("parallelism", 2);
+		algorithm.setParameters(params);
+		model = new MultipleCTBNC<Double,CTDiscreteNode>("parallel", generateBaseModel(nodeIndexing));
+		ILearningResults results = algorithm.learn(model, dataset);
+		assertTrue( results instanceof MultipleCTBNCLearningResults);
+		assertTrue( equalCIMs(expected, model));
+
+		try {
+			algorithms.add(algorithms.get(0));
+			new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(algorithms);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			params.put("parallelism", 0);
+			algorithm.setParameters(params);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.MultipleCTBNC#classify(IClassifyAlgorithm, ITrajectory)}.
+	 *
+	 * @throws Exception in case of classification errors
+	 */
+	@Test
+	public void testClassify() throws Exception {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testMultipleClassify", new String[] {"Class", "A", "B"}, "Class", null);
+		Random rand = new Random(5);
+		List<ITrajectory<Double>> dataset = generateDataset(nodeIndexing, rand, 40);
+		MultipleCTBNC<Double,CTDiscreteNode> model = new MultipleCTBNC<Double,CTDiscreteNode>("multiple", generateBaseModel(nodeIndexing));
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true; adjMatrix[1][2] = true;
+		new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(generateParameterAlgorithm(adjMatrix)).learn(model, dataset);
+
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			assertTrue( model.getExecutor() == null);
+			model.setExecutor(executor);
+			assertTrue( ((MultipleCTBNC<Double,CTDiscreteNode>) model.clone()).getExecutor() == executor);
+			for( int iTrj = 0; iTrj < 10; ++iTrj) {
+				ITrajectory<Double> trj = dataset.get(iTrj);
+
+				// Results of the experts on the copied class trajectories
+				double[] pExp = new double[model.getNumberOfModel()];
+				double sum = 0.0;
+				for( int iClass = 0; iClass < pExp.length; ++iClass) {
+					IClassificationResult<Double> res = algorithm.classify(model.getModel(iClass), model.generateClassTrajectory(trj, iClass));
+					pExp[iClass] = res.getProbability(model.getClassName(iClass));
+					sum += pExp[iClass];
+				}
+				for( int iClass = 0; iClass < pExp.length; ++iClass)
+					pExp[iClass] /= sum;
+
+				model.setExecutor(null);
+				IClassificationResult<Double> serial = model.classify(algorithm, trj);
+				IClassificationResult<Double> serialSampled = model.classify(algorithm, trj, 0.3);
+				model.setExecutor(executor);
+				IClassificationResult<Double> parallel = model.classify(algorithm, trj);
+				IClassificationResult<Double> parallelSampled = model.classify(algorithm, trj, 0.3);
+				assertTrue( serial.getClassification().equals(parallel.getClassification()));
+				assertTrue( Arrays.equals(serial.getPDistribution(), pExp));
+				assertTrue( serial.getTransitionsNumber() == parallel.getTransitionsNumber());
+				for( int i = 0; i < serial.getTransitionsNumber(); ++i)
+					assertTrue( Arrays.equals(serial.getPDistribution(i), parallel.getPDistribution(i)));
+
+				assertTrue( serialSampled.getTransitionsNumber() == parallelSampled.getTransitionsNumber());
+				assertTrue( Arrays.equals(serialSampled.getPDistribution(), parallelSampled.getPDistribution()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test the classification of a model learned from
+	 * a base model with an executor (command line 1vs1
+	 * modality): the learned model keeps the executor
+	 * and classifies as the model without executor.
+	 *
+	 * @throws Exception in case of classification errors
+	 */
+	@Test
+	public void testClassifyLearnedWithExecutor() throws Exception {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testMultipleExecutor", new String[] {"Class", "A", "B"}, "Class", null);
+		Random rand = new Random(7);
+		List<ITrajectory<Double>> dataset = generateDataset(nodeIndexing, rand, 30);
+		boolean[][] adjMatrix = new boolean[3][3];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true; adjMatrix[2][1] = true;
+
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MultipleCTBNC<Double,CTDiscreteNode> parallel = new MultipleCTBNC<Double,CTDiscreteNode>("multiple", generateBaseModel(nodeIndexing));
+			parallel.setExecutor(executor);
+			new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(generateParameterAlgorithm(adjMatrix)).learn(parallel, dataset);
+			assertTrue( parallel.getExecutor() == executor);
+
+			MultipleCTBNC<Double,CTDiscreteNode> serial = new MultipleCTBNC<Double,CTDiscreteNode>("multiple", generateBaseModel(nodeIndexing));
+			new MultipleCTBNCLearningAlgorithm<Double,CTDiscreteNode>(generateParameterAlgorithm(adjMatrix)).learn(serial, dataset);
+			assertTrue( serial.getExecutor() == null);
+
+			for( ITrajectory<Double> trj : dataset) {
+				IClassificationResult<Double> resSerial = serial.classify(algorithm, trj);
+				IClassificationResult<Double> resParallel = parallel.classify(algorithm, trj);
+				assertTrue( resSerial.getClassification().equals(resParallel.getClassification()));
+				assertTrue( Arrays.equals(resSerial.getPDistribution(), resParallel.getPDistribution()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Generate a parameter learning algorithm.
+	 *
+	 * @param adjMatrix structure of the models
+	 * @return parameter learning algorithm
+	 */
+	private static CTBNCParameterLLAlgorithm generateParameterAlgorithm(boolean[][] adjMatrix) {
+
+		CTBNCParameterLLAlgorithm algorithm = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.1);
+		params.put("Px_prior", 1.0);
+		algorithm.setParameters(params);
+		algorithm.setStructure(adjMatrix);
+
+		return algorithm;
+	}
+
+	/**
+	 * True if the experts of the two models
+	 * have the same CIMs.
+	 *
+	 * @param model1 first model
+	 * @param model2 second model
+	 * @return true if the CIMs are equal
+	 */
+	private static boolean equalCIMs(MultipleCTBNC<Double,CTDiscreteNode> model1, MultipleCTBNC<Double,CTDiscreteNode> model2) {
+
+		for( int iClass = 0; iClass < model1.getNumberOfModel(); ++iClass)
+			for( int iNode = 0; iNode < 3; ++iNode) {
+				CTDiscreteNode node1 = model1.getModel(iClass).getNode(iNode);
+				CTDiscreteNode node2 = model2.getModel(iClass).getNode(iNode);
+				if( node1.getNumberParentsEntries() != node2.getNumberParentsEntries())
+					return false;
+				for( int pE = 0; pE < node1.getNumberParentsEntries(); ++pE)
+					if( !Arrays.deepEquals(node1.getCIM(pE), node2.getCIM(pE)))
+						return false;
+			}
+
+		return true;
+	}
+
+	/**
+	 * Generate the base model with a class
+	 * of three states.
+	 *
+	 * @param nodeIndexing node indexing
+	 * @return base model
+	 */
+	private static CTBNClassifier generateBaseModel(NodeIndexing nodeIndexing) {
+
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		nodes.add(new CTDiscreteNode("Class", new TreeSet<String>(Arrays.asList("c0", "c1", "c2")), true));
+		nodes.add(new CTDiscreteNode("A", new TreeSet<String>(Arrays.asList("a0", "a1")), false));
+		nodes.add(new CTDiscreteNode("B", new TreeSet<String>(Arrays.asList("b0", "b1", "b2")), false));
+
+		return new CTBNClassifier(nodeIndexing, "base", nodes);
+	}
+
+	/**
+	 * Generate a random dataset.
+	 *
+	 * @param nodeIndexing node indexing
+	 * @param rand random generator
+	 * @param nTrajectories number of trajectories
+	 * @return dataset
+	 */
+	private static List<ITrajectory<Double>> generateDataset(NodeIndexing nodeIndexing, Random rand, int nTrajectories) {
+
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int iTrj = 0; iTrj < nTrajectories; ++iTrj) {
+			Vector<Double> times = new Vector<Double>();
+			Vector<String[]> values = new Vector<String[]>();
+			int c = rand.nextInt(3);
+			double t = 0.0;
+			for(int i = 0; i < 20; ++i) {
+				String[] v = {"c" + c, "a" + rand.nextInt(2), "b" + ((rand.nextInt(2) + c) % 3)};
+				times.add(t);
+				values.add(v);
+				t += rand.nextDouble();
+			}
+			CTTrajectory<Double> trj = new CTTrajectory<Double>(nodeIndexing, times, values);
+			trj.setName("trj" + iTrj);
+			dataset.add(trj);
+		}
+
+		return dataset;
+	}
+}
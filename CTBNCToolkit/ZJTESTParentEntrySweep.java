@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTParentEntrySweep {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ParentEntrySweep#setState(int, int)}.
+	 */
+	@Test
+	public void testSetState() {
+
+		String[] names = {"Class", "A", "B", "D"};
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testSweepSetState", names, "Class", null);
+		int[] statesNumber = {2, 3, 2, 4};
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		for(int i = 0; i < names.length; ++i) {
+			Set<String> states = new TreeSet<String>();
+			for(int s = 0; s < statesNumber[i]; ++s)
+				states.add("s" + s);
+			nodes.add(new CTDiscreteNode(names[i], states, i == 0));
+		}
+		CTBNClassifier model = new CTBNClassifier(nodeIndexing, "sweep", nodes);
+		boolean[][] adjMatrix = new boolean[4][4];
+		adjMatrix[0][1] = true; adjMatrix[0][2] = true; adjMatrix[0][3] = true;
+		adjMatrix[2][3] = true; adjMatrix[1][3] = true; adjMatrix[2][1] = true;
+		model.setStructure(adjMatrix);
+
+		ParentStrideTable strides = new ParentStrideTable(model);
+		ParentEntrySweep sweep = new ParentEntrySweep(strides);
+		assertTrue( sweep.getStrideTable() == strides);
+		assertTrue( sweep.getChildrenNumber(0) == 3);
+		assertTrue( sweep.getChildrenNumber(2) == 2);
+		assertTrue( sweep.getChildrenNumber(3) == 0);
+		for(int iNode = 0; iNode < 4; ++iNode)
+			for(int iParent = 0; iParent < 4; ++iParent) {
+				int stride = sweep.getStride(iNode, iParent);
+				assertTrue( (stride != 0) == adjMatrix[iParent][iNode]);
+			}
+
+		Random rand = new Random(3);
+		int[] state = {1, 2, 0, 3};
+		sweep.initialize(state);
+		for(int iStep = 0; iStep < 500; ++iStep) {
+			int iNode = rand.nextInt(4);
+			state[iNode] = rand.nextInt(statesNumber[iNode]);
+			sweep.setState(iNode, state[iNode]);
+			for(int i = 0; i < 4; ++i) {
+				assertTrue( sweep.getState(i) == state[i]);
+				assertTrue( sweep.getParentsEntry(i) == strides.parentsEntry(i, state));
+			}
+		}
+
+		try {
+			new ParentEntrySweep(null);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTParentStrideTable {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ParentStrideTable#parentsEntry(int, int[])}.
+	 */
+	@Test
+	public void testParentsEntry() {
+
+		CTBNClassifier model = ZJTESTCompiledCTBNClassifier.generateModel("testStridesEntry");
+		ParentStrideTable strides = new ParentStrideTable(model);
+		assertTrue( strides.getNodesNumber() == 4);
+		assertTrue( strides.getParentsNumber(0) == 0);
+		assertTrue( strides.getParentsNumber(2) == 3);
+		assertTrue( strides.getParentIndex(2, 0) == model.getNodeIndexing().getIndex( model.getNode(2).getParent(0).getName()));
+
+		// All the states of the nodes
+		int[] state = new int[4];
+		int iIncrement;
+		do {
+			for(int iNode = 0; iNode < 4; ++iNode)
+				model.getNode(iNode).setEvidence(state[iNode]);
+			for(int iNode = 0; iNode < 4; ++iNode) {
+				CTDiscreteNode node = model.getNode(iNode);
+				assertTrue( strides.getParentEntriesNumber(iNode) == node.getNumberParentsEntries());
+				assertTrue( strides.parentsEntry(iNode, state) == node.getCurrentParentsEntry());
+			}
+
+			for(iIncrement = 0; iIncrement < 4 && state[iIncrement] == model.getNode(iIncrement).getStatesNumber() - 1; ++iIncrement)
+				state[iIncrement] = 0;
+			if( iIncrement < 4)
+				++state[iIncrement];
+		} while( iIncrement < 4);
+	}
+
+	/**
+	 * Test method for {@link CTBNCToolkit.ParentStrideTable#setParentsState(int, int, int[])}
+	 * and {@link CTBNCToolkit.ParentStrideTable#getParentState(int, int, int)}.
+	 */
+	@Test
+	public void testSetParentsState() {
+
+		CTBNClassifier model = ZJTESTCompiledCTBNClassifier.generateModel("testStridesState");
+		ParentStrideTable strides = new ParentStrideTable(model);
+		CTDiscreteNode node = model.getNode(2);
+		int[] state = new int[4];
+		for(int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+			strides.setParentsState(2, pE, state);
+			node.setParentsEntry(pE);
+			for(int i = 0; i < node.getParentsNumber(); ++i) {
+				int iParent = strides.getParentIndex(2, i);
+				assertTrue( state[iParent] == node.getParent(i).getCurrentStateIndex());
+				assertTrue( strides.getParentState(2, i, pE) == state[iParent]);
+			}
+			assertTrue( strides.parentsEntry(2, state) == pE);
+		}
+
+		try {
+			strides.setParentsState(2, node.getNumberParentsEntries(), state);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new ParentStrideTable(null);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+}
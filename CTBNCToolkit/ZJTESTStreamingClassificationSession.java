@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTStreamingClassificationSession {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.StreamingClassificationSession#update(double, String, String)}.
+	 */
+	@Test
+	public void testUpdate() {
+
+		CTBNClassifier model = ZJTESTCompiledCTBNClassifier.generateModel("testStreamingUpdate");
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("probabilities", true);
+		algorithm.setParameters(params);
+
+		StreamingClassificationSession session = new StreamingClassificationSession(model);
+		StreamingClassificationSession pruningSession = new StreamingClassificationSession(model.compile(), true);
+		assertFalse( session.isStarted());
+		double[] p = new double[2];
+		double[] logP = new double[2];
+		for(int iTrj = 0; iTrj < 30; ++iTrj) {
+			ITrajectory<Double> trj = model.generateTrajectory(10.0);
+			IClassificationResult<Double> exp = algorithm.classify(model, trj);
+
+			String[] values = new String[4];
+			for(int iNode = 0; iNode < 4; ++iNode)
+				values[iNode] = trj.getNodeValue(0, iNode);
+			for( StreamingClassificationSession s : Arrays.asList(session, pruningSession))
+				s.start(trj.getTransitionTime(0), values);
+			for(int iJmp = 0; iJmp < trj.getTransitionsNumber(); ++iJmp) {
+				for( StreamingClassificationSession s : Arrays.asList(session, pruningSession))
+					s.advance(trj.getTransitionTime(iJmp));
+				for(int iNode = 1; iJmp > 0 && iNode < 4; ++iNode)
+					if( !trj.getNodeValue(iJmp, iNode).equals(trj.getNodeValue(iJmp - 1, iNode)))
+						for( StreamingClassificationSession s : Arrays.asList(session, pruningSession))
+							s.update(trj.getTransitionTime(iJmp), model.getNode(iNode).getName(), trj.getNodeValue(iJmp, iNode));
+
+				double[] pExp = exp.getPDistribution(iJmp);
+				for( StreamingClassificationSession s : Arrays.asList(session, pruningSession)) {
+					assertTrue( s.getTime() == trj.getTransitionTime(iJmp));
+					s.posterior(p);
+					s.logPosterior(logP);
+					for(int iClass = 0; iClass < 2; ++iClass) {
+						assertEquals( pExp[iClass], p[iClass], 1e-9);
+						assertEquals( Math.log(p[iClass]), logP[iClass], 1e-9);
+					}
+				}
+			}
+			assertTrue( session.getClassification().equals(exp.getClassification()));
+		}
+
+		// Time without transitions
+		session.advance(session.getTime() + 1.0);
+		assertTrue( Arrays.equals(session.posterior(), session.posterior()));
+	}
+
+	/**
+	 * Test the numerical stability on a long
+	 * trajectory.
+	 */
+	@Test
+	public void testLongTrajectory() {
+
+		CTBNClassifier model = ZJTESTCompiledCTBNClassifier.generateModel("testStreamingLong");
+		ITrajectory<Double> trj = model.generateTrajectory(20000.0);
+		StreamingClassificationSession session = new StreamingClassificationSession(model);
+		String[] values = new String[4];
+		for(int iNode = 0; iNode < 4; ++iNode)
+			values[iNode] = trj.getNodeValue(0, iNode);
+		session.start(trj.getTransitionTime(0), values);
+		for(int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp)
+			for(int iNode = 1; iNode < 4; ++iNode)
+				if( !trj.getNodeValue(iJmp, iNode).equals(trj.getNodeValue(iJmp - 1, iNode)))
+					session.update(trj.getTransitionTime(iJmp), iNode, model.compile().getStateDictionary().getStateIndex(iNode, trj.getNodeValue(iJmp, iNode)));
+
+		double[] p = session.posterior();
+		double sum = 0.0;
+		for(int iClass = 0; iClass < p.length; ++iClass) {
+			assertFalse( Double.isNaN(p[iClass]));
+			sum += p[iClass];
+		}
+		assertEquals( 1.0, sum, 1e-9);
+
+		CompiledCTBNClassifier compiled = model.compile();
+		CompactClassificationResult res = compiled.classifyCompact(trj, true, false, compiled.newContext());
+		assertTrue( session.getClassification().equals(res.getClassification()));
+		for(int iClass = 0; iClass < p.length; ++iClass)
+			assertEquals( res.getPDistribution()[iClass], p[iClass], 1e-6);
+	}
+
+	/**
+	 * Test the errors of the session.
+	 */
+	@Test
+	public void testErrors() {
+
+		CTBNClassifier model = ZJTESTCompiledCTBNClassifier.generateModel("testStreamingErrors");
+		StreamingClassificationSession session = new StreamingClassificationSession(model);
+		try {
+			session.update(1.0, 1, 0);
+			fail("Exception expected");
+		} catch( IllegalStateException e) {}
+		try {
+			session.posterior();
+			fail("Exception expected");
+		} catch( IllegalStateException e) {}
+
+		session.start(1.0, new int[] {0, 0, 0, 0});
+		try {
+			session.update(0.5, 1, 1);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			session.update(2.0, 0, 1);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			session.update(2.0, 1, 2);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			session.update(2.0, "A", "s9");
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			session.update(2.0, "Z", "s1");
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			session.start(1.0, new int[] {0, 0, 0});
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			new StreamingClassificationSession(null, false);
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+}
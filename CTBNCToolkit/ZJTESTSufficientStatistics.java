@@ -207,4 +207,44 @@ public class ZJTESTSufficientStatistics {
 		sStats.isStatic();
 	}
 
+	/**
+	 * Test method for {@link CTBNCToolkit.SufficientStatistics#merge(SufficientStatistics)}.
+	 */
+	@Test
+	public void testMerge() {
+		
+		SufficientStatistics sStats = new SufficientStatistics(2, 3, false, 0.0, 1.0, 0.1);
+		SufficientStatistics shard = new SufficientStatistics(2, 3, false, 0.0, 0.0, 0.0);
+		shard.Mxx[1][0][2] = 3.0; shard.Mx[1][0] = 3.0; shard.Tx[1][0] = 2.5;
+		sStats.merge(shard);
+		assertTrue( sStats.Mxx[1][0][2] == 4.0);
+		assertTrue( sStats.Mxx[1][0][1] == 1.0);
+		assertTrue( sStats.Mx[1][0] == 5.0);
+		assertTrue( sStats.Tx[1][0] == 2.6);
+		assertTrue( sStats.Tx[0][0] == 0.1);
+		assertTrue( shard.Mxx[1][0][2] == 3.0);
+		
+		sStats = new SufficientStatistics(2, 3, true, 1.0, 0.0, 0.0);
+		shard = new SufficientStatistics(2, 3, true, 0.0, 0.0, 0.0);
+		shard.Px[0][0][1] = 2.0; shard.counts[0] = 2.0;
+		sStats.merge(shard);
+		assertTrue( sStats.Px[0][0][1] == 3.0);
+		assertTrue( sStats.Px[0][0][0] == 1.0);
+		assertTrue( sStats.counts[0] == 5.0);
+		assertTrue( sStats.counts[1] == 3.0);
+		
+		try {
+			sStats.merge(new SufficientStatistics(2, 3, false, 0.0, 0.0, 0.0));
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			sStats.merge(new SufficientStatistics(1, 3, true, 0.0, 0.0, 0.0));
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+		try {
+			sStats.merge(new SufficientStatistics());
+			fail("Exception expected");
+		} catch( IllegalArgumentException e) {}
+	}
+
 }
@@ -558,21 +558,31 @@ public class CTBNClusteringParametersLLAlgorithm extends ClusteringAlgorithm<Dou
 		SufficientStatistics[][] stats = initializeTrajectoriesSufficientStatistics(model, trainingSet);
 		
 		// Sufficient statistics calculation
+		StateDictionary dictionary = new StateDictionary(model);
+		int[][] children = DiscreteModel.getChildrenIndexes(model);
+		double[] lastChangeTime = new double[nodeIndexing.getNodesNumber()];	// time from which each node has the current state and parent entry
+		int[] updateStamp = new int[nodeIndexing.getNodesNumber()];			// last jump in which the node time is updated
+		int jmpStamp = 0;
 		Iterator<ITrajectory<Double>> itTrj = trainingSet.iterator();
 		for( int iTrj = 0; itTrj.hasNext(); ++iTrj) {								// for each trajectory in the training set
-			ITrajectory<Double> trj = itTrj.next();
+			ITrajectory<Double> sourceTrj = itTrj.next();
 			
-			if( trj.getTransitionsNumber() == 0)
+			if( sourceTrj.getTransitionsNumber() == 0)
 				continue;
+			IEncodedTrajectory trj = CTEncodedTrajectory.encode(sourceTrj, dictionary);	// state indexes of the model (the class values are ignored)
 
 			// Initialization at time 0
-			double lastTime = trj.getTransitionTime(0);								// set the last changing time
 			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
 				CTDiscreteNode cNode = model.getNode(iNode);
-				if( iNode == iClassNode)											// because the class is unknown we suppose the first
+				lastChangeTime[iNode] = trj.getTime(0);								// set the last changing time
+				if( iNode == iClassNode) {											// because the class is unknown we suppose the first
 					cNode.setEvidence(0); 											// set the evidence
-				else
-					cNode.setEvidence(trj.getNodeValue(0, iNode)); 		// set the evidence
+					continue;
+				}
+				int stIndex = trj.getStateIndex(0, iNode);
+				if( stIndex == -1)
+					throw new IllegalArgumentException("Error: State " + sourceTrj.getNodeValue(0, iNode) + " didn't find!");
+				cNode.setEvidence(stIndex); 										// set the evidence
 			}
 
 			// Sufficient statistics for static nodes
@@ -586,52 +596,63 @@ public class CTBNClusteringParametersLLAlgorithm extends ClusteringAlgorithm<Dou
 			}
 
 			// Sufficient statistics for the continuous nodes
-			// For each jump
+			// For each jump (only the changed nodes and their children are updated)
 			for( int iJmp = 1; iJmp < trj.getTransitionsNumber(); ++iJmp) {
 				
-				double deltaT = trj.getTransitionTime(iJmp) - lastTime;
+				int nChanges = trj.getChangesNumber(iJmp);
+				if( nChanges == 0)
+					continue;
+				double time = trj.getTime(iJmp);
+				++jmpStamp;
 				
-				// For each node (update the sufficient statistics)
-				for(int chNodeIndex = 0; chNodeIndex < nodeIndexing.getNodesNumber(); ++chNodeIndex) {
+				// For each changed node (update the time spent in the current state by the node and by its children)
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int chNodeIndex = trj.getChangedNode(iJmp, iChange);
 					if( chNodeIndex == iClassNode)										// ignore the class node
 						continue;
 					
-					// Get the node information
 					CTDiscreteNode chNode = model.getNode( chNodeIndex);
-					int prevStIndex = chNode.getCurrentStateIndex();
-					int nextStIndex = chNode.getStateIndex( trj.getNodeValue( iJmp, chNodeIndex));
-					int pE = chNode.getCurrentParentsEntry();
-					
-					// Update the jump values
-					if( !chNode.isStaticNode()) {
-						stats[iTrj][chNodeIndex].Tx[pE][prevStIndex] += deltaT;
-						if(prevStIndex != nextStIndex) {								// if the node really jumped
-							++stats[iTrj][chNodeIndex].Mxx[pE][prevStIndex][nextStIndex];
-							++stats[iTrj][chNodeIndex].Mx[pE][prevStIndex];
-						} 
-					}else if(prevStIndex != nextStIndex) 
+					if( trj.getStateIndex( iJmp, chNodeIndex) == -1)
+						throw new IllegalArgumentException("Error: State " + sourceTrj.getNodeValue(iJmp, chNodeIndex) + " didn't find!");
+					if( chNode.isStaticNode())
 						throw new IllegalArgumentException("Error: static nodes (" + chNode.getName() + ") can not change their state during a trajectory (trj = " + trj.getName() + ")");
+					
+					updateTime(model, stats[iTrj], chNodeIndex, time, lastChangeTime, updateStamp, jmpStamp);
+					for(int iChild = 0; iChild < children[chNodeIndex].length; ++iChild)
+						updateTime(model, stats[iTrj], children[chNodeIndex][iChild], time, lastChangeTime, updateStamp, jmpStamp);
 				}
-	
-				// For each changed node (set the new state)
-				for(int chNodeIndex = 0; chNodeIndex < nodeIndexing.getNodesNumber(); ++chNodeIndex) {
+				
+				// For each changed node (update the jump values)
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int chNodeIndex = trj.getChangedNode(iJmp, iChange);
 					if( chNodeIndex == iClassNode)										// ignore the class node
 						continue;
 					
-					// Get the node information
 					CTDiscreteNode chNode = model.getNode( chNodeIndex);
 					int prevStIndex = chNode.getCurrentStateIndex();
-					int nextStIndex = chNode.getStateIndex( trj.getNodeValue( iJmp, chNodeIndex));
-					if( prevStIndex == nextStIndex)
+					int nextStIndex = trj.getStateIndex( iJmp, chNodeIndex);
+					int pE = chNode.getCurrentParentsEntry();
+					
+					++stats[iTrj][chNodeIndex].Mxx[pE][prevStIndex][nextStIndex];
+					++stats[iTrj][chNodeIndex].Mx[pE][prevStIndex];
+				}
+	
+				// For each changed node (set the new state)
+				for(int iChange = 0; iChange < nChanges; ++iChange) {
+					int chNodeIndex = trj.getChangedNode(iJmp, iChange);
+					if( chNodeIndex == iClassNode)										// ignore the class node
 						continue;
 					
-					chNode.setEvidence(nextStIndex);
+					model.getNode( chNodeIndex).setEvidence( trj.getStateIndex( iJmp, chNodeIndex));
 				}
-
-				// Update the last transition time 
-				lastTime = trj.getTransitionTime(iJmp);
 				
 			} // end of the for over the jumps in a trajectory
+			
+			// Time spent in the last states
+			++jmpStamp;
+			double endTime = trj.getTime(trj.getTransitionsNumber() - 1);
+			for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+				updateTime(model, stats[iTrj], iNode, endTime, lastChangeTime, updateStamp, jmpStamp);
 		} // end for over trajectories
 
 		// Retract all the evidences
@@ -642,6 +663,33 @@ public class CTBNClusteringParametersLLAlgorithm extends ClusteringAlgorithm<Dou
 	}
 
 
+	/**
+	 * Add to the sufficient statistic T[x|u] of a
+	 * node the time spent in the current state and
+	 * parent entry from its last change. The node
+	 * is updated only once for each jump.
+	 * 
+	 * @param model model used to generate the sufficient statistics
+	 * @param trjStats sufficient statistics of the trajectory
+	 * @param iNode index of the node to update
+	 * @param time time of the current jump
+	 * @param lastChangeTime time of the last update of each node
+	 * @param updateStamp last jump in which each node was updated
+	 * @param jmpStamp identifier of the current jump
+	 */
+	private static void updateTime(IModel<Double, CTDiscreteNode> model, SufficientStatistics[] trjStats, int iNode, double time, double[] lastChangeTime, int[] updateStamp, int jmpStamp) {
+		
+		if( updateStamp[iNode] == jmpStamp)
+			return;
+		updateStamp[iNode] = jmpStamp;
+		
+		CTDiscreteNode node = model.getNode( iNode);
+		if( !node.isStaticNode())
+			trjStats[iNode].Tx[node.getCurrentParentsEntry()][node.getCurrentStateIndex()] += time - lastChangeTime[iNode];
+		lastChangeTime[iNode] = time;
+	}
+	
+	
 	/**
 	 * Initialize the sufficient statistics
 	 * for each trajectory and put to zero
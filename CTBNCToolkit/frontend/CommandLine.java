@@ -17,6 +17,8 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import CTBNCToolkit.BinaryDecider;
 import CTBNCToolkit.CTBNCClassifyAlgorithm;
@@ -43,7 +45,9 @@ import CTBNCToolkit.performances.ClusteringExternalPerformancesFactory;
 import CTBNCToolkit.performances.IPerformances;
 import CTBNCToolkit.performances.MicroMacroClassificationPerformances;
 import CTBNCToolkit.performances.MicroMacroClassificationPerformancesFactory;
+import CTBNCToolkit.tests.BinaryDataset;
 import CTBNCToolkit.tests.CTBNCTestFactory;
+import CTBNCToolkit.tests.DatasetLoader;
 import CTBNCToolkit.tests.GenericTestResults;
 import CTBNCToolkit.tests.ITestFactory;
 import CTBNCToolkit.tests.ITestResults;
@@ -140,6 +144,10 @@ public class CommandLine {
 													"\tthis modifier have to be used if you want to test the models over a smaller and randomly chosen part\n" +
 													"\t of the dataset",																						"enabled"},	// cutPercentage
 		{"timeFactor",		"setTimeFactor",		"specify the time factor to use to scale the time column (default value: 1.0)",								"enabled"},	// timeFactor
+		{"toBinary",		"setBinaryDatasetPath",	"save the loaded dataset in the specified binary file (i.e. the data before any permutation or cutting);\n" +
+													"\tthe binary files (extension \"" + BinaryDataset.EXTENSION + "\") can be used as input data and they are memory mapped instead of parsed\n" +
+													"\texample: --toBinary=dataset" + BinaryDataset.EXTENSION,												"enabled"},	// toBinary
+		{"threads",			"setThreadsNumber",		"specify the maximum number of threads to use (default value: 1)",											"enabled"},	// threads
 		{"training",		"setTrainingSet",		"specify training set to use to lean the models",															"enabled"},	// training
 		//?{"testset",			"setTestSet",			"TODO",			"enabled"},	// testset
 		{"rPath",			"setResultsPath",		"specify the directory where generate the results (default path is the DataPath)",							"enabled"},	// rPath
@@ -254,57 +262,69 @@ public class CommandLine {
 		else
 			baseNBModel = new MultipleCTBNC<Double,CTDiscreteNode> ( "mult_" + nbModel.getName(), (ICTClassifier<Double,CTDiscreteNode>) nbModel);
 		
-		// Load the learning algorithms to test
-		List<ILearningAlgorithm<Double, CTDiscreteNode>> learningAlgorithms = loadLearningAlgorithms( baseNBModel);
+		// Executor of the 1vs1 experts
+		ExecutorService expertsExecutor = null;
+		if( this.m1vs1c && this.nThreads > 1) {
+			expertsExecutor = Executors.newFixedThreadPool( Math.min(this.nThreads, nbModel.getClassNode().getStatesNumber()));
+			((MultipleCTBNC<Double,CTDiscreteNode>) baseNBModel).setExecutor(expertsExecutor);
+		}
+		
+		try {
+			// Load the learning algorithms to test
+			List<ILearningAlgorithm<Double, CTDiscreteNode>> learningAlgorithms = loadLearningAlgorithms( baseNBModel);
 		
-		// Load the inference (classification) algorithm		
-		CTBNCClassifyAlgorithm classificationAlg = loadInferenceAlgorithm();
+			// Load the inference (classification) algorithm		
+			CTBNCClassifyAlgorithm classificationAlg = loadInferenceAlgorithm();
 		
-		// Execute the tests
-		if( this.cvValidation != null) {				// CROSS VALIDATION
-			this.verbosePrint("Cross validation (" + this.cvValidation.getKFolds() + " folds)\n");	
-			this.cvValidation.setVerbose(this.verbose);
+			// Execute the tests
+			if( this.cvValidation != null) {				// CROSS VALIDATION
+				this.verbosePrint("Cross validation (" + this.cvValidation.getKFolds() + " folds)\n");	
+				this.cvValidation.setVerbose(this.verbose);
 			
-			// Generate the factories to execute the tests
-			List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,MicroMacroClassificationPerformances<Double,ClassificationStandardPerformances<Double>>>> testFactories =
-					generateTestFactories(learningAlgorithms, classificationAlg, this.cvValidation);
+				// Generate the factories to execute the tests
+				List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,MicroMacroClassificationPerformances<Double,ClassificationStandardPerformances<Double>>>> testFactories =
+						generateTestFactories(learningAlgorithms, classificationAlg, this.cvValidation);
 	
-			// Execute tests
-			List<GenericTestResults<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,MicroMacroClassificationPerformances<Double,ClassificationStandardPerformances<Double>>>> resultsList =
-					executeTests( testFactories, testSet, baseNBModel);
+				// Execute tests
+				List<GenericTestResults<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,MicroMacroClassificationPerformances<Double,ClassificationStandardPerformances<Double>>>> resultsList =
+						executeTests( testFactories, testSet, baseNBModel);
 			
-			// Comparison tests
-			comparisonTest(this.resultsPath + S + "methodsComparison.csv", resultsList);
+				// Comparison tests
+				comparisonTest(this.resultsPath + S + "methodsComparison.csv", resultsList);
 
-		}else if( this.hoValidation != null) {			// HOLD OUT
-			this.verbosePrint("Hold out\n");
-			this.hoValidation.setVerbose(this.verbose);
+			}else if( this.hoValidation != null) {			// HOLD OUT
+				this.verbosePrint("Hold out\n");
+				this.hoValidation.setVerbose(this.verbose);
 			
-			// Generate the factories to execute the tests
-			List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClassificationStandardPerformances<Double>>> testFactories =
-					generateTestFactories(learningAlgorithms, classificationAlg, this.hoValidation);
+				// Generate the factories to execute the tests
+				List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClassificationStandardPerformances<Double>>> testFactories =
+						generateTestFactories(learningAlgorithms, classificationAlg, this.hoValidation);
 
-			// Execute tests
-			List<GenericTestResults<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClassificationStandardPerformances<Double>>> resultsList =
-					executeTests( testFactories, testSet, baseNBModel);
+				// Execute tests
+				List<GenericTestResults<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClassificationStandardPerformances<Double>>> resultsList =
+						executeTests( testFactories, testSet, baseNBModel);
 			
-			// Comparison tests
-			comparisonTest(this.resultsPath + S + "methodsComparison.csv", resultsList);
+				// Comparison tests
+				comparisonTest(this.resultsPath + S + "methodsComparison.csv", resultsList);
 
-		}else if( this.clusteringValidation != null) {	// CLUSTERING (in sample)
-			this.verbosePrint("Clustering (in sample)\n");
-			this.clusteringValidation.setVerbose(this.verbose);
+			}else if( this.clusteringValidation != null) {	// CLUSTERING (in sample)
+				this.verbosePrint("Clustering (in sample)\n");
+				this.clusteringValidation.setVerbose(this.verbose);
 			
-			// Generate the factories to execute the tests
-			List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClusteringExternalPerformances<Double>>> testFactories =
-					generateTestFactories(learningAlgorithms, classificationAlg, this.clusteringValidation);
+				// Generate the factories to execute the tests
+				List<ITestFactory<Double,CTDiscreteNode,ICTClassifier<Double,CTDiscreteNode>,ClusteringExternalPerformances<Double>>> testFactories =
+						generateTestFactories(learningAlgorithms, classificationAlg, this.clusteringValidation);
 			
-			// Execute tests
-			executeTests( testFactories, testSet, baseNBModel);
+				// Execute tests
+				executeTests( testFactories, testSet, baseNBModel);
 			
-		}else {
-			System.err.println("Code bug: no validation method is enable");
-			System.exit(1);
+			}else {
+				System.err.println("Code bug: no validation method is enable");
+				System.exit(1);
+			}
+		} finally {
+			if( expertsExecutor != null)
+				expertsExecutor.shutdown();
 		}
 		
 	}
@@ -828,77 +848,7 @@ public class CommandLine {
 				
 				String[] modelData = this.modelToTest.get(i);
 				this.verbosePrint("\t. model " + i + ": " +  modelData[0] + "\n");
-				
-				// Set the parameter learning parameters
-				Map<String, Object> paramsParamsLAlg = new TreeMap<String,Object>();
-				this.verbosePrint("\t\t. Mxx_prior = " + modelData[1] + "\n");
-				paramsParamsLAlg.put("Mxx_prior", Double.parseDouble( modelData[1]));
-				this.verbosePrint("\t\t. Tx_prior = " + modelData[2] + "\n");
-				paramsParamsLAlg.put("Tx_prior", Double.parseDouble( modelData[2]));
-				this.verbosePrint("\t\t. Px_prior = " + modelData[3] + "\n");
-				paramsParamsLAlg.put("Px_prior", Double.parseDouble( modelData[3]));
-				
-				// Set the parameter learning algorithm
-				ILearningAlgorithm<Double, CTDiscreteNode> paramLearningAlg = null;
-				if( this.cvValidation != null || this.hoValidation != null) {	// classification
-					// Parameter learning algorithm
-					this.verbosePrint("\t\t. generation of classification parameter learning algorithm\n");
-					CTBNCParameterLLAlgorithm classificationLearningAlg = new CTBNCParameterLLAlgorithm();
-					
-					paramLearningAlg = classificationLearningAlg;
-					
-				}else if( this.clusteringValidation != null) {					// clustering
-					this.verbosePrint("\t\t. cluster type = " + this.testType + " clustering\n");
-					paramsParamsLAlg.put("hardClustering", this.testType.equals("hard"));
-					this.verbosePrint("\t\t. max iteration = " + this.stopCriterion.getMaxIteration() + "\n");
-					this.verbosePrint("\t\t. % bound = " + this.stopCriterion.getChangedBound() + "\n");
-	
-					// Parameter learning algorithm
-					this.verbosePrint("\t\t. generation of clustering parameter learning algorithm\n");
-					CTBNClusteringParametersLLAlgorithm clusteringLearningAlg = new CTBNClusteringParametersLLAlgorithm();
-					clusteringLearningAlg.setStopCriterion( this.stopCriterion);
-					
-					paramLearningAlg = clusteringLearningAlg;
-				}else {
-					System.err.println("Code bug: no validation method is enable");
-					System.exit(1);
-				}
-				// Set the parameters of parameters learning algorithm
-				paramLearningAlg.setParameters(paramsParamsLAlg);
-				
-				// Set the learning algorithms
-				if( modelData[0].equals("CTNB")) {					// CTNB
-					paramLearningAlg.setStructure( baseNBModel.getAdjMatrix());		// fix the structure of the model
-					learningAlgorithms.add( paramLearningAlg);
-					
-				} else if( modelData[0].equals("CTBNC") || modelData[0].equals("ACTNB")){
-					
-					// Parameters of the structural learning algorithm
-					boolean featuresSelection = modelData[0].equals("CTBNC");
-					this.verbosePrint("\t\t. dimension penalty = " + modelData[4] + "\n");
-					boolean dimensionPenalty = Boolean.parseBoolean( modelData[4]);
-					this.verbosePrint("\t\t. parents bound = " + modelData[5] + "\n");
-					int parentsBound = Integer.parseInt( modelData[5]);
-					
-					// Hill climbing factory selection (LL vs CLL)
-					ICTBNCHillClimbingFactory hillClimbingElemFactory;
-					if( modelData[6].equals("LL")) {
-						this.verbosePrint("\t\t. log-likelihood scoring\n");
-						hillClimbingElemFactory = new LLHillClimbingFactory(paramLearningAlg, parentsBound, dimensionPenalty, featuresSelection);	//dimension penalty, feature selection mode
-					} else if( modelData[6].equals("CLL")) {
-						this.verbosePrint("\t\t. conditional log-likelihood scoring\n");
-						hillClimbingElemFactory = new CLLHillClimbingFactory(paramLearningAlg, parentsBound, dimensionPenalty, featuresSelection);	//dimension penalty, feature selection mode
-					} else
-						throw new RuntimeException("Code bug: scoring function not recognized (possible values {LL,CLL})");
-					
-					// Define the structural learning algorithm
-					this.verbosePrint("\t\t. hill climbing optimization\n");
-					CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual> structLearningAlgorithm = 
-							new CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual>(hillClimbingElemFactory);
-					structLearningAlgorithm.setStructure(baseNBModel.getAdjMatrix());
-					learningAlgorithms.add( structLearningAlgorithm);
-				} else
-					throw new RuntimeException("Code bug: learning algorithm not recognized (possible values {CTNB,ACTNB,CTBNC})");
+				learningAlgorithms.add( this.generateLearningAlgorithm( modelData, baseNBModel));
 			}
 		} catch(Exception e) {
 			System.err.println("Error during the algorithms generation process: " + e);
@@ -908,9 +858,32 @@ public class CommandLine {
 		// Generate the one expert for one class learning algorithms
 		if( this.m1vs1c) {
 			this.verbosePrint("\t. 1vs1 algorithm generation");
-			for(int i = 0; i < learningAlgorithms.size(); ++i) {
-				this.verbosePrint("\t\t. " + this.modelToTest.get(i)[0] + " model");
-				learningAlgorithms.set(i, new MultipleCTBNCLearningAlgorithm<Double, CTDiscreteNode>( learningAlgorithms.get( i)));
+			int nClasses = baseNBModel.getClassNode().getStatesNumber();
+			boolean verbose = this.verbose;
+			try {
+				for(int i = 0; i < learningAlgorithms.size(); ++i) {
+					this.verbosePrint("\t\t. " + this.modelToTest.get(i)[0] + " model");
+					
+					// An algorithm for each expert, so that the experts can be learned concurrently
+					List<ILearningAlgorithm<Double, CTDiscreteNode>> expertsAlgorithms = new Vector<ILearningAlgorithm<Double, CTDiscreteNode>>(nClasses);
+					expertsAlgorithms.add( learningAlgorithms.get( i));
+					this.verbose = false;				// parameters already printed
+					for(int iClass = 1; iClass < nClasses; ++iClass)
+						expertsAlgorithms.add( this.generateLearningAlgorithm( this.modelToTest.get(i), baseNBModel));
+					this.verbose = verbose;
+					
+					MultipleCTBNCLearningAlgorithm<Double, CTDiscreteNode> multipleLearningAlg = new MultipleCTBNCLearningAlgorithm<Double, CTDiscreteNode>( expertsAlgorithms);
+					Map<String, Object> paramsMultipleLAlg = new TreeMap<String,Object>();
+					this.verbosePrint("\t\t. experts parallelism = " + Math.min(this.nThreads, nClasses) + "\n");
+					paramsMultipleLAlg.put("parallelism", Math.min(this.nThreads, nClasses));
+					multipleLearningAlg.setParameters(paramsMultipleLAlg);
+					learningAlgorithms.set(i, multipleLearningAlg);
+				}
+			} catch(Exception e) {
+				System.err.println("Error during the algorithms generation process: " + e);
+				System.exit(1);
+			} finally {
+				this.verbose = verbose;
 			}
 		}
 		
@@ -918,7 +891,125 @@ public class CommandLine {
 		
 		return learningAlgorithms;
 	}
+	
+	
+	/**
+	 * Generate the learning algorithm of a
+	 * model to test.
+	 * 
+	 * @param modelData model data (model type and learning parameters)
+	 * @param baseNBModel base NB model
+	 * @return the learning algorithm
+	 * @throws Exception in case of errors
+	 */
+	private ILearningAlgorithm<Double, CTDiscreteNode> generateLearningAlgorithm(String[] modelData,
+			ICTClassifier<Double,CTDiscreteNode> baseNBModel) throws Exception {
+		
+		// Set the parameter learning parameters
+		Map<String, Object> paramsParamsLAlg = new TreeMap<String,Object>();
+		this.verbosePrint("\t\t. Mxx_prior = " + modelData[1] + "\n");
+		paramsParamsLAlg.put("Mxx_prior", Double.parseDouble( modelData[1]));
+		this.verbosePrint("\t\t. Tx_prior = " + modelData[2] + "\n");
+		paramsParamsLAlg.put("Tx_prior", Double.parseDouble( modelData[2]));
+		this.verbosePrint("\t\t. Px_prior = " + modelData[3] + "\n");
+		paramsParamsLAlg.put("Px_prior", Double.parseDouble( modelData[3]));
+		
+		// The threads are used by one level only: the experts in the 1vs1
+		// modality, otherwise the local search of the structural learning
+		// or, without structural learning, the sufficient statistics
+		boolean structuralLearning = modelData[0].equals("CTBNC") || modelData[0].equals("ACTNB");
+		int localSearchThreads = this.m1vs1c ? 1 : this.nThreads;
+		int statisticsThreads = this.m1vs1c || structuralLearning ? 1 : this.nThreads;
+		
+		// Set the parameter learning algorithm
+		ILearningAlgorithm<Double, CTDiscreteNode> paramLearningAlg = null;
+		if( this.cvValidation != null || this.hoValidation != null) {	// classification
+			// Parameter learning algorithm
+			this.verbosePrint("\t\t. generation of classification parameter learning algorithm\n");
+			CTBNCParameterLLAlgorithm classificationLearningAlg = new CTBNCParameterLLAlgorithm();
+			this.verbosePrint("\t\t. parallelism = " + statisticsThreads + "\n");
+			paramsParamsLAlg.put("parallelism", statisticsThreads);
+
+			paramLearningAlg = classificationLearningAlg;
+			
+		}else if( this.clusteringValidation != null) {					// clustering
+			this.verbosePrint("\t\t. cluster type = " + this.testType + " clustering\n");
+			paramsParamsLAlg.put("hardClustering", this.testType.equals("hard"));
+			this.verbosePrint("\t\t. max iteration = " + this.stopCriterion.getMaxIteration() + "\n");
+			this.verbosePrint("\t\t. % bound = " + this.stopCriterion.getChangedBound() + "\n");
 
+			// Parameter learning algorithm
+			this.verbosePrint("\t\t. generation of clustering parameter learning algorithm\n");
+			CTBNClusteringParametersLLAlgorithm clusteringLearningAlg = new CTBNClusteringParametersLLAlgorithm();
+			clusteringLearningAlg.setStopCriterion( this.stopCriterion);
+			
+			paramLearningAlg = clusteringLearningAlg;
+		}else {
+			System.err.println("Code bug: no validation method is enable");
+			System.exit(1);
+		}
+		// Set the parameters of parameters learning algorithm
+		paramLearningAlg.setParameters(paramsParamsLAlg);
+		
+		// Set the learning algorithms
+		if( modelData[0].equals("CTNB")) {					// CTNB
+			paramLearningAlg.setStructure( baseNBModel.getAdjMatrix());		// fix the structure of the model
+			return paramLearningAlg;
+			
+		} else if( modelData[0].equals("CTBNC") || modelData[0].equals("ACTNB")){
+			
+			// Parameters of the structural learning algorithm
+			boolean featuresSelection = modelData[0].equals("CTBNC");
+			this.verbosePrint("\t\t. dimension penalty = " + modelData[4] + "\n");
+			boolean dimensionPenalty = Boolean.parseBoolean( modelData[4]);
+			this.verbosePrint("\t\t. parents bound = " + modelData[5] + "\n");
+			int parentsBound = Integer.parseInt( modelData[5]);
+			
+			// Hill climbing factory selection (LL vs CLL)
+			ICTBNCHillClimbingFactory hillClimbingElemFactory;
+			if( modelData[6].equals("LL")) {
+				this.verbosePrint("\t\t. log-likelihood scoring\n");
+				hillClimbingElemFactory = new LLHillClimbingFactory(paramLearningAlg, parentsBound, dimensionPenalty, featuresSelection);	//dimension penalty, feature selection mode
+			} else if( modelData[6].equals("CLL")) {
+				this.verbosePrint("\t\t. conditional log-likelihood scoring\n");
+				hillClimbingElemFactory = new CLLHillClimbingFactory(paramLearningAlg, parentsBound, dimensionPenalty, featuresSelection);	//dimension penalty, feature selection mode
+			} else
+				throw new RuntimeException("Code bug: scoring function not recognized (possible values {LL,CLL})");
+			
+			// Define the structural learning algorithm
+			this.verbosePrint("\t\t. hill climbing optimization\n");
+			CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual> structLearningAlgorithm = 
+					new CTBNCLocalStructuralLearning<String,CTBNCHillClimbingIndividual>(hillClimbingElemFactory);
+			structLearningAlgorithm.setStructure(baseNBModel.getAdjMatrix());
+			if( this.cvValidation != null || this.hoValidation != null) {	// the parents of the nodes are learned in parallel
+				this.verbosePrint("\t\t. local search parallelism = " + localSearchThreads + "\n");
+				Map<String, Object> paramsStructLAlg = new TreeMap<String,Object>();
+				paramsStructLAlg.put("parallelism", localSearchThreads);
+				structLearningAlgorithm.setParameters(paramsStructLAlg);
+			}
+			return structLearningAlgorithm;
+		} else
+			throw new RuntimeException("Code bug: learning algorithm not recognized (possible values {CTNB,ACTNB,CTBNC})");
+	}
+
+	
+	/**
+	 * Load a dataset using the selected
+	 * number of threads.
+	 * 
+	 * @param dataset list where add the loaded trajectories
+	 * @param path path of the file or directory to load
+	 * @return base Naive Bayes model instantiation
+	 * @throws IOException in case of loading errors
+	 */
+	private CTBNClassifier loadDataset(List<ITrajectory<Double>> dataset, String path) throws IOException {
+		
+		DatasetLoader loader = new DatasetLoader(this.nThreads);
+		CTBNClassifier nbModel = loader.load(this.testName, dataset, path, this.ext, this.fileSeparator, this.classColumnName, this.timeColumnName, this.trjSeparatorColumnName, this.validColumns, this.timeFactor, this.nClusters);
+		this.verbosePrint("\t\t. " + loader.statisticsToString() + "\n");
+		
+		return nbModel;
+	}
 	
 	/**
 	 * Load the datasets.
@@ -948,10 +1039,15 @@ public class CommandLine {
 				throw new IllegalArgumentException("Code bug: the training set list must be instantiated before to call the function");
 			}
 			
+			if( this.binaryDatasetPath != null) {
+				System.err.println("Binary dataset error. --toBinary modifier is not available when the training set is specified. For more information type --help.");
+				System.exit(1);
+			}
+			
 			// Training set loading
 			this.verbosePrint("\t. training set loading\n");
 			try {
-				nbModel = CTBNCTestFactory.loadDataset(this.testName, trainingSet, this.trainingPath, this.ext, this.fileSeparator, this.classColumnName, this.timeColumnName, this.trjSeparatorColumnName, this.validColumns, this.timeFactor, this.nClusters);
+				nbModel = this.loadDataset(trainingSet, this.trainingPath);
 			} catch (Exception e) {
 				System.err.println("Traing set load error: " + e);
 				System.exit(1);
@@ -960,7 +1056,7 @@ public class CommandLine {
 			// Test set loading
 			this.verbosePrint("\t. test set loading\n");
 			try {
-				CTBNCTestFactory.loadDataset(this.testName, testSet, dataPath, this.ext, this.fileSeparator, this.classColumnName, this.timeColumnName, this.trjSeparatorColumnName, this.validColumns, this.timeFactor, this.nClusters);
+				this.loadDataset(testSet, dataPath);
 			} catch (Exception e) {
 				System.err.println("Traing set load error: " + e);
 				System.exit(1);
@@ -979,12 +1075,23 @@ public class CommandLine {
 			
 			this.verbosePrint("\t. single dataset loading\n");
 			try {
-				nbModel = CTBNCTestFactory.loadDataset(this.testName, testSet, dataPath, this.ext, this.fileSeparator, this.classColumnName, this.timeColumnName, this.trjSeparatorColumnName, this.validColumns, this.timeFactor, this.nClusters);
+				nbModel = this.loadDataset(testSet, dataPath);
 			} catch (Exception e) {
 				System.err.println("Dataset load error: " + e);
 				System.exit(1);
 			}
 			
+			// Binary dataset generation
+			if( this.binaryDatasetPath != null) {
+				this.verbosePrint("\t. binary dataset writing (" + this.binaryDatasetPath + ")\n");
+				try {
+					BinaryDataset.write(testSet, this.binaryDatasetPath, this.timeFactor);
+				} catch (Exception e) {
+					System.err.println("Binary dataset write error: " + e);
+					System.exit(1);
+				}
+			}
+			
 			// Dataset permutation or partitioning using partitioning file
 			if( this.clusteringValidation == null) {
 				if( this.cVPartitionFile == null || this.cVPartitionFile.isEmpty()) {	// dataset permutation and cutting
@@ -1698,6 +1805,53 @@ public class CommandLine {
 	Double timeFactor = 1.0;
 	
 	
+	/**
+	 * Set the maximum number of threads
+	 * to use in the computation.
+	 * Calling modifier: "--threads".
+	 *
+	 * @param threads number of threads
+	 */
+	public void setThreadsNumber( LinkedList<String> threads) {
+	
+		if( threads.size() != 1) {
+			System.err.println("Threads number parsing error. One and only one argument is required for --threads modifier. For more information type --help.");
+			System.exit(1);
+		}
+		
+		try {
+			this.nThreads = Integer.parseInt( threads.get(0));
+		} catch( Exception e) {
+			System.err.println("Threads number parsing error. Error in parsing integer argument. For more information type --help.");
+			System.exit(1);
+		}
+		if( this.nThreads < 1) {
+			System.err.println("Threads number parsing error. The number of threads must be greater than 0. For more information type --help.");
+			System.exit(1);
+		}
+	}
+	int nThreads = 1;
+	
+	
+	/**
+	 * Set the path of the binary file where
+	 * save the loaded dataset.
+	 * Calling modifier: "--toBinary".
+	 *
+	 * @param filePath path of the binary file
+	 */
+	public void setBinaryDatasetPath( LinkedList<String> filePath) {
+	
+		if( filePath.size() != 1) {
+			System.err.println("Binary dataset parsing error. One and only one argument is required for --toBinary modifier. For more information type --help.");
+			System.exit(1);
+		}
+		
+		this.binaryDatasetPath = filePath.get(0);
+	}
+	String binaryDatasetPath = null;
+	
+	
 	/**
 	 * Set the time threshold of the binary class decider.
 	 * Calling modifier: "--bThreshold".
@@ -10,11 +10,15 @@
  */
 package CTBNCToolkit.optimization;
 
+import java.util.List;
+import java.util.Vector;
+
 import CTBNCToolkit.CTBNClassifier;
 import CTBNCToolkit.CTDiscreteNode;
 import CTBNCToolkit.ICTClassifier;
 import CTBNCToolkit.IModel;
 import CTBNCToolkit.NodeIndexing;
+import CTBNCToolkit.SufficientStatistics;
 
 
 /**
@@ -22,11 +26,25 @@ import CTBNCToolkit.NodeIndexing;
  *
  * Individual that implement the local search for
  * learning the structure in CTBNClassifiers.
+ *
+ * The neighbors store only their structure: they are
+ * evaluated by the factory without cloning the model,
+ * that is generated only if it is requested.
+ *
+ * When the factory scores with the family sufficient
+ * statistics, the individual keeps the statistics of
+ * its node: the neighbors that remove a parent take
+ * their statistics marginalizing them, while the
+ * statistics of all the neighbors that add a parent
+ * are calculated in one pass over the dataset.
  */
 public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<String,CTBNCHillClimbingIndividual> {
 
 	private ICTBNCHillClimbingFactory elementsFactory;
-	private ICTClassifier<Double, CTDiscreteNode> model;
+	private ICTClassifier<Double, CTDiscreteNode> model;		// null until the model of a neighbor is requested
+	private ICTClassifier<Double, CTDiscreteNode> baseModel;	// model from which the neighbor is generated
+	private boolean[][] adjMatrix;								// structure of the neighbor
+	private SufficientStatistics statistics;					// family statistics of the node (null if not calculated)
 	private int nodeIndex;
 	private Double value;
 	private String id;
@@ -46,7 +64,36 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 		
 		this.elementsFactory = elementsFactory;
 		this.model = model;
+		this.baseModel = null;
+		this.adjMatrix = null;
+		this.nodeIndex = nodeIndex;
+		this.statistics = null;
+		this.value = null;
+		this.id = null;
+	}
+	
+	/**
+	 * Neighbor constructor. The model of the
+	 * individual is generated from the base model
+	 * only if it is requested.
+	 * 
+	 * @param elementsFactory factory used to generate a new element
+	 * @param baseModel model from which the neighbor is generated
+	 * @param adjMatrix structure of the neighbor
+	 * @param nodeIndex index of the node who learn locally the structure
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	private CTBNCHillClimbingIndividual(ICTBNCHillClimbingFactory elementsFactory, ICTClassifier<Double, CTDiscreteNode> baseModel, boolean[][] adjMatrix, int nodeIndex) throws IllegalArgumentException {
+		
+		if( baseModel.getNode( nodeIndex).isStaticNode())
+			throw new IllegalArgumentException("Error: the scoring algorithm is defined only on continuous nodes");
+		
+		this.elementsFactory = elementsFactory;
+		this.model = null;
+		this.baseModel = baseModel;
+		this.adjMatrix = adjMatrix;
 		this.nodeIndex = nodeIndex;
+		this.statistics = null;
 		this.value = null;
 		this.id = null;
 	}
@@ -70,8 +117,15 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 	@Override
 	public double evaluate() {
  
-		if( this.value == null)
-			this.value = this.elementsFactory.evaluate(this.model, this.nodeIndex);
+		if( this.value == null) {
+			SufficientStatistics ss = this.getStatistics();
+			if( ss != null)
+				this.value = this.elementsFactory.evaluate(this.getNeighborsModel(), this.nodeIndex, this.getAdjMatrix(), ss);
+			else if( this.model != null)
+				this.value = this.elementsFactory.evaluate(this.model, this.nodeIndex);
+			else
+				this.value = this.elementsFactory.evaluate(this.baseModel, this.nodeIndex, this.adjMatrix);
+		}
 		
 		return this.value;
 	}
@@ -81,18 +135,23 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 		
 		CTBNCHillClimbingIndividual newInd;
 		// Generate support structures
-		NodeIndexing nodeIndexing = this.model.getNodeIndexing();
+		ICTClassifier<Double, CTDiscreteNode> neighborsModel = this.getNeighborsModel();
+		NodeIndexing nodeIndexing = neighborsModel.getNodeIndexing();
 		// Indexes
 		int classNodeIndex = -1;
-		if( this.model instanceof CTBNClassifier)
+		if( neighborsModel instanceof CTBNClassifier)
 			classNodeIndex = nodeIndexing.getClassIndex();
 		// Structure data
-		boolean[][] originalAdjMatrix = this.model.getAdjMatrix();
+		boolean[][] originalAdjMatrix = this.getAdjMatrix();
 		int nParents = CTBNCHillClimbingIndividual.countParents(originalAdjMatrix, this.nodeIndex);
-		// Best model data
-		CTBNCHillClimbingIndividual bestInd = null;
+		// Family statistics (used to evaluate the neighbors)
+		SufficientStatistics ss = this.getStatistics();
+		// Neighbors data
+		List<CTBNCHillClimbingIndividual> neighbors = new Vector<CTBNCHillClimbingIndividual>(originalAdjMatrix.length);
+		List<CTBNCHillClimbingIndividual> additions = new Vector<CTBNCHillClimbingIndividual>(originalAdjMatrix.length);
+		List<Integer> candidates = new Vector<Integer>(originalAdjMatrix.length);
 		
-		// Find the best neighbor
+		// Generate the neighbors
 		for(int i = 0; i < originalAdjMatrix.length; ++i) {
 			if( i == this.nodeIndex) 											// loops are ignored (because loops are defined implicitly in the CTBN)
 				continue;
@@ -111,13 +170,34 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 			if( cache != null && cache.contains(key))
 				newInd = cache.get( key);
 			else {
-				ICTClassifier<Double, CTDiscreteNode> clonedModel = (ICTClassifier<Double, CTDiscreteNode>)this.model.clone();
-				clonedModel.setStructure(newAdjMatrix);
-				newInd = this.elementsFactory.newInstance(clonedModel, this.nodeIndex);
+				newInd = new CTBNCHillClimbingIndividual(this.elementsFactory, neighborsModel, newAdjMatrix, this.nodeIndex);
+				if( ss != null && originalAdjMatrix[i][this.nodeIndex])
+					newInd.statistics = this.elementsFactory.removeParent(neighborsModel, this.nodeIndex, originalAdjMatrix, ss, i);
+				else if( ss != null) {
+					additions.add(newInd);
+					candidates.add(i);
+				}
 				if( cache != null)
 					cache.put(key, newInd);
 			}
-			// Update the best element
+			neighbors.add(newInd);
+		}
+		
+		// Statistics of the parent additions (one pass over the dataset)
+		if( !candidates.isEmpty()) {
+			int[] candidateIndexes = new int[candidates.size()];
+			for( int c = 0; c < candidateIndexes.length; ++c)
+				candidateIndexes[c] = candidates.get(c);
+			SufficientStatistics[] addedSS = this.elementsFactory.addParents(neighborsModel, this.nodeIndex, originalAdjMatrix, candidateIndexes);
+			if( addedSS != null)
+				for( int c = 0; c < addedSS.length; ++c)
+					additions.get(c).statistics = addedSS[c];
+		}
+		
+		// Find the best neighbor
+		CTBNCHillClimbingIndividual bestInd = null;
+		for( int i = 0; i < neighbors.size(); ++i) {
+			newInd = neighbors.get(i);
 			if( bestInd == null || newInd.evaluate() > bestInd.evaluate() || (newInd.evaluate() == bestInd.evaluate() && Math.random() > 0.5 )) {
 				bestInd = newInd;
 			}
@@ -133,9 +213,59 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 	 */
 	public IModel<Double, CTDiscreteNode> getModel() {
 		
+		if( this.model == null) {
+			ICTClassifier<Double, CTDiscreteNode> clonedModel = (ICTClassifier<Double, CTDiscreteNode>)this.baseModel.clone();
+			clonedModel.setStructure(this.adjMatrix);
+			this.model = clonedModel;
+			this.baseModel = null;
+			this.adjMatrix = null;
+		}
+		
 		return this.model;
 	}
 	
+	/**
+	 * Get the model used to generate the
+	 * neighbors and to evaluate the individual
+	 * (only the nodes are used, not the structure).
+	 * 
+	 * @return model of the individual or the base model of the neighbor
+	 */
+	private ICTClassifier<Double, CTDiscreteNode> getNeighborsModel() {
+		
+		if( this.model != null)
+			return this.model;
+		
+		return this.baseModel;
+	}
+	
+	/**
+	 * Get the family statistics of the node,
+	 * calculating them if required.
+	 * 
+	 * @return family statistics of the node, null if the factory doesn't use them
+	 */
+	private SufficientStatistics getStatistics() {
+		
+		if( this.statistics == null)
+			this.statistics = this.elementsFactory.calculateStatistics(this.getNeighborsModel(), this.nodeIndex, this.getAdjMatrix());
+		
+		return this.statistics;
+	}
+	
+	/**
+	 * Get the structure of the individual.
+	 * 
+	 * @return adjacency matrix of the individual structure
+	 */
+	private boolean[][] getAdjMatrix() {
+		
+		if( this.model != null)
+			return this.model.getAdjMatrix();
+		
+		return this.adjMatrix;
+	}
+	
 	/**
 	 * Count the number of parents for a node using
 	 * the adjacent matrix.
@@ -164,7 +294,7 @@ public class CTBNCHillClimbingIndividual implements ILocalSearchIndividual<Strin
 		if( this.id != null)
 			return this.id;
 
-		this.id = CTBNCHillClimbingIndividual.getKey( this.model.getAdjMatrix(), this.nodeIndex);
+		this.id = CTBNCHillClimbingIndividual.getKey( this.getAdjMatrix(), this.nodeIndex);
 		
 		return this.id;
 	}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.optimization;
+
+import java.util.Collection;
+
+import CTBNCToolkit.CTBNCParameterLLAlgorithm;
+import CTBNCToolkit.CTDiscreteNode;
+import CTBNCToolkit.CountCube;
+import CTBNCToolkit.FamilyStatistics;
+import CTBNCToolkit.ICTClassifier;
+import CTBNCToolkit.ILearningAlgorithm;
+import CTBNCToolkit.ITrajectory;
+import CTBNCToolkit.StructuralLearningScoringFormulae;
+import CTBNCToolkit.SufficientStatistics;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Family statistics of the dataset of a hill climbing
+ * factory. The family statistics are used to score the
+ * structures without learning the parameters of the
+ * whole model and only with the parameter learning
+ * algorithm CTBNCParameterLLAlgorithm (the algorithms
+ * that extend it can change the learning).
+ *
+ * The statistics are generated for the first model
+ * evaluated after the dataset is set, when their
+ * compatibility with the model is checked, and then
+ * they are read without locking. The models evaluated
+ * over the same dataset must have the same nodes and
+ * states (as the local searches of a learning).
+ */
+class FamilyStatisticsProvider {
+
+	private final ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg;
+	private final boolean enabled;
+	private Collection<ITrajectory<Double>> dataset;
+	private volatile FamilyStatistics familyStatistics;
+	private long cubeBudget;
+
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param paramsLearningAlg parameter learning algorithm of the factory
+	 */
+	FamilyStatisticsProvider(ILearningAlgorithm<Double, CTDiscreteNode> paramsLearningAlg) {
+
+		this.paramsLearningAlg = paramsLearningAlg;
+		this.enabled = paramsLearningAlg != null && paramsLearningAlg.getClass() == CTBNCParameterLLAlgorithm.class;
+		this.dataset = null;
+		this.familyStatistics = null;
+		this.cubeBudget = CountCube.DEFAULT_MEMORY_BUDGET;
+	}
+
+
+	/**
+	 * Return the family statistics of the dataset.
+	 *
+	 * @param model model to evaluate
+	 * @return the family statistics, null if they can not be used
+	 * @throws IllegalArgumentException in case of illegal dataset
+	 */
+	FamilyStatistics get(ICTClassifier<Double, CTDiscreteNode> model) throws IllegalArgumentException {
+
+		if( !this.enabled)
+			return null;
+
+		FamilyStatistics stats = this.familyStatistics;
+		if( stats != null && stats.getNodeIndexing() == model.getNodeIndexing())
+			return stats;
+
+		return this.generate(model);
+	}
+
+
+	/**
+	 * Generate the family statistics of the dataset
+	 * if they are not compatible with the model.
+	 *
+	 * @param model model to evaluate
+	 * @return the family statistics, null if the dataset is not set
+	 * @throws IllegalArgumentException in case of illegal dataset
+	 */
+	private synchronized FamilyStatistics generate(ICTClassifier<Double, CTDiscreteNode> model) throws IllegalArgumentException {
+
+		if( this.dataset == null)
+			return null;
+
+		FamilyStatistics stats = this.familyStatistics;
+		if( stats == null || !stats.isCompatible(model)) {
+			stats = new FamilyStatistics(model, this.dataset, this.cubeBudget);
+			this.familyStatistics = stats;
+		}
+
+		return stats;
+	}
+
+
+	/**
+	 * Return the family statistics of the dataset
+	 * required by the incremental evaluations.
+	 *
+	 * @param model model to evaluate
+	 * @return the family statistics
+	 * @throws RuntimeException if the family statistics can not be used
+	 */
+	FamilyStatistics require(ICTClassifier<Double, CTDiscreteNode> model) throws RuntimeException {
+
+		FamilyStatistics stats = this.get(model);
+		if( stats == null)
+			throw new RuntimeException("Error: the family statistics are not available");
+
+		return stats;
+	}
+
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * family (see ICTBNCHillClimbingFactory).
+	 *
+	 * @param model model to evaluate
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure of the model
+	 * @return sufficient statistics of the node, null if the family statistics can not be used
+	 * @throws RuntimeException in case of errors
+	 */
+	SufficientStatistics calculateStatistics(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix) throws RuntimeException {
+
+		FamilyStatistics stats = this.get(model);
+		if( stats == null)
+			return null;
+
+		return StructuralLearningScoringFormulae.familyStatistics(stats, nodeIndex, adjMatrix, this.paramsLearningAlg);
+	}
+
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * family without a parent (see ICTBNCHillClimbingFactory).
+	 *
+	 * @param model model to evaluate
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure of the model
+	 * @param ss sufficient statistics of the node with the parent
+	 * @param parentIndex index of the parent to remove
+	 * @return sufficient statistics of the node without the parent
+	 * @throws RuntimeException in case of errors
+	 */
+	SufficientStatistics removeParent(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, SufficientStatistics ss, int parentIndex) throws RuntimeException {
+
+		return StructuralLearningScoringFormulae.removeParent(this.require(model), ss, nodeIndex, adjMatrix, parentIndex, this.paramsLearningAlg);
+	}
+
+
+	/**
+	 * Calculate the sufficient statistics of a node
+	 * family with each of the candidate parents added
+	 * (see ICTBNCHillClimbingFactory).
+	 *
+	 * @param model model to evaluate
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure of the model
+	 * @param candidates indexes of the candidate parents
+	 * @return sufficient statistics for each candidate, null if the family statistics can not be used
+	 * @throws RuntimeException in case of errors
+	 */
+	SufficientStatistics[] addParents(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, int[] candidates) throws RuntimeException {
+
+		FamilyStatistics stats = this.get(model);
+		if( stats == null)
+			return null;
+
+		return StructuralLearningScoringFormulae.addParents(stats, nodeIndex, adjMatrix, candidates, this.paramsLearningAlg);
+	}
+
+
+	/**
+	 * Set the dataset. The family statistics
+	 * are generated again.
+	 *
+	 * @param dataset dataset used in the evaluation
+	 */
+	synchronized void setDataset(Collection<ITrajectory<Double>> dataset) {
+
+		this.dataset = dataset;
+		this.familyStatistics = null;
+	}
+
+
+	/**
+	 * Set the memory budget of the count cube.
+	 * The family statistics are generated again.
+	 *
+	 * @param cubeBudget maximum memory of the count cube in bytes (0 to always read the dataset)
+	 * @throws IllegalArgumentException if the budget is negative
+	 */
+	synchronized void setCubeBudget(long cubeBudget) throws IllegalArgumentException {
+
+		if( cubeBudget < 0)
+			throw new IllegalArgumentException("Error: the memory budget can not be negative");
+
+		this.cubeBudget = cubeBudget;
+		this.familyStatistics = null;
+	}
+
+
+	/**
+	 * Get the memory budget of the count cube.
+	 *
+	 * @return maximum memory of the count cube in bytes
+	 */
+	synchronized long getCubeBudget() {
+
+		return this.cubeBudget;
+	}
+}
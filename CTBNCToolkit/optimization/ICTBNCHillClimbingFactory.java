@@ -56,4 +56,75 @@ public interface ICTBNCHillClimbingFactory extends IElementFactory<CTBNCHillClim
 	 */
 	public CTBNCHillClimbingIndividual newInstance(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, double score);
 	
+	/**
+	 * Calculate the scoring for the node of the
+	 * model using the structure in input in place
+	 * of the model one. The model is not changed.
+	 * 
+	 * @param model model that defines the nodes and the states
+	 * @param nodeIndex index of the node that we are evaluating
+	 * @param adjMatrix structure to evaluate
+	 * @return scoring value
+	 * @throws RuntimeException in case of errors
+	 */
+	public double evaluate(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix) throws RuntimeException;
+	
+	/**
+	 * Calculate the scoring for the node of the
+	 * model using the structure in input and the
+	 * family sufficient statistics of the node.
+	 * 
+	 * @param model model that defines the nodes and the states
+	 * @param nodeIndex index of the node that we are evaluating
+	 * @param adjMatrix structure to evaluate
+	 * @param ss sufficient statistics of the node given its parents in the structure
+	 * @return scoring value
+	 * @throws RuntimeException in case of errors
+	 */
+	public double evaluate(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, SufficientStatistics ss) throws RuntimeException;
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * the node given its parents in the structure.
+	 * 
+	 * @param model model that defines the nodes and the states
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents
+	 * @return the sufficient statistics, null if the factory doesn't use the family statistics
+	 * @throws RuntimeException in case of errors
+	 */
+	public SufficientStatistics calculateStatistics(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix) throws RuntimeException;
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * the node when a parent is removed, marginalizing
+	 * the statistics of the current parent set (the
+	 * dataset is not read).
+	 * 
+	 * @param model model that defines the nodes and the states
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents (the removed parent included)
+	 * @param ss sufficient statistics of the node given its parents in the structure
+	 * @param parentIndex index of the parent to remove
+	 * @return sufficient statistics of the node without the parent
+	 * @throws RuntimeException in case of errors
+	 */
+	public SufficientStatistics removeParent(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, SufficientStatistics ss, int parentIndex) throws RuntimeException;
+	
+	/**
+	 * Calculate the family sufficient statistics of
+	 * the node for each structure obtained adding
+	 * one of the candidate parents. The statistics
+	 * of all the candidates are calculated in one
+	 * pass over the dataset.
+	 * 
+	 * @param model model that defines the nodes and the states
+	 * @param nodeIndex index of the node
+	 * @param adjMatrix structure from which read the parents
+	 * @param candidates indexes of the candidate parents (not parents in the structure)
+	 * @return sufficient statistics of the node for each candidate (in the candidates order), null if the factory doesn't use the family statistics
+	 * @throws RuntimeException in case of errors
+	 */
+	public SufficientStatistics[] addParents(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, int[] candidates) throws RuntimeException;
+	
 }
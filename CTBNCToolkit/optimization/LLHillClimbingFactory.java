@@ -13,10 +13,12 @@ package CTBNCToolkit.optimization;
 import java.util.Collection;
 
 import CTBNCToolkit.CTDiscreteNode;
+import CTBNCToolkit.FamilyStatistics;
 import CTBNCToolkit.ICTClassifier;
 import CTBNCToolkit.ILearningAlgorithm;
 import CTBNCToolkit.ITrajectory;
 import CTBNCToolkit.StructuralLearningScoringFormulae;
+import CTBNCToolkit.SufficientStatistics;
 
 /**
  * @author Daniele Codecasa <codecasa.job@gmail.com>
@@ -31,6 +33,7 @@ public class LLHillClimbingFactory implements ICTBNCHillClimbingFactory{
 	private int maxParents;
 	private boolean dimensionPenalty;
 	private boolean featureSelectionMode;
+	private final FamilyStatisticsProvider familyStatistics;
 	 
 	/**
 	 * Base constructor.
@@ -47,6 +50,7 @@ public class LLHillClimbingFactory implements ICTBNCHillClimbingFactory{
 		this.dimensionPenalty = dimensionPenalty;
 		this.featureSelectionMode = featureSelectionMode;
 		this.dataset = null;
+		this.familyStatistics = new FamilyStatisticsProvider(paramsLearningAlg);
 	}
 	
 	
@@ -74,9 +78,65 @@ public class LLHillClimbingFactory implements ICTBNCHillClimbingFactory{
 	@Override
 	public double evaluate(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex) throws RuntimeException {
 		
+		FamilyStatistics stats = this.familyStatistics.get(model);
+		if( stats != null)
+			return StructuralLearningScoringFormulae.logLikelihoodScore(stats, nodeIndex, model.getAdjMatrix(), this.paramsLearningAlg, this.dimensionPenalty);
+		
 		return StructuralLearningScoringFormulae.logLikelihoodScore(model, nodeIndex, this.dataset, this.paramsLearningAlg, this.dimensionPenalty);
 	}
 	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.optimization.ICTBNCHillClimbingFactory#evaluate(CTBNCToolkit.ICTClassifier, int, boolean[][])
+	 */
+	@Override
+	public double evaluate(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix) throws RuntimeException {
+		
+		FamilyStatistics stats = this.familyStatistics.get(model);
+		if( stats != null)
+			return StructuralLearningScoringFormulae.logLikelihoodScore(stats, nodeIndex, adjMatrix, this.paramsLearningAlg, this.dimensionPenalty);
+		
+		ICTClassifier<Double, CTDiscreteNode> clonedModel = (ICTClassifier<Double, CTDiscreteNode>) model.clone();
+		clonedModel.setStructure(adjMatrix);
+		return this.evaluate(clonedModel, nodeIndex);
+	}
+	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.optimization.ICTBNCHillClimbingFactory#evaluate(CTBNCToolkit.ICTClassifier, int, boolean[][], CTBNCToolkit.SufficientStatistics)
+	 */
+	@Override
+	public double evaluate(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, SufficientStatistics ss) throws RuntimeException {
+		
+		FamilyStatistics stats = this.familyStatistics.require(model);
+		
+		return StructuralLearningScoringFormulae.logLikelihoodScore(stats, ss, this.paramsLearningAlg, this.dimensionPenalty);
+	}
+	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.optimization.ICTBNCHillClimbingFactory#calculateStatistics(CTBNCToolkit.ICTClassifier, int, boolean[][])
+	 */
+	@Override
+	public SufficientStatistics calculateStatistics(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix) throws RuntimeException {
+		
+		return this.familyStatistics.calculateStatistics(model, nodeIndex, adjMatrix);
+	}
+	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.optimization.ICTBNCHillClimbingFactory#removeParent(CTBNCToolkit.ICTClassifier, int, boolean[][], CTBNCToolkit.SufficientStatistics, int)
+	 */
+	@Override
+	public SufficientStatistics removeParent(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, SufficientStatistics ss, int parentIndex) throws RuntimeException {
+		
+		return this.familyStatistics.removeParent(model, nodeIndex, adjMatrix, ss, parentIndex);
+	}
+	
+	/* (non-Javadoc)
+	 * @see CTBNCToolkit.optimization.ICTBNCHillClimbingFactory#addParents(CTBNCToolkit.ICTClassifier, int, boolean[][], int[])
+	 */
+	@Override
+	public SufficientStatistics[] addParents(ICTClassifier<Double, CTDiscreteNode> model, int nodeIndex, boolean[][] adjMatrix, int[] candidates) throws RuntimeException {
+		
+		return this.familyStatistics.addParents(model, nodeIndex, adjMatrix, candidates);
+	}
 	
 	@Override
 	public void setDataset(Collection<ITrajectory<Double>> dataset) throws IllegalArgumentException {
@@ -84,7 +144,8 @@ public class LLHillClimbingFactory implements ICTBNCHillClimbingFactory{
 		if( dataset == null)
 			throw new IllegalArgumentException("Error: null argument. A dataset is not optional");
 		
-		this.dataset = dataset;		
+		this.dataset = dataset;
+		this.familyStatistics.setDataset(dataset);
 	}
 
 	@Override
@@ -105,6 +166,32 @@ public class LLHillClimbingFactory implements ICTBNCHillClimbingFactory{
 		return this.featureSelectionMode;
 	}
 	
+	/**
+	 * Set the memory budget of the count cube used
+	 * to calculate the family statistics without
+	 * reading the dataset (see CountCube). If the
+	 * cube exceeds the budget the statistics are
+	 * calculated reading the dataset.
+	 * [Default value = 64MB]
+	 * 
+	 * @param cubeBudget maximum memory of the count cube in bytes (0 to always read the dataset)
+	 * @throws IllegalArgumentException if the budget is negative
+	 */
+	public void setCubeBudget(long cubeBudget) throws IllegalArgumentException {
+		
+		this.familyStatistics.setCubeBudget(cubeBudget);
+	}
+	
+	/**
+	 * Get the memory budget of the count cube.
+	 * 
+	 * @return maximum memory of the count cube in bytes
+	 */
+	public long getCubeBudget() {
+		
+		return this.familyStatistics.getCubeBudget();
+	}
+	
 	/**
 	 * Return the flag used to decide if gives
 	 * a penalty to the dimension of the structure
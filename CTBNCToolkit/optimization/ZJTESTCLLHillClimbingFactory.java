@@ -170,6 +170,53 @@ public class ZJTESTCLLHillClimbingFactory {
 		
 	}
 	
+	/**
+	 * Test method for {@link CTBNCToolkit.optimization.CLLHillClimbingFactory#evaluate(CTBNCToolkit.ICTClassifier, int, boolean[][])}:
+	 * the scoring calculated with the family statistics
+	 * must be the same calculated learning the model.
+	 */
+	@Test
+	public void testEvaluateFamily() {
+		
+		Collection<ITrajectory<Double>> trainingSet = generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		
+		CTBNCParameterLLAlgorithm  paramsAlg = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.01);
+		params.put("Px_prior", 1.0);
+		paramsAlg.setParameters(params);
+		CLLHillClimbingFactory factory = new CLLHillClimbingFactory(paramsAlg, 4, true, true);
+		factory.setDataset(trainingSet);
+		factory.setCubeBudget(0);
+		
+		CTBNClassifier model = generateClassifierModel();
+		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
+			if( iNode == nodeIndexing.getClassIndex())
+				continue;
+			for( int mask = 0; mask < (1 << nodeIndexing.getNodesNumber()); ++mask) {
+				if( (mask & (1 << iNode)) != 0)
+					continue;
+				boolean[][] adjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];
+				for( int iParent = 0; iParent < adjMatrix.length; ++iParent)
+					adjMatrix[iParent][iNode] = (mask & (1 << iParent)) != 0;
+				
+				ICTClassifier<Double, CTDiscreteNode> clonedModel = (ICTClassifier<Double, CTDiscreteNode>) model.clone();
+				clonedModel.setStructure(adjMatrix);
+				double expected = StructuralLearningScoringFormulae.conditionalLogLikelihoodScore(clonedModel, iNode, trainingSet, paramsAlg, true, factory.getExpApproximation());
+				assertTrue(factory.evaluate(model, iNode, adjMatrix) == expected);
+				assertTrue(factory.evaluate(clonedModel, iNode) == expected);
+			}
+		}
+		
+		// the model is not changed
+		boolean[][] adjMatrix = model.getAdjMatrix();
+		for( int i = 0; i < adjMatrix.length; ++i)
+			for( int j = 0; j < adjMatrix.length; ++j)
+				assertFalse(adjMatrix[i][j]);
+	}
+	
 	/**
 	 * Test method for setDataset function.
 	 */ 
@@ -69,6 +69,196 @@ public class ZJTESTLLHillClimbingFactory {
 		
 	}
 	
+	/**
+	 * Test method for {@link CTBNCToolkit.optimization.LLHillClimbingFactory#evaluate(CTBNCToolkit.ICTClassifier, int, boolean[][])}:
+	 * the scoring calculated with the family statistics
+	 * must be the same calculated learning the model.
+	 */
+	@Test
+	public void testEvaluateFamily() {
+		
+		Collection<ITrajectory<Double>> trainingSet = ZJTESTCLLHillClimbingFactory.generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		
+		CTBNCParameterLLAlgorithm  paramsAlg = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.01);
+		params.put("Px_prior", 1.0);
+		paramsAlg.setParameters(params);
+		LLHillClimbingFactory factory = new LLHillClimbingFactory(paramsAlg, 4, true, true);
+		factory.setDataset(trainingSet);
+		factory.setCubeBudget(0);
+		
+		CTBNClassifier model = ZJTESTCLLHillClimbingFactory.generateClassifierModel();
+		for( int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode) {
+			if( iNode == nodeIndexing.getClassIndex())
+				continue;
+			for( int mask = 0; mask < (1 << nodeIndexing.getNodesNumber()); ++mask) {
+				if( (mask & (1 << iNode)) != 0)
+					continue;
+				boolean[][] adjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];
+				for( int iParent = 0; iParent < adjMatrix.length; ++iParent)
+					adjMatrix[iParent][iNode] = (mask & (1 << iParent)) != 0;
+				
+				ICTClassifier<Double, CTDiscreteNode> clonedModel = (ICTClassifier<Double, CTDiscreteNode>) model.clone();
+				clonedModel.setStructure(adjMatrix);
+				double expected = StructuralLearningScoringFormulae.logLikelihoodScore(clonedModel, iNode, trainingSet, paramsAlg, true);
+				assertTrue(factory.evaluate(model, iNode, adjMatrix) == expected);
+				assertTrue(factory.evaluate(clonedModel, iNode) == expected);
+			}
+		}
+		
+		// the model is not changed
+		boolean[][] adjMatrix = model.getAdjMatrix();
+		for( int i = 0; i < adjMatrix.length; ++i)
+			for( int j = 0; j < adjMatrix.length; ++j)
+				assertFalse(adjMatrix[i][j]);
+	}
+	
+	/**
+	 * Test method for {@link CTBNCToolkit.optimization.LLHillClimbingFactory#removeParent(CTBNCToolkit.ICTClassifier, int, boolean[][], CTBNCToolkit.SufficientStatistics, int)}:
+	 * the marginalized statistics must be the same calculated
+	 * reading the dataset.
+	 */
+	@Test
+	public void testRemoveParent() {
+		
+		Collection<ITrajectory<Double>> trainingSet = ZJTESTCLLHillClimbingFactory.generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		
+		CTBNCParameterLLAlgorithm  paramsAlg = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.01);
+		params.put("Px_prior", 1.0);
+		paramsAlg.setParameters(params);
+		LLHillClimbingFactory factory = new LLHillClimbingFactory(paramsAlg, 4, true, true);
+		factory.setDataset(trainingSet);
+		
+		CTBNClassifier model = ZJTESTCLLHillClimbingFactory.generateClassifierModel();
+		int iNode = nodeIndexing.getIndex("C");
+		boolean[][] adjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];
+		for( int iParent = 0; iParent < adjMatrix.length; ++iParent)
+			adjMatrix[iParent][iNode] = iParent != iNode;
+		SufficientStatistics ss = factory.calculateStatistics(model, iNode, adjMatrix);
+		
+		for( int iParent = 0; iParent < adjMatrix.length; ++iParent) {
+			if( iParent == iNode)
+				continue;
+			SufficientStatistics marginalSS = factory.removeParent(model, iNode, adjMatrix, ss, iParent);
+			adjMatrix[iParent][iNode] = false;
+			SufficientStatistics expectedSS = factory.calculateStatistics(model, iNode, adjMatrix);
+			
+			assertTrue(marginalSS.parentEntriesNumber() == expectedSS.parentEntriesNumber());
+			for( int pE = 0; pE < expectedSS.parentEntriesNumber(); ++pE)
+				for( int fsE = 0; fsE < expectedSS.statesNumber(); ++fsE) {
+					assertEquals(expectedSS.Tx[pE][fsE], marginalSS.Tx[pE][fsE], 1e-9);
+					assertEquals(expectedSS.Mx[pE][fsE], marginalSS.Mx[pE][fsE], 1e-9);
+					for( int ssE = 0; ssE < expectedSS.statesNumber(); ++ssE)
+						assertEquals(expectedSS.Mxx[pE][fsE][ssE], marginalSS.Mxx[pE][fsE][ssE], 1e-9);
+				}
+			assertEquals(factory.evaluate(model, iNode, adjMatrix), factory.evaluate(model, iNode, adjMatrix, marginalSS), 1e-6);
+			
+			adjMatrix[iParent][iNode] = true;
+		}
+	}
+	
+	/**
+	 * Test method for {@link CTBNCToolkit.optimization.LLHillClimbingFactory#addParents(CTBNCToolkit.ICTClassifier, int, boolean[][], int[])}:
+	 * the statistics calculated in one pass must be the same
+	 * calculated for each parent set.
+	 */
+	@Test
+	public void testAddParents() {
+		
+		Collection<ITrajectory<Double>> trainingSet = ZJTESTCLLHillClimbingFactory.generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		
+		CTBNCParameterLLAlgorithm  paramsAlg = new CTBNCParameterLLAlgorithm();
+		Map<String,Object> params = new TreeMap<String,Object>();
+		params.put("Mxx_prior", 1.0);
+		params.put("Tx_prior", 0.01);
+		params.put("Px_prior", 1.0);
+		paramsAlg.setParameters(params);
+		LLHillClimbingFactory factory = new LLHillClimbingFactory(paramsAlg, 4, true, true);
+		factory.setDataset(trainingSet);
+		factory.setCubeBudget(0);
+		
+		CTBNClassifier model = ZJTESTCLLHillClimbingFactory.generateClassifierModel();
+		int iNode = nodeIndexing.getIndex("C");
+		boolean[][] adjMatrix = new boolean[nodeIndexing.getNodesNumber()][nodeIndexing.getNodesNumber()];
+		adjMatrix[nodeIndexing.getIndex("B")][iNode] = true;
+		int[] candidates = new int[2];
+		candidates[0] = nodeIndexing.getIndex("A");
+		candidates[1] = nodeIndexing.getClassIndex();
+		SufficientStatistics[] addedSS = factory.addParents(model, iNode, adjMatrix, candidates);
+		assertTrue(addedSS.length == candidates.length);
+		
+		for( int c = 0; c < candidates.length; ++c) {
+			adjMatrix[candidates[c]][iNode] = true;
+			SufficientStatistics expectedSS = factory.calculateStatistics(model, iNode, adjMatrix);
+			adjMatrix[candidates[c]][iNode] = false;
+			
+			assertTrue(addedSS[c].parentEntriesNumber() == expectedSS.parentEntriesNumber());
+			for( int pE = 0; pE < expectedSS.parentEntriesNumber(); ++pE)
+				for( int fsE = 0; fsE < expectedSS.statesNumber(); ++fsE) {
+					assertTrue(expectedSS.Tx[pE][fsE] == addedSS[c].Tx[pE][fsE]);
+					assertTrue(expectedSS.Mx[pE][fsE] == addedSS[c].Mx[pE][fsE]);
+					for( int ssE = 0; ssE < expectedSS.statesNumber(); ++ssE)
+						assertTrue(expectedSS.Mxx[pE][fsE][ssE] == addedSS[c].Mxx[pE][fsE][ssE]);
+				}
+		}
+	}
+	
+	/**
+	 * Test method for {@link CTBNCToolkit.CountCube}:
+	 * the statistics calculated from the count cube must
+	 * be the same calculated reading the dataset, and
+	 * the dataset must be read when the cube exceeds
+	 * the memory budget.
+	 */
+	@Test
+	public void testCountCube() {
+		
+		Collection<ITrajectory<Double>> trainingSet = ZJTESTCLLHillClimbingFactory.generateDataset( 30);
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("testDataset");
+		CTBNClassifier model = ZJTESTCLLHillClimbingFactory.generateClassifierModel();
+		
+		FamilyStatistics cubeStats = new FamilyStatistics(model, trainingSet);
+		FamilyStatistics scanStats = new FamilyStatistics(model, trainingSet, 0);
+		assertTrue(cubeStats.getCountCube() != null);
+		assertTrue(cubeStats.getCountCube().getConfigurationsNumber() > 0);
+		assertTrue(scanStats.getCountCube() == null);
+		assertTrue(new FamilyStatistics(model, trainingSet, cubeStats.getCountCube().getMemory() - 1).getCountCube() == null);
+		
+		int nNodes = nodeIndexing.getNodesNumber();
+		for( int iNode = 0; iNode < nNodes; ++iNode)
+			for( int mask = 0; mask < (1 << nNodes); ++mask) {
+				if( (mask & (1 << iNode)) != 0)
+					continue;
+				boolean[] parents = new boolean[nNodes];
+				for( int iParent = 0; iParent < nNodes; ++iParent)
+					parents[iParent] = (mask & (1 << iParent)) != 0;
+				
+				SufficientStatistics expectedSS = scanStats.calculate(iNode, parents, 1.0, 1.0, 0.01);
+				SufficientStatistics cubeSS = cubeStats.calculate(iNode, parents, 1.0, 1.0, 0.01);
+				assertTrue(cubeSS.parentEntriesNumber() == expectedSS.parentEntriesNumber());
+				for( int pE = 0; pE < expectedSS.parentEntriesNumber(); ++pE)
+					if( expectedSS.isStatic()) {
+						assertTrue(expectedSS.counts[pE] == cubeSS.counts[pE]);
+						for( int sE = 0; sE < expectedSS.statesNumber(); ++sE)
+							assertTrue(expectedSS.Px[pE][0][sE] == cubeSS.Px[pE][0][sE]);
+					} else
+						for( int fsE = 0; fsE < expectedSS.statesNumber(); ++fsE) {
+							assertEquals(expectedSS.Tx[pE][fsE], cubeSS.Tx[pE][fsE], 1e-9);
+							assertTrue(expectedSS.Mx[pE][fsE] == cubeSS.Mx[pE][fsE]);
+							for( int ssE = 0; ssE < expectedSS.statesNumber(); ++ssE)
+								assertTrue(expectedSS.Mxx[pE][fsE][ssE] == cubeSS.Mxx[pE][fsE][ssE]);
+						}
+			}
+	}
+	
 	/**
 	 * Test method for setDataset function.
 	 */ 
@@ -0,0 +1,697 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.tests;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import CTBNCToolkit.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Dataset of trajectories stored in a binary file.
+ * The file is memory mapped and each trajectory is
+ * a read only view of the mapped file, so the
+ * opening does not parse the data and only the
+ * touched trajectories are loaded in memory.
+ *
+ * File format (version 2, big endian):
+ * - header: magic number, version, chunk size, offset
+ *   of the trajectories table, time factor already
+ *   applied to the stored times, node names, class
+ *   node index, and state dictionary;
+ * - data blocks: for each trajectory the times (double),
+ *   the changes index (int) and the state columns (byte
+ *   or short, as in CTEncodedTrajectory); each block
+ *   starts at an 8 bytes aligned position and it is
+ *   fully contained in a chunk of the file;
+ * - trajectories table: name, block offset, number of
+ *   transitions and number of changes of each trajectory.
+ */
+public class BinaryDataset extends AbstractList<ITrajectory<Double>> {
+
+	/**
+	 * Extension of the binary dataset files.
+	 */
+	public static final String EXTENSION = ".ctbd";
+
+	private static final int MAGIC = 0x43544244;			// "CTBD"
+	private static final int VERSION = 2;
+	static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+
+	private NodeIndexing nodeIndexing;
+	private StateDictionary dictionary;
+	private double timeScale;								// scale from the stored times to the required time factor
+	private long chunkSize;
+	private ByteBuffer[] chunks;
+	private int[] columnWidths;
+	private int[] columnStarts;							// column offset per transition (sum of the widths of the previous columns)
+	private int rowWidth;
+	private String[] names;
+	private long[] offsets;
+	private int[] transitions;
+	private int[] changes;
+	private MappedTrajectory[] views;
+
+	/**
+	 * Open a binary dataset. The times are
+	 * scaled only when the time factor differs
+	 * from the one already applied to the file.
+	 *
+	 * @param nameIndexing name of the global node indexing to use
+	 * @param path path of the binary file
+	 * @param timeFactor multiplication factor to the time in the dataset
+	 * @throws IOException in case of reading errors
+	 * @throws IllegalArgumentException in case of illegal arguments or wrong file format
+	 */
+	public BinaryDataset(String nameIndexing, String path, double timeFactor) throws IOException, IllegalArgumentException {
+
+		if( path == null)
+			throw new IllegalArgumentException("Error: null path argument");
+
+		if( timeFactor <= 0)
+			throw new IllegalArgumentException("Error: the time factor must be positive");
+
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long fileSize = channel.size();
+
+			// Header
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+			if( in.readInt() != MAGIC)
+				throw new IllegalArgumentException("Error: " + path + " is not a binary dataset file");
+			int version = in.readInt();
+			if( version != VERSION)
+				throw new IllegalArgumentException("Error: unsupported binary dataset version " + version);
+			this.chunkSize = in.readLong();
+			long tableOffset = in.readLong();
+			double fileTimeFactor = in.readDouble();
+			if( fileTimeFactor <= 0)
+				throw new IllegalArgumentException("Error: wrong time factor in " + path);
+			this.timeScale = fileTimeFactor == timeFactor ? 1.0 : timeFactor / fileTimeFactor;
+
+			String[] nodeNames = new String[in.readInt()];
+			for(int iNode = 0; iNode < nodeNames.length; ++iNode)
+				nodeNames[iNode] = in.readUTF();
+			int classIndex = in.readInt();
+			if( classIndex < 0 || classIndex >= nodeNames.length)
+				throw new IllegalArgumentException("Error: wrong class node index in " + path);
+
+			this.nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, nodeNames, nodeNames[classIndex], null);
+			if( this.nodeIndexing.getNodesNumber() != nodeNames.length || this.nodeIndexing.getClassIndex() != classIndex)
+				throw new IllegalArgumentException("Error: the node indexing " + nameIndexing + " doesn't correspond with the dataset nodes");
+			for(int iNode = 0; iNode < nodeNames.length; ++iNode)
+				if( !nodeNames[iNode].equals(this.nodeIndexing.getName(iNode)))
+					throw new IllegalArgumentException("Error: the node indexing " + nameIndexing + " doesn't correspond with the dataset nodes");
+
+			Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+			for(int iNode = 0; iNode < nodeNames.length; ++iNode) {
+				Set<String> states = new LinkedHashSet<String>();
+				int nStates = in.readInt();
+				for(int iState = 0; iState < nStates; ++iState)
+					states.add(in.readUTF());
+				statesForNode.put(nodeNames[iNode], states);
+			}
+			this.dictionary = new StateDictionary(this.nodeIndexing, statesForNode);
+			this.generateColumnsLayout();
+
+			// Trajectories table
+			in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(tableOffset))));
+			int nTrajectories = in.readInt();
+			this.names = new String[nTrajectories];
+			this.offsets = new long[nTrajectories];
+			this.transitions = new int[nTrajectories];
+			this.changes = new int[nTrajectories];
+			this.views = new MappedTrajectory[nTrajectories];
+			for(int iTrj = 0; iTrj < nTrajectories; ++iTrj) {
+				if( in.readBoolean())
+					this.names[iTrj] = in.readUTF();
+				this.offsets[iTrj] = in.readLong();
+				this.transitions[iTrj] = in.readInt();
+				this.changes[iTrj] = in.readInt();
+				if( this.offsets[iTrj] / this.chunkSize != (this.offsets[iTrj] + this.blockSize(iTrj) - 1) / this.chunkSize && this.blockSize(iTrj) > 0)
+					throw new IllegalArgumentException("Error: corrupted binary dataset " + path);
+			}
+
+			// Memory mapping (chunks are mapped separately to support files bigger than 2GB)
+			this.chunks = new ByteBuffer[(int) ((tableOffset + this.chunkSize - 1) / this.chunkSize)];
+			for(int iChunk = 0; iChunk < this.chunks.length; ++iChunk) {
+				long start = iChunk * this.chunkSize;
+				this.chunks[iChunk] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.chunkSize, fileSize - start));
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Write a dataset in the binary format.
+	 * All the trajectories must share the same
+	 * node indexing with a class node.
+	 *
+	 * @param dataset dataset to write
+	 * @param path path of the file to write
+	 * @throws IOException in case of writing errors
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static void write(List<ITrajectory<Double>> dataset, String path) throws IOException, IllegalArgumentException {
+
+		write(dataset, path, 1.0, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Write a dataset whose times are already
+	 * scaled by a time factor (as the datasets
+	 * loaded by DatasetLoader). The factor is
+	 * stored in the file, so the times are not
+	 * scaled again when the file is opened with
+	 * the same time factor.
+	 *
+	 * @param dataset dataset to write
+	 * @param path path of the file to write
+	 * @param timeFactor time factor already applied to the dataset
+	 * @throws IOException in case of writing errors
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public static void write(List<ITrajectory<Double>> dataset, String path, double timeFactor) throws IOException, IllegalArgumentException {
+
+		write(dataset, path, timeFactor, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Write a dataset in the binary format
+	 * with the given chunk size.
+	 *
+	 * @param dataset dataset to write
+	 * @param path path of the file to write
+	 * @param timeFactor time factor already applied to the dataset
+	 * @param chunkSize size of the chunks of the file (a trajectory cannot be bigger than a chunk)
+	 * @throws IOException in case of writing errors
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	static void write(List<ITrajectory<Double>> dataset, String path, double timeFactor, long chunkSize) throws IOException, IllegalArgumentException {
+
+		if( dataset == null || dataset.isEmpty())
+			throw new IllegalArgumentException("Error: empty dataset");
+		if( timeFactor <= 0)
+			throw new IllegalArgumentException("Error: the time factor must be positive");
+		if( chunkSize < 8 || chunkSize % 8 != 0 || chunkSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Error: the chunk size must be a positive multiple of 8 less than 2GB");
+
+		NodeIndexing nodeIndexing = dataset.get(0).getNodeIndexing();
+		if( nodeIndexing.getClassIndex() == -1)
+			throw new IllegalArgumentException("Error: the dataset must have a class node");
+		for(int iTrj = 0; iTrj < dataset.size(); ++iTrj)
+			if( dataset.get(iTrj).getNodeIndexing() != nodeIndexing)
+				throw new IllegalArgumentException("Error: all the trajectories must have the same node indexing");
+		StateDictionary dictionary = generateDictionary(dataset);
+
+		int nNodes = nodeIndexing.getNodesNumber();
+		int rowWidth = 8 + 4;
+		for(int iNode = 0; iNode < nNodes; ++iNode)
+			rowWidth += dictionary.getStatesNumber(iNode) <= Byte.MAX_VALUE ? 1 : 2;
+
+		CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+		DataOutputStream out = new DataOutputStream(counter);
+		long[] offsets = new long[dataset.size()];
+		int[] changesNumbers = new int[dataset.size()];
+		try {
+			// Header
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(chunkSize);
+			out.writeLong(0);												// table offset (set at the end)
+			out.writeDouble(timeFactor);
+			out.writeInt(nNodes);
+			for(int iNode = 0; iNode < nNodes; ++iNode)
+				out.writeUTF(nodeIndexing.getName(iNode));
+			out.writeInt(nodeIndexing.getClassIndex());
+			for(int iNode = 0; iNode < nNodes; ++iNode) {
+				out.writeInt(dictionary.getStatesNumber(iNode));
+				for(int iState = 0; iState < dictionary.getStatesNumber(iNode); ++iState)
+					out.writeUTF(dictionary.getStateName(iNode, iState));
+			}
+
+			// Data blocks
+			for(int iTrj = 0; iTrj < dataset.size(); ++iTrj) {
+				IEncodedTrajectory trj = CTEncodedTrajectory.encode(dataset.get(iTrj), dictionary);
+				int nTrans = trj.getTransitionsNumber();
+				int nChanges = 0;
+				for(int i = 0; i < nTrans; ++i)
+					nChanges += trj.getChangesNumber(i);
+				long blockSize = (long) rowWidth * nTrans + 4 * (nChanges + 1);
+				if( blockSize > chunkSize)
+					throw new IllegalArgumentException("Error: trajectory " + trj.getName() + " is too big for the binary format");
+
+				padding(out, counter, 8);
+				if( counter.getCount() % chunkSize + blockSize > chunkSize)
+					padding(out, counter, chunkSize);
+				offsets[iTrj] = counter.getCount();
+				changesNumbers[iTrj] = nChanges;
+
+				for(int i = 0; i < nTrans; ++i)
+					out.writeDouble(trj.getTime(i));
+				int iChange = 0;
+				for(int i = 0; i < nTrans; ++i) {
+					out.writeInt(iChange);
+					iChange += trj.getChangesNumber(i);
+				}
+				out.writeInt(iChange);
+				for(int i = 0; i < nTrans; ++i)
+					for(int c = 0; c < trj.getChangesNumber(i); ++c)
+						out.writeInt(trj.getChangedNode(i, c));
+				for(int iNode = 0; iNode < nNodes; ++iNode) {
+					boolean byteColumn = dictionary.getStatesNumber(iNode) <= Byte.MAX_VALUE;
+					for(int i = 0; i < nTrans; ++i)
+						if( byteColumn)
+							out.writeByte(trj.getStateIndex(i, iNode));
+						else
+							out.writeShort(trj.getStateIndex(i, iNode));
+				}
+			}
+
+			// Trajectories table
+			padding(out, counter, 8);
+			long tableOffset = counter.getCount();
+			out.writeInt(dataset.size());
+			for(int iTrj = 0; iTrj < dataset.size(); ++iTrj) {
+				ITrajectory<Double> trj = dataset.get(iTrj);
+				out.writeBoolean(trj.getName() != null);
+				if( trj.getName() != null)
+					out.writeUTF(trj.getName());
+				out.writeLong(offsets[iTrj]);
+				out.writeInt(trj.getTransitionsNumber());
+				out.writeInt(changesNumbers[iTrj]);
+			}
+			out.close();
+			out = null;
+
+			// Set the table offset
+			RandomAccessFile file = new RandomAccessFile(path, "rw");
+			try {
+				file.seek(16);
+				file.writeLong(tableOffset);
+			} finally {
+				file.close();
+			}
+		} finally {
+			if( out != null)
+				out.close();
+		}
+	}
+
+	/**
+	 * Write zeros up to the next multiple
+	 * of the alignment.
+	 *
+	 * @param out output stream
+	 * @param counter counter of the written bytes
+	 * @param alignment alignment
+	 * @throws IOException in case of IO errors
+	 */
+	private static void padding(DataOutputStream out, CountingOutputStream counter, long alignment) throws IOException {
+
+		while( counter.getCount() % alignment != 0)
+			out.writeByte(0);
+	}
+
+	/**
+	 * Generate the dictionary of the dataset.
+	 * If all the trajectories are encoded with
+	 * the same dictionary it is used, otherwise
+	 * the sorted set of the values is used.
+	 *
+	 * @param dataset dataset
+	 * @return state dictionary
+	 */
+	private static StateDictionary generateDictionary(List<ITrajectory<Double>> dataset) {
+
+		ITrajectory<Double> first = dataset.get(0);
+		if( first instanceof IEncodedTrajectory) {
+			StateDictionary dictionary = ((IEncodedTrajectory) first).getStateDictionary();
+			boolean sameDictionary = true;
+			for(int iTrj = 1; iTrj < dataset.size() && sameDictionary; ++iTrj)
+				sameDictionary = dataset.get(iTrj) instanceof IEncodedTrajectory &&
+					((IEncodedTrajectory) dataset.get(iTrj)).getStateDictionary().getMapping(dictionary) == null;
+			if( sameDictionary)
+				return dictionary;
+		}
+
+		NodeIndexing nodeIndexing = first.getNodeIndexing();
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+			statesForNode.put(nodeIndexing.getName(iNode), new TreeSet<String>());
+		for(int iTrj = 0; iTrj < dataset.size(); ++iTrj) {
+			ITrajectory<Double> trj = dataset.get(iTrj);
+			if( trj instanceof IEncodedTrajectory) {
+				StateDictionary trjDictionary = ((IEncodedTrajectory) trj).getStateDictionary();
+				for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+					for(int iState = 0; iState < trjDictionary.getStatesNumber(iNode); ++iState)
+						statesForNode.get(nodeIndexing.getName(iNode)).add(trjDictionary.getStateName(iNode, iState));
+			} else {
+				for(int i = 0; i < trj.getTransitionsNumber(); ++i) {
+					ITransition<Double> trans = trj.getTransition(i);
+					for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+						if( trans.getNodeValue(iNode) != null)
+							statesForNode.get(nodeIndexing.getName(iNode)).add(trans.getNodeValue(iNode));
+				}
+			}
+		}
+
+		return new StateDictionary(nodeIndexing, statesForNode);
+	}
+
+	/**
+	 * Generate the layout of the
+	 * state columns.
+	 */
+	private void generateColumnsLayout() {
+
+		int nNodes = this.nodeIndexing.getNodesNumber();
+		this.columnWidths = new int[nNodes];
+		this.columnStarts = new int[nNodes];
+		this.rowWidth = 8 + 4;
+		int start = 0;
+		for(int iNode = 0; iNode < nNodes; ++iNode) {
+			this.columnWidths[iNode] = this.dictionary.getStatesNumber(iNode) <= Byte.MAX_VALUE ? 1 : 2;
+			this.columnStarts[iNode] = start;
+			start += this.columnWidths[iNode];
+		}
+		this.rowWidth += start;
+	}
+
+	/**
+	 * Return the size of the data block
+	 * of a trajectory.
+	 *
+	 * @param iTrj trajectory index
+	 * @return size in bytes
+	 */
+	private long blockSize(int iTrj) {
+
+		return (long) this.rowWidth * this.transitions[iTrj] + 4 * ((long) this.changes[iTrj] + 1);
+	}
+
+	/**
+	 * Return the node indexing of the dataset.
+	 *
+	 * @return the node indexing
+	 */
+	public NodeIndexing getNodeIndexing() {
+
+		return this.nodeIndexing;
+	}
+
+	/**
+	 * Return the state dictionary of the dataset.
+	 *
+	 * @return the state dictionary
+	 */
+	public StateDictionary getStateDictionary() {
+
+		return this.dictionary;
+	}
+
+	/**
+	 * Return the states of each node
+	 * indexed by node name.
+	 *
+	 * @return states for node
+	 */
+	public Map<String,Set<String>> getStatesForNode() {
+
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		for(int iNode = 0; iNode < this.nodeIndexing.getNodesNumber(); ++iNode) {
+			Set<String> states = new TreeSet<String>();
+			for(int iState = 0; iState < this.dictionary.getStatesNumber(iNode); ++iState)
+				states.add(this.dictionary.getStateName(iNode, iState));
+			statesForNode.put(this.nodeIndexing.getName(iNode), states);
+		}
+
+		return statesForNode;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public ITrajectory<Double> get(int iTrj) {
+
+		if( iTrj < 0 || iTrj >= this.views.length)
+			throw new IndexOutOfBoundsException("Error: trajectory index out of bound");
+
+		MappedTrajectory view = this.views[iTrj];
+		if( view == null) {
+			int iChunk = (int) (this.offsets[iTrj] / this.chunkSize);
+			int base = (int) (this.offsets[iTrj] % this.chunkSize);
+			view = new MappedTrajectory(this.chunks[iChunk], base, this.transitions[iTrj], this.names[iTrj]);
+			this.views[iTrj] = view;
+		}
+
+		return view;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+
+		return this.views.length;
+	}
+
+
+	/**
+	 * Read only trajectory that reads the
+	 * values directly from the mapped file.
+	 * The view is immutable, so it can be
+	 * cached and shared between threads
+	 * without synchronization.
+	 */
+	private class MappedTrajectory implements IEncodedTrajectory {
+
+		private final ByteBuffer buffer;
+		private final int timesStart;
+		private final int changesStart;
+		private final int changedNodesStart;
+		private final int columnsStart;
+		private final int transitionsNumber;
+		private final String name;
+
+		/**
+		 * Base constructor.
+		 *
+		 * @param buffer mapped chunk that contains the trajectory
+		 * @param base offset of the data block in the chunk
+		 * @param transitionsNumber number of transitions
+		 * @param name name of the trajectory
+		 */
+		private MappedTrajectory(ByteBuffer buffer, int base, int transitionsNumber, String name) {
+
+			this.buffer = buffer;
+			this.transitionsNumber = transitionsNumber;
+			this.name = name;
+			this.timesStart = base;
+			this.changesStart = this.timesStart + 8 * transitionsNumber;
+			this.changedNodesStart = this.changesStart + 4 * (transitionsNumber + 1);
+			this.columnsStart = this.changedNodesStart + 4 * this.buffer.getInt(this.changesStart + 4 * transitionsNumber);
+		}
+
+		/**
+		 * Check the transition index.
+		 *
+		 * @param iTransition index of the transition
+		 * @throws IllegalArgumentException if the index is out of bound
+		 */
+		private void checkTransition(int iTransition) throws IllegalArgumentException {
+
+			if( iTransition < 0 || iTransition >= this.transitionsNumber)
+				throw new IllegalArgumentException("Error: transition index out of bound");
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IEncodedTrajectory#getTime(int)
+		 */
+		@Override
+		public double getTime(int iTransition) throws IllegalArgumentException {
+
+			this.checkTransition(iTransition);
+
+			return this.buffer.getDouble(this.timesStart + 8 * iTransition) * BinaryDataset.this.timeScale;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IEncodedTrajectory#getStateIndex(int, int)
+		 */
+		@Override
+		public int getStateIndex(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+			this.checkTransition(iTransition);
+
+			int columnStart = this.columnsStart + BinaryDataset.this.columnStarts[nodeIndex] * this.transitionsNumber;
+			if( BinaryDataset.this.columnWidths[nodeIndex] == 1)
+				return this.buffer.get(columnStart + iTransition);
+			return this.buffer.getShort(columnStart + 2 * iTransition);
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IEncodedTrajectory#getChangesNumber(int)
+		 */
+		@Override
+		public int getChangesNumber(int iTransition) throws IllegalArgumentException {
+
+			this.checkTransition(iTransition);
+
+			int position = this.changesStart + 4 * iTransition;
+			return this.buffer.getInt(position + 4) - this.buffer.getInt(position);
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IEncodedTrajectory#getChangedNode(int, int)
+		 */
+		@Override
+		public int getChangedNode(int iTransition, int iChange) throws IllegalArgumentException {
+
+			if( iChange < 0 || iChange >= this.getChangesNumber(iTransition))
+				throw new IllegalArgumentException("Error: change index out of bound");
+
+			int iStart = this.buffer.getInt(this.changesStart + 4 * iTransition);
+			return this.buffer.getInt(this.changedNodesStart + 4 * (iStart + iChange));
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNCToolkit.IEncodedTrajectory#getStateDictionary()
+		 */
+		@Override
+		public StateDictionary getStateDictionary() {
+
+			return BinaryDataset.this.dictionary;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getTransitionsNumber()
+		 */
+		@Override
+		public int getTransitionsNumber() {
+
+			return this.transitionsNumber;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getTransitionTime(int)
+		 */
+		@Override
+		public Double getTransitionTime(int iTransition) throws IllegalArgumentException {
+
+			return this.getTime(iTransition);
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getNodeValue(int, int)
+		 */
+		@Override
+		public String getNodeValue(int iTransition, int nodeIndex) throws IllegalArgumentException {
+
+			int iState = this.getStateIndex(iTransition, nodeIndex);
+			if( iState == -1)
+				throw new IllegalArgumentException("Error: node " + BinaryDataset.this.nodeIndexing.getName( nodeIndex) + " didn't find");
+
+			return BinaryDataset.this.dictionary.getStateName(nodeIndex, iState);
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getTransition(int)
+		 */
+		@Override
+		public CTTransition<Double> getTransition(int iTransition) throws IllegalArgumentException {
+
+			String[] values = new String[BinaryDataset.this.nodeIndexing.getNodesNumber()];
+			for(int iNode = 0; iNode < values.length; ++iNode) {
+				int iState = this.getStateIndex(iTransition, iNode);
+				values[iNode] = iState == -1 ? null : BinaryDataset.this.dictionary.getStateName(iNode, iState);
+			}
+
+			return new CTTransition<Double>(BinaryDataset.this.nodeIndexing, this.getTime(iTransition), values);
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#setName(java.lang.String)
+		 */
+		@Override
+		public void setName(String name) {
+
+			throw new UnsupportedOperationException("Error: the trajectories of a binary dataset are read only");
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getName()
+		 */
+		@Override
+		public String getName() {
+
+			return this.name;
+		}
+
+		/* (non-Javadoc)
+		 * @see CTBNToolkit.ITrajectory#getNodeIndexing()
+		 */
+		@Override
+		public NodeIndexing getNodeIndexing() {
+
+			return BinaryDataset.this.nodeIndexing;
+		}
+	}
+
+
+	/**
+	 * Output stream that counts
+	 * the written bytes.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		private CountingOutputStream(OutputStream out) {
+
+			super(out);
+			this.count = 0;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+
+			this.out.write(b);
+			++this.count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+		/**
+		 * Return the number of written bytes.
+		 *
+		 * @return number of written bytes
+		 */
+		private long getCount() {
+
+			return this.count;
+		}
+	}
+}
@@ -407,153 +407,7 @@ public class CTBNCTestFactory<TimeType extends Number & Comparable<TimeType>,Nod
 	 */
 	public static CTBNClassifier loadDataset(String nameIndexing, List<ITrajectory<Double>> dataset, String path, String ext, char separator, String classNodeName, String timeNodeName, String trajectoryCounterName, Set<String> validColumns, double timeFactor, int nClusters) throws IllegalArgumentException,IOException,RuntimeException {
 		
-		if( dataset == null)
-			throw new IllegalArgumentException("Error: null dataset value. It must be instanced.");
-		if( validColumns == null)
-			throw new IllegalArgumentException("Error: null valid columns argument. It must be instanced.");
-		
-		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
-		
-		File[] listOfFiles;
-		File input = new File(path);
-		if( input.isDirectory()) {				// get all the file in the directory
-			listOfFiles = (new File(path)).listFiles();
-		} else if( input.isFile()) {
-			listOfFiles = new File[1];			// select just the file
-			listOfFiles[0] = input;
-		} else {
-			throw new IllegalArgumentException("Error: the input to load must be a file or a directory.");
-		}
-		ext = ext.toLowerCase();
-		
-		// For each file
-		NodeIndexing nodeIndexing = null;
-		for(int f = 0; f < listOfFiles.length; ++f) {
-			
-			// Jumps all the file that have not the right extension
-			if( (!ext.equals("*")) && (!listOfFiles[f].getName().toLowerCase().endsWith(ext)))
-				continue;
-			
-			// Load the file
-			CSVReader reader = new CSVReader(new FileReader(listOfFiles[f].getAbsolutePath()), separator);
-			// Read the file
-		    String [] firstLine,nextLine;
-		    List<Double> times = new Vector<Double>();
-		    List<String[]> values = new Vector<String[]>();
-		    // Index
-		    int timeIdx = -1;
-		    int trjCounterIdx = -1;
-		    String counterState = null;
-		    int trjCounter = 1;
-		    
-		    // Read the header and set the index of the state, time and, trajectories breaker column (if exist)
-		    boolean setValidColumns = false;
-		    if( validColumns.isEmpty()) {							// if empty, the valid columns are all the column except the class, the time and the trajectory separator columns
-		    	setValidColumns = true;
-		    }
-		    if ((firstLine = reader.readNext()) == null)
-		    	continue;
-		    for(int i = 0; i < firstLine.length; ++i) {
-		    	firstLine[i] = firstLine[i].trim();
-		    	if( firstLine[i].equals(timeNodeName)) {													// time column
-		    		if( timeIdx != -1) {
-		    			reader.close();
-		    			throw new RuntimeException("Error two or more time columns named " + timeNodeName);
-		    		} else
-		    			timeIdx = i;
-		    	}else if( trajectoryCounterName != null && firstLine[i].equals(trajectoryCounterName)) {	// trajectory separator column
-		    		if( trjCounterIdx != -1) {
-		    			reader.close();
-		    			throw new RuntimeException("Error two or more trajectory counter columns named " + trajectoryCounterName);
-		    		} else
-		    			trjCounterIdx = i;
-		    	}else if( setValidColumns) {																// all the other columns
-		    		validColumns.add(firstLine[i]);
-		    	}
-		    }
-		    setValidColumns = false;
-		    validColumns.add(classNodeName);																// the class must be alwasys in the valid columns
-		    if( timeIdx == -1) {
-		    	reader.close();
-		    	throw new RuntimeException("Error time column named " + timeNodeName + " not found");
-		    }
-		    if( trajectoryCounterName != null && trjCounterIdx == -1) {
-		    	reader.close();
-		    	throw new RuntimeException("Error trajectory counter column named " + trajectoryCounterName + " not found");
-		    }
-		    if( nodeIndexing == null)
-		    	nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, firstLine, classNodeName, validColumns);
-		    
-		    // Read the file
-	    	while ((nextLine = reader.readNext()) != null) {
-	    		if( nextLine.length < 1)
-	    			continue;
-	    		if( nextLine.length != firstLine.length) {
-	    			reader.close();
-	    			throw new RuntimeException("Data row length does not correspond with header length");
-	    		}
-
-	    		// Trajectories separation
-	    		if( trjCounterIdx != -1) {
-	    			if( counterState == null) {
-	    				//Start a new trajectory
-	    				counterState = nextLine[trjCounterIdx];
-	    			} else if( !nextLine[trjCounterIdx].equals( counterState)) {
-	    				// Generate the finished trajectory
-	    				CTTrajectory<Double> trj = new CTTrajectory<Double>(nodeIndexing, times, values);
-	    		    	trj.setName(listOfFiles[f].getName() + "_" + trjCounter);
-	    		    	dataset.add(trj);
-	    		    	
-	    				// Start the new trajectory
-	    		    	times = new Vector<Double>();
-	    				values = new Vector<String[]>();
-	    				++trjCounter;
-	    				counterState = nextLine[trjCounterIdx];
-	    			}
-	    		}
-	    		
-	    		// Read the row and generate its states
-			    String[] rowValues = new String[nodeIndexing.getNodesNumber()];
-			    for(int i  = 0; i < rowValues.length; ++i)
-			    	rowValues[i] = null;
-			    
-			    Set<String> states;
-			    for(int i = 0; i < firstLine.length; ++i) {
-			    	if( !validColumns.contains(firstLine[i]))	// if it is not a column, ignore it
-			    		continue;
-			    	
-			    	nextLine[i] = nextLine[i].trim();
-			    	rowValues[ nodeIndexing.getIndex( firstLine[i])] = nextLine[i];
-			    	if( statesForNode.containsKey(firstLine[i]))
-			    		states = statesForNode.get(firstLine[i]);
-			    	else
-			    		states = new TreeSet<String>();
-		    		states.add(nextLine[i]);
-		    		statesForNode.put(firstLine[i], states);
-			    }
-			    values.add(rowValues);
-			    times.add(Double.parseDouble(nextLine[timeIdx])*timeFactor);
-			}
-	    	reader.close();
-	    	
-	    	CTTrajectory<Double> trj = new CTTrajectory<Double>(nodeIndexing, times, values);
-	    	if( trjCounterIdx == -1)
-	    		trj.setName(listOfFiles[f].getName());
-	    	else
-	    		trj.setName(listOfFiles[f].getName() + "_" + trjCounter);
-	    	dataset.add(trj);
-		}
-		
-		// Set the number of clusters for the class node
-		if( nClusters >= 2) {
-			Set<String> clusters = new TreeSet<String>();
-			for(int i = 1; i <= nClusters; ++i)
-				clusters.add("" + i);
-			statesForNode.put(classNodeName, clusters);
-		}			
-
-		return CTBNClassifierFactory.getNaiveBayesFromDataset(nodeIndexing, statesForNode);
-		
+		return new DatasetLoader(Runtime.getRuntime().availableProcessors()).load(nameIndexing, dataset, path, ext, separator, classNodeName, timeNodeName, trajectoryCounterName, validColumns, timeFactor, nClusters);
 	}
 	
 	/**
@@ -608,7 +462,10 @@ public class CTBNCTestFactory<TimeType extends Number & Comparable<TimeType>,Nod
 		
 		// Cut the length of the trajectories
 		for(int i  = 0; i < dataset.size(); ++i)
-			dataset.set(i, CTTrajectory.cutTrajectory( (CTTrajectory<Double>)dataset.get(i), cutPercentage));
+			if( dataset.get(i) instanceof IEncodedTrajectory)
+				dataset.set(i, CTEncodedTrajectory.cutTrajectory( (IEncodedTrajectory)dataset.get(i), cutPercentage));
+			else
+				dataset.set(i, CTTrajectory.cutTrajectory( (CTTrajectory<Double>)dataset.get(i), cutPercentage));
 			
 		return dataset;
 	}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.tests;
+
+import java.util.*;
+
+import CTBNCToolkit.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Benchmark of the classification throughput on long
+ * trajectories generated by a random CTBNC.
+ *
+ * Four evaluations of the class log likelihoods are
+ * compared:
+ * - direct: the CIM values are read from the model nodes
+ *   setting the evidence and the logarithms are calculated
+ *   in each transition;
+ * - compile per call: a CompiledCTBNClassifier is generated
+ *   for each classification;
+ * - compiled: the cached compiled form of the model is used
+ *   (precomputed log-CIMs and diagonal rates);
+ * - class-major: as compiled, but with the class-major
+ *   kernel (the classes are the inner loop).
+ *
+ * Usage: ClassificationBenchmark [nodes [states [time [trajectories [repetitions]]]]]
+ */
+public class ClassificationBenchmark {
+
+	/**
+	 * Benchmark entry point.
+	 *
+	 * @param args optional arguments: number of nodes, number of states, trajectory time, number of trajectories and number of repetitions
+	 */
+	public static void main(String[] args) {
+
+		int nNodes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int nStates = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		double time = args.length > 2 ? Double.parseDouble(args[2]) : 200.0;
+		int nTrajectories = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+		int nRepetitions = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+		if( nNodes < 1 || nStates < 2 || time <= 0.0 || nTrajectories < 1 || nRepetitions < 1)
+			throw new IllegalArgumentException("Error: wrong benchmark parameters");
+
+		CTBNClassifier model = generateModel(nNodes, nStates, new Random(1));
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		long nTransitions = 0;
+		for( int i = 0; i < nTrajectories; ++i) {
+			ITrajectory<Double> trj = model.generateTrajectory(time);
+			dataset.add(trj);
+			nTransitions += trj.getTransitionsNumber();
+		}
+		System.out.println("Model: " + nNodes + " nodes, " + nStates + " states");
+		System.out.println("Dataset: " + nTrajectories + " trajectories, " + nTransitions + " transitions");
+
+		// Check the agreement of the evaluations
+		CTBNCClassifyAlgorithm algorithm = new CTBNCClassifyAlgorithm();
+		CompiledCTBNClassifier compiled = model.compile();
+		CompiledCTBNClassifier.Context context = compiled.newContext();
+		CompiledCTBNClassifier.Context classMajorContext = compiled.newContext(true);
+		Vector<Double> timeStream = new Vector<Double>(0);
+		for( ITrajectory<Double> trj : dataset)
+			if( !directClassify(model, trj).equals( algorithm.classify(compiled, trj, timeStream, context).getClassification()))
+				throw new RuntimeException("Error: the direct and the compiled classification are different");
+
+		double[] direct = new double[nRepetitions];
+		double[] perCall = new double[nRepetitions];
+		double[] cached = new double[nRepetitions];
+		double[] classMajor = new double[nRepetitions];
+		for( int iRep = 0; iRep < nRepetitions; ++iRep) {
+			long start = System.nanoTime();
+			for( ITrajectory<Double> trj : dataset)
+				directClassify(model, trj);
+			direct[iRep] = (System.nanoTime() - start) / 1e9;
+
+			start = System.nanoTime();
+			for( ITrajectory<Double> trj : dataset) {
+				CompiledCTBNClassifier c = new CompiledCTBNClassifier(model);
+				algorithm.classify(c, trj, timeStream, c.newContext());
+			}
+			perCall[iRep] = (System.nanoTime() - start) / 1e9;
+
+			start = System.nanoTime();
+			for( ITrajectory<Double> trj : dataset)
+				algorithm.classify(model.compile(), trj, timeStream, context);
+			cached[iRep] = (System.nanoTime() - start) / 1e9;
+
+			start = System.nanoTime();
+			for( ITrajectory<Double> trj : dataset)
+				algorithm.classify(model.compile(), trj, timeStream, classMajorContext);
+			classMajor[iRep] = (System.nanoTime() - start) / 1e9;
+		}
+
+		double tDirect = best(direct), tPerCall = best(perCall), tCached = best(cached), tClassMajor = best(classMajor);
+		System.out.printf("direct:           %10.4f s  %12.0f transitions/s%n", tDirect, nTransitions / tDirect);
+		System.out.printf("compile per call: %10.4f s  %12.0f transitions/s%n", tPerCall, nTransitions / tPerCall);
+		System.out.printf("compiled:         %10.4f s  %12.0f transitions/s  (speedup %.2fx)%n", tCached, nTransitions / tCached, tDirect / tCached);
+		System.out.printf("class-major:      %10.4f s  %12.0f transitions/s  (speedup %.2fx)%n", tClassMajor, nTransitions / tClassMajor, tDirect / tClassMajor);
+	}
+
+	/**
+	 * Classify a trajectory reading the CIM values
+	 * directly from the model nodes.
+	 *
+	 * @param model model to use
+	 * @param trajectory trajectory to classify
+	 * @return most likely class
+	 */
+	static String directClassify(CTBNClassifier model, ITrajectory<Double> trajectory) {
+
+		int nNodes = model.getNodeIndexing().getNodesNumber();
+		int classIndex = model.getNodeIndexing().getClassIndex();
+		CTDiscreteNode classNode = model.getNode(classIndex);
+		double bestLL = Double.NEGATIVE_INFINITY;
+		String best = null;
+		for( int iClass = 0; iClass < classNode.getStatesNumber(); ++iClass) {
+			// Initial state and static nodes
+			for( int iNode = 0; iNode < nNodes; ++iNode)
+				if( iNode != classIndex)
+					model.getNode(iNode).setEvidence(trajectory.getNodeValue(0, iNode));
+			classNode.setEvidence(iClass);
+			double ll = 0.0;
+			for( int iNode = 0; iNode < nNodes; ++iNode) {
+				CTDiscreteNode node = model.getNode(iNode);
+				if( node.isStaticNode())
+					ll += Math.log( node.getCIMValue(node.getCurrentParentsEntry(), 0, node.getCurrentStateIndex()));
+			}
+
+			// Transitions
+			for( int iJmp = 1; iJmp < trajectory.getTransitionsNumber(); ++iJmp) {
+				double deltaT = trajectory.getTransitionTime(iJmp) - trajectory.getTransitionTime(iJmp - 1);
+				for( int iNode = 0; iNode < nNodes; ++iNode) {
+					CTDiscreteNode node = model.getNode(iNode);
+					if( node.isStaticNode())
+						continue;
+					int pE = node.getCurrentParentsEntry();
+					int s0 = node.getCurrentStateIndex();
+					ll += node.getCIMValue(pE, s0, s0) * deltaT;
+					int s1 = node.getStateIndex(trajectory.getNodeValue(iJmp, iNode));
+					if( s1 != s0)
+						ll += Math.log( node.getCIMValue(pE, s0, s1));
+				}
+				for( int iNode = 0; iNode < nNodes; ++iNode)
+					if( iNode != classIndex)
+						model.getNode(iNode).setEvidence(trajectory.getNodeValue(iJmp, iNode));
+			}
+
+			if( ll > bestLL) {
+				bestLL = ll;
+				best = classNode.getStateName(iClass);
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Generate a random classifier where each
+	 * attribute node has the class and the previous
+	 * node as parents.
+	 *
+	 * @param nNodes number of nodes (class included)
+	 * @param nStates number of states of each node
+	 * @param rand random generator
+	 * @return the model
+	 */
+	static CTBNClassifier generateModel(int nNodes, int nStates, Random rand) {
+
+		String[] names = new String[nNodes];
+		names[0] = "Class";
+		for( int i = 1; i < nNodes; ++i)
+			names[i] = "X" + i;
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing("ClassificationBenchmark" + nNodes + "_" + nStates, names, names[0], null);
+		Set<String> states = new TreeSet<String>();
+		for( int s = 0; s < nStates; ++s)
+			states.add("s" + s);
+		Set<CTDiscreteNode> nodes = new TreeSet<CTDiscreteNode>();
+		for( int i = 0; i < nNodes; ++i)
+			nodes.add(new CTDiscreteNode(names[i], states, i == 0));
+		CTBNClassifier model = new CTBNClassifier(nodeIndexing, "benchmark", nodes);
+		boolean[][] adjMatrix = new boolean[nNodes][nNodes];
+		for( int i = 1; i < nNodes; ++i) {
+			adjMatrix[0][i] = true;
+			if( i > 1)
+				adjMatrix[i - 1][i] = true;
+		}
+		model.setStructure(adjMatrix);
+
+		for( int iNode = 0; iNode < nNodes; ++iNode) {
+			CTDiscreteNode node = model.getNode(iNode);
+			for( int pE = 0; pE < node.getNumberParentsEntries(); ++pE) {
+				double[][] cim;
+				if( node.isStaticNode()) {
+					cim = new double[1][nStates];
+					double sum = 0.0;
+					for( int s = 0; s < nStates; ++s)
+						sum += cim[0][s] = 0.1 + rand.nextDouble();
+					for( int s = 0; s < nStates; ++s)
+						cim[0][s] /= sum;
+				} else {
+					cim = new double[nStates][nStates];
+					for( int s0 = 0; s0 < nStates; ++s0)
+						for( int s1 = 0; s1 < nStates; ++s1)
+							if( s0 != s1) {
+								cim[s0][s1] = 0.1 + rand.nextDouble();
+								cim[s0][s0] -= cim[s0][s1];
+							}
+				}
+				node.setCIM(pE, cim);
+			}
+			if( node.checkCIMs() != -1)
+				throw new RuntimeException("Error: in CIM validation for node " + node.getName());
+		}
+
+		return model;
+	}
+
+	/**
+	 * Return the minimum time.
+	 *
+	 * @param times measured times
+	 * @return minimum time
+	 */
+	private static double best(double[] times) {
+
+		double min = times[0];
+		for( int i = 1; i < times.length; ++i)
+			min = Math.min(min, times[i]);
+
+		return min;
+	}
+}
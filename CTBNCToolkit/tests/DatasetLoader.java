@@ -0,0 +1,678 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.tests;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import au.com.bytecode.opencsv.CSVParser;
+
+import CTBNCToolkit.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ * Loader of the trajectory datasets. The files
+ * are parsed concurrently using a bounded pool
+ * of threads and the node values are directly
+ * encoded as state indexes, so the loaded
+ * trajectories are CTEncodedTrajectory.
+ * The parsed files are merged in order as soon
+ * as they are available and only a bounded number
+ * of parsed files waits to be merged. The global
+ * state indexes require the states of all the
+ * files, so the merged trajectories are encoded
+ * when all the files are parsed.
+ *
+ * The loaded dataset is the same of the one
+ * generated by the serial opencsv parsing: same
+ * trajectories order, names, splitting and time
+ * scaling.
+ *
+ * If the path is a binary dataset file (see
+ * BinaryDataset) the file is memory mapped
+ * instead of parsed.
+ */
+public class DatasetLoader {
+
+	private int nThreads;
+	private int loadedFiles;
+	private long loadedBytes;
+	private long loadingTime;
+
+	/**
+	 * Base constructor.
+	 *
+	 * @param nThreads maximum number of threads used to parse the files (at least 1)
+	 * @throws IllegalArgumentException in case of illegal arguments
+	 */
+	public DatasetLoader(int nThreads) throws IllegalArgumentException {
+
+		if( nThreads < 1)
+			throw new IllegalArgumentException("Error: the number of threads must be at least 1");
+
+		this.nThreads = nThreads;
+		this.loadedFiles = 0;
+		this.loadedBytes = 0;
+		this.loadingTime = 0;
+	}
+
+	/**
+	 * Load all the trajectory files in the path.
+	 * See CTBNCTestFactory.loadDataset for the
+	 * description of the parameters.
+	 *
+	 * @param nameIndexing name that identify the global node indexing
+	 * @param dataset where add the new files (it must be instanced)
+	 * @param path path from where load the trajectories (it can be just a file)
+	 * @param ext extension of the file to load (* means each file)
+	 * @param separator fields separator in the file
+	 * @param classNodeName name of the class column
+	 * @param timeNodeName name of the time column
+	 * @param trajectoryCounterName name of the column to use to cat consecutive trajectories (it can be null)
+	 * @param validColumns set of the names of the column of the dataset to load; if empty load all the columns
+	 * @param timeFactor multiplication factor to the time in the dataset
+	 * @param nClusters number of classes for the class node of the generated model (ignored if less than 2)
+	 * @return model generated from the dataset
+	 * @throws RuntimeException in case of some error in the input files
+	 * @throws IllegalArgumentException if case of illegal arguments
+	 * @throws IOException in case of loading errors
+	 */
+	public CTBNClassifier load(String nameIndexing, List<ITrajectory<Double>> dataset, String path, String ext, char separator, String classNodeName, String timeNodeName, String trajectoryCounterName, Set<String> validColumns, double timeFactor, int nClusters) throws IllegalArgumentException,IOException,RuntimeException {
+
+		if( dataset == null)
+			throw new IllegalArgumentException("Error: null dataset value. It must be instanced.");
+		if( validColumns == null)
+			throw new IllegalArgumentException("Error: null valid columns argument. It must be instanced.");
+
+		long startTime = System.nanoTime();
+		this.loadedFiles = 0;
+		this.loadedBytes = 0;
+
+		File[] listOfFiles;
+		File input = new File(path);
+		if( input.isDirectory()) {				// get all the file in the directory
+			listOfFiles = (new File(path)).listFiles();
+		} else if( input.isFile()) {
+			if( input.getName().toLowerCase().endsWith(BinaryDataset.EXTENSION))
+				return this.loadBinary(nameIndexing, dataset, input, classNodeName, validColumns, timeFactor, nClusters, startTime);
+			listOfFiles = new File[1];			// select just the file
+			listOfFiles[0] = input;
+		} else {
+			throw new IllegalArgumentException("Error: the input to load must be a file or a directory.");
+		}
+		ext = ext.toLowerCase();
+
+		// Files to load
+		List<File> files = new Vector<File>();
+		for(int f = 0; f < listOfFiles.length; ++f)
+			if( ext.equals("*") || listOfFiles[f].getName().toLowerCase().endsWith(ext))
+				files.add(listOfFiles[f]);
+
+		// The first header defines the node indexing (and the valid columns if not specified)
+		NodeIndexing nodeIndexing = null;
+		for(int f = 0; f < files.size() && nodeIndexing == null; ++f) {
+			CSVLineReader reader = new CSVLineReader(new BufferedReader(new FileReader(files.get(f))), separator);
+			String[] firstLine = reader.readNext();
+			reader.close();
+			if( firstLine == null)
+				continue;
+
+			boolean setValidColumns = validColumns.isEmpty();
+			for(int i = 0; i < firstLine.length; ++i) {
+				firstLine[i] = firstLine[i].trim();
+				if( setValidColumns && !firstLine[i].equals(timeNodeName) && !(trajectoryCounterName != null && firstLine[i].equals(trajectoryCounterName)))
+					validColumns.add(firstLine[i]);
+			}
+			validColumns.add(classNodeName);												// the class must be alwasys in the valid columns
+			nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, firstLine, classNodeName, validColumns);
+		}
+
+		// Parallel files parsing (the files are merged in order)
+		List<FileData> filesData = new Vector<FileData>(files.size());
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		if( nodeIndexing != null) {
+			ExecutorService executor = null;
+			try {
+				LinkedList<Future<FileData>> futures = new LinkedList<Future<FileData>>();
+				if( this.nThreads > 1)
+					executor = Executors.newFixedThreadPool( Math.min(this.nThreads, files.size()));
+				int nextFile = 0;
+				for(int f = 0; f < files.size(); ++f) {
+					FileData data;
+					if( executor != null) {
+						// Bounded number of files parsed and not merged
+						while( nextFile < files.size() && nextFile < f + 2 * this.nThreads) {
+							futures.add( executor.submit( new FileParser(files.get(nextFile), nodeIndexing, separator, timeNodeName, trajectoryCounterName, validColumns, timeFactor)));
+							++nextFile;
+						}
+						data = futures.removeFirst().get();
+					} else
+						data = new FileParser(files.get(f), nodeIndexing, separator, timeNodeName, trajectoryCounterName, validColumns, timeFactor).call();
+					filesData.add( this.merge(data, nodeIndexing, statesForNode));
+				}
+			} catch( ExecutionException e) {
+				if( e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				if( e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if( e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new RuntimeException("Error: loading error (" + e.getCause() + ")");
+			} catch( InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Error: interrupted loading");
+			} finally {
+				if( executor != null)
+					executor.shutdownNow();
+			}
+		}
+
+		// Encode the loaded trajectories with the states found in the dataset
+		if( nodeIndexing != null) {
+			StateDictionary dictionary = new StateDictionary(nodeIndexing, statesForNode);
+			for(int f = 0; f < filesData.size(); ++f) {
+				FileData data = filesData.set(f, null);			// the file data is released once encoded
+				if( data.values == null)
+					continue;
+
+				// Local to global state indexes
+				int[][] map = new int[data.values.size()][];
+				for(int iNode = 0; iNode < map.length; ++iNode) {
+					map[iNode] = new int[data.values.get(iNode).size()];
+					for(int iState = 0; iState < map[iNode].length; ++iState)
+						map[iNode][iState] = dictionary.getStateIndex(iNode, data.values.get(iNode).get(iState));
+				}
+
+				for(int iTrj = 0; iTrj < data.trajectories.size(); ++iTrj) {
+					TrajectoryData trjData = data.trajectories.get(iTrj);
+					for(int iNode = 0; iNode < map.length; ++iNode)
+						for(int i = 0; i < trjData.size; ++i)
+							if( trjData.states[iNode][i] != -1)
+								trjData.states[iNode][i] = map[iNode][trjData.states[iNode][i]];
+
+					CTEncodedTrajectory trj = new CTEncodedTrajectory(nodeIndexing, dictionary, trjData.times, trjData.states);
+					trj.setName(trjData.name);
+					dataset.add(trj);
+				}
+			}
+		}
+
+		// Set the number of clusters for the class node
+		if( nClusters >= 2) {
+			Set<String> clusters = new TreeSet<String>();
+			for(int i = 1; i <= nClusters; ++i)
+				clusters.add("" + i);
+			statesForNode.put(classNodeName, clusters);
+		}
+
+		this.loadingTime = System.nanoTime() - startTime;
+
+		return CTBNClassifierFactory.getNaiveBayesFromDataset(nodeIndexing, statesForNode);
+	}
+
+	/**
+	 * Merge the data of a parsed file: the states
+	 * found in the file are added to the states of
+	 * the dataset and the trajectories are trimmed
+	 * to their size.
+	 *
+	 * @param data data of the parsed file
+	 * @param nodeIndexing node indexing
+	 * @param statesForNode states found in the dataset
+	 * @return the merged file data
+	 */
+	private FileData merge(FileData data, NodeIndexing nodeIndexing, Map<String,Set<String>> statesForNode) {
+
+		for(int iNode = 0; data.values != null && iNode < data.values.size(); ++iNode) {
+			if( data.values.get(iNode).isEmpty())
+				continue;
+			String nodeName = nodeIndexing.getName(iNode);
+			Set<String> states = statesForNode.get(nodeName);
+			if( states == null) {
+				states = new TreeSet<String>();
+				statesForNode.put(nodeName, states);
+			}
+			states.addAll(data.values.get(iNode));
+		}
+		for(int iTrj = 0; iTrj < data.trajectories.size(); ++iTrj)
+			data.trajectories.get(iTrj).trim();
+
+		this.loadedBytes += data.bytes;
+		++this.loadedFiles;
+
+		return data;
+	}
+
+	/**
+	 * Load a binary dataset file.
+	 *
+	 * @param nameIndexing name that identify the global node indexing
+	 * @param dataset where add the new trajectories
+	 * @param file binary dataset file
+	 * @param classNodeName name of the class column
+	 * @param validColumns set of the names of the column of the dataset; if empty it is filled with the dataset nodes
+	 * @param timeFactor multiplication factor to the time in the dataset
+	 * @param nClusters number of classes for the class node of the generated model (ignored if less than 2)
+	 * @param startTime loading start time (nanoseconds)
+	 * @return model generated from the dataset
+	 * @throws IllegalArgumentException if case of illegal arguments
+	 * @throws IOException in case of loading errors
+	 */
+	private CTBNClassifier loadBinary(String nameIndexing, List<ITrajectory<Double>> dataset, File file, String classNodeName, Set<String> validColumns, double timeFactor, int nClusters, long startTime) throws IllegalArgumentException,IOException {
+
+		BinaryDataset binaryDataset = new BinaryDataset(nameIndexing, file.getAbsolutePath(), timeFactor);
+		NodeIndexing nodeIndexing = binaryDataset.getNodeIndexing();
+		if( !nodeIndexing.getClassName().equals(classNodeName))
+			throw new IllegalArgumentException("Error: the class node of the binary dataset is " + nodeIndexing.getClassName());
+		if( validColumns.isEmpty())
+			for(int iNode = 0; iNode < nodeIndexing.getNodesNumber(); ++iNode)
+				validColumns.add(nodeIndexing.getName(iNode));
+		dataset.addAll(binaryDataset);
+
+		// Set the number of clusters for the class node
+		Map<String,Set<String>> statesForNode = binaryDataset.getStatesForNode();
+		if( nClusters >= 2) {
+			Set<String> clusters = new TreeSet<String>();
+			for(int i = 1; i <= nClusters; ++i)
+				clusters.add("" + i);
+			statesForNode.put(classNodeName, clusters);
+		}
+
+		this.loadedFiles = 1;
+		this.loadedBytes = file.length();
+		this.loadingTime = System.nanoTime() - startTime;
+
+		return CTBNClassifierFactory.getNaiveBayesFromDataset(nodeIndexing, statesForNode);
+	}
+
+	/**
+	 * Return the number of files
+	 * parsed in the last loading.
+	 *
+	 * @return number of loaded files
+	 */
+	public int getLoadedFilesNumber() {
+
+		return this.loadedFiles;
+	}
+
+	/**
+	 * Return the number of bytes
+	 * parsed in the last loading.
+	 *
+	 * @return number of loaded bytes
+	 */
+	public long getLoadedBytes() {
+
+		return this.loadedBytes;
+	}
+
+	/**
+	 * Return the duration of the
+	 * last loading in seconds.
+	 *
+	 * @return loading time in seconds
+	 */
+	public double getLoadingTime() {
+
+		return this.loadingTime / 1e9;
+	}
+
+	/**
+	 * Return the number of files loaded
+	 * per second in the last loading.
+	 *
+	 * @return files per second
+	 */
+	public double getFilesPerSecond() {
+
+		if( this.loadingTime == 0)
+			return 0.0;
+		return this.loadedFiles / this.getLoadingTime();
+	}
+
+	/**
+	 * Return the number of bytes loaded
+	 * per second in the last loading.
+	 *
+	 * @return bytes per second
+	 */
+	public double getBytesPerSecond() {
+
+		if( this.loadingTime == 0)
+			return 0.0;
+		return this.loadedBytes / this.getLoadingTime();
+	}
+
+	/**
+	 * Return a description of the
+	 * last loading throughput.
+	 *
+	 * @return loading statistics
+	 */
+	public String statisticsToString() {
+
+		return this.loadedFiles + " files, " + this.loadedBytes + " bytes in " + String.format("%.3f", this.getLoadingTime()) + " s (" +
+				String.format("%.1f", this.getFilesPerSecond()) + " files/s, " + String.format("%.1f", this.getBytesPerSecond() / (1024*1024)) + " MB/s)";
+	}
+
+
+	/**
+	 * Trajectory parsed from a file. The
+	 * states are the local indexes of the
+	 * file values.
+	 */
+	private static class TrajectoryData {
+
+		private String name;
+		private int size;
+		private double[] times;
+		private int[][] states;
+
+		private TrajectoryData(int nNodes) {
+
+			this.size = 0;
+			this.times = new double[16];
+			this.states = new int[nNodes][16];
+		}
+
+		/**
+		 * Add a row to the trajectory.
+		 *
+		 * @param time time of the row
+		 * @param rowStates local state indexes of the row
+		 */
+		private void add(double time, int[] rowStates) {
+
+			if( this.size == this.times.length) {
+				int newLength = this.times.length * 2;
+				this.times = Arrays.copyOf(this.times, newLength);
+				for(int iNode = 0; iNode < this.states.length; ++iNode)
+					this.states[iNode] = Arrays.copyOf(this.states[iNode], newLength);
+			}
+
+			this.times[this.size] = time;
+			for(int iNode = 0; iNode < this.states.length; ++iNode)
+				this.states[iNode][this.size] = rowStates[iNode];
+			++this.size;
+		}
+
+		/**
+		 * Trim the arrays of the trajectory to its size.
+		 */
+		private void trim() {
+
+			if( this.times.length == this.size)
+				return;
+
+			this.times = Arrays.copyOf(this.times, this.size);
+			for(int iNode = 0; iNode < this.states.length; ++iNode)
+				this.states[iNode] = Arrays.copyOf(this.states[iNode], this.size);
+		}
+	}
+
+
+	/**
+	 * Result of the parsing of a file.
+	 */
+	private static class FileData {
+
+		private long bytes;
+		private List<TrajectoryData> trajectories;
+		private List<List<String>> values;				// values found for each node (the position is the local state index)
+
+		private FileData(long bytes) {
+
+			this.bytes = bytes;
+			this.trajectories = new Vector<TrajectoryData>();
+			this.values = null;
+		}
+	}
+
+
+	/**
+	 * Task that parses a file.
+	 */
+	private static class FileParser implements Callable<FileData> {
+
+		private File file;
+		private NodeIndexing nodeIndexing;
+		private char separator;
+		private String timeNodeName;
+		private String trajectoryCounterName;
+		private Set<String> validColumns;
+		private double timeFactor;
+
+		private FileParser(File file, NodeIndexing nodeIndexing, char separator, String timeNodeName, String trajectoryCounterName, Set<String> validColumns, double timeFactor) {
+
+			this.file = file;
+			this.nodeIndexing = nodeIndexing;
+			this.separator = separator;
+			this.timeNodeName = timeNodeName;
+			this.trajectoryCounterName = trajectoryCounterName;
+			this.validColumns = validColumns;
+			this.timeFactor = timeFactor;
+		}
+
+		@Override
+		public FileData call() throws IOException, RuntimeException {
+
+			FileData data = new FileData(this.file.length());
+			CSVLineReader reader = new CSVLineReader(new BufferedReader(new FileReader(this.file)), this.separator);
+			try {
+				// Read the header and set the index of the state, time and, trajectories breaker column (if exist)
+				String[] firstLine = reader.readNext();
+				if( firstLine == null)
+					return data;
+				int timeIdx = -1;
+				int trjCounterIdx = -1;
+				int[] columnNode = new int[firstLine.length];
+				for(int i = 0; i < firstLine.length; ++i) {
+					firstLine[i] = firstLine[i].trim();
+					if( firstLine[i].equals(this.timeNodeName)) {															// time column
+						if( timeIdx != -1)
+							throw new RuntimeException("Error two or more time columns named " + this.timeNodeName);
+						timeIdx = i;
+					}else if( this.trajectoryCounterName != null && firstLine[i].equals(this.trajectoryCounterName)) {	// trajectory separator column
+						if( trjCounterIdx != -1)
+							throw new RuntimeException("Error two or more trajectory counter columns named " + this.trajectoryCounterName);
+						trjCounterIdx = i;
+					}
+
+					columnNode[i] = -1;
+					if( this.validColumns.contains(firstLine[i])) {
+						Integer iNode = this.nodeIndexing.getIndex(firstLine[i]);
+						if( iNode == null)
+							throw new RuntimeException("Error column " + firstLine[i] + " not found in the node indexing");
+						columnNode[i] = iNode;
+					}
+				}
+				if( timeIdx == -1)
+					throw new RuntimeException("Error time column named " + this.timeNodeName + " not found");
+				if( this.trajectoryCounterName != null && trjCounterIdx == -1)
+					throw new RuntimeException("Error trajectory counter column named " + this.trajectoryCounterName + " not found");
+
+				// Local dictionaries
+				int nNodes = this.nodeIndexing.getNodesNumber();
+				List<Map<String,Integer>> localIndexes = new Vector<Map<String,Integer>>(nNodes);
+				data.values = new Vector<List<String>>(nNodes);
+				for(int iNode = 0; iNode < nNodes; ++iNode) {
+					localIndexes.add(new HashMap<String,Integer>());
+					data.values.add(new Vector<String>());
+				}
+
+				// Read the file
+				String[] nextLine;
+				String counterState = null;
+				int trjCounter = 1;
+				int[] rowStates = new int[nNodes];
+				TrajectoryData trj = new TrajectoryData(nNodes);
+				while ((nextLine = reader.readNext()) != null) {
+					if( nextLine.length < 1)
+						continue;
+					if( nextLine.length != firstLine.length)
+						throw new RuntimeException("Data row length does not correspond with header length");
+
+					// Trajectories separation
+					if( trjCounterIdx != -1) {
+						if( counterState == null) {
+							//Start a new trajectory
+							counterState = nextLine[trjCounterIdx];
+						} else if( !nextLine[trjCounterIdx].equals( counterState)) {
+							// Close the finished trajectory and start the new one
+							trj.name = this.file.getName() + "_" + trjCounter;
+							data.trajectories.add(trj);
+							trj = new TrajectoryData(nNodes);
+							++trjCounter;
+							counterState = nextLine[trjCounterIdx];
+						}
+					}
+
+					// Read the row and encode its states
+					Arrays.fill(rowStates, -1);
+					for(int i = 0; i < nextLine.length; ++i) {
+						int iNode = columnNode[i];
+						if( iNode == -1)								// if it is not a column, ignore it
+							continue;
+
+						String value = nextLine[i].trim();
+						Integer iState = localIndexes.get(iNode).get(value);
+						if( iState == null) {
+							iState = data.values.get(iNode).size();
+							localIndexes.get(iNode).put(value, iState);
+							data.values.get(iNode).add(value);
+						}
+						rowStates[iNode] = iState;
+					}
+					trj.add(Double.parseDouble(nextLine[timeIdx])*this.timeFactor, rowStates);
+				}
+
+				if( trjCounterIdx == -1)
+					trj.name = this.file.getName();
+				else
+					trj.name = this.file.getName() + "_" + trjCounter;
+				data.trajectories.add(trj);
+			} finally {
+				reader.close();
+			}
+
+			return data;
+		}
+	}
+
+
+	/**
+	 * CSV reader equivalent to the opencsv CSVReader
+	 * with default quote and escape characters. The
+	 * lines without quotes and escapes are split
+	 * directly, the others are parsed by the
+	 * opencsv parser.
+	 */
+	static class CSVLineReader {
+
+		private BufferedReader reader;
+		private char separator;
+		private CSVParser parser;
+
+		/**
+		 * Base constructor.
+		 *
+		 * @param reader reader of the file
+		 * @param separator fields separator
+		 */
+		CSVLineReader(BufferedReader reader, char separator) {
+
+			this.reader = reader;
+			this.separator = separator;
+			this.parser = new CSVParser(separator);
+		}
+
+		/**
+		 * Read the next row.
+		 *
+		 * @return the fields of the row, null at the end of the file
+		 * @throws IOException in case of reading errors
+		 */
+		String[] readNext() throws IOException {
+
+			String line = this.reader.readLine();
+			if( line == null)
+				return null;
+
+			// Fast path
+			if( !this.parser.isPending() && line.indexOf(CSVParser.DEFAULT_QUOTE_CHARACTER) == -1 && line.indexOf(CSVParser.DEFAULT_ESCAPE_CHARACTER) == -1)
+				return this.split(line);
+
+			// Quoted fields (they can continue in the next lines)
+			String[] result = null;
+			while( true) {
+				String[] r = this.parser.parseLineMulti(line);
+				if( r.length > 0) {
+					if( result == null)
+						result = r;
+					else {
+						String[] t = new String[result.length + r.length];
+						System.arraycopy(result, 0, t, 0, result.length);
+						System.arraycopy(r, 0, t, result.length, r.length);
+						result = t;
+					}
+				}
+				if( !this.parser.isPending())
+					return result;
+
+				line = this.reader.readLine();
+				if( line == null)
+					return result;
+			}
+		}
+
+		/**
+		 * Split a line without quotes
+		 * and escape characters.
+		 *
+		 * @param line line to split
+		 * @return the fields
+		 */
+		private String[] split(String line) {
+
+			int nFields = 1;
+			for(int i = 0; i < line.length(); ++i)
+				if( line.charAt(i) == this.separator)
+					++nFields;
+
+			String[] fields = new String[nFields];
+			int start = 0;
+			for(int iField = 0; iField < nFields - 1; ++iField) {
+				int end = line.indexOf(this.separator, start);
+				fields[iField] = line.substring(start, end);
+				start = end + 1;
+			}
+			fields[nFields - 1] = line.substring(start);
+
+			return fields;
+		}
+
+		/**
+		 * Close the reader.
+		 *
+		 * @throws IOException in case of errors
+		 */
+		void close() throws IOException {
+
+			this.reader.close();
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.Test;
+
+import CTBNCToolkit.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTBinaryDataset {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.tests.BinaryDataset#write(List, String)}
+	 * and for {@link CTBNCToolkit.tests.BinaryDataset#BinaryDataset(String, String, double)}.
+	 */
+	@Test
+	public void testWriteAndRead() throws IOException {
+
+		List<ITrajectory<Double>> dataset = generateDataset("testBinaryWrite");
+		File file = File.createTempFile("ZJTESTBinaryDataset", BinaryDataset.EXTENSION);
+		try {
+			BinaryDataset.write(dataset, file.getAbsolutePath());
+			BinaryDataset binaryDataset = new BinaryDataset("testBinaryWrite", file.getAbsolutePath(), 1.0);
+			assertTrue( binaryDataset.getNodeIndexing() == dataset.get(0).getNodeIndexing());
+			assertTrue( binaryDataset.getStateDictionary().getStatesNumber(1) == 200);
+			assertTrue( binaryDataset.getStatesForNode().get("class").size() == 2);
+			checkEquals(dataset, binaryDataset, 1.0);
+			assertTrue( binaryDataset.get(0) == binaryDataset.get(0));
+			try {
+				binaryDataset.get(0).setName("renamed");
+				fail("Exception expected");
+			} catch( UnsupportedOperationException e) {}
+
+			// Time factor
+			binaryDataset = new BinaryDataset("testBinaryWrite", file.getAbsolutePath(), 2.5);
+			checkEquals(dataset, binaryDataset, 2.5);
+
+			// Small chunks
+			BinaryDataset.write(dataset, file.getAbsolutePath(), 1.0, 1024);
+			assertTrue( file.length() > 3 * 1024);
+			binaryDataset = new BinaryDataset("testBinaryWrite", file.getAbsolutePath(), 1.0);
+			checkEquals(dataset, binaryDataset, 1.0);
+
+			// Encoded trajectories are written with their dictionary
+			List<ITrajectory<Double>> copy = new Vector<ITrajectory<Double>>(binaryDataset);
+			File file2 = File.createTempFile("ZJTESTBinaryDataset", BinaryDataset.EXTENSION);
+			try {
+				BinaryDataset.write(copy, file2.getAbsolutePath());
+				BinaryDataset binaryDataset2 = new BinaryDataset("testBinaryWrite", file2.getAbsolutePath(), 1.0);
+				assertTrue( binaryDataset2.getStateDictionary().getMapping(binaryDataset.getStateDictionary()) == null);
+				checkEquals(dataset, binaryDataset2, 1.0);
+			} finally {
+				file2.delete();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test the errors of the binary format.
+	 */
+	@Test
+	public void testErrors() throws IOException {
+
+		List<ITrajectory<Double>> dataset = generateDataset("testBinaryErrors");
+		File file = File.createTempFile("ZJTESTBinaryDataset", BinaryDataset.EXTENSION);
+		try {
+			try {
+				BinaryDataset.write(new Vector<ITrajectory<Double>>(), file.getAbsolutePath());
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+
+			try {
+				BinaryDataset.write(dataset, file.getAbsolutePath(), 1.0, 64);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+
+			BufferedWriter out = new BufferedWriter(new FileWriter(file));
+			out.write("t,class\n0,A\n");
+			out.close();
+			try {
+				new BinaryDataset("testBinaryErrors", file.getAbsolutePath(), 1.0);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+
+			BinaryDataset.write(dataset, file.getAbsolutePath());
+			NodeIndexing.getNodeIndexing("testBinaryErrorsOther", new String[] {"class", "Y"}, "class", null);
+			try {
+				new BinaryDataset("testBinaryErrorsOther", file.getAbsolutePath(), 1.0);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test the loading of a binary dataset
+	 * through the dataset loader.
+	 */
+	@Test
+	public void testLoader() throws IOException {
+
+		List<ITrajectory<Double>> dataset = generateDataset("testBinaryLoader");
+		File file = File.createTempFile("ZJTESTBinaryDataset", BinaryDataset.EXTENSION);
+		try {
+			BinaryDataset.write(dataset, file.getAbsolutePath());
+
+			List<ITrajectory<Double>> loaded = new Vector<ITrajectory<Double>>();
+			Set<String> validColumns = new TreeSet<String>();
+			DatasetLoader loader = new DatasetLoader(2);
+			CTBNClassifier model = loader.load("testBinaryLoader", loaded, file.getAbsolutePath(), ".csv", ',', "class", "t", null, validColumns, 1.0, 3);
+			assertTrue( loader.getLoadedFilesNumber() == 1);
+			assertTrue( loader.getLoadedBytes() == file.length());
+			assertTrue( validColumns.size() == 3);
+			assertTrue( model.getClassNode().getStatesNumber() == 3);
+			assertTrue( model.getNode(1).getStatesNumber() == 200);
+			checkEquals(dataset, loaded, 1.0);
+
+			try {
+				loader.load("testBinaryLoader", loaded, file.getAbsolutePath(), ".csv", ',', "C", "t", null, validColumns, 1.0, 0);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+		} finally {
+			file.delete();
+		}
+	}
+
+
+	/**
+	 * Check that two datasets contain the
+	 * same trajectories.
+	 *
+	 * @param expected expected dataset
+	 * @param actual dataset to check
+	 * @param timeFactor time factor of the dataset to check
+	 */
+	private static void checkEquals(List<ITrajectory<Double>> expected, List<ITrajectory<Double>> actual, double timeFactor) {
+
+		assertTrue( expected.size() == actual.size());
+		for(int iTrj = 0; iTrj < expected.size(); ++iTrj) {
+			IEncodedTrajectory e = (IEncodedTrajectory) expected.get(iTrj);
+			IEncodedTrajectory a = (IEncodedTrajectory) actual.get(iTrj);
+			assertTrue( e.getName() == null ? a.getName() == null : e.getName().equals(a.getName()));
+			assertTrue( e.getTransitionsNumber() == a.getTransitionsNumber());
+			for(int i = 0; i < e.getTransitionsNumber(); ++i) {
+				assertTrue( e.getTime(i) * timeFactor == a.getTime(i));
+				assertTrue( e.getChangesNumber(i) == a.getChangesNumber(i));
+				for(int c = 0; c < e.getChangesNumber(i); ++c)
+					assertTrue( e.getChangedNode(i, c) == a.getChangedNode(i, c));
+				for(int iNode = 0; iNode < e.getNodeIndexing().getNodesNumber(); ++iNode)
+					assertTrue( e.getNodeValue(i, iNode).equals(a.getNodeValue(i, iNode)));
+				CTTransition<Double> trans = (CTTransition<Double>) a.getTransition(i);
+				assertTrue( trans.getNodeValue(2).equals(e.getNodeValue(i, 2)));
+			}
+		}
+	}
+
+	/**
+	 * Generate a random encoded dataset with a
+	 * node with more than 127 states.
+	 *
+	 * @param nameIndexing name of the node indexing
+	 * @return dataset
+	 */
+	private static List<ITrajectory<Double>> generateDataset(String nameIndexing) {
+
+		NodeIndexing nodeIndexing = NodeIndexing.getNodeIndexing(nameIndexing, new String[] {"class", "X", "Y"}, "class", null);
+		Map<String,Set<String>> statesForNode = new TreeMap<String,Set<String>>();
+		statesForNode.put("class", new TreeSet<String>(Arrays.asList("A", "B")));
+		Set<String> xStates = new TreeSet<String>();
+		for(int i = 0; i < 200; ++i)
+			xStates.add("x" + i);
+		statesForNode.put("X", xStates);
+		statesForNode.put("Y", new TreeSet<String>(Arrays.asList("y1", "y2", "y3")));
+		StateDictionary dictionary = new StateDictionary(nodeIndexing, statesForNode);
+
+		Random rand = new Random(7);
+		List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+		for(int iTrj = 0; iTrj < 12; ++iTrj) {
+			int nTrans = 1 + rand.nextInt(30);
+			double[] times = new double[nTrans];
+			int[][] states = new int[3][nTrans];
+			int c = rand.nextInt(2);
+			for(int i = 0; i < nTrans; ++i) {
+				times[i] = i == 0 ? 0.0 : times[i-1] + rand.nextDouble();
+				states[0][i] = c;
+				states[1][i] = i > 0 && rand.nextBoolean() ? states[1][i-1] : rand.nextInt(200);
+				states[2][i] = rand.nextInt(3);
+			}
+			CTEncodedTrajectory trj = new CTEncodedTrajectory(nodeIndexing, dictionary, times, states);
+			if( iTrj != 3)
+				trj.setName("trj" + iTrj);
+			dataset.add(trj);
+		}
+
+		return dataset;
+	}
+}
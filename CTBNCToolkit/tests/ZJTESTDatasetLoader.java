@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2012-2013, Daniele Codecasa <codecasa.job@gmail.com>,
+ * Models and Algorithms for Data & Text Mining (MAD) laboratory of
+ * Milano-Bicocca University, and all the CTBNCToolkit contributors
+ * that will follow.
+ * All rights reserved.
+ *
+ * @author Daniele Codecasa and all the CTBNCToolkit contributors that will follow.
+ * @copyright 2012-2013 Daniele Codecasa, MAD laboratory, and all the CTBNCToolkit contributors that will follow
+ */
+package CTBNCToolkit.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.Test;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+import CTBNCToolkit.*;
+
+/**
+ * @author Daniele Codecasa <codecasa.job@gmail.com>
+ *
+ */
+public class ZJTESTDatasetLoader {
+
+	/**
+	 * Test method for {@link CTBNCToolkit.tests.DatasetLoader#load(String, List, String, String, char, String, String, String, Set, double, int)}.
+	 */
+	@Test
+	public void testLoad() throws IOException {
+
+		File dir = generateDataset();
+		try {
+			List<ITrajectory<Double>> dataset = new Vector<ITrajectory<Double>>();
+			DatasetLoader loader = new DatasetLoader(2);
+			CTBNClassifier model = loader.load("testLoaderLoad", dataset, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 2.0, 0);
+
+			assertTrue( loader.getLoadedFilesNumber() == 2);
+			assertTrue( loader.getLoadedBytes() > 0);
+			assertTrue( model.getNodeIndexing().getNodesNumber() == 3);
+			assertTrue( model.getClassNode().getStatesNumber() == 2);
+			assertTrue( model.getNode( model.getNodeIndexing().getIndex("X")).getStatesNumber() == 3);
+
+			assertTrue( dataset.size() == 3);
+			Map<String,ITrajectory<Double>> byName = new TreeMap<String,ITrajectory<Double>>();
+			for(int i = 0; i < dataset.size(); ++i) {
+				assertTrue( dataset.get(i) instanceof CTEncodedTrajectory);
+				byName.put(dataset.get(i).getName(), dataset.get(i));
+			}
+			assertTrue( byName.containsKey("a.csv_1"));
+			assertTrue( byName.containsKey("a.csv_2"));
+			assertTrue( byName.containsKey("b.csv_1"));
+
+			ITrajectory<Double> trj = byName.get("a.csv_1");
+			NodeIndexing nodeIndexing = trj.getNodeIndexing();
+			assertTrue( trj.getTransitionsNumber() == 3);
+			assertTrue( trj.getTransitionTime(1) == 1.0);
+			assertTrue( trj.getTransitionTime(2) == 3.0);
+			assertTrue( trj.getNodeValue(0, nodeIndexing.getIndex("X")).equals("x1"));
+			assertTrue( trj.getNodeValue(2, nodeIndexing.getIndex("X")).equals("x 2"));
+			assertTrue( trj.getNodeValue(1, nodeIndexing.getIndex("Y")).equals("y,2"));
+			assertTrue( trj.getNodeValue(0, nodeIndexing.getIndex("class")).equals("A"));
+
+			trj = byName.get("a.csv_2");
+			assertTrue( trj.getTransitionsNumber() == 2);
+			assertTrue( trj.getNodeValue(1, nodeIndexing.getIndex("X")).equals("x3"));
+			assertTrue( trj.getNodeValue(0, nodeIndexing.getIndex("class")).equals("B"));
+		} finally {
+			deleteDataset(dir);
+		}
+	}
+
+	/**
+	 * Test the equivalence between the serial
+	 * and the parallel loading and the model
+	 * generated with the clusters number.
+	 */
+	@Test
+	public void testParallelLoad() throws IOException {
+
+		File dir = generateDataset();
+		try {
+			List<ITrajectory<Double>> serial = new Vector<ITrajectory<Double>>();
+			List<ITrajectory<Double>> parallel = new Vector<ITrajectory<Double>>();
+			new DatasetLoader(1).load("testLoaderSerial", serial, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 1.0, 0);
+			CTBNClassifier model = new DatasetLoader(4).load("testLoaderParallel", parallel, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 1.0, 3);
+
+			assertTrue( model.getClassNode().getStatesNumber() == 3);
+			assertTrue( serial.size() == parallel.size());
+			for(int i = 0; i < serial.size(); ++i) {
+				ITrajectory<Double> s = serial.get(i);
+				ITrajectory<Double> p = parallel.get(i);
+				assertTrue( s.getName().equals(p.getName()));
+				assertTrue( s.getTransitionsNumber() == p.getTransitionsNumber());
+				for(int iT = 0; iT < s.getTransitionsNumber(); ++iT) {
+					assertTrue( s.getTransitionTime(iT).equals(p.getTransitionTime(iT)));
+					for(int iNode = 0; iNode < s.getNodeIndexing().getNodesNumber(); ++iNode)
+						assertTrue( s.getNodeValue(iT, iNode).equals(p.getNodeValue(iT, iNode)));
+				}
+			}
+		} finally {
+			deleteDataset(dir);
+		}
+	}
+
+	/**
+	 * Test the parallel loading of more files than
+	 * the files that can wait to be merged.
+	 */
+	@Test
+	public void testParallelLoadManyFiles() throws IOException {
+
+		File dir = generateDataset();
+		try {
+			for(int f = 0; f < 12; ++f)
+				writeFile(new File(dir, "m" + f + ".csv"), "t,trj,X,Y,class\n0,1,x" + (f % 4) + ",y1,A\n1,1,x1,y" + (f % 3) + ",A\n0,2,x2,y2,B\n" + (f + 1) + ",2,x1,y1,B\n");
+
+			List<ITrajectory<Double>> serial = new Vector<ITrajectory<Double>>();
+			List<ITrajectory<Double>> parallel = new Vector<ITrajectory<Double>>();
+			DatasetLoader serialLoader = new DatasetLoader(1);
+			DatasetLoader parallelLoader = new DatasetLoader(2);
+			serialLoader.load("testLoaderManySerial", serial, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 1.0, 0);
+			parallelLoader.load("testLoaderManyParallel", parallel, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 1.0, 0);
+
+			assertTrue( serialLoader.getLoadedFilesNumber() == 14);
+			assertTrue( parallelLoader.getLoadedFilesNumber() == 14);
+			assertTrue( serialLoader.getLoadedBytes() == parallelLoader.getLoadedBytes());
+			assertTrue( serial.size() == parallel.size());
+			for(int i = 0; i < serial.size(); ++i) {
+				ITrajectory<Double> s = serial.get(i);
+				ITrajectory<Double> p = parallel.get(i);
+				assertTrue( s.getName().equals(p.getName()));
+				assertTrue( s.getTransitionsNumber() == p.getTransitionsNumber());
+				for(int iT = 0; iT < s.getTransitionsNumber(); ++iT) {
+					assertTrue( s.getTransitionTime(iT).equals(p.getTransitionTime(iT)));
+					for(int iNode = 0; iNode < s.getNodeIndexing().getNodesNumber(); ++iNode)
+						assertTrue( s.getNodeValue(iT, iNode).equals(p.getNodeValue(iT, iNode)));
+				}
+			}
+		} finally {
+			deleteDataset(dir);
+		}
+	}
+
+	/**
+	 * Test that the times of a dataset written in the
+	 * binary format are scaled by the time factor only
+	 * once when it is loaded again.
+	 */
+	@Test
+	public void testBinaryTimeFactor() throws IOException {
+
+		File dir = generateDataset();
+		File file = File.createTempFile("ZJTESTDatasetLoader", BinaryDataset.EXTENSION);
+		try {
+			List<ITrajectory<Double>> csv = new Vector<ITrajectory<Double>>();
+			new DatasetLoader(2).load("testLoaderBinaryCSV", csv, dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 0.1, 0);
+			BinaryDataset.write(csv, file.getAbsolutePath(), 0.1);
+
+			List<ITrajectory<Double>> binary = new Vector<ITrajectory<Double>>();
+			new DatasetLoader(2).load("testLoaderBinary", binary, file.getAbsolutePath(), ".csv", ',', "class", "t", null, new TreeSet<String>(), 0.1, 0);
+			List<ITrajectory<Double>> raw = new Vector<ITrajectory<Double>>();
+			new DatasetLoader(2).load("testLoaderBinaryRaw", raw, file.getAbsolutePath(), ".csv", ',', "class", "t", null, new TreeSet<String>(), 1.0, 0);
+
+			assertTrue( csv.size() == binary.size());
+			assertTrue( csv.size() == raw.size());
+			for(int i = 0; i < csv.size(); ++i) {
+				ITrajectory<Double> c = csv.get(i);
+				assertTrue( c.getName().equals(binary.get(i).getName()));
+				assertTrue( c.getTransitionsNumber() == binary.get(i).getTransitionsNumber());
+				for(int iT = 0; iT < c.getTransitionsNumber(); ++iT) {
+					assertTrue( c.getTransitionTime(iT).equals(binary.get(i).getTransitionTime(iT)));
+					assertEquals( c.getTransitionTime(iT) * 10, raw.get(i).getTransitionTime(iT), 1e-12);
+				}
+			}
+			assertTrue( csv.get(0).getTransitionTime(1) == 0.5 * 0.1);
+		} finally {
+			file.delete();
+			deleteDataset(dir);
+		}
+	}
+
+	/**
+	 * Test the loading errors.
+	 */
+	@Test
+	public void testLoadErrors() throws IOException {
+
+		File dir = generateDataset();
+		try {
+			try {
+				new DatasetLoader(0);
+				fail("Exception expected");
+			} catch( IllegalArgumentException e) {}
+
+			try {
+				new DatasetLoader(2).load("testLoaderErrors1", new Vector<ITrajectory<Double>>(), dir.getAbsolutePath(), ".csv", ',', "class", "time", "trj", new TreeSet<String>(), 1.0, 0);
+				fail("Exception expected");
+			} catch( RuntimeException e) {
+				assertTrue( e.getMessage().equals("Error time column named time not found"));
+			}
+
+			writeFile(new File(dir, "c.csv"), "t,trj,X,Y,class\n0,1,x1,y1\n");
+			try {
+				new DatasetLoader(2).load("testLoaderErrors2", new Vector<ITrajectory<Double>>(), dir.getAbsolutePath(), ".csv", ',', "class", "t", "trj", new TreeSet<String>(), 1.0, 0);
+				fail("Exception expected");
+			} catch( RuntimeException e) {
+				assertTrue( e.getMessage().equals("Data row length does not correspond with header length"));
+			}
+		} finally {
+			deleteDataset(dir);
+		}
+	}
+
+	/**
+	 * Test the equivalence between the CSV reader
+	 * of the loader and the opencsv CSVReader.
+	 */
+	@Test
+	public void testCSVLineReader() throws IOException {
+
+		String[] contents = {
+				"a,b,c\n1,2,3\n",
+				"a, b ,c\n\n1,,\n,\n",
+				"a,\"b,c\",d\n\"x\"\"y\",2,3\n",
+				"a,\"b\nc\",d\n1,2,3\n",
+				"a,b\\,c,d\n1,\\\"2,3\n",
+				"a;b;c\n1;2;3",
+		};
+
+		for(int i = 0; i < contents.length; ++i) {
+			char separator = (i == contents.length - 1) ? ';' : ',';
+			CSVReader reference = new CSVReader(new StringReader(contents[i]), separator);
+			DatasetLoader.CSVLineReader reader = new DatasetLoader.CSVLineReader(new BufferedReader(new StringReader(contents[i])), separator);
+
+			String[] expected, actual;
+			do {
+				expected = reference.readNext();
+				actual = reader.readNext();
+				assertTrue( Arrays.equals(expected, actual));
+			} while( expected != null);
+
+			reference.close();
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Generate a temporary dataset directory.
+	 *
+	 * @return dataset directory
+	 * @throws IOException in case of IO errors
+	 */
+	private static File generateDataset() throws IOException {
+
+		File dir = File.createTempFile("ZJTESTDatasetLoader", "");
+		if( !dir.delete() || !dir.mkdir())
+			throw new IOException("Error: impossible to create the temporary directory");
+
+		writeFile(new File(dir, "a.csv"), "t,trj, X ,Y,class\n0,1,x1,y1,A\n0.5,1, x1,\"y,2\",A\n1.5,1,x 2,\"y,2\",A\n0,2,x1,y1,B\n1,2,x3,y1,B\n");
+		writeFile(new File(dir, "b.csv"), "t,trj,X,Y,class\n0,7,x3,y1,B\n2,7,x1,y1,B\n");
+		writeFile(new File(dir, "ignore.txt"), "this is not a dataset file");
+
+		return dir;
+	}
+
+	/**
+	 * Write a text file.
+	 *
+	 * @param file file to write
+	 * @param content content of the file
+	 * @throws IOException in case of IO errors
+	 */
+	private static void writeFile(File file, String content) throws IOException {
+
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write(content);
+		out.close();
+	}
+
+	/**
+	 * Delete a temporary dataset directory.
+	 *
+	 * @param dir directory to delete
+	 */
+	private static void deleteDataset(File dir) {
+
+		File[] files = dir.listFiles();
+		for(int i = 0; files != null && i < files.length; ++i)
+			files[i].delete();
+		dir.delete();
+	}
+}
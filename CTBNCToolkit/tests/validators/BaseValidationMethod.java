@@ -10,10 +10,15 @@
  */
 package CTBNCToolkit.tests.validators;
 
+import java.util.*;
+
 import CTBNCToolkit.ICTClassifier;
+import CTBNCToolkit.ILearningAlgorithm;
 import CTBNCToolkit.ILearningResults;
 import CTBNCToolkit.IModel;
 import CTBNCToolkit.INode;
+import CTBNCToolkit.IStreamingLearningAlgorithm;
+import CTBNCToolkit.ITrajectory;
 import CTBNCToolkit.MultipleCTBNC;
 import CTBNCToolkit.MultipleCTBNCLearningResults;
 import CTBNCToolkit.NodeIndexing;
@@ -119,6 +124,39 @@ public abstract class BaseValidationMethod<TimeType extends Number & Comparable<
 	}
 	
 
+	/**
+	 * Learn the model from a training set given
+	 * as a list of parts (e.g. the folds of the
+	 * cross validation). If the learning algorithm
+	 * is a streaming algorithm the parts are read
+	 * in sequence without generating the joined
+	 * training set.
+	 * 
+	 * @param mdl model to learn
+	 * @param learnAlgo learning algorithm
+	 * @param trainingParts parts of the training set
+	 * @return the learning result
+	 */
+	@SuppressWarnings("unchecked")
+	protected ILearningResults learn(ICTClassifier<TimeType,NodeType> mdl, ILearningAlgorithm<TimeType,NodeType> learnAlgo, List<List<ITrajectory<TimeType>>> trainingParts) {
+		
+		if( learnAlgo instanceof IStreamingLearningAlgorithm)
+			return ((IStreamingLearningAlgorithm<TimeType,NodeType>) learnAlgo).learn(mdl, new PartsIterator<TimeType>(trainingParts));
+		
+		if( trainingParts.size() == 1)
+			return learnAlgo.learn(mdl, trainingParts.get(0));
+		
+		int size = 0;
+		for( int i = 0; i < trainingParts.size(); ++i)
+			size += trainingParts.get(i).size();
+		ArrayList<ITrajectory<TimeType>> joinedList = new ArrayList<ITrajectory<TimeType>>(size);
+		for( int i = 0; i < trainingParts.size(); ++i)
+			joinedList.addAll(trainingParts.get(i));
+		
+		return learnAlgo.learn(mdl, joinedList);
+	}
+	
+	
 	/**
 	 * Print the sufficient statistics.
 	 * 
@@ -167,4 +205,51 @@ public abstract class BaseValidationMethod<TimeType extends Number & Comparable<
 		
 	}
 
+	
+	/**
+	 * Iterator over the trajectories
+	 * of a list of datasets.
+	 *
+	 * @param <TimeType> type of the time interval in the trajectories (Integer = discrete time, Double = continuous time)
+	 */
+	private static class PartsIterator<TimeType extends Number & Comparable<TimeType>> implements Iterator<ITrajectory<TimeType>> {
+		
+		private List<List<ITrajectory<TimeType>>> parts;
+		private int iPart;
+		private int iTrj;
+		
+		private PartsIterator(List<List<ITrajectory<TimeType>>> parts) {
+			
+			this.parts = parts;
+			this.iPart = 0;
+			this.iTrj = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			
+			while( this.iPart < this.parts.size() && this.iTrj >= this.parts.get(this.iPart).size()) {
+				++this.iPart;
+				this.iTrj = 0;
+			}
+			
+			return this.iPart < this.parts.size();
+		}
+
+		@Override
+		public ITrajectory<TimeType> next() {
+			
+			if( !this.hasNext())
+				throw new NoSuchElementException();
+			
+			return this.parts.get(this.iPart).get(this.iTrj++);
+		}
+
+		@Override
+		public void remove() {
+			
+			throw new UnsupportedOperationException();
+		}
+	}
+
 }
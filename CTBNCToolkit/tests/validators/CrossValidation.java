@@ -229,16 +229,18 @@ public class CrossValidation<TimeType extends Number & Comparable<TimeType>,Node
 			
 			// Training set and test set generation
 			List<ITrajectory<TimeType>> testSet  = this.foldedDataset.get( f);
-			List<ITrajectory<TimeType>> trainSet = this.joinOtherFolds(this.foldedDataset, f);
+			List<List<ITrajectory<TimeType>>> trainParts = this.otherFolds(this.foldedDataset, f);
+			List<ITrajectory<TimeType>> firstPart = trainParts.get(0);
+			List<ITrajectory<TimeType>> lastPart = trainParts.get(trainParts.size()-1);
 			
 
 			// Model learning
 			super.verbosePrint( "\nCycle " + (f+1) + "\n");
-			super.verbosePrint( "Learning: from " + trainSet.get(0).getName() + " To " + trainSet.get(trainSet.size()-1).getName() + "\n");
+			super.verbosePrint( "Learning: from " + firstPart.get(0).getName() + " To " + lastPart.get(lastPart.size()-1).getName() + "\n");
 			super.verbosePrint( "          from " + testSet.get(0).getName() + " To " +  testSet.get(testSet.size()-1 ).getName() + " excluded\n");
 
 			long startTime = System.currentTimeMillis();
-			ILearningResults classificationResult = learnAlgo.learn( mdl, trainSet);
+			ILearningResults classificationResult = super.learn( mdl, learnAlgo, trainParts);
 			double learningTime = (System.currentTimeMillis() - startTime) / 1000.0;
 			// In sample performances
 			if( super.getClusterInSampleFlag() && ClusteringResults.class.isAssignableFrom(classificationResult.getClass())) {
@@ -332,23 +334,23 @@ public class CrossValidation<TimeType extends Number & Comparable<TimeType>,Node
 	
 	
 	/**
-	 * Merge all the folds in one list
-	 * excluding the one indicated by
-	 * the index.
+	 * Return all the folds excluding
+	 * the one indicated by the index
+	 * (the folds are not copied).
 	 * 
 	 * @param folds list of folds
 	 * @param index index of the fold to exclude
-	 * @return merged list
+	 * @return list of the other folds
 	 */
-	private ArrayList<ITrajectory<TimeType>> joinOtherFolds(List<List<ITrajectory<TimeType>>> folds, int index)
+	private List<List<ITrajectory<TimeType>>> otherFolds(List<List<ITrajectory<TimeType>>> folds, int index)
 	{	
-		ArrayList<ITrajectory<TimeType>> joinedList = new ArrayList<ITrajectory<TimeType>>(folds.get(0).size() * (folds.size()-1));
+		List<List<ITrajectory<TimeType>>> otherFolds = new ArrayList<List<ITrajectory<TimeType>>>(folds.size()-1);
 
 		for ( int i = 0; i < folds.size(); ++i)
 			if (i != index)
-				joinedList.addAll(folds.get( i));
+				otherFolds.add(folds.get( i));
 
-		return joinedList;
+		return otherFolds;
 	}
 
 }
@@ -10,6 +10,7 @@
  */
 package CTBNCToolkit.tests.validators;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -221,7 +222,7 @@ public class HoldOut<TimeType extends Number & Comparable<TimeType>,NodeType ext
 		super.verbosePrint("Learning (training set of " + this.trainingSet.size() + " trajectories):\n");
 		
 		long startTime = System.currentTimeMillis();
-		ILearningResults classificationResult = learnAlgo.learn(mdl, this.trainingSet);
+		ILearningResults classificationResult = super.learn(mdl, learnAlgo, Collections.singletonList(this.trainingSet));
 		double learningTime = (System.currentTimeMillis() - startTime) / 1000.0;
 		// In sample performances
 		if( super.getClusterInSampleFlag() && ClusteringResults.class.isAssignableFrom(classificationResult.getClass())) {